@@ -173,6 +173,23 @@ test_java_args() {
   fi
 }
 
+# Adds the Java arguments for using the class data sharing archive created by
+# the create-cds-archive script, or for recording the classes loaded by the
+# server while create-cds-archive runs its training workload.
+set_class_data_sharing_args() {
+  if test -n "${OPENDJ_CDS_TRAINING_ARGS}"
+  then
+    OPENDJ_JAVA_ARGS="${OPENDJ_JAVA_ARGS} ${OPENDJ_CDS_TRAINING_ARGS}"
+    export OPENDJ_JAVA_ARGS
+  elif test -z "${OPENDJ_CDS_DISABLED}" -a -f "${INSTANCE_ROOT}/config/server.jsa" \
+    -a -f "${INSTANCE_ROOT}/config/server.jsa.options"
+  then
+    read CDS_JAVA_ARGS < "${INSTANCE_ROOT}/config/server.jsa.options"
+    OPENDJ_JAVA_ARGS="${OPENDJ_JAVA_ARGS} ${CDS_JAVA_ARGS}"
+    export OPENDJ_JAVA_ARGS
+  fi
+}
+
 # Determine whether the detected Java environment is acceptable for use.
 test_java() {
   if test -z "${OPENDJ_JAVA_ARGS}"
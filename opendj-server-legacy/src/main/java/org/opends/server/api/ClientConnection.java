@@ -132,6 +132,13 @@ public abstract class ClientConnection
    */
   private Object saslAuthState;
 
+  /**
+   * The opaque information kept by the access control handler across the
+   * operations of this client connection, e.g. cached access control
+   * decisions.
+   */
+  private volatile Object accessControlState;
+
   /** A string representation of the time that this client connection was established. */
   private final String connectTimeString;
 
@@ -1167,6 +1174,35 @@ public abstract class ClientConnection
   }
 
 
+
+
+  /**
+   * Retrieves an opaque set of information kept by the access control
+   * handler across the operations of this client connection.
+   *
+   * @return  An opaque set of information kept by the access control
+   *          handler, or {@code null} if there is none.
+   */
+  public final Object getAccessControlState()
+  {
+    return accessControlState;
+  }
+
+
+
+  /**
+   * Specifies an opaque set of information kept by the access control
+   * handler across the operations of this client connection.
+   *
+   * @param  accessControlState  An opaque set of information kept by
+   *                             the access control handler.
+   */
+  public final void setAccessControlState(Object accessControlState)
+  {
+    this.accessControlState = accessControlState;
+  }
+
+
   /**
    * Return the lowest level channel associated with a connection.
    * This is normally the channel associated with the socket
@@ -1396,7 +1432,6 @@ public abstract class ClientConnection
   public Set<Group<?>> getGroups(Operation operation)
          throws DirectoryException
   {
-    // FIXME -- This probably isn't the most efficient implementation.
     DN authzDN;
     if (operation == null)
     {
@@ -1425,15 +1460,7 @@ public abstract class ClientConnection
       return Collections.<Group<?>>emptySet();
     }
 
-    HashSet<Group<?>> groupSet = new HashSet<>();
-    for (Group<?> g : DirectoryServer.getGroupManager().getGroupInstances())
-    {
-      if (g.isMember(userEntry))
-      {
-        groupSet.add(g);
-      }
-    }
-    return groupSet;
+    return DirectoryServer.getGroupManager().getMemberGroups(userEntry);
   }
 
 
@@ -35,6 +35,7 @@ import java.util.Set;
 import org.opends.server.admin.std.server.GroupImplementationCfg;
 import org.opends.server.core.ServerContext;
 import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.ldap.DN.CompactDn;
 import org.opends.server.types.DirectoryException;
 import org.opends.server.types.DN;
 import org.opends.server.types.Entry;
@@ -446,6 +447,92 @@ public abstract class Group<T extends GroupImplementationCfg>
 
 
 
+  /**
+   * Retrieves the DNs of the entries explicitly listed as members of
+   * this group, including its nested groups.  The group manager
+   * indexes them in order to find the groups of an entry without
+   * checking each group.  Groups whose members are not listed in the
+   * group entry, such as dynamic groups, return {@code null}, and are
+   * checked with {@link #isMember(Entry)} instead.
+   *
+   * @return  The compact DNs of the members listed in this group,
+   *          which must not be modified, or {@code null} if the
+   *          members of this group are not listed.
+   */
+  public Set<CompactDn> getListedMemberDNs()
+  {
+    return null;
+  }
+
+
+
+  /**
+   * Indicates whether this group must be notified of the changes of
+   * all the entries through {@link #entryChanged(DN, Entry, boolean)},
+   * e.g. because it keeps its members in memory.
+   *
+   * @return  {@code true} if this group must be notified of the entry
+   *          changes, or {@code false} if not.
+   */
+  public boolean requiresEntryChanges()
+  {
+    return false;
+  }
+
+
+
+  /**
+   * Indicates whether the change of the entry with the provided DN may
+   * change the members of this group, so that the group manager only
+   * reads the changed entry and notifies this group through
+   * {@link #entryChanged(DN, Entry, boolean)} when needed.  This is
+   * only invoked if {@link #requiresEntryChanges()} returns
+   * {@code true}, and must be decided from the DN only.
+   *
+   * @param  entryDN         The DN of the changed entry.
+   * @param  subtreeChanged  Indicates whether the entries below the
+   *                         changed entry may have been deleted or
+   *                         renamed as well.
+   *
+   * @return  {@code true} if the change may change the members of
+   *          this group, or {@code false} if it cannot.
+   */
+  public boolean isImpactedByEntryChange(DN entryDN,
+                                         boolean subtreeChanged)
+  {
+    return true;
+  }
+
+
+
+  /**
+   * Notifies this group that an entry has been added, deleted,
+   * modified or renamed.  This is only invoked by the group manager
+   * after the change has been applied, and if
+   * {@link #isImpactedByEntryChange(DN, boolean)} returns
+   * {@code true}.  A renamed entry is notified once with its old DN
+   * and once with its new DN.  The group manager reads the changed
+   * entry once for all the groups, while holding the entry read lock
+   * so that the changes of the same entry are notified in the order
+   * they were applied.
+   *
+   * @param  entryDN         The DN of the changed entry.
+   * @param  currentEntry    The entry currently stored with this DN,
+   *                         or {@code null} if there is none, or if
+   *                         the subtree has changed.
+   * @param  subtreeChanged  Indicates whether the entries below the
+   *                         changed entry may have been deleted or
+   *                         renamed as well, or whether the changed
+   *                         entry could not be read.
+   */
+  public void entryChanged(DN entryDN, Entry currentEntry,
+                           boolean subtreeChanged)
+  {
+    // No implementation by default.
+  }
+
+
+
   /**
    * Indicates whether it is possible to alter the member list for
    * this group (e.g., in order to add members to the group or remove
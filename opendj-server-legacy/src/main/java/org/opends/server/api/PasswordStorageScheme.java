@@ -349,5 +349,25 @@ public abstract class
    *          reveal the corresponding plain-text value.
    */
   public abstract boolean isStorageSchemeSecure();
+
+
+
+  /**
+   * Indicates whether encoding and verifying passwords with this
+   * storage scheme is computationally expensive, e.g. because it
+   * iterates a key derivation function. The passwords of expensive
+   * schemes are hashed by the password hashing threads, when they are
+   * configured, rather than by the threads processing the operations.
+   * This should be overridden by password storage schemes designed to
+   * be slow.
+   *
+   * @return  {@code true} if encoding and verifying passwords with
+   *          this storage scheme is computationally expensive, or
+   *          {@code false} if not.
+   */
+  public boolean isComputationallyExpensive()
+  {
+    return false;
+  }
 }
 
@@ -69,6 +69,12 @@ public class Aci implements Comparable<Aci>
      */
     private final DN dn;
 
+    /**
+     * True if the outcome of a bind rule of this ACI depends on the target
+     * entry, e.g. userattr or userdn="ldap:///self".
+     */
+    private final boolean dependsOnResourceEntry;
+
     /**
      * Regular expression matching a word group.
      */
@@ -354,6 +360,7 @@ public class Aci implements Comparable<Aci>
         this.dn=dn;
         this.body=body;
         this.targets=targets;
+        this.dependsOnResourceEntry=body.dependsOnResourceEntry();
     }
 
     /**
@@ -473,6 +480,35 @@ public class Aci implements Comparable<Aci>
       }
     }
 
+    /**
+     * Check if an ACI is applicable to the entry of the target match context,
+     * regardless of the attribute being evaluated: only the rights and the
+     * target, targetscope and targetfilter keywords are checked. The
+     * targetattr and targattrfilters keywords are not.
+     *
+     * @param aci The ACI to try to match.
+     * @param matchCtx The target match context of the entry.
+     * @return True if the ACI may apply to attributes of the entry.
+     */
+    static boolean isApplicableToEntry(Aci aci, AciTargetMatchContext matchCtx) {
+      return !matchCtx.hasRights(ACI_EXT_OP | ACI_CONTROL)
+          && hasNoExtOpOrTargetControl(aci.getTargets())
+          && haveSimilarRights(aci, matchCtx)
+          && AciTargets.isTargetApplicable(aci, matchCtx)
+          && AciTargets.isTargetFilterApplicable(aci, matchCtx);
+    }
+
+    /**
+     * Indicates whether the outcome of a bind rule of this ACI depends on the
+     * target entry, e.g. userattr or userdn="ldap:///self", rather than only
+     * on the client.
+     *
+     * @return True if a bind rule of this ACI depends on the target entry.
+     */
+    boolean dependsOnResourceEntry() {
+      return dependsOnResourceEntry;
+    }
+
     private static boolean hasNoExtOpOrTargetControl(AciTargets aciTargets)
     {
       return aciTargets.getExtOp() == null
@@ -264,6 +264,21 @@ public class AciBody {
         return permBindRulePairs;
     }
 
+    /**
+     * Indicates whether the outcome of a bind rule of this ACI body depends
+     * on the target entry rather than only on the client.
+     *
+     * @return True if a bind rule depends on the target entry.
+     */
+    boolean dependsOnResourceEntry() {
+        for (PermBindRulePair p : permBindRulePairs) {
+            if (p.getBindRule().dependsOnResourceEntry()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Get the start position in the ACI string of the ACI body.
      *
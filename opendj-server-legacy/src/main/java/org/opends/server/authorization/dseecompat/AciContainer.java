@@ -216,6 +216,12 @@ implements AciTargetMatchContext, AciEvalContext {
      */
     private AuthenticationInfo authInfo;
 
+    /**
+     * The cache of the bind rule outcomes of the client connection, or null
+     * until looked up.
+     */
+    private AciDecisionCache decisionCache;
+
   /**
      * This constructor is used by all currently supported LDAP operations
      * except the generic access control check that can be used by
@@ -888,6 +894,28 @@ implements AciTargetMatchContext, AciEvalContext {
       return clientConnection.getSSF();
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public AciDecisionCache getDecisionCache() {
+      if (hasGetEffectiveRightsControl || useAuthzid) {
+        return null;
+      }
+      return decisionCache;
+  }
+
+  /**
+   * Looks up the cache of the bind rule outcomes of the client connection,
+   * unless already done for this container.
+   *
+   * @param aciGeneration The current generation of the ACI list.
+   */
+  void initDecisionCache(long aciGeneration) {
+      if (decisionCache == null) {
+        decisionCache = AciDecisionCache.getInstance(
+            clientConnection, authInfo, authorizationEntry, aciGeneration);
+      }
+  }
+
   /** {@inheritDoc} */
   @Override
   public String toString()
@@ -0,0 +1,126 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.authorization.dseecompat;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.opends.server.api.ClientConnection;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.types.AuthenticationInfo;
+import org.opends.server.types.Entry;
+
+/**
+ * Caches the outcomes of the bind rules which only depend on the client, such
+ * as group membership checks or DNS lookups, so that they are evaluated once
+ * per client connection rather than once per evaluated entry and attribute.
+ * <p>
+ * A cache is kept as the access control state of each client connection. It
+ * is only valid for the authentication information and authorization entry it
+ * was created for, which are replaced whenever the client binds again or its
+ * entry is modified, for the generation of the ACI list it was created for,
+ * and for the refresh token of the group manager it was created with, which
+ * changes whenever a group is added, modified or removed. A new cache replaces
+ * the previous one as soon as any of these changes.
+ */
+final class AciDecisionCache
+{
+  private final AuthenticationInfo authInfo;
+  private final Entry authorizationEntry;
+  private final long aciGeneration;
+  private final long groupRefreshToken;
+  /** The cached outcomes, keyed by the simple bind rules. */
+  private final ConcurrentHashMap<BindRule, EnumEvalResult> outcomes = new ConcurrentHashMap<>();
+
+  private AciDecisionCache(AuthenticationInfo authInfo, Entry authorizationEntry, long aciGeneration,
+      long groupRefreshToken)
+  {
+    this.authInfo = authInfo;
+    this.authorizationEntry = authorizationEntry;
+    this.aciGeneration = aciGeneration;
+    this.groupRefreshToken = groupRefreshToken;
+  }
+
+  /**
+   * Returns the valid cache of the provided client connection, creating it
+   * if needed.
+   *
+   * @param clientConnection
+   *          The client connection.
+   * @param authInfo
+   *          The authentication information used for the evaluation.
+   * @param authorizationEntry
+   *          The authorization entry used for the evaluation, or {@code null}
+   *          for an anonymous client.
+   * @param aciGeneration
+   *          The current generation of the ACI list.
+   * @return The valid cache of the provided client connection.
+   */
+  static AciDecisionCache getInstance(ClientConnection clientConnection, AuthenticationInfo authInfo,
+      Entry authorizationEntry, long aciGeneration)
+  {
+    final long groupRefreshToken = DirectoryServer.getGroupManager().refreshToken();
+    final Object state = clientConnection.getAccessControlState();
+    if (state instanceof AciDecisionCache)
+    {
+      final AciDecisionCache cache = (AciDecisionCache) state;
+      if (cache.authInfo == authInfo
+          && cache.authorizationEntry == authorizationEntry
+          && cache.aciGeneration == aciGeneration
+          && cache.groupRefreshToken == groupRefreshToken)
+      {
+        return cache;
+      }
+    }
+    final AciDecisionCache cache =
+        new AciDecisionCache(authInfo, authorizationEntry, aciGeneration, groupRefreshToken);
+    clientConnection.setAccessControlState(cache);
+    return cache;
+  }
+
+  /**
+   * Returns the cached outcome of the provided bind rule.
+   *
+   * @param bindRule
+   *          The simple bind rule.
+   * @return The cached outcome, or {@code null} if it is not cached.
+   */
+  EnumEvalResult getOutcome(BindRule bindRule)
+  {
+    return outcomes.get(bindRule);
+  }
+
+  /**
+   * Caches the outcome of the provided bind rule.
+   *
+   * @param bindRule
+   *          The simple bind rule.
+   * @param outcome
+   *          The outcome of its evaluation.
+   */
+  void putOutcome(BindRule bindRule, EnumEvalResult outcome)
+  {
+    outcomes.put(bindRule, outcome);
+  }
+}
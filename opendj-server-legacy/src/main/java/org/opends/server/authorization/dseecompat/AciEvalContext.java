@@ -306,4 +306,14 @@ public interface AciEvalContext
      * @return The current SSF of the connection.
      */
     int getCurrentSSF();
+
+    /**
+     * Returns the cache of the bind rule outcomes which only depend on the
+     * client, shared by the operations of the client connection.
+     *
+     * @return The cache of the bind rule outcomes, or {@code null} if the
+     *         outcomes must not be cached for this evaluation, e.g. for a
+     *         geteffectiverights control evaluation.
+     */
+    AciDecisionCache getDecisionCache();
 }
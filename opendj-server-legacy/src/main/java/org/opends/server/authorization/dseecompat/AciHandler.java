@@ -27,8 +27,12 @@
  */
 package org.opends.server.authorization.dseecompat;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 
 import org.forgerock.i18n.LocalizableMessage;
@@ -91,6 +95,24 @@ public final class AciHandler extends
    */
   public static final String ORIG_AUTH_ENTRY = "origAuthorizationEntry";
 
+  /**
+   * String used to save the attributes readable by the client in an
+   * operation attachment, for filtering the entries returned by a search.
+   */
+  private static final String READABLE_ATTRIBUTES = "readableAttributes";
+
+  /**
+   * The read access decisions for the attribute types of the entries to which
+   * the same ACIs apply, indexed by attribute type identifier.
+   */
+  private static final class ReadableAttributes
+  {
+    /** The attribute types whose read access has been evaluated. */
+    private final BitSet evaluated = new BitSet();
+    /** The evaluated attribute types which the client can read. */
+    private final BitSet readable = new BitSet();
+  }
+
   /** Attribute type corresponding to "aci" attribute. */
   static AttributeType aciType;
 
@@ -169,7 +191,7 @@ public final class AciHandler extends
     boolean skipCheck = skipAccessCheck(operation);
     if (!skipCheck)
     {
-      filterEntry(container, filteredEntry);
+      filterEntry(operation, container, filteredEntry);
     }
 
     if (container.hasGetEffectiveRightsControl())
@@ -554,6 +576,7 @@ public final class AciHandler extends
      * candidate ACI against the container's target match view.
      */
     createApplicableList(candidates, container);
+    container.initDecisionCache(aciList.getGeneration());
     // Evaluate the applicable list.
     final boolean ret = testApplicableLists(container);
     // Build summary string if doing geteffectiverights eval.
@@ -642,8 +665,11 @@ public final class AciHandler extends
    *          The partially filtered search result entry being returned to the
    *          client.
    */
-  private void filterEntry(AciContainer container, Entry filteredEntry)
+  private void filterEntry(Operation operation, AciContainer container,
+      Entry filteredEntry)
   {
+    final ReadableAttributes readableAttributes =
+        getReadableAttributes(operation, container);
     for (AttributeType attrType : getAllAttrs(filteredEntry))
     {
       if (container.hasAllUserAttributes() && !attrType.isOperational())
@@ -654,8 +680,24 @@ public final class AciHandler extends
       {
         continue;
       }
+      final int id = attrType.getId();
+      if (readableAttributes != null && id >= 0
+          && readableAttributes.evaluated.get(id))
+      {
+        if (!readableAttributes.readable.get(id))
+        {
+          filteredEntry.removeAttribute(attrType);
+        }
+        continue;
+      }
       container.setCurrentAttributeType(attrType);
-      if (!accessAllowed(container))
+      final boolean allowed = accessAllowed(container);
+      if (readableAttributes != null && id >= 0)
+      {
+        readableAttributes.evaluated.set(id);
+        readableAttributes.readable.set(id, allowed);
+      }
+      if (!allowed)
       {
         filteredEntry.removeAttribute(attrType);
       }
@@ -664,6 +706,63 @@ public final class AciHandler extends
 
 
 
+  /**
+   * Returns the read access decisions already made by the provided operation
+   * for the entries to which the same ACIs apply as to the entry of the
+   * provided container. The ACIs applying to an entry are those whose
+   * target, targetscope and targetfilter keywords match the entry. When none
+   * of these ACIs has a bind rule depending on the entry, such as userattr
+   * or userdn="ldap:///self", the read access to an attribute type only
+   * depends on these ACIs and on the targetattr keywords, so it is evaluated
+   * once for all these entries.
+   *
+   * @param operation
+   *          The operation returning the entry.
+   * @param container
+   *          The container of the entry to filter.
+   * @return The read access decisions for the entry, or {@code null} if they
+   *         must be evaluated for this entry only.
+   */
+  private ReadableAttributes getReadableAttributes(Operation operation,
+      AciContainer container)
+  {
+    if (container.hasGetEffectiveRightsControl())
+    {
+      return null;
+    }
+    List<Aci> candidates = aciList.getCandidateAcis(container.getResourceDN());
+    List<Aci> entryAcis = new ArrayList<>(candidates.size());
+    for (Aci aci : candidates)
+    {
+      if (Aci.isApplicableToEntry(aci, container))
+      {
+        if (aci.dependsOnResourceEntry())
+        {
+          return null;
+        }
+        entryAcis.add(aci);
+      }
+    }
+
+    Map<List<Aci>, ReadableAttributes> readableAttributesByAcis =
+        operation.getAttachment(READABLE_ATTRIBUTES);
+    if (readableAttributesByAcis == null)
+    {
+      readableAttributesByAcis = new HashMap<>();
+      operation.setAttachment(READABLE_ATTRIBUTES, readableAttributesByAcis);
+    }
+    ReadableAttributes readableAttributes =
+        readableAttributesByAcis.get(entryAcis);
+    if (readableAttributes == null)
+    {
+      readableAttributes = new ReadableAttributes();
+      readableAttributesByAcis.put(entryAcis, readableAttributes);
+    }
+    return readableAttributes;
+  }
+
+
+
   /**
    * Checks to see if a LDAP modification is allowed access.
    *
@@ -30,7 +30,7 @@ import static org.opends.messages.AccessControlMessages.*;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import static org.opends.server.authorization.dseecompat.AciHandler.*;
 import java.util.*;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.opends.server.api.Backend;
@@ -48,20 +48,71 @@ public class AciList {
 
 
   /**
-   * A map containing all the ACIs.
-   * We use the copy-on-write technique to avoid locking when reading.
+   * A map containing all the ACIs, only accessed by the writers while holding
+   * the lock. The readers use the immutable snapshot compiled from it.
    */
-  private volatile DITCacheMap<List<Aci>> aciList = new DITCacheMap<>();
+  private final DITCacheMap<List<Aci>> aciList = new DITCacheMap<>();
 
   /**
-   * Lock to protect internal data structures.
+   * Lock serializing the changes to the ACI list.
    */
-  private final ReentrantReadWriteLock lock =
-          new ReentrantReadWriteLock();
+  private final ReentrantLock lock = new ReentrantLock();
 
   /** The configuration DN used to compare against the global ACI entry DN. */
   private DN configDN;
 
+  /**
+   * An immutable node of the ACI trie, for one RDN of the DNs holding ACIs or
+   * of their ancestors.
+   */
+  private static final class AciNode
+  {
+    /** The child nodes, keyed by their RDN. */
+    private final Map<RDN, AciNode> children;
+    /**
+     * The ACIs inherited by the entries at or below the DN of this node, i.e.
+     * the ACIs of this DN and of its ancestors, from the closest to the
+     * farthest, except the global ACIs.
+     */
+    private final List<Aci> inheritedAcis;
+
+    private AciNode(Map<RDN, AciNode> children, List<Aci> inheritedAcis)
+    {
+      this.children = children;
+      this.inheritedAcis = inheritedAcis;
+    }
+  }
+
+  /** A mutable node, used for compiling the ACI trie. */
+  private static final class AciNodeBuilder
+  {
+    private final Map<RDN, AciNodeBuilder> children = new HashMap<>();
+    private List<Aci> acis;
+  }
+
+  /**
+   * An immutable snapshot of the ACI list, replaced on each change, so that
+   * the ACIs can be read without locking.
+   */
+  private static final class Snapshot
+  {
+    private final AciNode root;
+    private final List<Aci> globalAcis;
+    private final long generation;
+
+    private Snapshot(AciNode root, List<Aci> globalAcis, long generation)
+    {
+      this.root = root;
+      this.globalAcis = globalAcis;
+      this.generation = generation;
+    }
+  }
+
+  /** The current snapshot of the ACI list. */
+  private volatile Snapshot snapshot = new Snapshot(
+      new AciNode(Collections.<RDN, AciNode> emptyMap(), Collections.<Aci> emptyList()),
+      Collections.<Aci> emptyList(), 0);
+
   /**
    * Constructor to create an ACI list to cache ACI attribute types.
    * @param configDN The configuration entry DN.
@@ -77,58 +128,113 @@ public class AciList {
    * and are included in the candidate set only if they have no
    * "target" keyword rules, or if the target keyword rule matches for
    * the specified base DN.
+   * <p>
+   * The ACIs inherited from the parents are precomputed for each DN of the
+   * ACI trie, so this method only walks down the trie, without locking and,
+   * unless global ACIs apply, without allocating.
    *
    * @param baseDN  The DN to check.
-   * @return A list of candidate ACIs that might be applicable.
+   * @return An unmodifiable list of candidate ACIs that might be applicable.
    */
   public List<Aci> getCandidateAcis(DN baseDN) {
-    List<Aci> candidates = new LinkedList<>();
     if(baseDN == null)
     {
-      return candidates;
+      return Collections.emptyList();
     }
 
-    lock.readLock().lock();
-    try
-    {
-      //Save the baseDN in case we need to evaluate a global ACI.
-      DN entryDN=baseDN;
-      while (baseDN != null) {
-        List<Aci> acis = aciList.get(baseDN);
-        if (acis != null) {
-          //Check if there are global ACIs. Global ACI has a NULL DN.
-          if (baseDN.isRootDN()) {
-            for (Aci aci : acis) {
-              AciTargets targets = aci.getTargets();
-              //If there is a target, evaluate it to see if this ACI should
-              //be included in the candidate set.
-              if (targets != null
-                  && AciTargets.isTargetApplicable(aci, targets, entryDN))
-              {
-                  candidates.add(aci);  //Add this ACI to the candidates.
-              }
-            }
-          } else {
-            candidates.addAll(acis);
-          }
+    final Snapshot current = snapshot;
+    AciNode node = current.root;
+    List<Aci> candidates = node.inheritedAcis;
+    for (int i = baseDN.size() - 1; i >= 0; i--) {
+      node = node.children.get(baseDN.getRDN(i));
+      if (node == null) {
+        break;
+      }
+      candidates = node.inheritedAcis;
+    }
+
+    //Check if there are global ACIs. Global ACI has a NULL DN.
+    List<Aci> withGlobalAcis = null;
+    for (Aci aci : current.globalAcis) {
+      AciTargets targets = aci.getTargets();
+      //If there is a target, evaluate it to see if this ACI should
+      //be included in the candidate set.
+      if (targets != null
+          && AciTargets.isTargetApplicable(aci, targets, baseDN))
+      {
+        if (withGlobalAcis == null) {
+          withGlobalAcis = new ArrayList<>(candidates);
         }
-        if(baseDN.isRootDN()) {
-          break;
+        withGlobalAcis.add(aci);  //Add this ACI to the candidates.
+      }
+    }
+    return withGlobalAcis != null ? withGlobalAcis : candidates;
+  }
+
+  /**
+   * Returns the generation of this ACI list, which changes each time ACIs
+   * are added, removed or renamed.
+   *
+   * @return The generation of this ACI list.
+   */
+  public long getGeneration() {
+    return snapshot.generation;
+  }
+
+  /**
+   * Compiles a new snapshot of the ACI list after a change, then releases the
+   * lock. Changes are rare compared to reads, which happen for every
+   * operation, so the whole trie is compiled again.
+   * <p>
+   * Each change therefore costs O(n) in the total number of ACIs and of DNs
+   * holding them, plus the copy of the inherited ACI lists, whatever the
+   * size of the change. Bulk changes, such as loading the ACIs of a backend,
+   * compile the trie only once.
+   */
+  private void publishAndUnlock() {
+    try {
+      AciNodeBuilder rootBuilder = new AciNodeBuilder();
+      List<Aci> globalAcis = Collections.emptyList();
+      for (Map.Entry<DN, List<Aci>> mapEntry : aciList.entrySet()) {
+        DN dn = mapEntry.getKey();
+        if (dn.isRootDN()) {
+          globalAcis = Collections.unmodifiableList(new ArrayList<>(mapEntry.getValue()));
+          continue;
         }
-        DN parentDN=baseDN.parent();
-        if(parentDN == null) {
-          baseDN=DN.rootDN();
-        } else {
-          baseDN=parentDN;
+        AciNodeBuilder builder = rootBuilder;
+        for (int i = dn.size() - 1; i >= 0; i--) {
+          AciNodeBuilder child = builder.children.get(dn.getRDN(i));
+          if (child == null) {
+            child = new AciNodeBuilder();
+            builder.children.put(dn.getRDN(i), child);
+          }
+          builder = child;
         }
+        builder.acis = mapEntry.getValue();
       }
+      snapshot = new Snapshot(compile(rootBuilder, Collections.<Aci> emptyList()),
+          globalAcis, snapshot.generation + 1);
+    } finally {
+      lock.unlock();
     }
-    finally
-    {
-      lock.readLock().unlock();
-    }
+  }
 
-    return candidates;
+  private static AciNode compile(AciNodeBuilder builder, List<Aci> parentAcis) {
+    List<Aci> inheritedAcis = parentAcis;
+    if (builder.acis != null && !builder.acis.isEmpty()) {
+      List<Aci> acis = new ArrayList<>(builder.acis.size() + parentAcis.size());
+      acis.addAll(builder.acis);
+      acis.addAll(parentAcis);
+      inheritedAcis = Collections.unmodifiableList(acis);
+    }
+    if (builder.children.isEmpty()) {
+      return new AciNode(Collections.<RDN, AciNode> emptyMap(), inheritedAcis);
+    }
+    Map<RDN, AciNode> children = new HashMap<>(builder.children.size() * 2);
+    for (Map.Entry<RDN, AciNodeBuilder> child : builder.children.entrySet()) {
+      children.put(child.getKey(), compile(child.getValue(), inheritedAcis));
+    }
+    return new AciNode(children, inheritedAcis);
   }
 
   /**
@@ -145,7 +251,7 @@ public class AciList {
   {
     int validAcis=0;
 
-    lock.writeLock().lock();
+    lock.lock();
     try
     {
       for (Entry entry : entries) {
@@ -158,7 +264,7 @@ public class AciList {
     }
     finally
     {
-      lock.writeLock().unlock();
+      publishAndUnlock();
     }
 
     return validAcis;
@@ -174,14 +280,14 @@ public class AciList {
    *
    */
   public void addAci(DN dn, SortedSet<Aci> acis) {
-    lock.writeLock().lock();
+    lock.lock();
     try
     {
       aciList.put(dn, new LinkedList<>(acis));
     }
     finally
     {
-      lock.writeLock().unlock();
+      publishAndUnlock();
     }
   }
 
@@ -201,7 +307,7 @@ public class AciList {
                                  List<LocalizableMessage> failedACIMsgs) {
     int validAcis=0;
 
-    lock.writeLock().lock();
+    lock.lock();
     try
     {
       //Process global "ds-cfg-global-aci" attribute type. The oldentry
@@ -221,7 +327,7 @@ public class AciList {
     }
     finally
     {
-      lock.writeLock().unlock();
+      publishAndUnlock();
     }
 
     return validAcis;
@@ -289,7 +395,7 @@ public class AciList {
                                              boolean hasAci,
                                              boolean hasGlobalAci) {
 
-    lock.writeLock().lock();
+    lock.lock();
     try
     {
       List<LocalizableMessage> failedACIMsgs=new LinkedList<>();
@@ -314,7 +420,7 @@ public class AciList {
     }
     finally
     {
-      lock.writeLock().unlock();
+      publishAndUnlock();
     }
   }
 
@@ -353,7 +459,7 @@ public class AciList {
                                                       boolean hasGlobalAci) {
     DN entryDN = entry.getName();
 
-    lock.writeLock().lock();
+    lock.lock();
     try
     {
       if (hasGlobalAci && entryDN.equals(configDN) &&
@@ -368,7 +474,7 @@ public class AciList {
     }
     finally
     {
-      lock.writeLock().unlock();
+      publishAndUnlock();
     }
 
     return true;
@@ -381,7 +487,7 @@ public class AciList {
    */
   public void removeAci(Backend<?> backend) {
 
-    lock.writeLock().lock();
+    lock.lock();
     try
     {
       Iterator<Map.Entry<DN,List<Aci>>> iterator =
@@ -397,7 +503,7 @@ public class AciList {
     }
     finally
     {
-      lock.writeLock().unlock();
+      publishAndUnlock();
     }
   }
 
@@ -412,7 +518,7 @@ public class AciList {
     int oldRDNCount=oldDN.size();
     int newRDNCount=newDN.size();
 
-    lock.writeLock().lock();
+    lock.lock();
     try
     {
       Map<DN,List<Aci>> tempAciList = new HashMap<>();
@@ -452,7 +558,7 @@ public class AciList {
     }
     finally
     {
-      lock.writeLock().unlock();
+      publishAndUnlock();
     }
   }
 }
@@ -55,6 +55,12 @@ public class BindRule {
     /** The keyword of a simple bind rule. */
     private EnumBindRuleKeyword keyword;
 
+    /**
+     * True if this is a simple bind rule whose outcome only depends on the
+     * client, and may be cached in the {@link AciDecisionCache}.
+     */
+    private boolean dependsOnClientOnly;
+
     /** Regular expression group position of a bind rule keyword. */
     private static final int keywordPos = 1;
     /** Regular expression group position of a bind rule operation. */
@@ -99,6 +105,27 @@ public class BindRule {
     private BindRule(EnumBindRuleKeyword keyword, KeywordBindRule rule) {
         this.keyword=keyword;
         this.keywordRuleMap.put(keyword.toString(), rule);
+        this.dependsOnClientOnly = dependsOnClientOnly(keyword, rule);
+    }
+
+    /**
+     * Indicates whether the outcome of the provided keyword bind rule only
+     * depends on the client. Only the rules which are costly to evaluate are
+     * considered: the group membership checks, the DNS lookups, and the userdn
+     * rules which are not relative to the target entry. The time based rules,
+     * the rules depending on the target entry, and the SSF, which changes with
+     * StartTLS, are never cached.
+     */
+    private static boolean dependsOnClientOnly(EnumBindRuleKeyword keyword, KeywordBindRule rule) {
+        switch (keyword) {
+        case GROUPDN:
+        case DNS:
+            return true;
+        case USERDN:
+            return rule instanceof UserDN && ((UserDN) rule).dependsOnClientOnly();
+        default:
+            return false;
+        }
     }
 
 
@@ -474,13 +501,58 @@ public class BindRule {
         //Simple bind rules have a null booleanType enumeration.
         if(this.booleanType == null) {
             KeywordBindRule rule=keywordRuleMap.get(keyword.toString());
-            ret = rule.evaluate(evalCtx);
+            ret = evaluate(rule, evalCtx);
         } else {
             ret = evalComplex(left.evaluate(evalCtx),right.evaluate(evalCtx));
         }
         return EnumEvalResult.negateIfNeeded(ret, negate);
     }
 
+    /**
+     * Indicates whether the outcome of this bind rule depends on the target
+     * entry rather than only on the client: userattr rules, userdn rules
+     * using the "self" or "parent" keywords, and roledn rules, which are
+     * conservatively considered as depending on the target entry.
+     *
+     * @return True if the outcome of this bind rule depends on the target
+     *         entry.
+     */
+    boolean dependsOnResourceEntry() {
+        if (booleanType != null) {
+            return left.dependsOnResourceEntry() || right.dependsOnResourceEntry();
+        }
+        switch (keyword) {
+        case USERATTR:
+        case ROLEDN:
+            return true;
+        case USERDN:
+            KeywordBindRule rule = keywordRuleMap.get(keyword.toString());
+            return !(rule instanceof UserDN) || !((UserDN) rule).dependsOnClientOnly();
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Evaluates the provided keyword bind rule of this simple bind rule,
+     * reusing the outcome cached for the client when possible. Only TRUE and
+     * FALSE outcomes are cached, since failures may be transient.
+     */
+    private EnumEvalResult evaluate(KeywordBindRule rule, AciEvalContext evalCtx) {
+        final AciDecisionCache cache = dependsOnClientOnly ? evalCtx.getDecisionCache() : null;
+        if (cache == null) {
+            return rule.evaluate(evalCtx);
+        }
+        EnumEvalResult ret = cache.getOutcome(this);
+        if (ret == null) {
+            ret = rule.evaluate(evalCtx);
+            if (ret == EnumEvalResult.TRUE || ret == EnumEvalResult.FALSE) {
+                cache.putOutcome(this, ret);
+            }
+        }
+        return ret;
+    }
+
     /** {@inheritDoc} */
     @Override
     public String toString() {
@@ -203,6 +203,24 @@ public class UserDN implements KeywordBindRule {
         return matched.getRet(type, undefined);
     }
 
+    /**
+     * Indicates whether the evaluation of this userdn bind rule only depends
+     * on the client, and not on the target entry, i.e. whether its URLs do not
+     * use the "self" and "parent" keywords.
+     *
+     * @return {@code true} if the evaluation only depends on the client.
+     */
+    boolean dependsOnClientOnly() {
+        for (UserDNTypeURL dnTypeURL : urlList) {
+            EnumUserDNType userDNType = dnTypeURL.getUserDNType();
+            if (userDNType == EnumUserDNType.SELF
+                || userDNType == EnumUserDNType.PARENT) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Performs an evaluation of a single UserDNTypeURL of a userdn bind
      * rule using the evaluation context provided. This method is called
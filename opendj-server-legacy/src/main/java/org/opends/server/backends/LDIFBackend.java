@@ -934,10 +934,11 @@ public class LDIFBackend
       else
       {
         // Walk through all entries and send the ones that match.
+        final CompiledSearchFilter compiledFilter = filter.compile();
         for (Entry e : entryMap.values())
         {
           e = e.duplicate(true);
-          if (e.matchesBaseAndScope(baseDN, scope) && filter.matchesEntry(e))
+          if (e.matchesBaseAndScope(baseDN, scope) && compiledFilter.matchesEntry(e))
           {
             searchOperation.returnEntry(e, new LinkedList<Control>());
           }
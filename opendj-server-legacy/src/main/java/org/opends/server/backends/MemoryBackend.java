@@ -57,6 +57,7 @@ import org.opends.server.core.ServerContext;
 import org.opends.server.types.AttributeType;
 import org.opends.server.types.BackupConfig;
 import org.opends.server.types.BackupDirectory;
+import org.opends.server.types.CompiledSearchFilter;
 import org.opends.server.types.Control;
 import org.opends.server.types.DN;
 import org.opends.server.types.DirectoryException;
@@ -591,10 +592,11 @@ public class MemoryBackend
     else
     {
       // Walk through all entries and send the ones that match.
+      final CompiledSearchFilter compiledFilter = filter.compile();
       for (Entry e : entryMap.values())
       {
         e = e.duplicate(true);
-        if (e.matchesBaseAndScope(baseDN, scope) && filter.matchesEntry(e))
+        if (e.matchesBaseAndScope(baseDN, scope) && compiledFilter.matchesEntry(e))
         {
           searchOperation.returnEntry(e, new LinkedList<Control>());
         }
@@ -100,6 +100,7 @@ import org.opends.server.types.Attribute;
 import org.opends.server.types.AttributeType;
 import org.opends.server.types.Attributes;
 import org.opends.server.types.CanceledOperationException;
+import org.opends.server.types.CompiledSearchFilter;
 import org.opends.server.types.Control;
 import org.opends.server.types.DN;
 import org.opends.server.types.DirectoryException;
@@ -1175,6 +1176,7 @@ public class EntryContainer
 
     int lookthroughCount = 0;
     int lookthroughLimit = searchOperation.getClientConnection().getLookthroughLimit();
+    final CompiledSearchFilter filter = searchOperation.getFilter().compile();
 
     try (final Cursor<ByteString, ByteString> cursor = txn.openCursor(dn2id.getName()))
     {
@@ -1207,7 +1209,7 @@ public class EntryContainer
             lookthroughCount++;
 
             if ((manageDsaIT || entry.getReferralURLs() == null)
-                && searchOperation.getFilter().matchesEntry(entry))
+                && filter.matchesEntry(entry))
             {
               if (pageRequest != null
                   && searchOperation.getEntriesSent() == pageRequest.getSize())
@@ -1347,7 +1349,7 @@ public class EntryContainer
     // Iterate through the index candidates.
     if (continueSearch)
     {
-      final SearchFilter filter = searchOperation.getFilter();
+      final CompiledSearchFilter filter = searchOperation.getFilter().compile();
       for (int i = findStartIndex(beginEntryID, entryIDReorderedSet); i < entryIDReorderedSet.length; i++)
       {
         EntryID entryID = new EntryID(entryIDReorderedSet[i]);
@@ -2652,7 +2654,7 @@ public class EntryContainer
 
     final DN baseDN = searchOperation.getBaseDN();
     final SearchScope scope = searchOperation.getScope();
-    final SearchFilter filter = searchOperation.getFilter();
+    final CompiledSearchFilter filter = searchOperation.getFilter().compile();
 
     final TreeMap<ByteString, EntryID> sortMap = new TreeMap<>();
     for (EntryID id : entryIDSet)
@@ -169,10 +169,10 @@ class ID2Entry extends AbstractTree
           closeSilently(decompressor);
         }
 
-        // Since we are used the cached buffers (ByteStringBuilders),
-        // the decoded attribute values will not refer back to the
-        // original buffer.
-        return Entry.decode(entryBuffer.asReader(), compressedSchema);
+        // Copy the cached buffer (a ByteStringBuilder) once, so that all the
+        // decoded attribute values share a single byte array instead of each
+        // value being copied to its own array.
+        return Entry.decode(entryBuffer.toByteString().asReader(), compressedSchema);
       }
       else
       {
@@ -47,7 +47,6 @@ import static org.opends.server.config.ConfigConstants.*;
 import static org.opends.server.core.DirectoryServer.*;
 import static org.opends.server.loggers.AccessLogger.*;
 import static org.opends.server.util.CollectionUtils.*;
-import static org.opends.server.util.StaticUtils.*;
 import static org.opends.server.workflowelement.localbackend.LocalBackendWorkflowElement.*;
 
 /**
@@ -320,7 +319,7 @@ public class AddOperationBasis
             {
               String ocName = os.toString();
               ObjectClass oc =
-                DirectoryServer.getObjectClass(toLowerCase(ocName));
+                DirectoryServer.getObjectClass(ocName);
               if (oc == null)
               {
                 oc = DirectoryServer.getDefaultObjectClass(ocName);
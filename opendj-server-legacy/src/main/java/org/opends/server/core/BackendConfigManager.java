@@ -32,11 +32,16 @@ import static org.opends.server.core.DirectoryServer.*;
 import static org.opends.server.util.CollectionUtils.*;
 import static org.opends.server.util.StaticUtils.*;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
@@ -78,6 +83,73 @@ public class BackendConfigManager implements
   private final ConcurrentHashMap<DN, Backend<? extends BackendCfg>> registeredBackends = new ConcurrentHashMap<>();
   private final ServerContext serverContext;
 
+  /**
+   * The base DN registration order of the backend being opened by the current
+   * thread at startup, or {@code null} if the current thread is not opening a
+   * backend.
+   */
+  private static final ThreadLocal<BaseDNRegistrationOrder> baseDNRegistrationOrder = new ThreadLocal<>();
+
+  /**
+   * Makes the backends opened in parallel at startup register their base DNs
+   * in configuration order, as when they were opened sequentially. Backends
+   * register their base DNs while they are being opened, so the registration
+   * of a backend waits until all the backends which precede it in the
+   * configuration have been opened, or have failed to open. Opening backends,
+   * e.g. recovering or preloading their database, is still done in parallel.
+   * <p>
+   * Package private for testing.
+   */
+  static final class BaseDNRegistrationOrder
+  {
+    private final boolean[] opened;
+    /** The index of the first backend which has not been opened yet. */
+    private int nextTurn;
+    /** The index of the backend opened by the current thread. */
+    private final ThreadLocal<Integer> currentTurn = new ThreadLocal<>();
+
+    BaseDNRegistrationOrder(int nbBackends)
+    {
+      opened = new boolean[nbBackends];
+    }
+
+    void beginOpening(int turn)
+    {
+      currentTurn.set(turn);
+      baseDNRegistrationOrder.set(this);
+    }
+
+    synchronized void endOpening()
+    {
+      baseDNRegistrationOrder.remove();
+      opened[currentTurn.get()] = true;
+      currentTurn.remove();
+      while (nextTurn < opened.length && opened[nextTurn])
+      {
+        nextTurn++;
+      }
+      notifyAll();
+    }
+
+    private synchronized void awaitTurn()
+    {
+      final int turn = currentTurn.get();
+      try
+      {
+        while (nextTurn < turn)
+        {
+          wait();
+        }
+      }
+      catch (InterruptedException e)
+      {
+        // Registering out of order is better than not registering at all.
+        logger.traceException(e);
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
   /**
    * Creates a new instance of this backend config manager.
    *
@@ -141,7 +213,10 @@ public class BackendConfigManager implements
     }
 
 
-    // Initialize existing backends.
+    // Prepare the existing backends in configuration order.
+    final List<Backend<? extends BackendCfg>> backends = new ArrayList<>();
+    final List<BackendCfg> backendCfgs = new ArrayList<>();
+    final Set<String> backendIDs = new HashSet<>();
     for (String name : root.listBackends())
     {
       // Get the handler's configuration.
@@ -160,136 +235,238 @@ public class BackendConfigManager implements
       {
         // If there is already a backend registered with the specified ID,
         // then log an error and skip it.
-        if (DirectoryServer.hasBackend(backendCfg.getBackendId()))
+        if (DirectoryServer.hasBackend(backendID) || backendIDs.contains(backendID))
         {
           logger.warn(WARN_CONFIG_BACKEND_DUPLICATE_BACKEND_ID, backendID, backendDN);
           continue;
         }
 
-        // See if the entry contains an attribute that specifies the class name
-        // for the backend implementation.  If it does, then load it and make
-        // sure that it's a valid backend implementation.  There is no such
-        // attribute, the specified class cannot be loaded, or it does not
-        // contain a valid backend implementation, then log an error and skip it.
-        String className = backendCfg.getJavaClass();
-
-        Backend<? extends BackendCfg> backend;
-        try
-        {
-          backend = loadBackendClass(className).newInstance();
-        }
-        catch (Exception e)
-        {
-          logger.traceException(e);
-          logger.error(ERR_CONFIG_BACKEND_CANNOT_INSTANTIATE, className, backendDN, stackTraceToSingleLineString(e));
-          continue;
-        }
-
-
-        // If this backend is a configuration manager, then we don't want to do
-        // any more with it because the configuration will have already been
-        // started.
-        if (backend instanceof ConfigHandler)
+        Backend<? extends BackendCfg> backend = prepareBackend(backendCfg);
+        if (backend != null)
         {
-          continue;
+          backends.add(backend);
+          backendCfgs.add(backendCfg);
+          backendIDs.add(backendID);
         }
+      }
+      else
+      {
+        // The backend is explicitly disabled.  Log a mild warning and continue.
+        logger.debug(INFO_CONFIG_BACKEND_DISABLED, backendDN);
+      }
+    }
 
-        WritabilityMode writabilityMode = toWritabilityMode(backendCfg.getWritabilityMode());
-
-        // Set the backend ID and writability mode for this backend.
-        backend.setBackendID(backendID);
-        backend.setWritabilityMode(writabilityMode);
-
-
-        // Acquire a shared lock on this backend.  This will prevent operations
-        // like LDIF import or restore from occurring while the backend is
-        // active.
-        try
+    // Open the backends in parallel, since opening a backend, e.g. recovering
+    // and preloading its database, may take a while. The backends register
+    // their base DNs while they are opened: the registration order makes them
+    // do it in configuration order. The backends are then registered with the
+    // server sequentially in configuration order.
+    final StartupTaskExecutor executor = new StartupTaskExecutor("Backend Initializer", backends.size());
+    final BaseDNRegistrationOrder registrationOrder = new BaseDNRegistrationOrder(backends.size());
+    try
+    {
+      final List<Future<Void>> initializations = new ArrayList<>(backends.size());
+      for (int i = 0; i < backends.size(); i++)
+      {
+        final Backend<? extends BackendCfg> backend = backends.get(i);
+        final BackendCfg backendCfg = backendCfgs.get(i);
+        final int turn = i;
+        initializations.add(executor.submit(new Callable<Void>()
         {
-          String lockFile = LockFileManager.getBackendLockFileName(backend);
-          StringBuilder failureReason = new StringBuilder();
-          if (! LockFileManager.acquireSharedLock(lockFile, failureReason))
+          @Override
+          public Void call() throws Exception
           {
-            logger.error(ERR_CONFIG_BACKEND_CANNOT_ACQUIRE_SHARED_LOCK, backendID, failureReason);
-            // FIXME -- Do we need to send an admin alert?
-            continue;
+            registrationOrder.beginOpening(turn);
+            try
+            {
+              initializeBackend(backend, backendCfg);
+            }
+            finally
+            {
+              registrationOrder.endOpening();
+            }
+            return null;
           }
-        }
-        catch (Exception e)
+        }));
+      }
+
+      for (int i = 0; i < backends.size(); i++)
+      {
+        final Backend<? extends BackendCfg> backend = backends.get(i);
+        final BackendCfg backendCfg = backendCfgs.get(i);
+        final Throwable initializationError = getInitializationError(initializations.get(i));
+        if (initializationError != null)
         {
-          logger.traceException(e);
-          logger.error(ERR_CONFIG_BACKEND_CANNOT_ACQUIRE_SHARED_LOCK, backendID, stackTraceToSingleLineString(e));
-          // FIXME -- Do we need to send an admin alert?
+          logger.traceException(initializationError);
+          logger.error(ERR_CONFIG_BACKEND_CANNOT_INITIALIZE, backendCfg.getJavaClass(), backendCfg.dn(),
+              stackTraceToSingleLineString(initializationError));
+          releaseSharedLock(backend, backendCfg.getBackendId());
           continue;
         }
 
+        registerInitializedBackend(backend, backendCfg);
+      }
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
 
-        // Perform the necessary initialization for the backend entry.
-        try
-        {
-          initializeBackend(backend, backendCfg);
-        }
-        catch (Exception e)
-        {
-          logger.traceException(e);
-          logger.error(ERR_CONFIG_BACKEND_CANNOT_INITIALIZE, className, backendDN, stackTraceToSingleLineString(e));
+  /**
+   * Instantiates the backend defined by the provided configuration and
+   * acquires a shared lock on it.
+   *
+   * @return The backend, or {@code null} if it cannot be prepared or if it is
+   *         the configuration backend, which has already been started.
+   */
+  private Backend<? extends BackendCfg> prepareBackend(BackendCfg backendCfg)
+  {
+    DN backendDN = backendCfg.dn();
+    String backendID = backendCfg.getBackendId();
 
-          try
-          {
-            String lockFile = LockFileManager.getBackendLockFileName(backend);
-            StringBuilder failureReason = new StringBuilder();
-            if (! LockFileManager.releaseLock(lockFile, failureReason))
-            {
-              logger.warn(WARN_CONFIG_BACKEND_CANNOT_RELEASE_SHARED_LOCK, backendID, failureReason);
-              // FIXME -- Do we need to send an admin alert?
-            }
-          }
-          catch (Exception e2)
-          {
-            logger.traceException(e2);
+    // See if the entry contains an attribute that specifies the class name
+    // for the backend implementation.  If it does, then load it and make
+    // sure that it's a valid backend implementation.  There is no such
+    // attribute, the specified class cannot be loaded, or it does not
+    // contain a valid backend implementation, then log an error and skip it.
+    String className = backendCfg.getJavaClass();
 
-            logger.warn(WARN_CONFIG_BACKEND_CANNOT_RELEASE_SHARED_LOCK, backendID, stackTraceToSingleLineString(e2));
-            // FIXME -- Do we need to send an admin alert?
-          }
+    Backend<? extends BackendCfg> backend;
+    try
+    {
+      backend = loadBackendClass(className).newInstance();
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CONFIG_BACKEND_CANNOT_INSTANTIATE, className, backendDN, stackTraceToSingleLineString(e));
+      return null;
+    }
 
-          continue;
-        }
 
+    // If this backend is a configuration manager, then we don't want to do
+    // any more with it because the configuration will have already been
+    // started.
+    if (backend instanceof ConfigHandler)
+    {
+      return null;
+    }
 
-        for (BackendInitializationListener listener : getBackendInitializationListeners())
-        {
-          listener.performBackendPreInitializationProcessing(backend);
-        }
+    WritabilityMode writabilityMode = toWritabilityMode(backendCfg.getWritabilityMode());
 
-        // Register the backend with the server.
-        try
-        {
-          DirectoryServer.registerBackend(backend);
-        }
-        catch (Exception e)
-        {
-          logger.traceException(e);
+    // Set the backend ID and writability mode for this backend.
+    backend.setBackendID(backendID);
+    backend.setWritabilityMode(writabilityMode);
 
-          logger.warn(WARN_CONFIG_BACKEND_CANNOT_REGISTER_BACKEND, backendID, getExceptionMessage(e));
-          // FIXME -- Do we need to send an admin alert?
-        }
 
-        for (BackendInitializationListener listener : getBackendInitializationListeners())
-        {
-          listener.performBackendPostInitializationProcessing(backend);
-        }
+    // Acquire a shared lock on this backend.  This will prevent operations
+    // like LDIF import or restore from occurring while the backend is
+    // active.
+    try
+    {
+      String lockFile = LockFileManager.getBackendLockFileName(backend);
+      StringBuilder failureReason = new StringBuilder();
+      if (! LockFileManager.acquireSharedLock(lockFile, failureReason))
+      {
+        logger.error(ERR_CONFIG_BACKEND_CANNOT_ACQUIRE_SHARED_LOCK, backendID, failureReason);
+        // FIXME -- Do we need to send an admin alert?
+        return null;
+      }
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CONFIG_BACKEND_CANNOT_ACQUIRE_SHARED_LOCK, backendID, stackTraceToSingleLineString(e));
+      // FIXME -- Do we need to send an admin alert?
+      return null;
+    }
+    return backend;
+  }
 
-        // Put this backend in the hash so that we will be able to find it if it
-        // is altered.
-        registeredBackends.put(backendDN, backend);
+  /**
+   * Waits until the backend opened by the current thread at startup can
+   * register its base DNs, i.e. until all the backends which precede it in
+   * the configuration have been opened. Returns immediately if the current
+   * thread is not opening a backend at startup.
+   */
+  static void awaitBaseDNRegistrationTurn()
+  {
+    final BaseDNRegistrationOrder registrationOrder = baseDNRegistrationOrder.get();
+    if (registrationOrder != null)
+    {
+      registrationOrder.awaitTurn();
+    }
+  }
 
-      }
-      else
+  /** Returns the error which occurred while initializing a backend, or {@code null} if it succeeded. */
+  private static Throwable getInitializationError(Future<Void> initialization)
+  {
+    try
+    {
+      initialization.get();
+      return null;
+    }
+    catch (ExecutionException e)
+    {
+      return e.getCause();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      return e;
+    }
+  }
+
+  private void releaseSharedLock(Backend<?> backend, String backendID)
+  {
+    try
+    {
+      String lockFile = LockFileManager.getBackendLockFileName(backend);
+      StringBuilder failureReason = new StringBuilder();
+      if (! LockFileManager.releaseLock(lockFile, failureReason))
       {
-        // The backend is explicitly disabled.  Log a mild warning and continue.
-        logger.debug(INFO_CONFIG_BACKEND_DISABLED, backendDN);
+        logger.warn(WARN_CONFIG_BACKEND_CANNOT_RELEASE_SHARED_LOCK, backendID, failureReason);
+        // FIXME -- Do we need to send an admin alert?
       }
     }
+    catch (Exception e2)
+    {
+      logger.traceException(e2);
+
+      logger.warn(WARN_CONFIG_BACKEND_CANNOT_RELEASE_SHARED_LOCK, backendID, stackTraceToSingleLineString(e2));
+      // FIXME -- Do we need to send an admin alert?
+    }
+  }
+
+  private void registerInitializedBackend(Backend<? extends BackendCfg> backend, BackendCfg backendCfg)
+  {
+    for (BackendInitializationListener listener : getBackendInitializationListeners())
+    {
+      listener.performBackendPreInitializationProcessing(backend);
+    }
+
+    // Register the backend with the server.
+    try
+    {
+      DirectoryServer.registerBackend(backend);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+
+      logger.warn(WARN_CONFIG_BACKEND_CANNOT_REGISTER_BACKEND, backendCfg.getBackendId(), getExceptionMessage(e));
+      // FIXME -- Do we need to send an admin alert?
+    }
+
+    for (BackendInitializationListener listener : getBackendInitializationListeners())
+    {
+      listener.performBackendPostInitializationProcessing(backend);
+    }
+
+    // Put this backend in the hash so that we will be able to find it if it
+    // is altered.
+    registeredBackends.put(backendCfg.dn(), backend);
   }
 
 
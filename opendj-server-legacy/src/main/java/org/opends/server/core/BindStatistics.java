@@ -0,0 +1,193 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.core;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.opends.server.util.StripedCounters;
+
+/**
+ * Maintains histograms of the bind processing times for each password storage
+ * scheme, from which latency percentiles are computed.
+ * <p>
+ * The histograms have four buckets for each power of two microseconds, so
+ * that the percentiles are computed with a relative error of at most 25%,
+ * whatever the latency. Their counters are striped like the LDAP statistics,
+ * since they are updated by every bind.
+ */
+public final class BindStatistics
+{
+  /** The server wide bind statistics. */
+  private static final BindStatistics INSTANCE = new BindStatistics();
+
+  /** The number of buckets for each power of two. */
+  private static final int SUB_BUCKETS = 4;
+  /** The number of buckets, the last bucket counting all binds longer than 2^36 microseconds. */
+  private static final int NB_BUCKETS = 36 * SUB_BUCKETS;
+
+  /** Indexes of the counters of each histogram. */
+  private static final int BIND_COUNT = 0;
+  private static final int BIND_TIME = 1;
+  private static final int FIRST_BUCKET = 2;
+
+  /** The histograms, keyed by password storage scheme name. */
+  private final ConcurrentMap<String, StripedCounters> histograms = new ConcurrentHashMap<>();
+
+  /** Creates new bind statistics, package-private for testing purposes. */
+  BindStatistics()
+  {
+    // Nothing to do.
+  }
+
+  /**
+   * Returns the server wide bind statistics.
+   *
+   * @return The server wide bind statistics.
+   */
+  public static BindStatistics getInstance()
+  {
+    return INSTANCE;
+  }
+
+  /**
+   * Records the processing time of a bind which verified a password stored
+   * with the provided password storage scheme.
+   *
+   * @param schemeName
+   *          The name of the password storage scheme.
+   * @param time
+   *          The processing time of the bind in microseconds.
+   */
+  public void updateBindTime(String schemeName, long time)
+  {
+    StripedCounters histogram = histograms.get(schemeName);
+    if (histogram == null)
+    {
+      histogram = new StripedCounters(FIRST_BUCKET + NB_BUCKETS);
+      final StripedCounters existing = histograms.putIfAbsent(schemeName, histogram);
+      if (existing != null)
+      {
+        histogram = existing;
+      }
+    }
+    histogram.increment(BIND_COUNT);
+    histogram.add(BIND_TIME, time);
+    histogram.increment(FIRST_BUCKET + getBucket(time));
+  }
+
+  /**
+   * Returns the names of the password storage schemes for which bind times
+   * have been recorded, with their current latency statistics.
+   *
+   * @param percentiles
+   *          The percentiles to compute, between 0 and 1.
+   * @return The latency statistics, keyed by password storage scheme name.
+   *         Each array holds the bind count, the total bind time, then the
+   *         requested percentiles, all the times in microseconds.
+   */
+  public Map<String, long[]> getLatencies(double... percentiles)
+  {
+    final Map<String, long[]> latencies = new TreeMap<>();
+    for (Map.Entry<String, StripedCounters> mapEntry : histograms.entrySet())
+    {
+      final long[] values = mapEntry.getValue().getAll();
+      final long[] stats = new long[2 + percentiles.length];
+      stats[0] = values[BIND_COUNT];
+      stats[1] = values[BIND_TIME];
+      for (int i = 0; i < percentiles.length; i++)
+      {
+        stats[2 + i] = getPercentile(values, percentiles[i]);
+      }
+      latencies.put(mapEntry.getKey(), stats);
+    }
+    return latencies;
+  }
+
+  /** Clears the recorded bind times. */
+  public void clear()
+  {
+    histograms.clear();
+  }
+
+  /**
+   * Returns the upper bound of the bucket holding the provided percentile,
+   * computed from the bucket counts themselves, so that it is consistent even
+   * if binds are recorded while the counters are read.
+   */
+  private static long getPercentile(long[] values, double percentile)
+  {
+    long count = 0;
+    for (int bucket = 0; bucket < NB_BUCKETS; bucket++)
+    {
+      count += values[FIRST_BUCKET + bucket];
+    }
+    if (count == 0)
+    {
+      return 0;
+    }
+    final long rank = Math.max(1, (long) Math.ceil(percentile * count));
+    long cumulatedCount = 0;
+    for (int bucket = 0; bucket < NB_BUCKETS; bucket++)
+    {
+      cumulatedCount += values[FIRST_BUCKET + bucket];
+      if (cumulatedCount >= rank)
+      {
+        return getBucketUpperBound(bucket);
+      }
+    }
+    return getBucketUpperBound(NB_BUCKETS - 1);
+  }
+
+  /**
+   * Returns the bucket counting the provided time. Times below
+   * {@link #SUB_BUCKETS} have their own bucket, and the other times are
+   * bucketed by their highest bit and the two bits following it.
+   */
+  static int getBucket(long time)
+  {
+    if (time < SUB_BUCKETS)
+    {
+      return (int) Math.max(time, 0);
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(time);
+    final int subBucket = (int) (time >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+    return Math.min((exponent - 1) * SUB_BUCKETS + subBucket, NB_BUCKETS - 1);
+  }
+
+  /** Returns the highest time counted by the provided bucket. */
+  static long getBucketUpperBound(int bucket)
+  {
+    if (bucket < SUB_BUCKETS)
+    {
+      return bucket;
+    }
+    final int exponent = bucket / SUB_BUCKETS + 1;
+    final long subBucket = bucket % SUB_BUCKETS;
+    return ((SUB_BUCKETS + subBucket + 1) << (exponent - 2)) - 1;
+  }
+}
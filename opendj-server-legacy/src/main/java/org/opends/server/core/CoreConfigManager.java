@@ -162,6 +162,11 @@ public class CoreConfigManager
     setMaxAllowedConnections(globalConfig.getMaxAllowedClientConnections());
     setMaxPersistentSearchLimit(globalConfig.getMaxPsearches());
     setMaxInternalBufferSize((int) globalConfig.getMaxInternalBufferSize());
+    setVerifiedCredentialCache(globalConfig.getVerifiedCredentialCacheDuration(),
+        globalConfig.getVerifiedCredentialCacheSize());
+    setLastLoginTimeUpdateInterval(globalConfig.getLastLoginTimeUpdateInterval());
+    setPasswordHashingExecutor(globalConfig.getPasswordHashingThreads(), globalConfig.getPasswordHashingQueueSize(),
+        globalConfig.getPasswordHashingRateLimit());
 
     // For tools, common audit may not be available
     CommonAudit commonAudit = serverContext.getCommonAudit();
@@ -148,7 +148,12 @@ import org.opends.server.loggers.RotationPolicy;
 import org.opends.server.loggers.TextErrorLogPublisher;
 import org.opends.server.loggers.TextWriter;
 import org.opends.server.monitors.BackendMonitor;
+import org.opends.server.monitors.BindLatencyMonitor;
 import org.opends.server.monitors.ConnectionHandlerMonitor;
+import org.opends.server.monitors.LockManagerMonitor;
+import org.opends.server.monitors.NestedGroupMonitor;
+import org.opends.server.monitors.PasswordHashingMonitor;
+import org.opends.server.monitors.StartupMonitor;
 import org.opends.server.protocols.internal.InternalClientConnection;
 import org.opends.server.protocols.internal.InternalConnectionHandler;
 import org.opends.server.schema.BooleanEqualityMatchingRuleFactory;
@@ -193,6 +198,7 @@ import org.opends.server.types.LockManager;
 import org.opends.server.types.MatchingRuleUse;
 import org.opends.server.types.Modification;
 import org.opends.server.types.NameForm;
+import org.opends.server.types.NormalizedValueCache;
 import org.opends.server.types.ObjectClass;
 import org.opends.server.types.Operation;
 import org.opends.server.types.Privilege;
@@ -715,12 +721,24 @@ public final class DirectoryServer
   /** The Disk Space Monitor. */
   private DiskSpaceMonitor diskSpaceMonitor;
 
+  /** The monitor recording the time spent in each startup phase. */
+  private StartupMonitor startupMonitor;
+
   /** The lock manager which will be used for coordinating access to LDAP entries. */
   private final LockManager lockManager = new LockManager();
 
   /** The maximum size that internal buffers will be allowed to grow to until they are trimmed. */
   private int maxInternalBufferSize = DEFAULT_MAX_INTERNAL_BUFFER_SIZE;
 
+  /** The cache of the passwords recently verified by simple binds. */
+  private volatile VerifiedCredentialCache verifiedCredentialCache = VerifiedCredentialCache.DISABLED;
+  /** The interval at which the last login times are written, or 0 if binds write them. */
+  private volatile long lastLoginTimeUpdateInterval;
+  /** The thread writing the last login times recorded by binds. */
+  private volatile LastLoginTimeUpdater lastLoginTimeUpdater;
+  /** The executor hashing the passwords stored with computationally expensive schemes. */
+  private volatile PasswordHashingExecutor passwordHashingExecutor = PasswordHashingExecutor.DISABLED;
+
   /** The default timeout used to start the server in detach mode. */
   public static final int DEFAULT_TIMEOUT = 200;
 
@@ -1345,7 +1363,12 @@ public final class DirectoryServer
 
       diskSpaceMonitor.startDiskSpaceMonitor();
 
+      // Record the time spent in each startup phase.
+      startupMonitor = new StartupMonitor();
+      long phaseStart = System.nanoTime();
+
       initializeSchema();
+      phaseStart = startupMonitor.phaseCompleted("schema", phaseStart);
 
       commonAudit = new CommonAudit();
 
@@ -1412,6 +1435,7 @@ public final class DirectoryServer
       groupManager.performBackendPreInitializationProcessing(configHandler);
 
       AccessControlConfigManager.getInstance().initializeAccessControl(serverContext);
+      phaseStart = startupMonitor.phaseCompleted("configuration", phaseStart);
 
       // Initialize all the backends and their associated suffixes
       // and initialize the workflows when workflow configuration mode is auto.
@@ -1423,6 +1447,7 @@ public final class DirectoryServer
       // Check for and initialize user configured entry cache if any.
       // If not then stick with default entry cache initialized earlier.
       entryCacheConfigManager.initializeEntryCache();
+      phaseStart = startupMonitor.phaseCompleted("backends", phaseStart);
 
       initializeExtendedOperations();
       initializeSASLMechanisms();
@@ -1432,19 +1457,27 @@ public final class DirectoryServer
         // Includes the administration connector.
         initializeConnectionHandlers();
       }
+      phaseStart = startupMonitor.phaseCompleted("connection handlers", phaseStart);
 
       monitorConfigManager = new MonitorConfigManager(serverContext);
       monitorConfigManager.initializeMonitorProviders();
+      registerMonitorProvider(new LockManagerMonitor(lockManager));
+      registerMonitorProvider(new NestedGroupMonitor(groupManager));
+      registerMonitorProvider(new BindLatencyMonitor());
+      registerMonitorProvider(new PasswordHashingMonitor());
+      registerMonitorProvider(startupMonitor);
 
       initializeAuthenticationPolicyComponents();
 
       pluginConfigManager.initializeUserPlugins(null);
+      phaseStart = startupMonitor.phaseCompleted("plugins", phaseStart);
 
       if (!environmentConfig.disableSynchronization())
       {
         synchronizationProviderConfigManager = new SynchronizationProviderConfigManager(serverContext);
         synchronizationProviderConfigManager.initializeSynchronizationProviders();
       }
+      phaseStart = startupMonitor.phaseCompleted("synchronization", phaseStart);
 
       workQueue = new WorkQueueConfigManager(serverContext).initializeWorkQueue();
 
@@ -1467,11 +1500,14 @@ public final class DirectoryServer
         }
       }
 
+      lastLoginTimeUpdater = new LastLoginTimeUpdater();
+      lastLoginTimeUpdater.start();
       if (startConnectionHandlers)
       {
         startConnectionHandlers();
         new IdleTimeLimitThread().start();
       }
+      startupMonitor.phaseCompleted("startup plugins and listeners", phaseStart);
 
       // Synchronization of ADS with the crypto manager.
       new CryptoManagerSync();
@@ -2367,6 +2403,9 @@ public final class DirectoryServer
   public static void setSchema(Schema schema)
   {
     directoryServer.schema = schema;
+    // Matching rules and attribute types may have been redefined.
+    NormalizedValueCache.getInstance().clear();
+    DN.clearCache();
   }
 
   /**
@@ -4810,6 +4849,10 @@ public final class DirectoryServer
   {
     ifNull(baseDN, backend);
 
+    // Backends opened in parallel at startup register their base DNs in
+    // configuration order.
+    BackendConfigManager.awaitBaseDNRegistrationTurn();
+
     synchronized (directoryServer)
     {
       List<LocalizableMessage> warnings =
@@ -6186,6 +6229,7 @@ public final class DirectoryServer
       directoryServer.workQueue.finalizeWorkQueue(reason);
       directoryServer.workQueue.waitUntilIdle(ServerShutdownMonitor.WAIT_TIME);
     }
+    directoryServer.passwordHashingExecutor.shutdown();
 
     // shutdown replication
     for (SynchronizationProvider provider :
@@ -7731,6 +7775,116 @@ public final class DirectoryServer
     return directoryServer.maxInternalBufferSize;
   }
 
+  /**
+   * Returns the cache of the passwords recently verified by simple binds.
+   *
+   * @return The cache of the passwords recently verified by simple binds,
+   *         which may be disabled.
+   */
+  public static VerifiedCredentialCache getVerifiedCredentialCache()
+  {
+    return directoryServer.verifiedCredentialCache;
+  }
+
+  /**
+   * Specifies the settings of the cache of the passwords recently verified by
+   * simple binds. The cache is only replaced, and thus emptied, if its
+   * settings change.
+   *
+   * @param duration
+   *          The length of time in milliseconds during which a verified
+   *          password is kept, or 0 for disabling the cache.
+   * @param size
+   *          The maximum number of verified passwords kept by the cache.
+   */
+  public static void setVerifiedCredentialCache(long duration, int size)
+  {
+    final VerifiedCredentialCache cache = directoryServer.verifiedCredentialCache;
+    final VerifiedCredentialCache newCache = new VerifiedCredentialCache(duration, size);
+    if (!newCache.isEnabled())
+    {
+      directoryServer.verifiedCredentialCache = VerifiedCredentialCache.DISABLED;
+    }
+    else if (cache.getDuration() != newCache.getDuration() || cache.getSize() != newCache.getSize())
+    {
+      directoryServer.verifiedCredentialCache = newCache;
+    }
+  }
+
+  /**
+   * Retrieves the interval at which the last login times recorded by binds are
+   * written to the user entries.
+   *
+   * @return The interval in milliseconds at which the last login times are
+   *         written, or 0 if binds write the last login times themselves.
+   */
+  public static long getLastLoginTimeUpdateInterval()
+  {
+    return directoryServer.lastLoginTimeUpdateInterval;
+  }
+
+  /**
+   * Specifies the interval at which the last login times recorded by binds are
+   * written to the user entries.
+   *
+   * @param lastLoginTimeUpdateInterval
+   *          The interval in milliseconds at which the last login times are
+   *          written, or 0 if binds write the last login times themselves.
+   */
+  public static void setLastLoginTimeUpdateInterval(long lastLoginTimeUpdateInterval)
+  {
+    directoryServer.lastLoginTimeUpdateInterval = lastLoginTimeUpdateInterval;
+  }
+
+  /**
+   * Returns the executor hashing the passwords stored with computationally
+   * expensive password storage schemes.
+   *
+   * @return The executor hashing the passwords stored with computationally
+   *         expensive password storage schemes.
+   */
+  public static PasswordHashingExecutor getPasswordHashingExecutor()
+  {
+    return directoryServer.passwordHashingExecutor;
+  }
+
+  /**
+   * Specifies the settings of the executor hashing the passwords stored with
+   * computationally expensive password storage schemes. The executor is only
+   * replaced if its settings change, the previous one completing the
+   * passwords already queued.
+   *
+   * @param nbThreads
+   *          The number of password hashing threads, or 0 for hashing the
+   *          passwords on the threads processing the operations.
+   * @param queueSize
+   *          The maximum number of passwords waiting for a password hashing
+   *          thread.
+   * @param rateLimit
+   *          The maximum number of password verifications per second for each
+   *          client address, or 0 for no limit.
+   */
+  public static void setPasswordHashingExecutor(int nbThreads, int queueSize, int rateLimit)
+  {
+    final PasswordHashingExecutor executor = directoryServer.passwordHashingExecutor;
+    if (!executor.hasSettings(nbThreads, queueSize, rateLimit))
+    {
+      directoryServer.passwordHashingExecutor = new PasswordHashingExecutor(nbThreads, queueSize, rateLimit);
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Returns the thread writing the last login times recorded by binds.
+   *
+   * @return The thread writing the last login times recorded by binds, or
+   *         {@code null} if the server is not running.
+   */
+  public static LastLoginTimeUpdater getLastLoginTimeUpdater()
+  {
+    return directoryServer.lastLoginTimeUpdater;
+  }
+
   /**
    * Returns the lock manager which will be used for coordinating access to LDAP entries.
    *
@@ -34,9 +34,12 @@ import static org.opends.server.util.ServerConstants.*;
 import static org.opends.server.util.StaticUtils.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -46,8 +49,11 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.adapter.server3x.Converters;
 import org.forgerock.opendj.config.server.ConfigChangeResult;
 import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.ldap.ConditionResult;
+import org.forgerock.opendj.ldap.DN.CompactDn;
 import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SearchScope;
 import org.forgerock.util.Utils;
@@ -76,6 +82,7 @@ import org.opends.server.types.DN;
 import org.opends.server.types.DirectoryException;
 import org.opends.server.types.Entry;
 import org.opends.server.types.InitializationException;
+import org.opends.server.types.LockManager.DNLock;
 import org.opends.server.types.SearchFilter;
 import org.opends.server.types.SearchResultEntry;
 import org.opends.server.types.operation.PluginOperation;
@@ -127,6 +134,37 @@ public class GroupManager extends InternalDirectoryServerPlugin
    */
   private DITCacheMap<Group<?>> groupInstances;
 
+  /**
+   * A reverse index of the group instances listing their members, such as
+   * static groups, mapping the DN of each listed member to the groups listing
+   * it. The keys are the compact DNs held by the groups themselves, and the
+   * arrays are replaced, not updated, so the index can be read without
+   * locking. It is only updated while holding the write lock.
+   */
+  private final ConcurrentMap<CompactDn, Group<?>[]> groupsByMember = new ConcurrentHashMap<>();
+
+  /**
+   * The group instances not listing their members, such as dynamic groups,
+   * which are not indexed and must be checked one by one.
+   */
+  private final Set<Group<?>> unlistedGroups = Collections.newSetFromMap(new ConcurrentHashMap<Group<?>, Boolean>());
+
+  /**
+   * The registered group instances, keyed by the compact DNs of their entries,
+   * which are looked up for finding the nested groups without locking.
+   */
+  private final ConcurrentMap<CompactDn, Group<?>> groupsByDN = new ConcurrentHashMap<>();
+
+  /** The transitive closure of the nesting relationships between the group instances. */
+  private final NestedGroupClosure nestedGroupClosure = new NestedGroupClosure();
+
+  /**
+   * The group instances which must be notified of the changes of all the
+   * entries, such as dynamic groups keeping their members in memory.
+   */
+  private final Set<Group<?>> entryChangeGroups =
+      Collections.newSetFromMap(new ConcurrentHashMap<Group<?>, Boolean>());
+
   /** Lock to protect internal data structures. */
   private final ReentrantReadWriteLock lock;
 
@@ -312,6 +350,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
           if (g.getClass().getName().equals(group.getClass().getName()))
           {
             iterator.remove();
+            unindexGroup(g);
           }
         }
       }
@@ -379,6 +418,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
               if (g.getClass().getName().equals(group.getClass().getName()))
               {
                 iterator.remove();
+                unindexGroup(g);
               }
             }
           }
@@ -646,7 +686,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
             try
             {
               Group<?> groupInstance = groupImplementation.newInstance(null, entry);
-              groupInstances.put(entry.getName(), groupInstance);
+              registerGroupInstance(entry.getName(), groupInstance);
               refreshToken++;
             }
             catch (DirectoryException e)
@@ -684,6 +724,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
         if (backend.handlesEntry(groupEntryDN))
         {
           iterator.remove();
+          unindexGroup(mapEntry.getValue());
         }
       }
     }
@@ -711,6 +752,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
    */
   private void doPostAdd(PluginOperation addOperation, Entry entry)
   {
+    notifyEntryChanged(null, entry, false);
     if (hasGroupMembershipUpdateControl(addOperation))
     {
       return;
@@ -722,13 +764,20 @@ public class GroupManager extends InternalDirectoryServerPlugin
 
 
   private static boolean hasGroupMembershipUpdateControl(PluginOperation operation)
+  {
+    return hasControl(operation, OID_INTERNAL_GROUP_MEMBERSHIP_UPDATE);
+  }
+
+
+
+  private static boolean hasControl(PluginOperation operation, String oid)
   {
     List<Control> requestControls = operation.getRequestControls();
     if (requestControls != null)
     {
       for (Control c : requestControls)
       {
-        if (OID_INTERNAL_GROUP_MEMBERSHIP_UPDATE.equals(c.getOID()))
+        if (oid.equals(c.getOID()))
         {
           return true;
         }
@@ -739,12 +788,107 @@ public class GroupManager extends InternalDirectoryServerPlugin
 
 
 
+  /** Indicates whether the entry with the provided DN may have subordinate entries. */
+  private static boolean hasSubordinates(DN entryDN)
+  {
+    Backend<?> backend = DirectoryServer.getBackend(entryDN);
+    try
+    {
+      return backend == null || backend.hasSubordinates(entryDN) != ConditionResult.FALSE;
+    }
+    catch (DirectoryException e)
+    {
+      logger.traceException(e);
+      return true;
+    }
+  }
+
+
+
+  /**
+   * Notifies the groups requiring it that an entry has been added, deleted,
+   * modified or renamed.
+   */
+  private void notifyEntryChanged(Entry oldEntry, Entry newEntry, boolean subtreeChanged)
+  {
+    if (oldEntry != null
+        && (newEntry == null || !oldEntry.getName().equals(newEntry.getName())))
+    {
+      notifyEntryChanged(oldEntry.getName(), subtreeChanged);
+    }
+    if (newEntry != null)
+    {
+      notifyEntryChanged(newEntry.getName(), subtreeChanged);
+    }
+  }
+
+  /**
+   * Notifies the groups impacted by the change of the entry with the provided
+   * DN. The post-operation plugins are invoked once the entry locks have been
+   * released, so the changes made to the same entry by concurrent operations
+   * may be notified in any order. The entry currently stored is therefore read
+   * once for all the groups, and the groups are notified while holding the
+   * entry read lock: whatever the order of the notifications, the last one
+   * reflects the last change.
+   */
+  private void notifyEntryChanged(DN entryDN, boolean subtreeChanged)
+  {
+    DNLock entryLock = null;
+    Entry currentEntry = null;
+    boolean currentEntryRead = subtreeChanged;
+    try
+    {
+      for (Group<?> group : entryChangeGroups)
+      {
+        if (!group.isImpactedByEntryChange(entryDN, subtreeChanged))
+        {
+          continue;
+        }
+        if (!currentEntryRead)
+        {
+          currentEntryRead = true;
+          entryLock = DirectoryServer.getLockManager().tryReadLockEntry(entryDN);
+          if (entryLock != null)
+          {
+            try
+            {
+              currentEntry = DirectoryServer.getEntry(entryDN);
+            }
+            catch (DirectoryException e)
+            {
+              logger.traceException(e);
+              entryLock.unlock();
+              entryLock = null;
+            }
+          }
+          // The membership cannot be decided without the entry: this is
+          // handled as a change of the subtree.
+          subtreeChanged = entryLock == null;
+        }
+        group.entryChanged(entryDN, currentEntry, subtreeChanged);
+      }
+    }
+    finally
+    {
+      if (entryLock != null)
+      {
+        entryLock.unlock();
+      }
+    }
+  }
+
+
+
   /**
    * In this case, if the entry is associated with a registered
    * group instance, then that group instance will be deregistered.
    */
   private void doPostDelete(PluginOperation deleteOperation, Entry entry)
   {
+    if (!entryChangeGroups.isEmpty())
+    {
+      notifyEntryChanged(entry, null, hasControl(deleteOperation, OID_SUBTREE_DELETE_CONTROL));
+    }
     if (hasGroupMembershipUpdateControl(deleteOperation))
     {
       return;
@@ -753,8 +897,13 @@ public class GroupManager extends InternalDirectoryServerPlugin
     lock.writeLock().lock();
     try
     {
-      if (groupInstances.removeSubtree(entry.getName(), null))
+      Set<Group<?>> groupSet = new HashSet<>();
+      if (groupInstances.removeSubtree(entry.getName(), groupSet))
       {
+        for (Group<?> group : groupSet)
+        {
+          unindexGroup(group);
+        }
         refreshToken++;
       }
     }
@@ -775,6 +924,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
   private void doPostModify(PluginOperation modifyOperation,
           Entry oldEntry, Entry newEntry)
   {
+    notifyEntryChanged(oldEntry, newEntry, false);
     if (hasGroupMembershipUpdateControl(modifyOperation))
     {
       return;
@@ -803,7 +953,11 @@ public class GroupManager extends InternalDirectoryServerPlugin
         if (! oldEntry.getName().equals(newEntry.getName()))
         {
           // This should never happen, but check for it anyway.
-          groupInstances.remove(oldEntry.getName());
+          Group<?> group = groupInstances.remove(oldEntry.getName());
+          if (group != null)
+          {
+            unindexGroup(group);
+          }
         }
         createAndRegisterGroup(newEntry);
       }
@@ -826,6 +980,10 @@ public class GroupManager extends InternalDirectoryServerPlugin
   private void doPostModifyDN(PluginOperation modifyDNOperation,
           Entry oldEntry, Entry newEntry)
   {
+    if (!entryChangeGroups.isEmpty())
+    {
+      notifyEntryChanged(oldEntry, newEntry, hasSubordinates(newEntry.getName()));
+    }
     if (hasGroupMembershipUpdateControl(modifyDNOperation))
     {
       return;
@@ -838,6 +996,12 @@ public class GroupManager extends InternalDirectoryServerPlugin
       final DN oldDN = oldEntry.getName();
       final DN newDN = newEntry.getName();
       groupInstances.removeSubtree(oldDN, groupSet);
+      // The reverse index maps members to group instances, not group DNs, so
+      // it is not impacted by renaming the groups, unlike the nested groups.
+      for (Group<?> group : groupSet)
+      {
+        removeNestings(group);
+      }
       for (Group<?> group : groupSet)
       {
         final DN groupDN = group.getGroupDN();
@@ -845,6 +1009,10 @@ public class GroupManager extends InternalDirectoryServerPlugin
         group.setGroupDN(renamedGroupDN);
         groupInstances.put(renamedGroupDN, group);
       }
+      for (Group<?> group : groupSet)
+      {
+        addNestings(group);
+      }
       if (!groupSet.isEmpty())
       {
         refreshToken++;
@@ -998,7 +1166,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
           lock.writeLock().lock();
           try
           {
-            groupInstances.put(entry.getName(), groupInstance);
+            registerGroupInstance(entry.getName(), groupInstance);
             refreshToken++;
           }
           finally
@@ -1016,6 +1184,450 @@ public class GroupManager extends InternalDirectoryServerPlugin
 
 
 
+  /**
+   * Registers the provided group instance, replacing any group instance
+   * registered with the same DN, and updates the reverse index of the members.
+   * The caller must hold the write lock.
+   */
+  private void registerGroupInstance(DN groupDN, Group<?> groupInstance)
+  {
+    Group<?> previousInstance = groupInstances.put(groupDN, groupInstance);
+    if (previousInstance != null)
+    {
+      replaceGroup(previousInstance, groupInstance);
+    }
+    else
+    {
+      indexGroup(groupInstance);
+    }
+  }
+
+  /**
+   * Replaces a group instance by a new instance of the same group in the
+   * reverse index and in the closure. Readers do not lock, so the new instance
+   * is published before the previous one is removed: they always see one of
+   * the instances with all its members and nesting relationships. Only the
+   * members which have changed are indexed, and only the nesting relationships
+   * which have changed update the closure. The caller must hold the write lock.
+   */
+  private void replaceGroup(Group<?> previousGroup, Group<?> group)
+  {
+    Set<CompactDn> previousMemberDNs = nullToEmpty(previousGroup.getListedMemberDNs());
+    Set<CompactDn> memberDNs = group.getListedMemberDNs();
+    nestedGroupClosure.addReplacementGroup(previousGroup, group);
+    if (memberDNs == null)
+    {
+      unlistedGroups.add(group);
+      memberDNs = Collections.emptySet();
+    }
+    for (CompactDn memberDN : memberDNs)
+    {
+      if (previousMemberDNs.contains(memberDN))
+      {
+        replaceInIndex(memberDN, previousGroup, group);
+      }
+      else
+      {
+        addToIndex(memberDN, group);
+      }
+    }
+    if (group.requiresEntryChanges())
+    {
+      entryChangeGroups.add(group);
+    }
+    groupsByDN.put(toCompactDn(group.getGroupDN()), group);
+
+    for (CompactDn memberDN : previousMemberDNs)
+    {
+      if (!memberDNs.contains(memberDN))
+      {
+        removeFromIndex(memberDN, previousGroup);
+      }
+    }
+    entryChangeGroups.remove(previousGroup);
+    unlistedGroups.remove(previousGroup);
+    nestedGroupClosure.removeReplacedGroup(previousGroup);
+
+    for (CompactDn memberDN : previousMemberDNs)
+    {
+      Group<?> nestedGroup = groupsByDN.get(memberDN);
+      if (nestedGroup != null && !memberDNs.contains(memberDN))
+      {
+        nestedGroupClosure.removeNesting(group, nestedGroup);
+      }
+    }
+    for (CompactDn memberDN : memberDNs)
+    {
+      Group<?> nestedGroup = groupsByDN.get(memberDN);
+      if (nestedGroup != null && !previousMemberDNs.contains(memberDN))
+      {
+        nestedGroupClosure.addNesting(group, nestedGroup);
+      }
+    }
+  }
+
+  private static Set<CompactDn> nullToEmpty(Set<CompactDn> memberDNs)
+  {
+    return memberDNs != null ? memberDNs : Collections.<CompactDn> emptySet();
+  }
+
+  /**
+   * Adds the members of the provided group to the reverse index, and its
+   * nesting relationships to the closure. The caller must hold the write lock.
+   */
+  private void indexGroup(Group<?> group)
+  {
+    if (group.requiresEntryChanges())
+    {
+      entryChangeGroups.add(group);
+    }
+    Set<CompactDn> memberDNs = group.getListedMemberDNs();
+    if (memberDNs == null)
+    {
+      unlistedGroups.add(group);
+    }
+    else
+    {
+      for (CompactDn memberDN : memberDNs)
+      {
+        addToIndex(memberDN, group);
+      }
+    }
+    addNestings(group);
+  }
+
+  /**
+   * Removes the members of the provided group from the reverse index, and its
+   * nesting relationships from the closure. The caller must hold the write lock.
+   */
+  private void unindexGroup(Group<?> group)
+  {
+    removeNestings(group);
+    entryChangeGroups.remove(group);
+    Set<CompactDn> memberDNs = group.getListedMemberDNs();
+    if (memberDNs == null)
+    {
+      unlistedGroups.remove(group);
+      return;
+    }
+    for (CompactDn memberDN : memberDNs)
+    {
+      removeFromIndex(memberDN, group);
+    }
+  }
+
+  /**
+   * Adds the relationships between the provided group, the groups nested in
+   * it, and the groups it is nested in. The caller must hold the write lock.
+   */
+  private void addNestings(Group<?> group)
+  {
+    CompactDn groupDN = toCompactDn(group.getGroupDN());
+    groupsByDN.put(groupDN, group);
+    Set<CompactDn> memberDNs = group.getListedMemberDNs();
+    if (memberDNs != null)
+    {
+      for (CompactDn memberDN : memberDNs)
+      {
+        Group<?> nestedGroup = groupsByDN.get(memberDN);
+        if (nestedGroup != null)
+        {
+          nestedGroupClosure.addNesting(group, nestedGroup);
+        }
+      }
+    }
+    Group<?>[] parentGroups = groupsByMember.get(groupDN);
+    if (parentGroups != null)
+    {
+      for (Group<?> parentGroup : parentGroups)
+      {
+        nestedGroupClosure.addNesting(parentGroup, group);
+      }
+    }
+  }
+
+  /** Removes all the nesting relationships of the provided group. The caller must hold the write lock. */
+  private void removeNestings(Group<?> group)
+  {
+    groupsByDN.remove(toCompactDn(group.getGroupDN()), group);
+    nestedGroupClosure.removeGroup(group);
+  }
+
+  private static CompactDn toCompactDn(DN dn)
+  {
+    return Converters.from(dn).compact();
+  }
+
+  private void addToIndex(CompactDn memberDN, Group<?> group)
+  {
+    Group<?>[] groups = groupsByMember.get(memberDN);
+    if (groups == null)
+    {
+      groupsByMember.put(memberDN, new Group<?>[] { group });
+      return;
+    }
+    for (Group<?> g : groups)
+    {
+      if (g == group)
+      {
+        return;
+      }
+    }
+    Group<?>[] newGroups = Arrays.copyOf(groups, groups.length + 1);
+    newGroups[groups.length] = group;
+    groupsByMember.put(memberDN, newGroups);
+  }
+
+  private void replaceInIndex(CompactDn memberDN, Group<?> previousGroup, Group<?> group)
+  {
+    Group<?>[] groups = groupsByMember.get(memberDN);
+    if (groups != null)
+    {
+      for (int i = 0; i < groups.length; i++)
+      {
+        if (groups[i] == previousGroup)
+        {
+          Group<?>[] newGroups = groups.clone();
+          newGroups[i] = group;
+          groupsByMember.put(memberDN, newGroups);
+          return;
+        }
+      }
+    }
+    addToIndex(memberDN, group);
+  }
+
+  private void removeFromIndex(CompactDn memberDN, Group<?> group)
+  {
+    Group<?>[] groups = groupsByMember.get(memberDN);
+    if (groups == null)
+    {
+      return;
+    }
+    for (int i = 0; i < groups.length; i++)
+    {
+      if (groups[i] == group)
+      {
+        if (groups.length == 1)
+        {
+          groupsByMember.remove(memberDN);
+        }
+        else
+        {
+          Group<?>[] newGroups = new Group<?>[groups.length - 1];
+          System.arraycopy(groups, 0, newGroups, 0, i);
+          System.arraycopy(groups, i + 1, newGroups, i, groups.length - i - 1);
+          groupsByMember.put(memberDN, newGroups);
+        }
+        return;
+      }
+    }
+  }
+
+
+
+  /**
+   * Notifies this group manager that a member has been added to the provided
+   * group instance, without modifying the group entry through an operation
+   * processed by the group manager, e.g. by {@link Group#addMember(Entry)}.
+   *
+   * @param  group     The group instance whose members have changed.
+   * @param  memberDN  The DN of the member added to the group.
+   */
+  public void memberAdded(Group<?> group, CompactDn memberDN)
+  {
+    lock.writeLock().lock();
+    try
+    {
+      // Ignore group instances which have been replaced or deregistered
+      if (groupInstances.get(group.getGroupDN()) == group)
+      {
+        addToIndex(memberDN, group);
+        Group<?> nestedGroup = groupsByDN.get(memberDN);
+        if (nestedGroup != null)
+        {
+          nestedGroupClosure.addNesting(group, nestedGroup);
+        }
+      }
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+
+
+  /**
+   * Notifies this group manager that a member has been removed from the
+   * provided group instance, without modifying the group entry through an
+   * operation processed by the group manager, e.g. by
+   * {@link Group#removeMember(DN)}.
+   *
+   * @param  group     The group instance whose members have changed.
+   * @param  memberDN  The DN of the member removed from the group.
+   */
+  public void memberRemoved(Group<?> group, CompactDn memberDN)
+  {
+    lock.writeLock().lock();
+    try
+    {
+      // Always remove it: the group instance may have been deregistered
+      // between the update of its members and this notification.
+      removeFromIndex(memberDN, group);
+      Group<?> nestedGroup = groupsByDN.get(memberDN);
+      if (nestedGroup != null)
+      {
+        nestedGroupClosure.removeNesting(group, nestedGroup);
+      }
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+
+
+  /**
+   * Retrieves the group instances in which the provided entry is a member,
+   * either directly or through nested groups. The groups listing their members
+   * are found with the reverse index of the members, so that only the groups
+   * not listing their members, such as dynamic groups, are checked one by
+   * one, and the groups nesting them are found in the nested group closure.
+   *
+   * @param  memberEntry  The entry for which to retrieve the groups.
+   *
+   * @return  The group instances in which the provided entry is a member.
+   */
+  public Set<Group<?>> getMemberGroups(Entry memberEntry)
+  {
+    Set<Group<?>> groups = new LinkedHashSet<>();
+    Group<?>[] listingGroups = groupsByMember.get(toCompactDn(memberEntry.getName()));
+    if (listingGroups != null)
+    {
+      Collections.addAll(groups, listingGroups);
+    }
+    for (Group<?> group : unlistedGroups)
+    {
+      if (!groups.contains(group) && isMember(group, memberEntry))
+      {
+        groups.add(group);
+      }
+    }
+    for (Group<?> group : groups.toArray(new Group<?>[groups.size()]))
+    {
+      groups.addAll(nestedGroupClosure.getAncestors(group));
+    }
+    return groups;
+  }
+
+
+
+  /**
+   * Indicates whether the provided DN is a member of one of the groups nested,
+   * directly or not, in the group defined in the entry with the specified DN.
+   * The nested groups listing their members are found with the reverse index of
+   * the members and the nested group closure, only the nested groups not
+   * listing their members, such as dynamic groups, are asked one by one.
+   *
+   * @param  groupDN          The DN of the entry containing the definition of
+   *                          the group.
+   * @param  memberDN         The DN of the potential member.
+   * @param  examinedGroups   The set of groups that have already been
+   *                          examined, as for {@link Group#isMember(DN, Set)}.
+   *
+   * @return  {@code true} if the provided DN is a member of one of the nested
+   *          groups, or {@code false} if not.
+   *
+   * @throws  DirectoryException  If a problem occurs while asking a nested
+   *                              group.
+   */
+  public boolean isMemberOfNestedGroup(DN groupDN, DN memberDN, Set<DN> examinedGroups)
+         throws DirectoryException
+  {
+    Group<?> group = groupsByDN.get(toCompactDn(groupDN));
+    if (group == null)
+    {
+      return false;
+    }
+    Group<?>[] listingGroups = groupsByMember.get(toCompactDn(memberDN));
+    if (listingGroups != null)
+    {
+      for (Group<?> listingGroup : listingGroups)
+      {
+        if (nestedGroupClosure.getAncestors(listingGroup).contains(group))
+        {
+          return true;
+        }
+      }
+    }
+    for (Group<?> unlistedGroup : unlistedGroups)
+    {
+      if (nestedGroupClosure.getAncestors(unlistedGroup).contains(group)
+          && unlistedGroup.isMember(memberDN, examinedGroups))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+
+  /**
+   * Retrieves the DNs of the groups directly nested in the group defined in
+   * the entry with the specified DN, i.e. of the registered groups listed as
+   * members of this group.
+   *
+   * @param  groupDN  The DN of the entry containing the definition of the
+   *                  group.
+   *
+   * @return  The DNs of the groups directly nested in the group.
+   */
+  public List<DN> getNestedGroupDNs(DN groupDN)
+  {
+    Group<?> group = groupsByDN.get(toCompactDn(groupDN));
+    if (group == null)
+    {
+      return Collections.emptyList();
+    }
+    List<DN> nestedGroupDNs = new ArrayList<>();
+    for (Group<?> nestedGroup : nestedGroupClosure.getNestedGroups(group))
+    {
+      nestedGroupDNs.add(nestedGroup.getGroupDN());
+    }
+    return nestedGroupDNs;
+  }
+
+
+
+  /**
+   * Retrieves the transitive closure of the nesting relationships between the
+   * group instances, e.g. for monitoring it.
+   *
+   * @return  The transitive closure of the nesting relationships.
+   */
+  public NestedGroupClosure getNestedGroupClosure()
+  {
+    return nestedGroupClosure;
+  }
+
+  private static boolean isMember(Group<?> group, Entry memberEntry)
+  {
+    try
+    {
+      return group.isMember(memberEntry);
+    }
+    catch (DirectoryException e)
+    {
+      logger.traceException(e);
+      return false;
+    }
+  }
+
+
+
   /**
    * Removes all group instances that might happen to be registered with the
    * group manager.  This method is only intended for testing purposes and
@@ -1027,6 +1639,11 @@ public class GroupManager extends InternalDirectoryServerPlugin
     try
     {
       groupInstances.clear();
+      groupsByMember.clear();
+      unlistedGroups.clear();
+      groupsByDN.clear();
+      nestedGroupClosure.clear();
+      entryChangeGroups.clear();
     }
     finally
     {
@@ -1042,8 +1659,8 @@ public class GroupManager extends InternalDirectoryServerPlugin
    *
    * @param token The current token that the group class holds.
    *
-   * @return {@code true} if the group class should reload its nested groups,
-   *         or {@code false} if it shouldn't.
+   * @return {@code true} if the group class should check whether it has been
+   *         replaced, or {@code false} if it shouldn't.
    */
   public boolean hasInstancesChanged(long token)  {
     return token != this.refreshToken;
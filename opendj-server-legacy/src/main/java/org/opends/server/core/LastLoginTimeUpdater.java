@@ -0,0 +1,258 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.core;
+
+import static org.opends.messages.CoreMessages.*;
+import static org.opends.server.protocols.internal.InternalClientConnection.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.opends.server.api.DirectoryThread;
+import org.opends.server.api.ServerShutdownListener;
+import org.opends.server.protocols.ldap.LDAPAttribute;
+import org.opends.server.types.Modification;
+import org.opends.server.types.RawModification;
+import org.opends.server.util.StripedCounters;
+
+/**
+ * This class defines a thread which writes the last login times recorded by
+ * successful binds to the user entries, when the global configuration
+ * specifies a last login time update interval.
+ * <p>
+ * Rather than writing the user entry during each bind, which serializes the
+ * binds of a user on its entry lock and writes the entry as many times as the
+ * user binds, the binds submit their last login time update to this thread.
+ * The updates of each user are coalesced, only the latest one being kept, and
+ * they are written once per interval, or when the server shuts down.
+ * <p>
+ * The bind has already succeeded when an update is written, so a failure to
+ * write it can only be logged. Binds therefore only submit the updates of the
+ * users whose password policy ignores state update failures, and of the root
+ * users.
+ */
+public final class LastLoginTimeUpdater
+       extends DirectoryThread
+       implements ServerShutdownListener
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** Indexes of the counters. */
+  private static final int SUBMITTED = 0;
+  private static final int COALESCED = 1;
+  private static final int WRITTEN = 2;
+
+  /** The pending updates, keyed by user DN string. */
+  private final ConcurrentMap<String, List<Modification>> pendingUpdates = new ConcurrentHashMap<>();
+  private final StripedCounters counters = new StripedCounters(3);
+
+  /** Shutdown monitor state. */
+  private volatile boolean shutdownRequested;
+  private final Object shutdownLock = new Object();
+
+  /** Creates a new instance of this last login time updater thread. */
+  public LastLoginTimeUpdater()
+  {
+    super("Last Login Time Updater");
+    setDaemon(true);
+    DirectoryServer.registerShutdownListener(this);
+  }
+
+  /**
+   * Submits the last login time update of a user, which replaces any update
+   * of this user which has not been written yet.
+   *
+   * @param userDNString
+   *          The DN of the user entry.
+   * @param modifications
+   *          The modifications of the last login time attributes.
+   */
+  void submit(String userDNString, List<Modification> modifications)
+  {
+    counters.increment(SUBMITTED);
+    if (pendingUpdates.put(userDNString, modifications) != null)
+    {
+      counters.increment(COALESCED);
+    }
+  }
+
+  /**
+   * Removes the pending last login time update of a user, because the user
+   * entry is about to be written by a bind operation.
+   *
+   * @param userDNString
+   *          The DN of the user entry.
+   * @return The modifications of the pending update, or {@code null} if there
+   *         is no pending update for this user.
+   */
+  List<Modification> remove(String userDNString)
+  {
+    return pendingUpdates.isEmpty() ? null : pendingUpdates.remove(userDNString);
+  }
+
+  /**
+   * Returns the number of last login time updates submitted by binds.
+   *
+   * @return The number of last login time updates submitted by binds.
+   */
+  public long getSubmittedUpdates()
+  {
+    return counters.get(SUBMITTED);
+  }
+
+  /**
+   * Returns the number of last login time updates which replaced a pending
+   * update of the same user, saving a write.
+   *
+   * @return The number of coalesced last login time updates.
+   */
+  public long getCoalescedUpdates()
+  {
+    return counters.get(COALESCED);
+  }
+
+  /**
+   * Returns the number of last login time updates written to user entries.
+   *
+   * @return The number of last login time updates written to user entries.
+   */
+  public long getWrittenUpdates()
+  {
+    return counters.get(WRITTEN);
+  }
+
+  /**
+   * Returns the number of last login time updates which have not been
+   * written yet.
+   *
+   * @return The number of pending last login time updates.
+   */
+  public int getPendingUpdates()
+  {
+    return pendingUpdates.size();
+  }
+
+  /** Operates in a loop, writing the pending updates once per interval. */
+  @Override
+  public void run()
+  {
+    while (!shutdownRequested)
+    {
+      try
+      {
+        synchronized (shutdownLock)
+        {
+          if (!shutdownRequested)
+          {
+            try
+            {
+              // Binds write the last login time themselves when there is no
+              // interval, but still check regularly for left over updates.
+              final long interval = DirectoryServer.getLastLoginTimeUpdateInterval();
+              shutdownLock.wait(interval > 0 ? interval : 5000L);
+            }
+            catch (InterruptedException e)
+            {
+              // Server shutdown monitor may interrupt slow threads.
+              logger.traceException(e);
+              shutdownRequested = true;
+            }
+          }
+        }
+        flush();
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+      }
+    }
+  }
+
+  /** Writes all the pending updates to the user entries. */
+  void flush()
+  {
+    final Iterator<Map.Entry<String, List<Modification>>> it = pendingUpdates.entrySet().iterator();
+    while (it.hasNext())
+    {
+      final Map.Entry<String, List<Modification>> mapEntry = it.next();
+      // Only write the update if no bind has replaced or removed it meanwhile.
+      if (pendingUpdates.remove(mapEntry.getKey(), mapEntry.getValue()))
+      {
+        write(mapEntry.getKey(), mapEntry.getValue());
+      }
+    }
+  }
+
+  private void write(String userDNString, List<Modification> modifications)
+  {
+    final ArrayList<RawModification> modList = new ArrayList<>(modifications.size());
+    for (Modification m : modifications)
+    {
+      modList.add(RawModification.create(m.getModificationType(), new LDAPAttribute(m.getAttribute())));
+    }
+
+    final ModifyOperation internalModify =
+        getRootConnection().processModify(ByteString.valueOfUtf8(userDNString), modList);
+    if (internalModify.getResultCode() == ResultCode.SUCCESS)
+    {
+      counters.increment(WRITTEN);
+    }
+    else if (internalModify.getResultCode() != ResultCode.NO_SUCH_OBJECT)
+    {
+      // The bind has already succeeded, so the problem can only be logged.
+      logger.error(ERR_PWPSTATE_CANNOT_UPDATE_USER_ENTRY.get(userDNString, internalModify.getErrorMessage()));
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getShutdownListenerName()
+  {
+    return "Last Login Time Updater";
+  }
+
+  /**
+   * {@inheritDoc}.  The pending updates are written before returning, since
+   * the backends are finalized after the shutdown listeners.
+   */
+  @Override
+  public void processServerShutdown(LocalizableMessage reason)
+  {
+    synchronized (shutdownLock)
+    {
+      shutdownRequested = true;
+      shutdownLock.notifyAll();
+    }
+    flush();
+  }
+}
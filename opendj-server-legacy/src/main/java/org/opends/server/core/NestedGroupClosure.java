@@ -0,0 +1,542 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.opends.server.api.Group;
+
+/**
+ * The transitive closure of the nesting relationships between the group
+ * instances registered with the group manager.
+ * <p>
+ * A group is nested in another group when its DN is listed as a member of the
+ * other group. Each nested group keeps the set of all the groups it is nested
+ * in, directly or not, so that membership checks do not have to walk the
+ * nesting hierarchy. When a nesting relationship is added or removed, only the
+ * closure of the nested group and of the groups nested in it is updated, the
+ * other groups are not impacted.
+ * <p>
+ * The closure is only updated by the group manager while holding its write
+ * lock. The nodes are replaced, not updated, so the closure can be read without
+ * locking. Nothing prevents a group from being listed as a member of one of
+ * its nested groups: such cycles are counted, and the groups which are part of
+ * a cycle are nested in themselves.
+ */
+public final class NestedGroupClosure
+{
+  /** The nesting relationships of a group. Instances are immutable. */
+  private static final class Node
+  {
+    private static final Group<?>[] NO_GROUPS = new Group<?>[0];
+    private static final Node EMPTY = new Node(NO_GROUPS, NO_GROUPS, Collections.<Group<?>> emptySet());
+
+    /** The groups in which the group is directly nested. */
+    private final Group<?>[] parents;
+    /** The groups directly nested in the group. */
+    private final Group<?>[] children;
+    /** The groups in which the group is nested, directly or not. */
+    private final Set<Group<?>> ancestors;
+
+    private Node(Group<?>[] parents, Group<?>[] children, Set<Group<?>> ancestors)
+    {
+      this.parents = parents;
+      this.children = children;
+      this.ancestors = ancestors;
+    }
+
+    private boolean isEmpty()
+    {
+      return parents.length == 0 && children.length == 0;
+    }
+  }
+
+  /** The nodes of the groups having nesting relationships. */
+  private final ConcurrentMap<Group<?>, Node> nodes = new ConcurrentHashMap<>();
+
+  /** The number of nesting relationships. */
+  private volatile long nbRelationships;
+  /** The sum of the number of groups in which each group is nested. */
+  private volatile long closureSize;
+  /** The number of nesting relationships added while creating a cycle. */
+  private volatile long nbCycles;
+  /** The number of updates of the closure. */
+  private volatile long nbUpdates;
+  /** The number of groups whose closure has been changed by the updates. */
+  private volatile long nbUpdatedGroups;
+  /** The total time spent updating the closure, in nanoseconds. */
+  private volatile long totalUpdateTime;
+
+  /**
+   * Returns the groups in which the provided group is nested, directly or not.
+   *
+   * @param group
+   *          The group instance.
+   * @return The groups in which the provided group is nested, which must not be
+   *         modified.
+   */
+  Set<Group<?>> getAncestors(Group<?> group)
+  {
+    return getNode(group).ancestors;
+  }
+
+  /**
+   * Returns the groups directly nested in the provided group.
+   *
+   * @param group
+   *          The group instance.
+   * @return The groups directly nested in the provided group.
+   */
+  List<Group<?>> getNestedGroups(Group<?> group)
+  {
+    return Collections.unmodifiableList(Arrays.asList(getNode(group).children));
+  }
+
+  /**
+   * Records that a group is listed as a member of another group. The caller
+   * must hold the group manager write lock.
+   *
+   * @param parent
+   *          The group listing the nested group as a member.
+   * @param child
+   *          The nested group.
+   */
+  void addNesting(Group<?> parent, Group<?> child)
+  {
+    final long startTime = System.nanoTime();
+    final Node parentNode = getNode(parent);
+    if (contains(parentNode.children, child))
+    {
+      return;
+    }
+    if (parent == child || parentNode.ancestors.contains(child))
+    {
+      nbCycles++;
+    }
+    nodes.put(parent, new Node(parentNode.parents, append(parentNode.children, child), parentNode.ancestors));
+    final Node childNode = getNode(child);
+    nodes.put(child, new Node(append(childNode.parents, parent), childNode.children, childNode.ancestors));
+    nbRelationships++;
+
+    // Adding a relationship only adds ancestors: the parent and its ancestors,
+    // to the child and to the groups nested in it.
+    final Set<Group<?>> addedAncestors = new HashSet<>(parentNode.ancestors);
+    addedAncestors.add(parent);
+    int nbChanged = 0;
+    for (Group<?> group : getSelfAndDescendants(child))
+    {
+      final Node node = getNode(group);
+      if (!node.ancestors.containsAll(addedAncestors))
+      {
+        final Set<Group<?>> ancestors = new LinkedHashSet<>(node.ancestors);
+        ancestors.addAll(addedAncestors);
+        setAncestors(group, node, ancestors);
+        nbChanged++;
+      }
+    }
+    updated(startTime, nbChanged);
+  }
+
+  /**
+   * Records that a group is no longer listed as a member of another group. The
+   * caller must hold the group manager write lock.
+   *
+   * @param parent
+   *          The group which was listing the nested group as a member.
+   * @param child
+   *          The group which was nested.
+   */
+  void removeNesting(Group<?> parent, Group<?> child)
+  {
+    final long startTime = System.nanoTime();
+    final Node parentNode = getNode(parent);
+    if (!contains(parentNode.children, child))
+    {
+      return;
+    }
+    putOrRemove(parent, new Node(parentNode.parents, remove(parentNode.children, child), parentNode.ancestors));
+    final Node childNode = getNode(child);
+    putOrRemove(child, new Node(remove(childNode.parents, parent), childNode.children, childNode.ancestors));
+    nbRelationships--;
+
+    // Removing a relationship may remove ancestors from the child and from the
+    // groups nested in it, which are computed again from their parents.
+    int nbChanged = 0;
+    for (Group<?> group : getSelfAndDescendants(child))
+    {
+      final Node node = getNode(group);
+      final Set<Group<?>> ancestors = computeAncestors(node);
+      if (!ancestors.equals(node.ancestors))
+      {
+        setAncestors(group, node, ancestors);
+        nbChanged++;
+      }
+    }
+    updated(startTime, nbChanged);
+  }
+
+  /**
+   * Removes all the nesting relationships of the provided group, e.g. when it
+   * is deregistered. The caller must hold the group manager write lock.
+   *
+   * @param group
+   *          The group instance.
+   */
+  void removeGroup(Group<?> group)
+  {
+    final Node node = nodes.get(group);
+    if (node != null)
+    {
+      for (Group<?> child : node.children)
+      {
+        removeNesting(group, child);
+      }
+      for (Group<?> parent : node.parents)
+      {
+        removeNesting(parent, group);
+      }
+    }
+  }
+
+  /**
+   * Gives to a new group instance all the nesting relationships of the group
+   * instance it replaces, without computing the closure again. Both instances
+   * are part of the closure until {@link #removeReplacedGroup(Group)} is
+   * called, so that readers see the relationships through either of them. The
+   * caller must hold the group manager write lock.
+   *
+   * @param oldGroup
+   *          The group instance being replaced.
+   * @param newGroup
+   *          The group instance replacing it.
+   */
+  void addReplacementGroup(Group<?> oldGroup, Group<?> newGroup)
+  {
+    final long startTime = System.nanoTime();
+    final Node oldNode = nodes.get(oldGroup);
+    if (oldNode == null)
+    {
+      return;
+    }
+    final Set<Group<?>> descendants = getSelfAndDescendants(oldGroup);
+    final Set<Group<?>> newAncestors = new LinkedHashSet<>(oldNode.ancestors);
+    if (oldNode.ancestors.contains(oldGroup))
+    {
+      newAncestors.add(newGroup);
+    }
+    nodes.put(newGroup, new Node(replace(oldNode.parents, oldGroup, newGroup),
+        replace(oldNode.children, oldGroup, newGroup), Collections.unmodifiableSet(newAncestors)));
+    closureSize += newAncestors.size();
+    for (Group<?> parent : oldNode.parents)
+    {
+      if (parent != oldGroup)
+      {
+        final Node node = getNode(parent);
+        nodes.put(parent, new Node(node.parents, append(node.children, newGroup), node.ancestors));
+      }
+    }
+    for (Group<?> child : oldNode.children)
+    {
+      if (child != oldGroup)
+      {
+        final Node node = getNode(child);
+        nodes.put(child, new Node(append(node.parents, newGroup), node.children, node.ancestors));
+      }
+    }
+    for (Group<?> group : descendants)
+    {
+      if (group != oldGroup)
+      {
+        final Node node = getNode(group);
+        final Set<Group<?>> ancestors = new LinkedHashSet<>(node.ancestors);
+        ancestors.add(newGroup);
+        setAncestors(group, node, ancestors);
+      }
+    }
+    updated(startTime, descendants.size() - 1);
+  }
+
+  /**
+   * Removes a group instance which has been replaced, once its nesting
+   * relationships have been given to the new instance with
+   * {@link #addReplacementGroup(Group, Group)}. The caller must hold the group
+   * manager write lock.
+   *
+   * @param oldGroup
+   *          The group instance which has been replaced.
+   */
+  void removeReplacedGroup(Group<?> oldGroup)
+  {
+    final long startTime = System.nanoTime();
+    final Node oldNode = nodes.remove(oldGroup);
+    if (oldNode == null)
+    {
+      return;
+    }
+    closureSize -= oldNode.ancestors.size();
+    final Set<Group<?>> descendants = new LinkedHashSet<>();
+    for (Group<?> child : oldNode.children)
+    {
+      if (child != oldGroup)
+      {
+        descendants.addAll(getSelfAndDescendants(child));
+      }
+    }
+    for (Group<?> parent : oldNode.parents)
+    {
+      if (parent != oldGroup)
+      {
+        final Node node = getNode(parent);
+        putOrRemove(parent, new Node(node.parents, remove(node.children, oldGroup), node.ancestors));
+      }
+    }
+    for (Group<?> child : oldNode.children)
+    {
+      if (child != oldGroup)
+      {
+        final Node node = getNode(child);
+        putOrRemove(child, new Node(remove(node.parents, oldGroup), node.children, node.ancestors));
+      }
+    }
+    int nbChanged = 0;
+    for (Group<?> group : descendants)
+    {
+      final Node node = nodes.get(group);
+      if (node != null && node.ancestors.contains(oldGroup))
+      {
+        final Set<Group<?>> ancestors = new LinkedHashSet<>(node.ancestors);
+        ancestors.remove(oldGroup);
+        setAncestors(group, node, ancestors);
+        nbChanged++;
+      }
+    }
+    updated(startTime, nbChanged);
+  }
+
+  /** Removes all the nesting relationships. The caller must hold the group manager write lock. */
+  void clear()
+  {
+    nodes.clear();
+    nbRelationships = 0;
+    closureSize = 0;
+  }
+
+  /**
+   * Returns the number of groups having nesting relationships.
+   *
+   * @return The number of groups having nesting relationships.
+   */
+  public long getGroupCount()
+  {
+    return nodes.size();
+  }
+
+  /**
+   * Returns the number of nesting relationships, i.e. of groups listed as
+   * members of other groups.
+   *
+   * @return The number of nesting relationships.
+   */
+  public long getRelationshipCount()
+  {
+    return nbRelationships;
+  }
+
+  /**
+   * Returns the size of the closure, i.e. the sum of the number of groups in
+   * which each group is nested.
+   *
+   * @return The size of the closure.
+   */
+  public long getClosureSize()
+  {
+    return closureSize;
+  }
+
+  /**
+   * Returns the number of nesting relationships which created a cycle when
+   * they were added.
+   *
+   * @return The number of nesting relationships which created a cycle.
+   */
+  public long getCycleCount()
+  {
+    return nbCycles;
+  }
+
+  /**
+   * Returns the number of updates of the closure.
+   *
+   * @return The number of updates of the closure.
+   */
+  public long getUpdateCount()
+  {
+    return nbUpdates;
+  }
+
+  /**
+   * Returns the number of groups whose closure has been changed by the updates.
+   *
+   * @return The number of groups whose closure has been changed.
+   */
+  public long getUpdatedGroupCount()
+  {
+    return nbUpdatedGroups;
+  }
+
+  /**
+   * Returns the total time spent updating the closure.
+   *
+   * @return The total time spent updating the closure, in microseconds.
+   */
+  public long getTotalUpdateTime()
+  {
+    return totalUpdateTime / 1000;
+  }
+
+  private Node getNode(Group<?> group)
+  {
+    final Node node = nodes.get(group);
+    return node != null ? node : Node.EMPTY;
+  }
+
+  private void putOrRemove(Group<?> group, Node node)
+  {
+    if (node.isEmpty())
+    {
+      nodes.remove(group);
+      closureSize -= node.ancestors.size();
+    }
+    else
+    {
+      nodes.put(group, node);
+    }
+  }
+
+  private void setAncestors(Group<?> group, Node node, Set<Group<?>> ancestors)
+  {
+    closureSize += ancestors.size() - node.ancestors.size();
+    nodes.put(group, new Node(node.parents, node.children, Collections.unmodifiableSet(ancestors)));
+  }
+
+  private void updated(long startTime, int nbChanged)
+  {
+    nbUpdates++;
+    nbUpdatedGroups += nbChanged;
+    totalUpdateTime += System.nanoTime() - startTime;
+  }
+
+  /** Returns the provided group and the groups nested in it, directly or not. */
+  private Set<Group<?>> getSelfAndDescendants(Group<?> group)
+  {
+    final Set<Group<?>> groups = new LinkedHashSet<>();
+    final LinkedList<Group<?>> groupsToVisit = new LinkedList<>();
+    groups.add(group);
+    groupsToVisit.add(group);
+    while (!groupsToVisit.isEmpty())
+    {
+      for (Group<?> child : getNode(groupsToVisit.removeFirst()).children)
+      {
+        if (groups.add(child))
+        {
+          groupsToVisit.add(child);
+        }
+      }
+    }
+    return groups;
+  }
+
+  /** Computes the groups in which the group of the provided node is nested, walking up its parents. */
+  private Set<Group<?>> computeAncestors(Node node)
+  {
+    final Set<Group<?>> ancestors = new LinkedHashSet<>();
+    final LinkedList<Group<?>> groupsToVisit = new LinkedList<>();
+    for (Group<?> parent : node.parents)
+    {
+      if (ancestors.add(parent))
+      {
+        groupsToVisit.add(parent);
+      }
+    }
+    while (!groupsToVisit.isEmpty())
+    {
+      for (Group<?> parent : getNode(groupsToVisit.removeFirst()).parents)
+      {
+        if (ancestors.add(parent))
+        {
+          groupsToVisit.add(parent);
+        }
+      }
+    }
+    return ancestors;
+  }
+
+  private static boolean contains(Group<?>[] groups, Group<?> group)
+  {
+    for (Group<?> g : groups)
+    {
+      if (g == group)
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Group<?>[] append(Group<?>[] groups, Group<?> group)
+  {
+    final Group<?>[] newGroups = Arrays.copyOf(groups, groups.length + 1);
+    newGroups[groups.length] = group;
+    return newGroups;
+  }
+
+  private static Group<?>[] replace(Group<?>[] groups, Group<?> oldGroup, Group<?> newGroup)
+  {
+    final Group<?>[] newGroups = groups.clone();
+    for (int i = 0; i < newGroups.length; i++)
+    {
+      if (newGroups[i] == oldGroup)
+      {
+        newGroups[i] = newGroup;
+      }
+    }
+    return newGroups;
+  }
+
+  private static Group<?>[] remove(Group<?>[] groups, Group<?> group)
+  {
+    final List<Group<?>> newGroups = new LinkedList<>(Arrays.asList(groups));
+    newGroups.remove(group);
+    return newGroups.toArray(new Group<?>[newGroups.size()]);
+  }
+}
@@ -0,0 +1,426 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.core;
+
+import static org.opends.messages.CoreMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.opends.server.api.DirectoryThread;
+import org.opends.server.api.PasswordStorageScheme;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.util.StripedCounters;
+
+/**
+ * Runs the encoding and verification of the passwords stored with
+ * computationally expensive password storage schemes, such as PBKDF2, on a
+ * dedicated bounded pool of threads, so that a storm of binds cannot use more
+ * processors than the configured number of password hashing threads, leaving
+ * the others to the searches and modifications.
+ * <p>
+ * The operations waiting for a password to be hashed are admitted while the
+ * password hashing queue is not full, and each client address may optionally
+ * be limited to a number of password verifications per second. Operations
+ * which are not admitted fail with a busy result, rather than occupying a
+ * worker thread for nothing. When no password hashing thread is configured,
+ * the passwords are hashed by the threads processing the operations, exactly
+ * like before.
+ */
+public final class PasswordHashingExecutor
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The disabled executor, hashing the passwords on the calling threads without any limit. */
+  static final PasswordHashingExecutor DISABLED = new PasswordHashingExecutor(0, 1, 0);
+
+  /** The maximum number of client addresses tracked by the rate limiter. */
+  private static final int MAX_RATE_LIMITED_CLIENTS = 65536;
+
+  /** Indexes of the counters. */
+  private static final int TASKS = 0;
+  private static final int QUEUE_FULL_REJECTIONS = 1;
+  private static final int RATE_LIMIT_REJECTIONS = 2;
+  private static final int QUEUE_WAIT_TIME = 3;
+  private static final int HASHING_TIME = 4;
+
+  /** The number of password verifications performed by a client during the current second. */
+  private static final class ClientRate
+  {
+    private long second;
+    private int count;
+
+    private synchronized boolean tryAcquire(long currentSecond, int rateLimit)
+    {
+      if (second != currentSecond)
+      {
+        second = currentSecond;
+        count = 0;
+      }
+      return ++count <= rateLimit;
+    }
+  }
+
+  private final int nbThreads;
+  private final int queueSize;
+  private final int rateLimit;
+  /** The thread pool hashing the passwords, or {@code null} if they are hashed by the calling threads. */
+  private final ThreadPoolExecutor executor;
+  private final ConcurrentMap<String, ClientRate> clientRates = new ConcurrentHashMap<>();
+  private final StripedCounters counters = new StripedCounters(5);
+
+  /**
+   * Creates a new password hashing executor.
+   *
+   * @param nbThreads
+   *          The number of password hashing threads, or 0 for hashing the
+   *          passwords on the threads processing the operations.
+   * @param queueSize
+   *          The maximum number of passwords waiting for a password hashing
+   *          thread.
+   * @param rateLimit
+   *          The maximum number of password verifications per second for each
+   *          client address, or 0 for no limit.
+   */
+  public PasswordHashingExecutor(int nbThreads, int queueSize, int rateLimit)
+  {
+    this.nbThreads = Math.max(nbThreads, 0);
+    this.queueSize = Math.max(queueSize, 1);
+    this.rateLimit = Math.max(rateLimit, 0);
+    if (this.nbThreads > 0)
+    {
+      executor = new ThreadPoolExecutor(this.nbThreads, this.nbThreads, 60, TimeUnit.SECONDS,
+          new ArrayBlockingQueue<Runnable>(this.queueSize), new DirectoryThread.Factory("Password Hashing Thread"));
+      // Do not keep idle threads around when there is no bind storm.
+      executor.allowCoreThreadTimeOut(true);
+    }
+    else
+    {
+      executor = null;
+    }
+  }
+
+  /**
+   * Indicates whether this executor has the provided settings.
+   *
+   * @param nbThreads
+   *          The number of password hashing threads.
+   * @param queueSize
+   *          The maximum number of passwords waiting for a password hashing
+   *          thread.
+   * @param rateLimit
+   *          The maximum number of password verifications per second for each
+   *          client address.
+   * @return {@code true} if this executor has the provided settings.
+   */
+  public boolean hasSettings(int nbThreads, int queueSize, int rateLimit)
+  {
+    return this.nbThreads == Math.max(nbThreads, 0)
+        && this.queueSize == Math.max(queueSize, 1)
+        && this.rateLimit == Math.max(rateLimit, 0);
+  }
+
+  /**
+   * Checks whether an operation of the provided client may verify a password
+   * stored with a computationally expensive password storage scheme.
+   *
+   * @param clientAddress
+   *          The address of the client requesting the operation, or
+   *          {@code null} for internal operations which are never rate
+   *          limited.
+   * @throws DirectoryException
+   *           With a busy result code, if the password hashing queue is full
+   *           or the client has exceeded its rate limit.
+   */
+  public void checkAdmission(String clientAddress) throws DirectoryException
+  {
+    if (executor != null && executor.getQueue().remainingCapacity() == 0)
+    {
+      counters.increment(QUEUE_FULL_REJECTIONS);
+      throw new DirectoryException(ResultCode.BUSY, ERR_PASSWORD_HASHING_QUEUE_FULL.get(queueSize));
+    }
+    if (rateLimit > 0 && clientAddress != null && !tryAcquire(clientAddress))
+    {
+      counters.increment(RATE_LIMIT_REJECTIONS);
+      throw new DirectoryException(ResultCode.BUSY,
+          ERR_PASSWORD_HASHING_RATE_LIMIT_EXCEEDED.get(clientAddress, rateLimit));
+    }
+  }
+
+  private boolean tryAcquire(String clientAddress)
+  {
+    final long currentSecond = System.currentTimeMillis() / 1000;
+    ClientRate clientRate = clientRates.get(clientAddress);
+    if (clientRate == null)
+    {
+      if (clientRates.size() >= MAX_RATE_LIMITED_CLIENTS)
+      {
+        removeIdleClients(currentSecond);
+      }
+      clientRate = new ClientRate();
+      final ClientRate existing = clientRates.putIfAbsent(clientAddress, clientRate);
+      if (existing != null)
+      {
+        clientRate = existing;
+      }
+    }
+    return clientRate.tryAcquire(currentSecond, rateLimit);
+  }
+
+  /** Bounds the memory used by the rate limiter, by forgetting the clients idle during the current second. */
+  private void removeIdleClients(long currentSecond)
+  {
+    for (Iterator<ClientRate> it = clientRates.values().iterator(); it.hasNext();)
+    {
+      final ClientRate clientRate = it.next();
+      synchronized (clientRate)
+      {
+        if (clientRate.second != currentSecond)
+        {
+          it.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs a task encoding or verifying a password with the provided password
+   * storage scheme, and waits for its result. The task is run by a password
+   * hashing thread if the scheme is computationally expensive, and by the
+   * calling thread otherwise. Expensive tasks are never run by the calling
+   * thread: they fail with a busy result if the password hashing queue is
+   * full.
+   *
+   * @param <T>
+   *          The type of the task result.
+   * @param scheme
+   *          The password storage scheme used by the task.
+   * @param task
+   *          The task encoding or verifying a password.
+   * @return The result of the task.
+   * @throws DirectoryException
+   *           If the task failed, or could not be queued.
+   */
+  public <T> T execute(PasswordStorageScheme<?> scheme, final Callable<T> task) throws DirectoryException
+  {
+    if (executor == null || !scheme.isComputationallyExpensive())
+    {
+      return call(task);
+    }
+
+    counters.increment(TASKS);
+    final long submitTime = System.nanoTime();
+    final Future<T> future;
+    try
+    {
+      future = executor.submit(new Callable<T>()
+      {
+        @Override
+        public T call() throws Exception
+        {
+          final long startTime = System.nanoTime();
+          counters.add(QUEUE_WAIT_TIME, (startTime - submitTime) / 1000);
+          try
+          {
+            return task.call();
+          }
+          finally
+          {
+            counters.add(HASHING_TIME, (System.nanoTime() - startTime) / 1000);
+          }
+        }
+      });
+    }
+    catch (RejectedExecutionException e)
+    {
+      logger.traceException(e);
+      if (executor.isShutdown())
+      {
+        // This executor has been replaced after a configuration change, or the server is shutting down.
+        final PasswordHashingExecutor currentExecutor = DirectoryServer.getPasswordHashingExecutor();
+        if (currentExecutor != this && currentExecutor != null)
+        {
+          return currentExecutor.execute(scheme, task);
+        }
+        throw new DirectoryException(ResultCode.UNAVAILABLE, ERR_PASSWORD_HASHING_SHUT_DOWN.get(), e);
+      }
+      // The queue filled up since the operation was admitted.
+      counters.increment(QUEUE_FULL_REJECTIONS);
+      throw new DirectoryException(ResultCode.BUSY, ERR_PASSWORD_HASHING_QUEUE_FULL.get(queueSize), e);
+    }
+
+    try
+    {
+      return future.get();
+    }
+    catch (InterruptedException e)
+    {
+      logger.traceException(e);
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new DirectoryException(ResultCode.UNAVAILABLE, ERR_PASSWORD_HASHING_INTERRUPTED.get(), e);
+    }
+    catch (ExecutionException e)
+    {
+      throw toDirectoryException(e.getCause());
+    }
+  }
+
+  private static <T> T call(Callable<T> task) throws DirectoryException
+  {
+    try
+    {
+      return task.call();
+    }
+    catch (Exception e)
+    {
+      throw toDirectoryException(e);
+    }
+  }
+
+  private static DirectoryException toDirectoryException(Throwable t)
+  {
+    if (t instanceof DirectoryException)
+    {
+      return (DirectoryException) t;
+    }
+    logger.traceException(t);
+    return new DirectoryException(DirectoryServer.getServerErrorResultCode(),
+        ERR_PASSWORD_HASHING_FAILED.get(getExceptionMessage(t)), t);
+  }
+
+  /** Stops the password hashing threads once the queued passwords have been hashed. */
+  public void shutdown()
+  {
+    if (executor != null)
+    {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Returns the number of password hashing threads.
+   *
+   * @return The number of password hashing threads, or 0 if the passwords are
+   *         hashed by the threads processing the operations.
+   */
+  public int getNumberOfThreads()
+  {
+    return nbThreads;
+  }
+
+  /**
+   * Returns the number of password hashing threads currently hashing a
+   * password.
+   *
+   * @return The number of password hashing threads currently hashing a
+   *         password.
+   */
+  public int getActiveThreads()
+  {
+    return executor != null ? executor.getActiveCount() : 0;
+  }
+
+  /**
+   * Returns the number of passwords currently waiting for a password hashing
+   * thread.
+   *
+   * @return The number of passwords currently waiting for a password hashing
+   *         thread.
+   */
+  public int getQueueSize()
+  {
+    return executor != null ? executor.getQueue().size() : 0;
+  }
+
+  /**
+   * Returns the number of passwords submitted to the password hashing threads.
+   *
+   * @return The number of passwords submitted to the password hashing threads.
+   */
+  public long getTasks()
+  {
+    return counters.get(TASKS);
+  }
+
+  /**
+   * Returns the number of operations rejected because the password hashing
+   * queue was full.
+   *
+   * @return The number of operations rejected because the password hashing
+   *         queue was full.
+   */
+  public long getQueueFullRejections()
+  {
+    return counters.get(QUEUE_FULL_REJECTIONS);
+  }
+
+  /**
+   * Returns the number of operations rejected because their client exceeded
+   * its rate limit.
+   *
+   * @return The number of operations rejected because their client exceeded
+   *         its rate limit.
+   */
+  public long getRateLimitRejections()
+  {
+    return counters.get(RATE_LIMIT_REJECTIONS);
+  }
+
+  /**
+   * Returns the total time spent by the passwords waiting for a password
+   * hashing thread.
+   *
+   * @return The total time in microseconds spent by the passwords waiting for
+   *         a password hashing thread.
+   */
+  public long getTotalQueueWaitTime()
+  {
+    return counters.get(QUEUE_WAIT_TIME);
+  }
+
+  /**
+   * Returns the total time spent by the password hashing threads hashing
+   * passwords.
+   *
+   * @return The total time in microseconds spent by the password hashing
+   *         threads hashing passwords.
+   */
+  public long getTotalHashingTime()
+  {
+    return counters.get(HASHING_TIME);
+  }
+}
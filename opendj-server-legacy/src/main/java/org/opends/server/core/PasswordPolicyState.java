@@ -40,6 +40,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -47,6 +48,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.LocalizableMessageBuilder;
@@ -142,6 +144,8 @@ public final class PasswordPolicyState extends AuthenticationPolicyState
 
   /** The set of modifications that should be applied to the user's entry. */
   private LinkedList<Modification> modifications = new LinkedList<>();
+  /** The name of the storage scheme of the last password value compared with a provided password. */
+  private String passwordStorageSchemeName;
 
 
 
@@ -2176,7 +2180,32 @@ public final class PasswordPolicyState extends AuthenticationPolicyState
   }
 
   @Override
-  public boolean passwordMatches(ByteString password)
+  public boolean passwordMatches(ByteString password) throws DirectoryException
+  {
+    return passwordMatches(password, false, null);
+  }
+
+  /**
+   * Indicates whether the provided password value matches any of the stored passwords in the user entry, making sure
+   * first that the server can afford verifying it. Recently verified passwords are matched without further check,
+   * whereas verifying the password against values stored with a computationally expensive scheme may be rejected
+   * with a {@code BUSY} result when the server is overloaded. Rejected or failed verifications are reported as
+   * exceptions, so that they are not mistaken for a wrong password.
+   *
+   * @param  password       The user-provided password to verify.
+   * @param  clientAddress  The address of the client providing the password, or {@code null} for an internal client.
+   *
+   * @return  {@code true} if the provided password matches any of the stored password values, or {@code false} if not.
+   *
+   * @throws  DirectoryException  If the verification of the password was rejected or could not be performed.
+   */
+  public boolean passwordMatches(ByteString password, String clientAddress) throws DirectoryException
+  {
+    return passwordMatches(password, true, clientAddress);
+  }
+
+  private boolean passwordMatches(ByteString password, boolean checkAdmission, String clientAddress)
+      throws DirectoryException
   {
     List<Attribute> attrList = userEntry.getAttribute(passwordPolicy.getPasswordAttribute());
     if (attrList == null || attrList.isEmpty())
@@ -2190,45 +2219,93 @@ public final class PasswordPolicyState extends AuthenticationPolicyState
       return false;
     }
 
+    // Look for a recently verified password before admitting any expensive verification.
+    VerifiedCredentialCache verifiedCredentials = DirectoryServer.getVerifiedCredentialCache();
+    Map<ByteString, String[]> storedValues = new LinkedHashMap<>();
+    boolean computationallyExpensive = false;
     for (Attribute a : attrList)
     {
       for (ByteString v : a)
       {
+        String[] pwComponents;
         try
         {
-          String[] pwComponents = getPwComponents(v);
-          String schemeName = pwComponents[0];
-          PasswordStorageScheme<?> scheme = getPasswordStorageScheme(schemeName);
-          if (scheme == null)
-          {
-            if (logger.isTraceEnabled())
-            {
-              logger.trace("User entry %s contains a password with scheme %s that is not defined in the server.",
-                                  userDNString, schemeName);
-            }
+          pwComponents = getPwComponents(v);
+        }
+        catch (DirectoryException e)
+        {
+          logger.traceException(e, "An error occurred while attempting to process a password value for user %s",
+              userDNString);
+          continue;
+        }
 
-            continue;
+        String schemeName = pwComponents[0];
+        PasswordStorageScheme<?> scheme = getPasswordStorageScheme(schemeName);
+        if (scheme == null)
+        {
+          if (logger.isTraceEnabled())
+          {
+            logger.trace("User entry %s contains a password with scheme %s that is not defined in the server.",
+                                userDNString, schemeName);
           }
 
-          if (passwordMatches(password, pwComponents, scheme))
-          {
-            if (logger.isTraceEnabled())
-            {
-              logger.trace("Returning true for user %s because the provided password matches a value " +
-                      "encoded with scheme %s", userDNString, schemeName);
-            }
+          continue;
+        }
+
+        if (verifiedCredentials.isVerified(v, password))
+        {
+          passwordStorageSchemeName = schemeName;
+          logger.trace("Returning true for user %s because the provided password has recently been verified " +
+              "against a value encoded with scheme %s", userDNString, schemeName);
+          return true;
+        }
+        storedValues.put(v, pwComponents);
+        computationallyExpensive |= scheme.isComputationallyExpensive();
+      }
+    }
+
+    if (checkAdmission && computationallyExpensive)
+    {
+      DirectoryServer.getPasswordHashingExecutor().checkAdmission(clientAddress);
+    }
 
-            return true;
+    DirectoryException verificationFailure = null;
+    for (Map.Entry<ByteString, String[]> storedValue : storedValues.entrySet())
+    {
+      String[] pwComponents = storedValue.getValue();
+      String schemeName = pwComponents[0];
+      passwordStorageSchemeName = schemeName;
+      try
+      {
+        if (passwordMatches(password, pwComponents, getPasswordStorageScheme(schemeName)))
+        {
+          if (logger.isTraceEnabled())
+          {
+            logger.trace("Returning true for user %s because the provided password matches a value " +
+                    "encoded with scheme %s", userDNString, schemeName);
           }
+
+          verifiedCredentials.putVerified(storedValue.getKey(), password);
+          return true;
         }
-        catch (Exception e)
+      }
+      catch (DirectoryException e)
+      {
+        logger.traceException(e, "An error occurred while attempting to verify a password value for user %s",
+            userDNString);
+        if (verificationFailure == null)
         {
-          logger.traceException(e, "An error occurred while attempting to process a password value for user %s",
-              userDNString);
+          verificationFailure = e;
         }
       }
     }
 
+    // A verification which could not be performed must not be reported as a wrong password.
+    if (verificationFailure != null)
+    {
+      throw verificationFailure;
+    }
+
     // If we've gotten here, then we couldn't find a match.
     logger.trace("Returning false because the provided password does not match any of the stored password " +
             "values for user %s", userDNString);
@@ -2283,22 +2360,10 @@ public final class PasswordPolicyState extends AuthenticationPolicyState
   {
     List<PasswordStorageScheme<?>> schemes = passwordPolicy.getDefaultPasswordStorageSchemes();
     List<ByteString> encodedPasswords = new ArrayList<>(schemes.size());
-
-    if (passwordPolicy.isAuthPasswordSyntax())
+    for (PasswordStorageScheme<?> s : schemes)
     {
-      for (PasswordStorageScheme<?> s : schemes)
-      {
-        encodedPasswords.add(s.encodeAuthPassword(password));
-      }
+      encodedPasswords.add(encodePassword(password, s));
     }
-    else
-    {
-      for (PasswordStorageScheme<?> s : schemes)
-      {
-        encodedPasswords.add(s.encodePasswordWithScheme(password));
-      }
-    }
-
     return encodedPasswords;
   }
 
@@ -2472,18 +2537,34 @@ public final class PasswordPolicyState extends AuthenticationPolicyState
         : DirectoryServer.getPasswordStorageScheme(schemeName);
   }
 
-  private boolean passwordMatches(ByteString password, String[] pwComponents, PasswordStorageScheme<?> scheme)
+  private boolean passwordMatches(final ByteString password, final String[] pwComponents,
+      final PasswordStorageScheme<?> scheme) throws DirectoryException
   {
-    return passwordPolicy.isAuthPasswordSyntax()
-        ? scheme.authPasswordMatches(password, pwComponents[1], pwComponents[2])
-        : scheme.passwordMatches(password, ByteString.valueOfUtf8(pwComponents[1]));
+    return DirectoryServer.getPasswordHashingExecutor().execute(scheme, new Callable<Boolean>()
+    {
+      @Override
+      public Boolean call()
+      {
+        return passwordPolicy.isAuthPasswordSyntax()
+            ? scheme.authPasswordMatches(password, pwComponents[1], pwComponents[2])
+            : scheme.passwordMatches(password, ByteString.valueOfUtf8(pwComponents[1]));
+      }
+    });
   }
 
-  private ByteString encodePassword(ByteString password, PasswordStorageScheme<?> s) throws DirectoryException
+  private ByteString encodePassword(final ByteString password, final PasswordStorageScheme<?> s)
+      throws DirectoryException
   {
-    return passwordPolicy.isAuthPasswordSyntax()
-        ? s.encodeAuthPassword(password)
-        : s.encodePasswordWithScheme(password);
+    return DirectoryServer.getPasswordHashingExecutor().execute(s, new Callable<ByteString>()
+    {
+      @Override
+      public ByteString call() throws DirectoryException
+      {
+        return passwordPolicy.isAuthPasswordSyntax()
+            ? s.encodeAuthPassword(password)
+            : s.encodePasswordWithScheme(password);
+      }
+    });
   }
 
   /**
@@ -2507,8 +2588,10 @@ public final class PasswordPolicyState extends AuthenticationPolicyState
    *
    * @return  {@code true} if the provided password is equal to any of the current passwords or any of the passwords
    *          in the history, or {@code false} if not.
+   *
+   * @throws  DirectoryException  If the provided password could not be compared with the current passwords.
    */
-  public boolean isPasswordInHistory(ByteString password)
+  public boolean isPasswordInHistory(ByteString password) throws DirectoryException
   {
     if (! maintainHistory())
     {
@@ -3033,6 +3116,19 @@ public final class PasswordPolicyState extends AuthenticationPolicyState
 
 
 
+  /**
+   * Retrieves the name of the storage scheme of the last password value which has been compared with a password
+   * provided by the user.
+   *
+   * @return  The name of the password storage scheme, or {@code null} if no password value has been compared.
+   */
+  public String getPasswordStorageSchemeName()
+  {
+    return passwordStorageSchemeName;
+  }
+
+
+
   @Override
   public void finalizeStateAfterBind()
          throws DirectoryException
@@ -3043,6 +3139,28 @@ public final class PasswordPolicyState extends AuthenticationPolicyState
       return;
     }
 
+    LastLoginTimeUpdater lastLoginTimeUpdater = DirectoryServer.getLastLoginTimeUpdater();
+    if (lastLoginTimeUpdater != null)
+    {
+      int nbLastLoginTimeMods = countLastLoginTimeModifications();
+      if (DirectoryServer.getLastLoginTimeUpdateInterval() > 0 && nbLastLoginTimeMods == modifications.size()
+          && ignoresStateUpdateFailures())
+      {
+        // Successful binds only record the last login time: coalesce it with the next ones.
+        // The updater can only log the failures, so this is only done when they are ignored anyway.
+        lastLoginTimeUpdater.submit(userDNString, new ArrayList<>(modifications));
+        return;
+      }
+
+      // Other updates, such as authentication failures, are written immediately,
+      // along with any last login time which has not been written yet.
+      List<Modification> pendingUpdate = lastLoginTimeUpdater.remove(userDNString);
+      if (pendingUpdate != null && nbLastLoginTimeMods == 0)
+      {
+        modifications.addAll(0, pendingUpdate);
+      }
+    }
+
     // Convert the set of modifications to a set of LDAP modifications.
     ArrayList<RawModification> modList = new ArrayList<>();
     for (Modification m : modifications)
@@ -3061,8 +3179,7 @@ public final class PasswordPolicyState extends AuthenticationPolicyState
 
       // If this is a root user, or if the password policy says that we should ignore these problems,
       // then log a warning message.  Otherwise, cause the bind to fail.
-      if (DirectoryServer.isRootDN(userEntry.getName())
-          || passwordPolicy.getStateUpdateFailurePolicy() == PasswordPolicyCfgDefn.StateUpdateFailurePolicy.IGNORE)
+      if (ignoresStateUpdateFailures())
       {
         logger.error(message);
       }
@@ -3072,4 +3189,28 @@ public final class PasswordPolicyState extends AuthenticationPolicyState
       }
     }
   }
+
+  /** Indicates whether the failures to update the state of this user must only be logged. */
+  private boolean ignoresStateUpdateFailures()
+  {
+    return DirectoryServer.isRootDN(userEntry.getName())
+        || passwordPolicy.getStateUpdateFailurePolicy() == PasswordPolicyCfgDefn.StateUpdateFailurePolicy.IGNORE;
+  }
+
+
+
+  /** Returns the number of modifications of the last login time attribute. */
+  private int countLastLoginTimeModifications()
+  {
+    AttributeType type = passwordPolicy.getLastLoginTimeAttribute();
+    int count = 0;
+    for (Modification m : modifications)
+    {
+      if (type != null && type.equals(m.getAttribute().getAttributeType()))
+      {
+        count++;
+      }
+    }
+    return count;
+  }
 }
@@ -32,6 +32,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
@@ -298,12 +301,117 @@ public class SchemaConfigManager
     // Iterate through the schema files and read them as an LDIF file containing
     // a single entry.  Then get the attributeTypes and objectClasses attributes
     // from that entry and parse them to initialize the server schema.
-    for (String schemaFile : fileNames)
+    loadSchemaFiles(fileNames);
+  }
+
+
+
+  /**
+   * Loads the provided schema files in order. The first file, which defines
+   * the schema attributes such as attributeTypes, is loaded first. The other
+   * files are then read in parallel, but their contents are still parsed and
+   * registered sequentially in file order, since each file may depend on the
+   * definitions of the previous ones.
+   */
+  private void loadSchemaFiles(String[] fileNames) throws ConfigException, InitializationException
+  {
+    if (fileNames.length == 0)
+    {
+      return;
+    }
+    loadSchemaFile(serverContext, schema, fileNames[0], false);
+
+    final StartupTaskExecutor executor = new StartupTaskExecutor("Schema File Reader", fileNames.length - 1);
+    try
+    {
+      final List<Future<Entry>> entries = new ArrayList<>(fileNames.length);
+      for (int i = 1; i < fileNames.length; i++)
+      {
+        final String schemaFile = fileNames[i];
+        entries.add(executor.submit(new Callable<Entry>()
+        {
+          @Override
+          public Entry call() throws Exception
+          {
+            return readSchemaFile(schemaFile);
+          }
+        }));
+      }
+
+      for (int i = 1; i < fileNames.length; i++)
+      {
+        final String schemaFile = fileNames[i];
+        Entry entry;
+        try
+        {
+          entry = getSchemaEntry(schemaFile, entries.get(i - 1));
+        }
+        catch (ConfigException | InitializationException e)
+        {
+          logger.error(e.getMessageObject());
+          continue;
+        }
+
+        if (entry != null && hasDirtyAttributeType(entry))
+        {
+          // The file was read before the definitions of some of its attributes
+          // were loaded or replaced by the previous files: read it again.
+          loadSchemaFile(serverContext, schema, schemaFile, false);
+        }
+        else
+        {
+          loadSchemaEntry(serverContext, schema, schemaFile, entry, false);
+        }
+      }
+    }
+    finally
     {
-      loadSchemaFile(serverContext, schema, schemaFile, false);
+      executor.shutdown();
     }
   }
 
+  private static Entry getSchemaEntry(String schemaFile, Future<Entry> entry)
+      throws ConfigException, InitializationException
+  {
+    try
+    {
+      return entry.get();
+    }
+    catch (ExecutionException e)
+    {
+      final Throwable cause = e.getCause();
+      if (cause instanceof ConfigException)
+      {
+        throw (ConfigException) cause;
+      }
+      else if (cause instanceof InitializationException)
+      {
+        throw (InitializationException) cause;
+      }
+      logger.traceException(cause);
+      throw new InitializationException(WARN_CONFIG_SCHEMA_CANNOT_READ_LDIF_ENTRY.get(
+          schemaFile, getSchemaDirectoryPath(), getExceptionMessage(cause)), cause);
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new InitializationException(WARN_CONFIG_SCHEMA_CANNOT_READ_LDIF_ENTRY.get(
+          schemaFile, getSchemaDirectoryPath(), getExceptionMessage(e)), e);
+    }
+  }
+
+  private static boolean hasDirtyAttributeType(Entry entry)
+  {
+    for (Attribute attribute : entry.getAttributes())
+    {
+      if (attribute.getAttributeType().isDirty())
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
 
 
   /**
@@ -362,6 +470,40 @@ public class SchemaConfigManager
    */
   private static List<Modification> loadSchemaFile(ServerContext serverContext, Schema schema, String schemaFile,
       boolean failOnError) throws ConfigException, InitializationException
+  {
+    Entry entry;
+    try
+    {
+      entry = readSchemaFile(schemaFile);
+    }
+    catch (ConfigException | InitializationException e)
+    {
+      if (failOnError)
+      {
+        throw e;
+      }
+      logger.error(e.getMessageObject());
+      return null;
+    }
+    return loadSchemaEntry(serverContext, schema, schemaFile, entry, failOnError);
+  }
+
+
+
+  /**
+   * Reads the entry contained in the specified schema file.
+   *
+   * @param  schemaFile  The name of the schema file to read.
+   *
+   * @return  The entry contained in the schema file, or {@code null} if the
+   *          file is empty.
+   *
+   * @throws  ConfigException  If the schema file cannot be opened.
+   *
+   * @throws  InitializationException  If the entry cannot be read from the
+   *                                   schema file.
+   */
+  private static Entry readSchemaFile(String schemaFile) throws ConfigException, InitializationException
   {
     // Create an LDIF reader to use when reading the files.
     String schemaDirPath = getSchemaDirectoryPath();
@@ -377,16 +519,7 @@ public class SchemaConfigManager
 
       LocalizableMessage message = WARN_CONFIG_SCHEMA_CANNOT_OPEN_FILE.get(
               schemaFile, schemaDirPath, getExceptionMessage(e));
-
-      if (failOnError)
-      {
-        throw new ConfigException(message);
-      }
-      else
-      {
-        logger.error(message);
-        return null;
-      }
+      throw new ConfigException(message);
     }
 
 
@@ -400,26 +533,17 @@ public class SchemaConfigManager
       {
         // The file was empty -- skip it.
         reader.close();
-        return new LinkedList<>();
+        return null;
       }
     }
     catch (Exception e)
     {
       logger.traceException(e);
+      StaticUtils.close(reader);
 
       LocalizableMessage message = WARN_CONFIG_SCHEMA_CANNOT_READ_LDIF_ENTRY.get(
               schemaFile, schemaDirPath, getExceptionMessage(e));
-
-      if (failOnError)
-      {
-        throw new InitializationException(message, e);
-      }
-      else
-      {
-        logger.error(message);
-        StaticUtils.close(reader);
-        return null;
-      }
+      throw new InitializationException(message, e);
     }
 
     // If there are any more entries in the file, then print a warning message.
@@ -441,6 +565,22 @@ public class SchemaConfigManager
     {
       StaticUtils.close(reader);
     }
+    return entry;
+  }
+
+
+
+  /**
+   * Loads the contents of the entry read from the specified schema file into
+   * the provided schema.
+   */
+  private static List<Modification> loadSchemaEntry(ServerContext serverContext, Schema schema, String schemaFile,
+      Entry entry, boolean failOnError) throws ConfigException, InitializationException
+  {
+    if (entry == null)
+    {
+      return new LinkedList<>();
+    }
 
     // Get the attributeTypes attribute from the entry.
     List<Modification> mods = new LinkedList<>();
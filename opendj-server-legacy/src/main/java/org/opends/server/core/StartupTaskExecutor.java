@@ -0,0 +1,109 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.core;
+
+import static org.opends.server.util.ServerConstants.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.opends.server.api.DirectoryThread;
+
+/**
+ * Executes independent startup tasks, such as reading the schema files or
+ * opening the backends, on a bounded pool of threads.
+ * <p>
+ * The callers submit all their tasks first, then consume the results in the
+ * order the tasks were submitted, so that the work which depends on the order,
+ * e.g. registering schema elements or backends, is still done sequentially.
+ * The number of threads can be specified using the
+ * {@value org.opends.server.util.ServerConstants#PROPERTY_STARTUP_THREADS}
+ * system property. When a single thread is used, the tasks are run by the
+ * calling thread as soon as they are submitted, exactly like before.
+ */
+final class StartupTaskExecutor
+{
+  /** The executor running the tasks, or {@code null} if they are run by the calling thread. */
+  private final ExecutorService executor;
+
+  /**
+   * Creates a new startup task executor.
+   *
+   * @param threadNamePrefix
+   *          The name prefix of the threads running the tasks.
+   * @param nbTasks
+   *          The number of tasks which will be submitted, which bounds the
+   *          number of threads.
+   */
+  StartupTaskExecutor(String threadNamePrefix, int nbTasks)
+  {
+    final int nbThreads = Math.min(getNumberOfThreads(), nbTasks);
+    executor = nbThreads > 1 ? Executors.newFixedThreadPool(nbThreads, new DirectoryThread.Factory(threadNamePrefix))
+                             : null;
+  }
+
+  /**
+   * Returns the number of threads used for running the startup tasks.
+   *
+   * @return The number of threads used for running the startup tasks.
+   */
+  static int getNumberOfThreads()
+  {
+    final int nbThreads = Integer.getInteger(PROPERTY_STARTUP_THREADS, Runtime.getRuntime().availableProcessors());
+    return Math.max(nbThreads, 1);
+  }
+
+  /**
+   * Submits a task.
+   *
+   * @param <T>
+   *          The type of the task result.
+   * @param task
+   *          The task to run.
+   * @return The future result of the task.
+   */
+  <T> Future<T> submit(Callable<T> task)
+  {
+    if (executor != null)
+    {
+      return executor.submit(task);
+    }
+    final FutureTask<T> future = new FutureTask<>(task);
+    future.run();
+    return future;
+  }
+
+  /** Stops the threads once all the submitted tasks have completed. */
+  void shutdown()
+  {
+    if (executor != null)
+    {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,412 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opends.server.types.DN;
+import org.opends.server.types.Entry;
+import org.opends.server.types.ObjectClass;
+import org.opends.server.types.RDN;
+import org.opends.server.types.SubEntry;
+import org.opends.server.types.SubtreeSpecification;
+import org.opends.server.types.SubtreeSpecification.AndRefinement;
+import org.opends.server.types.SubtreeSpecification.ItemRefinement;
+import org.opends.server.types.SubtreeSpecification.Refinement;
+
+/**
+ * An immutable index of subentries, resolving the subentries applicable to an
+ * entry without evaluating the subtree specifications of the other subentries.
+ * <p>
+ * The subentries are compiled into a tree of RDNs, where each node holds the
+ * subentries whose subtree base is the DN of the node. The candidate subentries
+ * of an entry are therefore found by walking down the tree along the RDNs of
+ * the entry DN, which also gives the depth of the entry in each subtree. The
+ * subentries whose specification refines the subtree to an object class are
+ * further keyed by this object class, so that they are only considered for the
+ * entries having it. The depths and chop exclusions are then checked for the
+ * candidates only, and the remaining specification filters are evaluated last.
+ * <p>
+ * Apart from the specification filters, the applicable subentries only depend
+ * on the DN and object classes of the entry, so they are memoized in a direct
+ * mapped table which never locks, like the DN cache. The subentry manager
+ * replaces the index whenever a subentry is added, modified or removed, which
+ * also discards the memoized subentries.
+ */
+final class SubentryIndex
+{
+  /** The index of an empty set of subentries. */
+  static final SubentryIndex EMPTY = new SubentryIndex(Collections.<DN, List<SubEntry>> emptyMap());
+
+  /** The number of entries whose applicable subentries are memoized. */
+  private static final int MEMO_SIZE = 1024;
+
+  /** Orders the candidates of a node as they were registered. */
+  private static final Comparator<Candidate> POSITION_ORDER = new Comparator<Candidate>()
+  {
+    @Override
+    public int compare(Candidate c1, Candidate c2)
+    {
+      return c1.position - c2.position;
+    }
+  };
+
+  /** A subentry with its precompiled subtree specification. */
+  private static final class Candidate
+  {
+    private final SubEntry subEntry;
+    /** The position of the subentry among the subentries having the same subtree base. */
+    private final int position;
+    private final int minimumDepth;
+    private final int maximumDepth;
+    private final DN[] chopBefore;
+    private final DN[] chopAfter;
+    /** The normalized object class required by the refinements, or {@code null} if there is none. */
+    private final String objectClass;
+    /** The refinements which must be evaluated against the entry, or {@code null} if there is none. */
+    private final Refinement refinement;
+
+    private Candidate(SubEntry subEntry, int position)
+    {
+      final SubtreeSpecification spec = subEntry.getSubTreeSpecification();
+      this.subEntry = subEntry;
+      this.position = position;
+      this.minimumDepth = spec.getMinimumDepth();
+      this.maximumDepth = spec.getMaximumDepth();
+      this.chopBefore = toAbsoluteDNs(spec.getBaseDN(), spec.getChopBefore());
+      this.chopAfter = toAbsoluteDNs(spec.getBaseDN(), spec.getChopAfter());
+
+      final Refinement refinements = spec.getRefinements();
+      if (refinements instanceof ItemRefinement)
+      {
+        this.objectClass = ((ItemRefinement) refinements).getNormalizedObjectClass();
+        this.refinement = null;
+      }
+      else
+      {
+        this.objectClass = getRequiredObjectClass(refinements);
+        this.refinement = refinements;
+      }
+    }
+
+    /**
+     * Indicates whether the provided DN, which is below the subtree base at the
+     * provided depth, is within the scope of the subtree specification.
+     */
+    private boolean isDNWithinScope(DN dn, int depth)
+    {
+      if ((minimumDepth > 0 && depth < minimumDepth)
+          || (maximumDepth >= 0 && depth > maximumDepth))
+      {
+        return false;
+      }
+      for (DN chopBeforeDN : chopBefore)
+      {
+        if (dn.isDescendantOf(chopBeforeDN))
+        {
+          return false;
+        }
+      }
+      for (DN chopAfterDN : chopAfter)
+      {
+        if (!dn.equals(chopAfterDN) && dn.isDescendantOf(chopAfterDN))
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /** A node of the tree, holding the subentries whose subtree base is the DN of the node. */
+  private static final class Node
+  {
+    private final Map<RDN, Node> children = new HashMap<>();
+    /** The candidates not requiring any object class. */
+    private final List<Candidate> candidates = new ArrayList<>(0);
+    /** The candidates requiring an object class, keyed by its normalized name or OID. */
+    private final Map<String, List<Candidate>> candidatesByObjectClass = new HashMap<>(0);
+  }
+
+  /** The memoized subentries applicable to the entries having a DN and a set of object classes. */
+  private static final class Memo
+  {
+    private final DN dn;
+    private final ObjectClass[] objectClasses;
+    private final List<Candidate> candidates;
+    /** The applicable subentries, or {@code null} if specification filters must be evaluated. */
+    private final List<SubEntry> subentries;
+
+    private Memo(DN dn, ObjectClass[] objectClasses, List<Candidate> candidates, List<SubEntry> subentries)
+    {
+      this.dn = dn;
+      this.objectClasses = objectClasses;
+      this.candidates = candidates;
+      this.subentries = subentries;
+    }
+
+    private boolean matches(DN dn, Map<ObjectClass, String> objectClasses)
+    {
+      if (this.objectClasses.length != objectClasses.size() || !this.dn.equals(dn))
+      {
+        return false;
+      }
+      for (ObjectClass oc : this.objectClasses)
+      {
+        if (!objectClasses.containsKey(oc))
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /** The root of the tree, or {@code null} if there is no subentry. */
+  private final Node root;
+  /** The memoized subentries, or {@code null} if there is no subentry. */
+  private final Memo[] memos;
+
+  /**
+   * Creates a new index of the provided subentries.
+   *
+   * @param subentries
+   *          The subentries, keyed by the base DN of their subtree
+   *          specification.
+   */
+  SubentryIndex(Map<DN, List<SubEntry>> subentries)
+  {
+    if (subentries.isEmpty())
+    {
+      root = null;
+      memos = null;
+      return;
+    }
+
+    root = new Node();
+    for (Map.Entry<DN, List<SubEntry>> mapEntry : subentries.entrySet())
+    {
+      final DN baseDN = mapEntry.getKey();
+      Node node = root;
+      for (int i = baseDN.size() - 1; i >= 0; i--)
+      {
+        Node child = node.children.get(baseDN.getRDN(i));
+        if (child == null)
+        {
+          child = new Node();
+          node.children.put(baseDN.getRDN(i), child);
+        }
+        node = child;
+      }
+
+      int position = 0;
+      for (SubEntry subEntry : mapEntry.getValue())
+      {
+        final Candidate candidate = new Candidate(subEntry, position++);
+        if (candidate.objectClass == null)
+        {
+          node.candidates.add(candidate);
+        }
+        else
+        {
+          List<Candidate> candidates = node.candidatesByObjectClass.get(candidate.objectClass);
+          if (candidates == null)
+          {
+            candidates = new ArrayList<>(1);
+            node.candidatesByObjectClass.put(candidate.objectClass, candidates);
+          }
+          candidates.add(candidate);
+        }
+      }
+    }
+    memos = new Memo[MEMO_SIZE];
+  }
+
+  /**
+   * Indicates whether this index is empty.
+   *
+   * @return {@code true} if this index does not contain any subentry.
+   */
+  boolean isEmpty()
+  {
+    return root == null;
+  }
+
+  /**
+   * Returns the subentries applicable to the provided entry, the nearest
+   * subtree bases first.
+   *
+   * @param entry
+   *          The entry for which to retrieve the applicable subentries.
+   * @return The applicable subentries.
+   */
+  List<SubEntry> getSubentries(Entry entry)
+  {
+    if (root == null)
+    {
+      return Collections.emptyList();
+    }
+
+    final DN dn = entry.getName();
+    final Map<ObjectClass, String> objectClasses = entry.getObjectClasses();
+    final int slot = indexOf(dn);
+    // Racy read: a concurrent update may replace the slot at any time,
+    // but the final fields of Memo ensure it is fully initialized.
+    Memo memo = memos[slot];
+    if (memo == null || !memo.matches(dn, objectClasses))
+    {
+      memo = newMemo(dn, objectClasses);
+      memos[slot] = memo;
+    }
+    if (memo.subentries != null)
+    {
+      return memo.subentries;
+    }
+
+    final List<SubEntry> subentries = new ArrayList<>(memo.candidates.size());
+    for (Candidate candidate : memo.candidates)
+    {
+      if (candidate.refinement == null || candidate.refinement.matches(entry))
+      {
+        subentries.add(candidate.subEntry);
+      }
+    }
+    return subentries;
+  }
+
+  private Memo newMemo(DN dn, Map<ObjectClass, String> objectClasses)
+  {
+    // Walk down the tree along the RDNs of the DN.
+    final int size = dn.size();
+    final Node[] path = new Node[size + 1];
+    path[0] = root;
+    int depth = 0;
+    while (depth < size)
+    {
+      final Node child = path[depth].children.get(dn.getRDN(size - 1 - depth));
+      if (child == null)
+      {
+        break;
+      }
+      path[++depth] = child;
+    }
+
+    // Then collect the candidates from the nearest subtree bases.
+    final List<Candidate> candidates = new ArrayList<>();
+    boolean hasRefinements = false;
+    for (; depth >= 0; depth--)
+    {
+      final Node node = path[depth];
+      final int start = candidates.size();
+      addCandidates(candidates, node.candidates, dn, size - depth);
+      if (!node.candidatesByObjectClass.isEmpty())
+      {
+        for (ObjectClass oc : objectClasses.keySet())
+        {
+          addCandidates(candidates, node.candidatesByObjectClass.get(oc.getOID()), dn, size - depth);
+          for (String name : oc.getNormalizedNames())
+          {
+            addCandidates(candidates, node.candidatesByObjectClass.get(name), dn, size - depth);
+          }
+        }
+        if (candidates.size() - start > 1)
+        {
+          Collections.sort(candidates.subList(start, candidates.size()), POSITION_ORDER);
+        }
+      }
+      for (int i = start; i < candidates.size(); i++)
+      {
+        hasRefinements |= candidates.get(i).refinement != null;
+      }
+    }
+
+    List<SubEntry> subentries = null;
+    if (!hasRefinements)
+    {
+      subentries = new ArrayList<>(candidates.size());
+      for (Candidate candidate : candidates)
+      {
+        subentries.add(candidate.subEntry);
+      }
+      subentries = Collections.unmodifiableList(subentries);
+    }
+    final ObjectClass[] ocs = objectClasses.keySet().toArray(new ObjectClass[objectClasses.size()]);
+    return new Memo(dn, ocs, candidates, subentries);
+  }
+
+  private static void addCandidates(List<Candidate> candidates, List<Candidate> nodeCandidates, DN dn, int depth)
+  {
+    if (nodeCandidates != null)
+    {
+      for (Candidate candidate : nodeCandidates)
+      {
+        if (candidate.isDNWithinScope(dn, depth))
+        {
+          candidates.add(candidate);
+        }
+      }
+    }
+  }
+
+  private int indexOf(DN dn)
+  {
+    final int h = dn.hashCode();
+    return (h ^ (h >>> 16)) & (MEMO_SIZE - 1);
+  }
+
+  private static DN[] toAbsoluteDNs(DN baseDN, Iterable<DN> localNames)
+  {
+    final List<DN> dns = new ArrayList<>(0);
+    for (DN localName : localNames)
+    {
+      dns.add(baseDN.child(localName));
+    }
+    return dns.toArray(new DN[dns.size()]);
+  }
+
+  /**
+   * Returns the normalized object class required by the provided refinements,
+   * or {@code null} if they do not require any.
+   */
+  private static String getRequiredObjectClass(Refinement refinements)
+  {
+    if (refinements instanceof AndRefinement)
+    {
+      for (Refinement refinement : ((AndRefinement) refinements).getRefinementSet())
+      {
+        if (refinement instanceof ItemRefinement)
+        {
+          return ((ItemRefinement) refinement).getNormalizedObjectClass();
+        }
+      }
+    }
+    return null;
+  }
+}
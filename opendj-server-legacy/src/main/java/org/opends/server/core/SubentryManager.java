@@ -94,6 +94,15 @@ public class SubentryManager extends InternalDirectoryServerPlugin
   /** A mapping between subentry DNs and subentry objects. */
   private DITCacheMap<SubEntry> dit2SubEntry;
 
+  /**
+   * The index of the regular subentries, replaced whenever they change, so
+   * that the subentries applicable to an entry are resolved without locking.
+   */
+  private volatile SubentryIndex subentryIndex = SubentryIndex.EMPTY;
+
+  /** The index of the collective subentries, replaced whenever they change. */
+  private volatile SubentryIndex collectiveSubentryIndex = SubentryIndex.EMPTY;
+
   /** Internal search all operational attributes. */
   private Set<String> requestAttrs;
 
@@ -295,6 +304,16 @@ public class SubentryManager extends InternalDirectoryServerPlugin
     }
   }
 
+  /**
+   * Replaces the subentry indexes after subentries have been added or removed.
+   * The caller must hold the write lock.
+   */
+  private void updateIndexes()
+  {
+    subentryIndex = new SubentryIndex(dn2SubEntry);
+    collectiveSubentryIndex = new SubentryIndex(dn2CollectiveSubEntry);
+  }
+
   /**
    * {@inheritDoc}  In this case, the server will search the backend to find
    * all subentries that it may contain and register them with this manager.
@@ -358,34 +377,49 @@ public class SubentryManager extends InternalDirectoryServerPlugin
         continue;
       }
 
-      for (SearchResultEntry entry : internalSearch.getSearchEntries())
+      // Index the subentries once all of them have been added.
+      List<Entry> addedEntries = new ArrayList<>();
+      lock.writeLock().lock();
+      try
       {
-        if (entry.isSubentry() || entry.isLDAPSubentry())
+        for (SearchResultEntry entry : internalSearch.getSearchEntries())
         {
-          try
+          if (entry.isSubentry() || entry.isLDAPSubentry())
           {
-            addSubentry(entry);
-
-            // Notify change listeners.
-            for (SubentryChangeListener changeListener :
-              changeListeners)
+            try
             {
-              try
-              {
-                changeListener.handleSubentryAdd(entry);
-              }
-              catch (Exception e)
-              {
-                logger.traceException(e);
-              }
+              addSubentry(entry);
+              addedEntries.add(entry);
+            }
+            catch (Exception e)
+            {
+              logger.traceException(e);
+
+              // FIXME -- Handle this.
+              continue;
             }
           }
+        }
+        updateIndexes();
+      }
+      finally
+      {
+        lock.writeLock().unlock();
+      }
+
+      for (Entry entry : addedEntries)
+      {
+        // Notify change listeners.
+        for (SubentryChangeListener changeListener :
+          changeListeners)
+        {
+          try
+          {
+            changeListener.handleSubentryAdd(entry);
+          }
           catch (Exception e)
           {
             logger.traceException(e);
-
-            // FIXME -- Handle this.
-            continue;
           }
         }
       }
@@ -474,44 +508,11 @@ public class SubentryManager extends InternalDirectoryServerPlugin
    * returning only applicable regular subentries.
    * @param  entry for which to retrieve applicable
    *         subentries.
-   * @return applicable subentries.
+   * @return applicable subentries, the nearest ones first.
    */
   public List<SubEntry> getSubentries(Entry entry)
   {
-    if (dn2SubEntry.isEmpty())
-    {
-      return Collections.emptyList();
-    }
-
-    List<SubEntry> subentries = new ArrayList<>();
-
-    lock.readLock().lock();
-    try
-    {
-      for (DN subDN = entry.getName(); subDN != null;
-           subDN = subDN.parent())
-      {
-        List<SubEntry> subList = dn2SubEntry.get(subDN);
-        if (subList != null)
-        {
-          for (SubEntry subEntry : subList)
-          {
-            SubtreeSpecification subSpec =
-                    subEntry.getSubTreeSpecification();
-            if (subSpec.isWithinScope(entry))
-            {
-              subentries.add(subEntry);
-            }
-          }
-        }
-      }
-    }
-    finally
-    {
-      lock.readLock().unlock();
-    }
-
-    return subentries;
+    return subentryIndex.getSubentries(entry);
   }
 
   /**
@@ -566,44 +567,11 @@ public class SubentryManager extends InternalDirectoryServerPlugin
    * returning only applicable collective subentries.
    * @param  entry for which to retrieve applicable
    *         subentries.
-   * @return applicable subentries.
+   * @return applicable subentries, the nearest ones first.
    */
   public List<SubEntry> getCollectiveSubentries(Entry entry)
   {
-    if (dn2CollectiveSubEntry.isEmpty())
-    {
-      return Collections.emptyList();
-    }
-
-    List<SubEntry> subentries = new ArrayList<>();
-
-    lock.readLock().lock();
-    try
-    {
-      for (DN subDN = entry.getName(); subDN != null;
-           subDN = subDN.parent())
-      {
-        List<SubEntry> subList = dn2CollectiveSubEntry.get(subDN);
-        if (subList != null)
-        {
-          for (SubEntry subEntry : subList)
-          {
-            SubtreeSpecification subSpec =
-                    subEntry.getSubTreeSpecification();
-            if (subSpec.isWithinScope(entry))
-            {
-              subentries.add(subEntry);
-            }
-          }
-        }
-      }
-    }
-    finally
-    {
-      lock.readLock().unlock();
-    }
-
-    return subentries;
+    return collectiveSubentryIndex.getSubentries(entry);
   }
 
   /**
@@ -687,6 +655,7 @@ public class SubentryManager extends InternalDirectoryServerPlugin
           setIterator.remove();
         }
       }
+      updateIndexes();
     }
     finally
     {
@@ -714,6 +683,7 @@ public class SubentryManager extends InternalDirectoryServerPlugin
         try
         {
           addSubentry(entry);
+          updateIndexes();
 
           // Notify change listeners.
           for (SubentryChangeListener changeListener :
@@ -748,10 +718,18 @@ public class SubentryManager extends InternalDirectoryServerPlugin
     lock.writeLock().lock();
     try
     {
-      for (SubEntry subEntry : dit2SubEntry.getSubtree(entry.getName()))
+      Collection<SubEntry> removedSubentries = new ArrayList<>(dit2SubEntry.getSubtree(entry.getName()));
+      for (SubEntry subEntry : removedSubentries)
       {
         removeSubentry(subEntry.getEntry());
+      }
+      if (!removedSubentries.isEmpty())
+      {
+        updateIndexes();
+      }
 
+      for (SubEntry subEntry : removedSubentries)
+      {
         // Notify change listeners.
         for (SubentryChangeListener changeListener :
                 changeListeners)
@@ -802,6 +780,8 @@ public class SubentryManager extends InternalDirectoryServerPlugin
 
       if (notify)
       {
+        updateIndexes();
+
         // Notify change listeners.
         for (SubentryChangeListener changeListener :
           changeListeners)
@@ -849,6 +829,8 @@ public class SubentryManager extends InternalDirectoryServerPlugin
           logger.traceException(e);
         }
 
+        updateIndexes();
+
         // Notify change listeners.
         for (SubentryChangeListener changeListener :
           changeListeners)
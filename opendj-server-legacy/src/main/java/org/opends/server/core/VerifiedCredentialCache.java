@@ -0,0 +1,256 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.core;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.util.StripedCounters;
+
+/**
+ * A short-lived cache of the passwords successfully verified against the
+ * passwords stored in user entries, which saves the cost of the password
+ * storage schemes for clients binding over and over with the same password.
+ * <p>
+ * The cache is keyed by the stored password values, so that changing the
+ * password of a user makes the cached verifications useless. The provided
+ * passwords are never kept: the cache only holds a random salt and the SHA-256
+ * digest of the salt and the password, which is compared in constant time, and
+ * each verification expires after the configured duration.
+ * <p>
+ * Like the DN cache, the cache is a direct mapped table which never locks, so
+ * its memory footprint is bounded by its configured number of slots.
+ */
+public final class VerifiedCredentialCache
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The disabled cache, which never verifies any password. */
+  static final VerifiedCredentialCache DISABLED = new VerifiedCredentialCache(0, 0);
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+  private static final int SALT_LENGTH = 16;
+
+  /** Indexes of the counters. */
+  private static final int HITS = 0;
+  private static final int MISSES = 1;
+
+  /** A verified password. Instances are immutable, so they can be safely shared without locking. */
+  private static final class Verification
+  {
+    private final ByteString storedPassword;
+    private final byte[] salt;
+    private final byte[] digest;
+    private final long expirationTime;
+
+    private Verification(ByteString storedPassword, byte[] salt, byte[] digest, long expirationTime)
+    {
+      this.storedPassword = storedPassword;
+      this.salt = salt;
+      this.digest = digest;
+      this.expirationTime = expirationTime;
+    }
+  }
+
+  /** The duration of the verifications in milliseconds. */
+  private final long duration;
+  /** The cache slots, or {@code null} if the cache is disabled. */
+  private final Verification[] slots;
+  private final int mask;
+  private final SecureRandom random = new SecureRandom();
+  private final StripedCounters counters = new StripedCounters(2);
+
+  /**
+   * Creates a new verified credential cache.
+   *
+   * @param duration
+   *          The length of time in milliseconds during which a verified
+   *          password is kept. A value of zero or less disables the cache.
+   * @param size
+   *          The maximum number of verified passwords kept by the cache, which
+   *          is rounded up to the next power of two. A value of zero or less
+   *          disables the cache.
+   */
+  public VerifiedCredentialCache(long duration, int size)
+  {
+    this.duration = duration;
+    if (duration <= 0 || size <= 0)
+    {
+      slots = null;
+      mask = 0;
+    }
+    else
+    {
+      int nbSlots = 1;
+      while (nbSlots < size && nbSlots < (1 << 30))
+      {
+        nbSlots <<= 1;
+      }
+      slots = new Verification[nbSlots];
+      mask = nbSlots - 1;
+    }
+  }
+
+  /**
+   * Indicates whether this cache is enabled.
+   *
+   * @return {@code true} if this cache is enabled.
+   */
+  public boolean isEnabled()
+  {
+    return slots != null;
+  }
+
+  /**
+   * Returns the length of time during which a verified password is kept.
+   *
+   * @return The length of time in milliseconds during which a verified
+   *         password is kept.
+   */
+  public long getDuration()
+  {
+    return duration;
+  }
+
+  /**
+   * Returns the maximum number of verified passwords kept by this cache.
+   *
+   * @return The maximum number of verified passwords kept by this cache.
+   */
+  public int getSize()
+  {
+    return slots != null ? slots.length : 0;
+  }
+
+  /**
+   * Returns the number of password verifications found in this cache.
+   *
+   * @return The number of password verifications found in this cache.
+   */
+  public long getHits()
+  {
+    return counters.get(HITS);
+  }
+
+  /**
+   * Returns the number of password verifications not found in this cache.
+   *
+   * @return The number of password verifications not found in this cache.
+   */
+  public long getMisses()
+  {
+    return counters.get(MISSES);
+  }
+
+  /**
+   * Indicates whether the provided password has recently been verified
+   * against the provided stored password.
+   *
+   * @param storedPassword
+   *          The password value stored in the user entry, or any other value
+   *          identifying the credentials of the user, such as the name of the
+   *          user entry when the password is verified by a remote service.
+   * @param password
+   *          The password provided by the client.
+   * @return {@code true} if the provided password has been verified against
+   *         the stored password, and the verification has not expired.
+   */
+  public boolean isVerified(ByteString storedPassword, ByteString password)
+  {
+    if (slots == null)
+    {
+      return false;
+    }
+    // Racy read: a concurrent update may replace the slot at any time,
+    // but the final fields of Verification ensure it is fully initialized.
+    final Verification verification = slots[indexOf(storedPassword)];
+    if (verification != null
+        && verification.expirationTime > System.currentTimeMillis()
+        && verification.storedPassword.equals(storedPassword))
+    {
+      final byte[] digest = digest(verification.salt, password);
+      if (digest != null && MessageDigest.isEqual(digest, verification.digest))
+      {
+        counters.increment(HITS);
+        return true;
+      }
+    }
+    counters.increment(MISSES);
+    return false;
+  }
+
+  /**
+   * Records that the provided password has been successfully verified against
+   * the provided stored password.
+   *
+   * @param storedPassword
+   *          The password value stored in the user entry, or any other value
+   *          identifying the credentials of the user, such as the name of the
+   *          user entry when the password is verified by a remote service.
+   * @param password
+   *          The password provided by the client.
+   */
+  public void putVerified(ByteString storedPassword, ByteString password)
+  {
+    if (slots == null)
+    {
+      return;
+    }
+    final byte[] salt = new byte[SALT_LENGTH];
+    random.nextBytes(salt);
+    final byte[] digest = digest(salt, password);
+    if (digest != null)
+    {
+      slots[indexOf(storedPassword)] =
+          new Verification(storedPassword, salt, digest, System.currentTimeMillis() + duration);
+    }
+  }
+
+  private int indexOf(ByteString storedPassword)
+  {
+    final int h = storedPassword.hashCode();
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  private static byte[] digest(byte[] salt, ByteString password)
+  {
+    try
+    {
+      final MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+      digest.update(salt);
+      digest.update(password.toByteArray());
+      return digest.digest();
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      // Every Java platform supports SHA-256, but never verify anything otherwise.
+      logger.traceException(e);
+      return null;
+    }
+  }
+}
@@ -471,6 +471,19 @@ public class CryptPasswordStorageScheme
 
 
 
+  /**
+   * {@inheritDoc}.  The stored passwords may use any crypt algorithm,
+   * whatever the configured one, and all but the legacy UNIX crypt
+   * iterate their digest thousands of times.
+   */
+  @Override
+  public boolean isComputationallyExpensive()
+  {
+    return true;
+  }
+
+
+
   /** {@inheritDoc} */
   @Override
   public boolean isStorageSchemeSecure()
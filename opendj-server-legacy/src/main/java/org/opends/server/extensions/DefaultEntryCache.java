@@ -126,7 +126,7 @@ public class DefaultEntryCache
       Entry entry = entryCache.getEntry(backendID, entryID);
       if (entry != null)
       {
-        return entry.duplicate(true);
+        return entry.duplicateCopyOnWrite(true);
       }
     }
 
@@ -147,7 +147,7 @@ public class DefaultEntryCache
       Entry entry = entryCache.getEntry(entryDN);
       if (entry != null)
       {
-        return entry.duplicate(true);
+        return entry.duplicateCopyOnWrite(true);
       }
     }
 
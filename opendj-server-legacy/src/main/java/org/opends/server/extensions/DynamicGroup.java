@@ -28,11 +28,13 @@ package org.opends.server.extensions;
 
 
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.opends.server.admin.std.server.DynamicGroupImplementationCfg;
@@ -41,6 +43,8 @@ import org.opends.server.core.DirectoryServer;
 import org.opends.server.core.ServerContext;
 import org.forgerock.opendj.config.server.ConfigException;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.adapter.server3x.Converters;
+import org.forgerock.opendj.ldap.DN.CompactDn;
 import org.opends.server.types.Attribute;
 import org.opends.server.types.AttributeType;
 import org.forgerock.opendj.ldap.ByteString;
@@ -51,6 +55,7 @@ import org.opends.server.types.Entry;
 import org.opends.server.types.InitializationException;
 import org.opends.server.types.LDAPURL;
 import org.opends.server.types.MemberList;
+import org.opends.server.types.MembershipException;
 import org.opends.server.types.ObjectClass;
 import org.opends.server.types.SearchFilter;
 import org.forgerock.opendj.ldap.SearchScope;
@@ -80,6 +85,50 @@ public class DynamicGroup
   /** The set of the LDAP URLs that define the membership criteria. */
   private LinkedHashSet<LDAPURL> memberURLs;
 
+  /**
+   * Indicates whether the members of the group instances are kept in memory,
+   * rather than evaluated at each membership check.
+   */
+  private boolean materializedMembership;
+
+  /**
+   * The compact DNs of the members of this group, when they are kept in
+   * memory, or {@code null} until they are first needed. The set is updated
+   * in place when entries change.
+   */
+  private volatile Set<CompactDn> materializedMembers;
+
+  /** An entry change received while the members of this group are being evaluated. */
+  private static final class EntryChange
+  {
+    /** The DN of the changed entry. */
+    private final DN entryDN;
+    /** The entry currently stored with this DN, or {@code null} if there is none. */
+    private final Entry currentEntry;
+
+    private EntryChange(DN entryDN, Entry currentEntry)
+    {
+      this.entryDN = entryDN;
+      this.currentEntry = currentEntry;
+    }
+  }
+
+  /**
+   * The entry changes received while the members of this group are being
+   * evaluated, which are applied once the evaluation is completed. Guarded by
+   * this group.
+   */
+  private List<EntryChange> pendingEntryChanges;
+
+  /**
+   * Indicates whether a subtree has been deleted or renamed while the members
+   * of this group were being evaluated. Guarded by this group.
+   */
+  private boolean pendingSubtreeChange;
+
+  /** Lock ensuring the members of this group are evaluated only once at a time. */
+  private final Object evaluationLock = new Object();
+
 
 
   /**
@@ -116,13 +165,33 @@ public class DynamicGroup
 
 
 
+  /**
+   * Creates a new dynamic group instance with the provided information,
+   * optionally keeping its members in memory.
+   *
+   * @param  groupEntryDN            The DN of the entry that holds the
+   *                                 definition for this group.
+   * @param  memberURLs              The set of LDAP URLs that define the
+   *                                 membership criteria for this group.
+   * @param  materializedMembership  Indicates whether the members of this
+   *                                 group should be kept in memory.
+   */
+  public DynamicGroup(DN groupEntryDN, LinkedHashSet<LDAPURL> memberURLs,
+               boolean materializedMembership)
+  {
+    this(groupEntryDN, memberURLs);
+    this.materializedMembership = materializedMembership;
+  }
+
+
+
   /** {@inheritDoc} */
   @Override
   public void initializeGroupImplementation(
                    DynamicGroupImplementationCfg configuration)
          throws ConfigException, InitializationException
   {
-    // No additional initialization is required.
+    materializedMembership = configuration.isMaterializedMembership();
   }
 
 
@@ -161,7 +230,8 @@ public class DynamicGroup
       }
     }
 
-    return new DynamicGroup(groupEntry.getName(), memberURLs);
+    return new DynamicGroup(groupEntry.getName(), memberURLs,
+                            materializedMembership);
   }
 
 
@@ -279,6 +349,10 @@ public class DynamicGroup
       return false;
     }
 
+    if (materializedMembership)
+    {
+      return getMaterializedMembers().contains(toCompactDn(userDN));
+    }
     Entry entry = DirectoryConfig.getEntry(userDN);
     return entry != null && isMember(entry);
   }
@@ -295,9 +369,20 @@ public class DynamicGroup
       return false;
     }
 
+    if (materializedMembership)
+    {
+      return getMaterializedMembers().contains(toCompactDn(userEntry.getName()));
+    }
+    return matchesMemberURLs(userEntry);
+  }
+
+
+
+  private boolean matchesMemberURLs(Entry entry) throws DirectoryException
+  {
     for (LDAPURL memberURL : memberURLs)
     {
-      if (memberURL.matchesEntry(userEntry))
+      if (memberURL.matchesEntry(entry))
       {
         return true;
       }
@@ -308,6 +393,189 @@ public class DynamicGroup
 
 
 
+  /**
+   * Returns the members of this group kept in memory, evaluating the member
+   * URLs the first time. The entry changes received during the evaluation are
+   * queued, then applied before the members are published.
+   */
+  private Set<CompactDn> getMaterializedMembers() throws DirectoryException
+  {
+    Set<CompactDn> members = materializedMembers;
+    if (members != null)
+    {
+      return members;
+    }
+
+    synchronized (evaluationLock)
+    {
+      members = materializedMembers;
+      if (members != null)
+      {
+        return members;
+      }
+
+      synchronized (this)
+      {
+        pendingEntryChanges = new ArrayList<>();
+        pendingSubtreeChange = false;
+      }
+      members = Collections.newSetFromMap(new ConcurrentHashMap<CompactDn, Boolean>());
+      boolean evaluated = false;
+      try
+      {
+        addMembers(members);
+        evaluated = true;
+      }
+      finally
+      {
+        synchronized (this)
+        {
+          boolean upToDate = evaluated && !pendingSubtreeChange;
+          for (EntryChange entryChange : pendingEntryChanges)
+          {
+            upToDate = upToDate && applyEntryChange(members, entryChange.entryDN, entryChange.currentEntry);
+          }
+          pendingEntryChanges = null;
+          if (upToDate)
+          {
+            materializedMembers = members;
+          }
+        }
+      }
+      return members;
+    }
+  }
+
+
+
+  /** Adds the entries matching the member URLs to the provided members. */
+  private void addMembers(Set<CompactDn> members) throws DirectoryException
+  {
+    MemberList memberList = new DynamicGroupMemberList(groupEntryDN, memberURLs);
+    try
+    {
+      while (memberList.hasMoreMembers())
+      {
+        try
+        {
+          members.add(toCompactDn(memberList.nextMemberDN()));
+        }
+        catch (MembershipException e)
+        {
+          logger.traceException(e);
+          if (!e.continueIterating())
+          {
+            throw new DirectoryException(DirectoryServer.getServerErrorResultCode(), e.getErrorMessage(), e);
+          }
+        }
+      }
+    }
+    finally
+    {
+      memberList.close();
+    }
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean requiresEntryChanges()
+  {
+    return materializedMembership;
+  }
+
+
+
+  /**
+   * {@inheritDoc}  In this case, only the entries within the base and scope
+   * of one of the member URLs, or the subtrees containing the base of one of
+   * the member URLs, may change the members of this group.
+   */
+  @Override
+  public boolean isImpactedByEntryChange(DN entryDN, boolean subtreeChanged)
+  {
+    for (LDAPURL memberURL : memberURLs)
+    {
+      try
+      {
+        DN baseDN = memberURL.getBaseDN();
+        SearchScope scope = memberURL.getScope() != null ? memberURL.getScope() : SearchScope.BASE_OBJECT;
+        if (entryDN.matchesBaseAndScope(baseDN, scope)
+            || (subtreeChanged && baseDN.isDescendantOf(entryDN)))
+        {
+          return true;
+        }
+      }
+      catch (DirectoryException e)
+      {
+        logger.traceException(e);
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Override
+  public synchronized void entryChanged(DN entryDN, Entry currentEntry,
+                                        boolean subtreeChanged)
+  {
+    if (pendingEntryChanges != null)
+    {
+      pendingEntryChanges.add(new EntryChange(entryDN, currentEntry));
+      pendingSubtreeChange |= subtreeChanged;
+    }
+    else if (materializedMembers != null
+        && (subtreeChanged || !applyEntryChange(materializedMembers, entryDN, currentEntry)))
+    {
+      // Evaluating the member URLs again the next time the members are needed
+      // is simpler than finding the members below the changed entry.
+      materializedMembers = null;
+    }
+  }
+
+
+
+  /**
+   * Adds the changed entry to the provided members if it currently exists
+   * and matches the member URLs, or removes it otherwise, returning
+   * {@code false} if it cannot be determined whether the changed entry is a
+   * member. The caller must hold the lock on this group.
+   */
+  private boolean applyEntryChange(Set<CompactDn> members, DN entryDN,
+                                   Entry currentEntry)
+  {
+    try
+    {
+      if (currentEntry != null && matchesMemberURLs(currentEntry))
+      {
+        members.add(toCompactDn(entryDN));
+      }
+      else
+      {
+        members.remove(toCompactDn(entryDN));
+      }
+      return true;
+    }
+    catch (DirectoryException e)
+    {
+      logger.traceException(e);
+      return false;
+    }
+  }
+
+
+
+  private static CompactDn toCompactDn(DN dn)
+  {
+    return Converters.from(dn).compact();
+  }
+
+
+
   /** {@inheritDoc} */
   @Override
   public MemberList getMembers()
@@ -71,25 +71,18 @@ public class IsMemberOfVirtualAttributeProvider
     return true;
   }
 
-  /** {@inheritDoc} */
+  /**
+   * {@inheritDoc}.  The groups of the entry are retrieved from the reverse
+   * membership index of the group manager, rather than by asking each group
+   * whether the entry is a member.
+   */
   @Override
   public Attribute getValues(Entry entry, VirtualAttributeRule rule)
   {
-    // FIXME -- This probably isn't the most efficient implementation.
     AttributeBuilder builder = new AttributeBuilder(rule.getAttributeType());
-    for (Group<?> g : DirectoryServer.getGroupManager().getGroupInstances())
+    for (Group<?> g : DirectoryServer.getGroupManager().getMemberGroups(entry))
     {
-      try
-      {
-        if (g.isMember(entry))
-        {
-          builder.add(g.getGroupDN().toString());
-        }
-      }
-      catch (Exception e)
-      {
-        logger.traceException(e);
-      }
+      builder.add(g.getGroupDN().toString());
     }
     return builder.toAttribute();
   }
@@ -98,23 +91,7 @@ public class IsMemberOfVirtualAttributeProvider
   @Override
   public boolean hasValue(Entry entry, VirtualAttributeRule rule)
   {
-    // FIXME -- This probably isn't the most efficient implementation.
-    for (Group<?> g : DirectoryServer.getGroupManager().getGroupInstances())
-    {
-      try
-      {
-        if (g.isMember(entry))
-        {
-          return true;
-        }
-      }
-      catch (Exception e)
-      {
-        logger.traceException(e);
-      }
-    }
-
-    return false;
+    return !DirectoryServer.getGroupManager().getMemberGroups(entry).isEmpty();
   }
 
   /** {@inheritDoc} */
@@ -27,6 +27,7 @@ package org.opends.server.extensions;
 
 import java.io.*;
 import java.net.*;
+import java.security.MessageDigest;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -40,6 +41,7 @@ import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.LocalizedIllegalArgumentException;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.forgerock.opendj.ldap.DecodeException;
 import org.forgerock.opendj.ldap.GeneralizedTime;
 import org.forgerock.opendj.ldap.ModificationType;
@@ -58,6 +60,7 @@ import org.forgerock.opendj.config.server.ConfigException;
 import org.opends.server.core.DirectoryServer;
 import org.opends.server.core.ModifyOperation;
 import org.opends.server.core.ServerContext;
+import org.opends.server.core.VerifiedCredentialCache;
 import org.opends.server.protocols.internal.InternalClientConnection;
 import org.opends.server.protocols.ldap.*;
 import org.opends.server.schema.SchemaConstants;
@@ -725,22 +728,41 @@ public final class LDAPPassThroughAuthenticationPolicyFactory implements
     private boolean poolIsClosed;
 
     private final ConnectionFactory factory;
-    private final int poolSize = Runtime.getRuntime().availableProcessors() * 2;
-    private final Semaphore availableConnections = new Semaphore(poolSize);
+    private final int poolSize;
+    private final Semaphore availableConnections;
     private final Queue<Connection> connectionPool = new ConcurrentLinkedQueue<>();
 
 
 
     /**
-     * Creates a new connection pool for the provided factory.
+     * Creates a new connection pool for the provided factory, whose size is
+     * twice the number of available processors.
      *
      * @param factory
      *          The underlying connection factory whose connections are to be
      *          pooled.
      */
     ConnectionPool(final ConnectionFactory factory)
+    {
+      this(factory, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+
+
+    /**
+     * Creates a new connection pool for the provided factory.
+     *
+     * @param factory
+     *          The underlying connection factory whose connections are to be
+     *          pooled.
+     * @param poolSize
+     *          The maximum number of connections opened by the pool.
+     */
+    ConnectionPool(final ConnectionFactory factory, final int poolSize)
     {
       this.factory = factory;
+      this.poolSize = poolSize;
+      this.availableConnections = new Semaphore(poolSize);
     }
 
 
@@ -1489,6 +1511,94 @@ public final class LDAPPassThroughAuthenticationPolicyFactory implements
 
 
 
+  /**
+   * A remote bind in progress, whose outcome is shared with the concurrent
+   * binds of the same user with the same password.
+   * <p>
+   * A bind request cannot be sent on a connection while other operations are
+   * outstanding on it, so concurrent binds cannot be multiplexed on a single
+   * remote connection. Instead, identical concurrent binds, which are frequent
+   * when applications open several connections at once, are coalesced into a
+   * single remote bind.
+   */
+  private static final class PendingBind
+  {
+    private final ByteString password;
+    private final CountDownLatch completed = new CountDownLatch(1);
+    /** Written before the latch is released, which publishes them. */
+    private Boolean outcome;
+    private DirectoryException failure;
+
+
+
+    private PendingBind(final ByteString password)
+    {
+      this.password = password;
+    }
+
+
+
+    /**
+     * Indicates whether this bind uses the provided password, comparing them in
+     * constant time so that concurrent binds do not reveal the password.
+     */
+    private boolean hasPassword(final ByteString password)
+    {
+      return MessageDigest.isEqual(this.password.toByteArray(), password.toByteArray());
+    }
+
+
+
+    private void setOutcome(final boolean outcome)
+    {
+      this.outcome = outcome;
+    }
+
+
+
+    private void setFailure(final DirectoryException failure)
+    {
+      this.failure = failure;
+    }
+
+
+
+    private void complete()
+    {
+      completed.countDown();
+    }
+
+
+
+    /**
+     * Waits for the remote bind to complete.
+     *
+     * @return The outcome of the remote bind, or {@code null} if it did not
+     *         complete normally.
+     * @throws DirectoryException
+     *           If the remote bind failed.
+     */
+    private Boolean awaitOutcome() throws DirectoryException
+    {
+      try
+      {
+        completed.await();
+      }
+      catch (final InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+      if (failure != null)
+      {
+        throw failure;
+      }
+      return outcome;
+    }
+  }
+
+
+
   /**
    * LDAP PTA policy implementation.
    */
@@ -1598,183 +1708,268 @@ public final class LDAPPassThroughAuthenticationPolicyFactory implements
             return true;
           }
 
-          // The cache lookup failed, so perform full PTA.
-          ByteString username = null;
+          // Then check the recent successful remote binds. The remote bind DN
+          // is part of the key, since it depends on the user's entry when the
+          // mapping policy is not UNMAPPED.
+          final ByteString bindDN = getRemoteBindDN();
+          final ByteString bindKey = getBindKey(bindDN);
+          if (bindOutcomeCache.isVerified(bindKey, password))
+          {
+            return true;
+          }
 
-          switch (cfg.getMappingPolicy())
+          // The cache lookup failed, so perform full PTA, unless the same user
+          // is already binding with the same password: wait for the outcome
+          // of this bind rather than performing another one.
+          final PendingBind pendingBind = new PendingBind(password);
+          final PendingBind otherBind = pendingBinds.putIfAbsent(bindKey, pendingBind);
+          if (otherBind != null)
           {
-          case UNMAPPED:
-            // The bind DN is the name of the user's entry.
-            username = ByteString.valueOfUtf8(userEntry.getName().toString());
-            break;
-          case MAPPED_BIND:
-            // The bind DN is contained in an attribute in the user's entry.
-            mapBind: for (final AttributeType at : cfg.getMappedAttribute())
+            final Boolean outcome = otherBind.hasPassword(password) ? otherBind.awaitOutcome() : null;
+            if (outcome != null)
             {
-              final List<Attribute> attributes = userEntry.getAttribute(at);
-              if (attributes != null && !attributes.isEmpty())
+              if (outcome)
               {
-                for (final Attribute attribute : attributes)
-                {
-                  if (!attribute.isEmpty())
-                  {
-                    username = attribute.iterator().next();
-                    break mapBind;
-                  }
-                }
+                newCachedPassword = password;
               }
+              return outcome;
             }
+            // Different password, or the other bind did not complete.
+            return remotePasswordMatches(bindDN, bindKey, password);
+          }
 
-            if (username == null)
-            {
-              /*
-               * The mapping attribute(s) is not present in the entry. This
-               * could be a configuration error, but it could also be because
-               * someone is attempting to authenticate using a bind DN which
-               * references a non-user entry.
-               */
-              throw new DirectoryException(ResultCode.INVALID_CREDENTIALS,
-                  ERR_LDAP_PTA_MAPPING_ATTRIBUTE_NOT_FOUND.get(
-                      userEntry.getName(), cfg.dn(),
-                      mappedAttributesAsString(cfg.getMappedAttribute())));
-            }
+          try
+          {
+            final boolean matches = remotePasswordMatches(bindDN, bindKey, password);
+            pendingBind.setOutcome(matches);
+            return matches;
+          }
+          catch (final DirectoryException e)
+          {
+            pendingBind.setFailure(e);
+            throw e;
+          }
+          finally
+          {
+            pendingBinds.remove(bindKey, pendingBind);
+            pendingBind.complete();
+          }
+        }
+        finally
+        {
+          sharedLock.unlock();
+        }
+      }
 
-            break;
-          case MAPPED_SEARCH:
-            // A search against the remote directory is required in order to
-            // determine the bind DN.
 
-            // Construct the search filter.
-            final LinkedList<SearchFilter> filterComponents = new LinkedList<>();
-            for (final AttributeType at : cfg.getMappedAttribute())
+
+      /**
+       * Maps the user to a remote bind DN, searching the remote LDAP service
+       * if needed.
+       */
+      private ByteString getRemoteBindDN() throws DirectoryException
+      {
+        ByteString username = null;
+
+        switch (cfg.getMappingPolicy())
+        {
+        case UNMAPPED:
+          // The bind DN is the name of the user's entry.
+          username = ByteString.valueOfUtf8(userEntry.getName().toString());
+          break;
+        case MAPPED_BIND:
+          // The bind DN is contained in an attribute in the user's entry.
+          mapBind: for (final AttributeType at : cfg.getMappedAttribute())
+          {
+            final List<Attribute> attributes = userEntry.getAttribute(at);
+            if (attributes != null && !attributes.isEmpty())
             {
-              final List<Attribute> attributes = userEntry.getAttribute(at);
-              if (attributes != null && !attributes.isEmpty())
+              for (final Attribute attribute : attributes)
               {
-                for (final Attribute attribute : attributes)
+                if (!attribute.isEmpty())
                 {
-                  for (final ByteString value : attribute)
-                  {
-                    filterComponents.add(SearchFilter.createEqualityFilter(at,
-                        value));
-                  }
+                  username = attribute.iterator().next();
+                  break mapBind;
                 }
               }
             }
+          }
 
-            if (filterComponents.isEmpty())
-            {
-              /*
-               * The mapping attribute(s) is not present in the entry. This
-               * could be a configuration error, but it could also be because
-               * someone is attempting to authenticate using a bind DN which
-               * references a non-user entry.
-               */
-              throw new DirectoryException(ResultCode.INVALID_CREDENTIALS,
-                  ERR_LDAP_PTA_MAPPING_ATTRIBUTE_NOT_FOUND.get(
-                      userEntry.getName(), cfg.dn(),
-                      mappedAttributesAsString(cfg.getMappedAttribute())));
-            }
+          if (username == null)
+          {
+            /*
+             * The mapping attribute(s) is not present in the entry. This
+             * could be a configuration error, but it could also be because
+             * someone is attempting to authenticate using a bind DN which
+             * references a non-user entry.
+             */
+            throw new DirectoryException(ResultCode.INVALID_CREDENTIALS,
+                ERR_LDAP_PTA_MAPPING_ATTRIBUTE_NOT_FOUND.get(
+                    userEntry.getName(), cfg.dn(),
+                    mappedAttributesAsString(cfg.getMappedAttribute())));
+          }
 
-            final SearchFilter filter;
-            if (filterComponents.size() == 1)
-            {
-              filter = filterComponents.getFirst();
-            }
-            else
-            {
-              filter = SearchFilter.createORFilter(filterComponents);
-            }
+          break;
+        case MAPPED_SEARCH:
+          // A search against the remote directory is required in order to
+          // determine the bind DN.
 
-            // Now search the configured base DNs, stopping at the first
-            // success.
-            for (final DN baseDN : cfg.getMappedSearchBaseDN())
+          // Construct the search filter.
+          final LinkedList<SearchFilter> filterComponents = new LinkedList<>();
+          for (final AttributeType at : cfg.getMappedAttribute())
+          {
+            final List<Attribute> attributes = userEntry.getAttribute(at);
+            if (attributes != null && !attributes.isEmpty())
             {
-              Connection connection = null;
-              try
+              for (final Attribute attribute : attributes)
               {
-                connection = searchFactory.getConnection();
-                username = connection.search(baseDN, SearchScope.WHOLE_SUBTREE,
-                    filter);
-              }
-              catch (final DirectoryException e)
-              {
-                switch (e.getResultCode().asEnum())
+                for (final ByteString value : attribute)
                 {
-                case NO_SUCH_OBJECT:
-                case CLIENT_SIDE_NO_RESULTS_RETURNED:
-                  // Ignore and try next base DN.
-                  break;
-                case CLIENT_SIDE_UNEXPECTED_RESULTS_RETURNED:
-                  // More than one matching entry was returned.
-                  throw new DirectoryException(ResultCode.INVALID_CREDENTIALS,
-                      ERR_LDAP_PTA_MAPPED_SEARCH_TOO_MANY_CANDIDATES.get(
-                          userEntry.getName(), cfg.dn(), baseDN, filter));
-                default:
-                  // We don't want to propagate this internal error to the
-                  // client. We should log it and map it to a more appropriate
-                  // error.
-                  throw new DirectoryException(ResultCode.INVALID_CREDENTIALS,
-                      ERR_LDAP_PTA_MAPPED_SEARCH_FAILED.get(
-                          userEntry.getName(), cfg.dn(), e.getMessageObject()), e);
+                  filterComponents.add(SearchFilter.createEqualityFilter(at,
+                      value));
                 }
               }
-              finally
-              {
-                StaticUtils.close(connection);
-              }
-            }
-
-            if (username == null)
-            {
-              /*
-               * No matching entries were found in the remote directory.
-               */
-              throw new DirectoryException(ResultCode.INVALID_CREDENTIALS,
-                  ERR_LDAP_PTA_MAPPED_SEARCH_NO_CANDIDATES.get(
-                      userEntry.getName(), cfg.dn(), filter));
             }
-
-            break;
           }
 
-          // Now perform the bind.
-          Connection connection = null;
-          try
+          if (filterComponents.isEmpty())
           {
-            connection = bindFactory.getConnection();
-            connection.simpleBind(username, password);
+            /*
+             * The mapping attribute(s) is not present in the entry. This
+             * could be a configuration error, but it could also be because
+             * someone is attempting to authenticate using a bind DN which
+             * references a non-user entry.
+             */
+            throw new DirectoryException(ResultCode.INVALID_CREDENTIALS,
+                ERR_LDAP_PTA_MAPPING_ATTRIBUTE_NOT_FOUND.get(
+                    userEntry.getName(), cfg.dn(),
+                    mappedAttributesAsString(cfg.getMappedAttribute())));
+          }
 
-            // The password matched, so cache it, it will be stored in the
-            // user's entry when the state is finalized and only if caching is
-            // enabled.
-            newCachedPassword = password;
-            return true;
+          final SearchFilter filter;
+          if (filterComponents.size() == 1)
+          {
+            filter = filterComponents.getFirst();
           }
-          catch (final DirectoryException e)
+          else
           {
-            switch (e.getResultCode().asEnum())
+            filter = SearchFilter.createORFilter(filterComponents);
+          }
+
+          // Now search the configured base DNs, stopping at the first
+          // success.
+          for (final DN baseDN : cfg.getMappedSearchBaseDN())
+          {
+            Connection connection = null;
+            try
             {
-            case NO_SUCH_OBJECT:
-            case INVALID_CREDENTIALS:
-              return false;
-            default:
-              // We don't want to propagate this internal error to the
-              // client. We should log it and map it to a more appropriate
-              // error.
-              throw new DirectoryException(ResultCode.INVALID_CREDENTIALS,
-                  ERR_LDAP_PTA_MAPPED_BIND_FAILED.get(
-                      userEntry.getName(), cfg.dn(), e.getMessageObject()), e);
+              connection = searchFactory.getConnection();
+              username = connection.search(baseDN, SearchScope.WHOLE_SUBTREE,
+                  filter);
+            }
+            catch (final DirectoryException e)
+            {
+              switch (e.getResultCode().asEnum())
+              {
+              case NO_SUCH_OBJECT:
+              case CLIENT_SIDE_NO_RESULTS_RETURNED:
+                // Ignore and try next base DN.
+                break;
+              case CLIENT_SIDE_UNEXPECTED_RESULTS_RETURNED:
+                // More than one matching entry was returned.
+                throw new DirectoryException(ResultCode.INVALID_CREDENTIALS,
+                    ERR_LDAP_PTA_MAPPED_SEARCH_TOO_MANY_CANDIDATES.get(
+                        userEntry.getName(), cfg.dn(), baseDN, filter));
+              default:
+                // We don't want to propagate this internal error to the
+                // client. We should log it and map it to a more appropriate
+                // error.
+                throw new DirectoryException(ResultCode.INVALID_CREDENTIALS,
+                    ERR_LDAP_PTA_MAPPED_SEARCH_FAILED.get(
+                        userEntry.getName(), cfg.dn(), e.getMessageObject()), e);
+              }
+            }
+            finally
+            {
+              StaticUtils.close(connection);
             }
           }
-          finally
+
+          if (username == null)
           {
-            StaticUtils.close(connection);
+            /*
+             * No matching entries were found in the remote directory.
+             */
+            throw new DirectoryException(ResultCode.INVALID_CREDENTIALS,
+                ERR_LDAP_PTA_MAPPED_SEARCH_NO_CANDIDATES.get(
+                    userEntry.getName(), cfg.dn(), filter));
+          }
+
+          break;
+        }
+
+        return username;
+      }
+
+
+
+      /**
+       * Returns the key of the bind outcome cache and of the remote binds in
+       * progress for the provided remote bind DN: the length of the user
+       * entry's normalized name, this name, then the remote bind DN.
+       */
+      private ByteString getBindKey(final ByteString bindDN)
+      {
+        final ByteString userName = userEntry.getName().toNormalizedByteString();
+        return new ByteStringBuilder()
+            .appendBERLength(userName.length())
+            .appendBytes(userName)
+            .appendBytes(bindDN)
+            .toByteString();
+      }
+
+
+
+      /**
+       * Performs a bind against the remote LDAP service.
+       */
+      private boolean remotePasswordMatches(final ByteString bindDN,
+          final ByteString bindKey, final ByteString password)
+          throws DirectoryException
+      {
+        Connection connection = null;
+        try
+        {
+          connection = bindFactory.getConnection();
+          connection.simpleBind(bindDN, password);
+
+          // The password matched, so cache it, it will be stored in the
+          // user's entry when the state is finalized and only if caching is
+          // enabled. The successful bind is also kept in memory if the bind
+          // outcome cache is enabled.
+          newCachedPassword = password;
+          bindOutcomeCache.putVerified(bindKey, password);
+          return true;
+        }
+        catch (final DirectoryException e)
+        {
+          switch (e.getResultCode().asEnum())
+          {
+          case NO_SUCH_OBJECT:
+          case INVALID_CREDENTIALS:
+            return false;
+          default:
+            // We don't want to propagate this internal error to the
+            // client. We should log it and map it to a more appropriate
+            // error.
+            throw new DirectoryException(ResultCode.INVALID_CREDENTIALS,
+                ERR_LDAP_PTA_MAPPED_BIND_FAILED.get(
+                    userEntry.getName(), cfg.dn(), e.getMessageObject()), e);
           }
         }
         finally
         {
-          sharedLock.unlock();
+          StaticUtils.close(connection);
         }
       }
 
@@ -1897,6 +2092,20 @@ public final class LDAPPassThroughAuthenticationPolicyFactory implements
 
     private PasswordStorageScheme<?> pwdStorageScheme;
 
+    /**
+     * The recent successful remote binds, keyed by the user entry's name and
+     * the remote bind DN.
+     */
+    private VerifiedCredentialCache bindOutcomeCache;
+
+    /**
+     * The remote binds in progress, keyed like the bind outcome cache, whose
+     * outcome is shared by the concurrent binds of the same user with the same
+     * password.
+     */
+    private final ConcurrentHashMap<ByteString, PendingBind> pendingBinds =
+        new ConcurrentHashMap<>();
+
 
 
     private PolicyImpl(
@@ -2024,6 +2233,10 @@ public final class LDAPPassThroughAuthenticationPolicyFactory implements
         mappedSearchPassword = null;
       }
 
+      final int poolSize = cfg.getConnectionPoolSize() != null
+          ? cfg.getConnectionPoolSize()
+          : Runtime.getRuntime().availableProcessors() * 2;
+
       // Use two pools per server: one for authentication (bind) and one for
       // searches. Even if the searches are performed anonymously we cannot use
       // the same pool, otherwise they will be performed as the most recently
@@ -2045,8 +2258,8 @@ public final class LDAPPassThroughAuthenticationPolicyFactory implements
         searchPool[index] = new ConnectionPool(
             new AuthenticatedConnectionFactory(factory,
                 cfg.getMappedSearchBindDN(),
-                mappedSearchPassword));
-        bindPool[index++] = new ConnectionPool(factory);
+                mappedSearchPassword), poolSize);
+        bindPool[index++] = new ConnectionPool(factory, poolSize);
       }
       primarySearchLoadBalancer = new RoundRobinLoadBalancer(searchPool,
           scheduler);
@@ -2070,8 +2283,8 @@ public final class LDAPPassThroughAuthenticationPolicyFactory implements
           searchPool[index] = new ConnectionPool(
               new AuthenticatedConnectionFactory(factory,
                   cfg.getMappedSearchBindDN(),
-                  mappedSearchPassword));
-          bindPool[index++] = new ConnectionPool(factory);
+                  mappedSearchPassword), poolSize);
+          bindPool[index++] = new ConnectionPool(factory, poolSize);
         }
         final RoundRobinLoadBalancer secondarySearchLoadBalancer =
           new RoundRobinLoadBalancer(searchPool, scheduler);
@@ -2083,6 +2296,9 @@ public final class LDAPPassThroughAuthenticationPolicyFactory implements
             secondaryBindLoadBalancer, scheduler);
       }
 
+      bindOutcomeCache = new VerifiedCredentialCache(
+          cfg.getBindOutcomeCacheDuration(), cfg.getBindOutcomeCacheSize());
+
       if (cfg.isUsePasswordCaching())
       {
         pwdStorageScheme = DirectoryServer.getPasswordStorageScheme(cfg
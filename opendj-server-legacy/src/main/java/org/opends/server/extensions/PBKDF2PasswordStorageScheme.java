@@ -271,6 +271,13 @@ public class PBKDF2PasswordStorageScheme
     throw new DirectoryException(ResultCode.CONSTRAINT_VIOLATION, message);
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public boolean isComputationallyExpensive()
+  {
+    return true;
+  }
+
   /** {@inheritDoc} */
   @Override
   public boolean isStorageSchemeSecure()
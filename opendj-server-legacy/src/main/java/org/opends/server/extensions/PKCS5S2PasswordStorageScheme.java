@@ -238,6 +238,13 @@ public class PKCS5S2PasswordStorageScheme
     throw new DirectoryException(ResultCode.CONSTRAINT_VIOLATION, message);
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public boolean isComputationallyExpensive()
+  {
+    return true;
+  }
+
   /** {@inheritDoc} */
   @Override
   public boolean isStorageSchemeSecure()
@@ -759,6 +759,14 @@ public class PasswordModifyExtendedOperation
 
       generateAccountStatusNotification(oldPassword, newPassword, userEntry, pwPolicyState, selfChange);
     }
+    catch (DirectoryException de)
+    {
+      // The provided passwords could not be compared with the stored ones.
+      logger.traceException(de);
+
+      operation.setResultCode(de.getResultCode());
+      operation.appendErrorMessage(de.getMessageObject());
+    }
     finally
     {
       if (userLock != null)
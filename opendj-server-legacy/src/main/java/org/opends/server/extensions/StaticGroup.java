@@ -42,7 +42,6 @@ import org.forgerock.opendj.ldap.DN.CompactDn;
 import org.forgerock.opendj.ldap.ModificationType;
 import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SearchScope;
-import org.opends.server.admin.std.server.GroupImplementationCfg;
 import org.opends.server.admin.std.server.StaticGroupImplementationCfg;
 import org.opends.server.api.Group;
 import org.opends.server.core.DirectoryServer;
@@ -98,10 +97,7 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
   /** The set of the DNs of the members for this group. */
   private LinkedHashSet<CompactDn> memberDNs;
 
-  /** The list of nested group DNs for this group. */
-  private LinkedList<DN> nestedGroups = new LinkedList<>();
-
-  /** Passed to the group manager to see if the nested group list needs to be refreshed. */
+  /** Passed to the group manager to see if this group instance may have been replaced. */
   private long nestedGroupRefreshToken = DirectoryServer.getGroupManager().refreshToken();
 
   private ServerContext serverContext;
@@ -306,7 +302,7 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
     } catch (DirectoryException ex) {
       return Collections.<DN>emptyList();
     }
-    return nestedGroups;
+    return getGroupManager().getNestedGroupDNs(groupEntryDN);
   }
 
   /** {@inheritDoc} */
@@ -318,7 +314,8 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
 
     synchronized (this)
     {
-      if (nestedGroups.contains(nestedGroupDN))
+      CompactDn compactNestedGroupDN = toCompactDn(nestedGroupDN);
+      if (memberDNs.contains(compactNestedGroupDN))
       {
         LocalizableMessage msg = ERR_STATICGROUP_ADD_NESTED_GROUP_ALREADY_EXISTS.get(nestedGroupDN, groupEntryDN);
         throw new DirectoryException(ResultCode.ATTRIBUTE_OR_VALUE_EXISTS, msg);
@@ -333,13 +330,11 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
         throw new DirectoryException(modifyOperation.getResultCode(), msg);
       }
 
-      LinkedList<DN> newNestedGroups = new LinkedList<>(nestedGroups);
-      newNestedGroups.add(nestedGroupDN);
-      nestedGroups = newNestedGroups;
-      //Add it to the member DN list.
+      //Add it to the member DN list, the group manager tracks the nested groups.
       LinkedHashSet<CompactDn> newMemberDNs = new LinkedHashSet<>(memberDNs);
-      newMemberDNs.add(toCompactDn(nestedGroupDN));
+      newMemberDNs.add(compactNestedGroupDN);
       memberDNs = newMemberDNs;
+      DirectoryServer.getGroupManager().memberAdded(this, compactNestedGroupDN);
     }
   }
 
@@ -352,7 +347,8 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
 
     synchronized (this)
     {
-      if (! nestedGroups.contains(nestedGroupDN))
+      CompactDn compactNestedGroupDN = toCompactDn(nestedGroupDN);
+      if (! memberDNs.contains(compactNestedGroupDN))
       {
         throw new DirectoryException(ResultCode.NO_SUCH_ATTRIBUTE,
                 ERR_STATICGROUP_REMOVE_NESTED_GROUP_NO_SUCH_GROUP.get(nestedGroupDN, groupEntryDN));
@@ -367,13 +363,11 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
         throw new DirectoryException(modifyOperation.getResultCode(), message);
       }
 
-      LinkedList<DN> newNestedGroups = new LinkedList<>(nestedGroups);
-      newNestedGroups.remove(nestedGroupDN);
-      nestedGroups = newNestedGroups;
-      //Remove it from the member DN list.
+      //Remove it from the member DN list, the group manager tracks the nested groups.
       LinkedHashSet<CompactDn> newMemberDNs = new LinkedHashSet<>(memberDNs);
-      newMemberDNs.remove(toCompactDn(nestedGroupDN));
+      newMemberDNs.remove(compactNestedGroupDN);
       memberDNs = newMemberDNs;
+      DirectoryServer.getGroupManager().memberRemoved(this, compactNestedGroupDN);
     }
   }
 
@@ -393,16 +387,8 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
     }
     else
     {
-      for(DN nestedGroupDN : nestedGroups)
-      {
-        Group<? extends GroupImplementationCfg> group = getGroupManager().getGroupInstance(nestedGroupDN);
-        if (group != null && group.isMember(userDN, examinedGroups))
-        {
-          return true;
-        }
-      }
+      return getGroupManager().isMemberOfNestedGroup(groupEntryDN, userDN, examinedGroups);
     }
-    return false;
   }
 
   /** {@inheritDoc} */
@@ -414,8 +400,10 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
   }
 
   /**
-   * Check if the group manager has registered a new group instance or removed a
-   * a group instance that might impact this group's membership list.
+   * Check if the group manager has replaced or removed this group instance, in
+   * which case the members of the registered group instance are used. The
+   * nested groups are tracked by the group manager, so they do not need to be
+   * reloaded.
    */
   private void reloadIfNeeded() throws DirectoryException
   {
@@ -446,18 +434,7 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
           }
           memberDNs = newMemberDNs;
         }
-        LinkedList<DN> newNestedGroups = new LinkedList<>();
-        for (CompactDn compactDn : memberDNs)
-        {
-          DN dn = fromCompactDn(compactDn);
-          Group<?> group = DirectoryServer.getGroupManager().getGroupInstance(dn);
-          if (group != null)
-          {
-            newNestedGroups.add(group.getGroupDN());
-          }
-        }
         nestedGroupRefreshToken = DirectoryServer.getGroupManager().refreshToken();
-        nestedGroups=newNestedGroups;
       }
     }
   }
@@ -482,6 +459,13 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
     return new FilteredStaticGroupMemberList(groupEntryDN, memberDNs, baseDN, scope, filter);
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public Set<CompactDn> getListedMemberDNs()
+  {
+    return Collections.unmodifiableSet(memberDNs);
+  }
+
   /** {@inheritDoc} */
   @Override
   public boolean mayAlterMemberList()
@@ -517,6 +501,7 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
       LinkedHashSet<CompactDn> newMemberDNs = new LinkedHashSet<CompactDn>(memberDNs);
       newMemberDNs.add(compactUserDN);
       memberDNs = newMemberDNs;
+      DirectoryServer.getGroupManager().memberAdded(this, compactUserDN);
     }
   }
 
@@ -546,12 +531,7 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
       LinkedHashSet<CompactDn> newMemberDNs = new LinkedHashSet<>(memberDNs);
       newMemberDNs.remove(compactUserDN);
       memberDNs = newMemberDNs;
-      //If it is in the nested group list remove it.
-      if(nestedGroups.contains(userDN)) {
-        LinkedList<DN> newNestedGroups = new LinkedList<>(nestedGroups);
-        newNestedGroups.remove(userDN);
-        nestedGroups = newNestedGroups;
-      }
+      DirectoryServer.getGroupManager().memberRemoved(this, compactUserDN);
     }
   }
 
@@ -45,6 +45,7 @@ import javax.net.ssl.SSLPeerUnverifiedException;
 import javax.net.ssl.SSLSession;
 
 import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.opends.server.util.ByteBufferPool;
 
 
 
@@ -101,7 +102,14 @@ public final class TLSByteChannel implements ConnectionSecurityProvider
             }
             finally
             {
-              channel.close();
+              try
+              {
+                channel.close();
+              }
+              finally
+              {
+                releaseBuffers();
+              }
             }
           }
         }
@@ -125,35 +133,43 @@ public final class TLSByteChannel implements ConnectionSecurityProvider
     {
       synchronized (readLock)
       {
-        // Only read and unwrap new data if needed.
-        if (!recvUnwrappedBuffer.hasRemaining())
+        // The unwrap lock must be held while using the receive buffers: a
+        // writer may unwrap data while handshaking, and give the receive
+        // buffers back to the pools.
+        synchronized (unwrapLock)
         {
-          final int read = doRecvAndUnwrap();
-          if (read <= 0)
+          // Only read and unwrap new data if needed.
+          if (!recvUnwrappedBuffer.hasRemaining())
           {
-            // No data read or end of stream.
-            return read;
+            final int read = doRecvAndUnwrap();
+            if (read <= 0)
+            {
+              // No data read or end of stream.
+              return read;
+            }
           }
-        }
 
-        // Copy available data.
-        final int startPos = unwrappedData.position();
-        if (recvUnwrappedBuffer.remaining() > unwrappedData.remaining())
-        {
-          // Unwrapped data does not fit in client buffer so copy one byte at a
-          // time: it's annoying that there is no easy way to do this with
-          // ByteBuffers.
-          while (unwrappedData.hasRemaining())
+          // Copy available data.
+          final int startPos = unwrappedData.position();
+          if (recvUnwrappedBuffer.remaining() > unwrappedData.remaining())
           {
-            unwrappedData.put(recvUnwrappedBuffer.get());
+            // Unwrapped data does not fit in client buffer so copy one byte at
+            // a time: it's annoying that there is no easy way to do this with
+            // ByteBuffers.
+            while (unwrappedData.hasRemaining())
+            {
+              unwrappedData.put(recvUnwrappedBuffer.get());
+            }
           }
+          else
+          {
+            // Unwrapped data fits client buffer so block copy.
+            unwrappedData.put(recvUnwrappedBuffer);
+          }
+
+          releaseIdleRecvBuffers();
+          return unwrappedData.position() - startPos;
         }
-        else
-        {
-          // Unwrapped data fits client buffer so block copy.
-          unwrappedData.put(recvUnwrappedBuffer);
-        }
-        return unwrappedData.position() - startPos;
       }
     }
 
@@ -252,83 +268,98 @@ public final class TLSByteChannel implements ConnectionSecurityProvider
       // Synchronize SSL unwrap with channel reads.
       synchronized (unwrapLock)
       {
-        // Read SSL packets until some unwrapped data is produced or no more
-        // data is available on the underlying channel.
-        while (true)
+        acquireRecvBuffers();
+        try
         {
-          // Unwrap any remaining data in the buffer.
-          abortOnSSLException();
-          recvUnwrappedBuffer.compact(); // Prepare for append.
-          final SSLEngineResult result;
-          try
+          return doRecvAndUnwrapPackets();
+        }
+        finally
+        {
+          releaseIdleRecvBuffers();
+        }
+      }
+    }
+
+
+
+    private int doRecvAndUnwrapPackets() throws IOException
+    {
+      // Read SSL packets until some unwrapped data is produced or no more
+      // data is available on the underlying channel.
+      while (true)
+      {
+        // Unwrap any remaining data in the buffer.
+        abortOnSSLException();
+        recvUnwrappedBuffer.compact(); // Prepare for append.
+        final SSLEngineResult result;
+        try
+        {
+          result = sslEngine.unwrap(recvWrappedBuffer, recvUnwrappedBuffer);
+        }
+        catch (final SSLException e)
+        {
+          // Save the error - see abortOnSSLException().
+          sslException = e;
+          throw e;
+        }
+        finally
+        {
+          recvUnwrappedBuffer.flip(); // Restore for read.
+        }
+
+        switch (result.getStatus())
+        {
+        case BUFFER_OVERFLOW:
+          // The unwrapped buffer is not big enough: resize and repeat.
+          final int newAppSize = sslEngine.getSession()
+              .getApplicationBufferSize();
+          final ByteBuffer newRecvUnwrappedBuffer = ByteBuffer
+              .allocate(recvUnwrappedBuffer.limit() + newAppSize);
+          newRecvUnwrappedBuffer.put(recvUnwrappedBuffer);
+          newRecvUnwrappedBuffer.flip();
+          recvUnwrappedBuffer = newRecvUnwrappedBuffer;
+          break; // Retry unwrap.
+        case BUFFER_UNDERFLOW:
+          // Not enough data was read. This either means that the inbound
+          // buffer was too small, or not enough data was read.
+          final int newPktSize = sslEngine.getSession().getPacketBufferSize();
+          if (newPktSize > recvWrappedBuffer.capacity())
           {
-            result = sslEngine.unwrap(recvWrappedBuffer, recvUnwrappedBuffer);
+            // Increase the buffer size.
+            final ByteBuffer newRecvWrappedBuffer = ByteBuffer
+                .allocate(newPktSize);
+            newRecvWrappedBuffer.put(recvWrappedBuffer);
+            newRecvWrappedBuffer.flip();
+            recvWrappedBuffer = newRecvWrappedBuffer;
           }
-          catch (final SSLException e)
+          // Read wrapped data from underlying channel.
+          recvWrappedBuffer.compact(); // Prepare for append.
+          final int read = channel.read(recvWrappedBuffer);
+          recvWrappedBuffer.flip(); // Restore for read.
+          if (read <= 0)
           {
-            // Save the error - see abortOnSSLException().
-            sslException = e;
-            throw e;
+            // Not enough data is available to read a complete SSL packet, or
+            // channel closed.
+            return read;
           }
-          finally
+          // Loop and unwrap.
+          break;
+        case CLOSED:
+          // Peer sent SSL close notification.
+          return -1;
+        default: // OK
+          if (recvUnwrappedBuffer.hasRemaining())
           {
-            recvUnwrappedBuffer.flip(); // Restore for read.
+            // Some application data was read so return it.
+            return recvUnwrappedBuffer.remaining();
           }
-
-          switch (result.getStatus())
+          else if (isHandshaking(result.getHandshakeStatus()))
           {
-          case BUFFER_OVERFLOW:
-            // The unwrapped buffer is not big enough: resize and repeat.
-            final int newAppSize = sslEngine.getSession()
-                .getApplicationBufferSize();
-            final ByteBuffer newRecvUnwrappedBuffer = ByteBuffer
-                .allocate(recvUnwrappedBuffer.limit() + newAppSize);
-            newRecvUnwrappedBuffer.put(recvUnwrappedBuffer);
-            newRecvUnwrappedBuffer.flip();
-            recvUnwrappedBuffer = newRecvUnwrappedBuffer;
-            break; // Retry unwrap.
-          case BUFFER_UNDERFLOW:
-            // Not enough data was read. This either means that the inbound
-            // buffer was too small, or not enough data was read.
-            final int newPktSize = sslEngine.getSession().getPacketBufferSize();
-            if (newPktSize > recvWrappedBuffer.capacity())
-            {
-              // Increase the buffer size.
-              final ByteBuffer newRecvWrappedBuffer = ByteBuffer
-                  .allocate(newPktSize);
-              newRecvWrappedBuffer.put(recvWrappedBuffer);
-              newRecvWrappedBuffer.flip();
-              recvWrappedBuffer = newRecvWrappedBuffer;
-            }
-            // Read wrapped data from underlying channel.
-            recvWrappedBuffer.compact(); // Prepare for append.
-            final int read = channel.read(recvWrappedBuffer);
-            recvWrappedBuffer.flip(); // Restore for read.
-            if (read <= 0)
-            {
-              // Not enough data is available to read a complete SSL packet, or
-              // channel closed.
-              return read;
-            }
-            // Loop and unwrap.
-            break;
-          case CLOSED:
-            // Peer sent SSL close notification.
-            return -1;
-          default: // OK
-            if (recvUnwrappedBuffer.hasRemaining())
-            {
-              // Some application data was read so return it.
-              return recvUnwrappedBuffer.remaining();
-            }
-            else if (isHandshaking(result.getHandshakeStatus()))
-            {
-              // No application data was read, but if we are handshaking then
-              // try to continue.
-              doHandshake(true /* isReading */);
-            }
-            break;
+            // No application data was read, but if we are handshaking then
+            // try to continue.
+            doHandshake(true /* isReading */);
           }
+          break;
         }
       }
     }
@@ -342,52 +373,68 @@ public final class TLSByteChannel implements ConnectionSecurityProvider
       // Synchronize SSL wrap with channel writes.
       synchronized (wrapLock)
       {
-        // Repeat while there is overflow.
-        while (true)
+        acquireSendBuffer();
+        try
         {
-          abortOnSSLException();
-          final SSLEngineResult result;
-          try
-          {
-            result = sslEngine.wrap(unwrappedData, sendWrappedBuffer);
-          }
-          catch (SSLException e)
-          {
-            // Save the error - see abortOnSSLException().
-            sslException = e;
-            throw e;
-          }
+          return doWrapAndSendPacket(unwrappedData);
+        }
+        finally
+        {
+          releaseSendBuffer();
+        }
+      }
+    }
+
+
 
-          switch (result.getStatus())
+    private int doWrapAndSendPacket(final ByteBuffer unwrappedData)
+        throws IOException
+    {
+      // Repeat while there is overflow.
+      while (true)
+      {
+        abortOnSSLException();
+        final SSLEngineResult result;
+        try
+        {
+          result = sslEngine.wrap(unwrappedData, sendWrappedBuffer);
+        }
+        catch (SSLException e)
+        {
+          // Save the error - see abortOnSSLException().
+          sslException = e;
+          throw e;
+        }
+
+        switch (result.getStatus())
+        {
+        case BUFFER_OVERFLOW:
+          // The wrapped buffer is not big enough: resize and repeat.
+          final int newSize = sslEngine.getSession().getPacketBufferSize();
+          final ByteBuffer newSendWrappedBuffer = ByteBuffer
+              .allocate(sendWrappedBuffer.position() + newSize);
+          sendWrappedBuffer.flip();
+          newSendWrappedBuffer.put(sendWrappedBuffer);
+          sendWrappedBuffer = newSendWrappedBuffer;
+          break; // Retry.
+        case BUFFER_UNDERFLOW:
+          // This should not happen for sends.
+          sslException =
+            new SSLException("Got unexpected underflow while wrapping");
+          throw sslException;
+        case CLOSED:
+          throw new ClosedChannelException();
+        default: // OK
+          // Write the SSL packet: our IO stack will block until all the
+          // data is written.
+          sendWrappedBuffer.flip();
+          while (sendWrappedBuffer.hasRemaining())
           {
-          case BUFFER_OVERFLOW:
-            // The wrapped buffer is not big enough: resize and repeat.
-            final int newSize = sslEngine.getSession().getPacketBufferSize();
-            final ByteBuffer newSendWrappedBuffer = ByteBuffer
-                .allocate(sendWrappedBuffer.position() + newSize);
-            sendWrappedBuffer.flip();
-            newSendWrappedBuffer.put(sendWrappedBuffer);
-            sendWrappedBuffer = newSendWrappedBuffer;
-            break; // Retry.
-          case BUFFER_UNDERFLOW:
-            // This should not happen for sends.
-            sslException =
-              new SSLException("Got unexpected underflow while wrapping");
-            throw sslException;
-          case CLOSED:
-            throw new ClosedChannelException();
-          default: // OK
-            // Write the SSL packet: our IO stack will block until all the
-            // data is written.
-            sendWrappedBuffer.flip();
-            while (sendWrappedBuffer.hasRemaining())
-            {
-              channel.write(sendWrappedBuffer);
-            }
-            final int written = sendWrappedBuffer.position();
-            sendWrappedBuffer.clear();
-            return written;
+            channel.write(sendWrappedBuffer);
           }
+          final int written = sendWrappedBuffer.position();
+          sendWrappedBuffer.clear();
+          return written;
         }
       }
     }
@@ -399,6 +446,102 @@ public final class TLSByteChannel implements ConnectionSecurityProvider
       return status != HandshakeStatus.NOT_HANDSHAKING;
     }
 
+
+
+    /**
+     * Borrows the receive buffers from the pools if they are not held yet.
+     * Must be called while holding the unwrap lock.
+     */
+    private void acquireRecvBuffers()
+    {
+      if (recvWrappedBuffer == NO_BUFFER)
+      {
+        recvWrappedBuffer = wrappedBufferPool.acquire();
+        recvWrappedBuffer.flip();
+      }
+      if (recvUnwrappedBuffer == NO_BUFFER)
+      {
+        recvUnwrappedBuffer = unwrappedBufferPool.acquire();
+        recvUnwrappedBuffer.flip();
+      }
+    }
+
+
+
+    /**
+     * Gives the receive buffers which do not contain pending data back to the
+     * pools. Must be called while holding the unwrap lock.
+     */
+    private void releaseIdleRecvBuffers()
+    {
+      if (isPooled())
+      {
+        if (recvWrappedBuffer != NO_BUFFER && !recvWrappedBuffer.hasRemaining())
+        {
+          wrappedBufferPool.release(recvWrappedBuffer);
+          recvWrappedBuffer = NO_BUFFER;
+        }
+        if (recvUnwrappedBuffer != NO_BUFFER && !recvUnwrappedBuffer.hasRemaining())
+        {
+          unwrappedBufferPool.release(recvUnwrappedBuffer);
+          recvUnwrappedBuffer = NO_BUFFER;
+        }
+      }
+    }
+
+
+
+    /**
+     * Borrows the send buffer from the pool if it is not held yet. Must be
+     * called while holding the wrap lock.
+     */
+    private void acquireSendBuffer()
+    {
+      if (sendWrappedBuffer == NO_BUFFER)
+      {
+        sendWrappedBuffer = wrappedBufferPool.acquire();
+      }
+    }
+
+
+
+    /**
+     * Gives the send buffer back to the pool, since it is always empty once a
+     * packet has been sent. Must be called while holding the wrap lock.
+     */
+    private void releaseSendBuffer()
+    {
+      if (isPooled())
+      {
+        wrappedBufferPool.release(sendWrappedBuffer);
+        sendWrappedBuffer = NO_BUFFER;
+      }
+    }
+
+
+
+    /** Gives all the buffers back to the pools, discarding any pending data. */
+    private void releaseBuffers()
+    {
+      if (isPooled())
+      {
+        synchronized (unwrapLock)
+        {
+          wrappedBufferPool.release(recvWrappedBuffer);
+          unwrappedBufferPool.release(recvUnwrappedBuffer);
+          recvWrappedBuffer = NO_BUFFER;
+          recvUnwrappedBuffer = NO_BUFFER;
+        }
+      }
+    }
+
+
+
+    private boolean isPooled()
+    {
+      return wrappedBufferPool != null;
+    }
+
   }
 
 
@@ -438,11 +581,19 @@ public final class TLSByteChannel implements ConnectionSecurityProvider
   }
 
   private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+  /**
+   * Placeholder for buffers which have been given back to their pool, which
+   * contains no data.
+   */
+  private static final ByteBuffer NO_BUFFER = ByteBuffer.allocate(0);
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
   private final ByteChannelImpl pimpl = new ByteChannelImpl();
   private final ByteChannel channel;
   private final SSLEngine sslEngine;
+  private final ByteBufferPool wrappedBufferPool;
+  private final ByteBufferPool unwrappedBufferPool;
 
   private volatile SSLException sslException;
   private ByteBuffer recvWrappedBuffer;
@@ -471,6 +622,8 @@ public final class TLSByteChannel implements ConnectionSecurityProvider
   {
     this.channel = channel;
     this.sslEngine = sslEngine;
+    this.wrappedBufferPool = null;
+    this.unwrappedBufferPool = null;
 
     // Allocate read/write buffers.
     final SSLSession session = sslEngine.getSession();
@@ -488,6 +641,42 @@ public final class TLSByteChannel implements ConnectionSecurityProvider
 
 
 
+  /**
+   * Creates an TLS byte channel instance which borrows its buffers from the
+   * provided pools only while it has data in flight, rather than holding them
+   * for the whole life of the connection. This considerably reduces the memory
+   * used by mostly idle connections.
+   *
+   * @param channel
+   *          The underlying channel.
+   * @param sslEngine
+   *          The SSL engine to use.
+   * @param wrappedBufferPool
+   *          The pool of buffers used for SSL packets, whose buffers should
+   *          be at least as large as the packet buffer size of the SSL
+   *          session.
+   * @param unwrappedBufferPool
+   *          The pool of buffers used for application data, whose buffers
+   *          should be at least as large as the application buffer size of
+   *          the SSL session.
+   */
+  public TLSByteChannel(final ByteChannel channel, final SSLEngine sslEngine,
+      final ByteBufferPool wrappedBufferPool,
+      final ByteBufferPool unwrappedBufferPool)
+  {
+    this.channel = channel;
+    this.sslEngine = sslEngine;
+    this.wrappedBufferPool = wrappedBufferPool;
+    this.unwrappedBufferPool = unwrappedBufferPool;
+
+    // Buffers are borrowed on demand.
+    sendWrappedBuffer = NO_BUFFER;
+    recvWrappedBuffer = NO_BUFFER;
+    recvUnwrappedBuffer = NO_BUFFER;
+  }
+
+
+
   /** {@inheritDoc} */
   @Override
   public ByteChannel getChannel()
@@ -0,0 +1,144 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.monitors;
+
+import static org.opends.server.core.DirectoryServer.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.opends.server.admin.std.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.core.BindStatistics;
+import org.opends.server.core.LastLoginTimeUpdater;
+import org.opends.server.core.VerifiedCredentialCache;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.AttributeBuilder;
+import org.opends.server.types.AttributeType;
+import org.opends.server.types.Attributes;
+import org.opends.server.types.InitializationException;
+
+/**
+ * This class defines a Directory Server monitor that provides the latency
+ * percentiles of the simple binds for each password storage scheme, along
+ * with the statistics of the verified credential cache and of the last login
+ * time updates.
+ * <p>
+ * The per scheme attributes have one value per password storage scheme, in
+ * the form {@code <scheme>: <value>}.
+ */
+public class BindLatencyMonitor extends MonitorProvider<MonitorProviderCfg>
+{
+  /** The name of the monitor attribute that provides the number of binds. */
+  public static final String ATTR_BIND_COUNT = "bindCount";
+  /** The name of the monitor attribute that provides the total bind time, in microseconds. */
+  public static final String ATTR_BIND_TIME = "totalBindTimeMicros";
+  /** The name of the monitor attribute that provides the median bind time, in microseconds. */
+  public static final String ATTR_BIND_P50 = "bindLatencyP50Micros";
+  /** The name of the monitor attribute that provides the 90th percentile of the bind time, in microseconds. */
+  public static final String ATTR_BIND_P90 = "bindLatencyP90Micros";
+  /** The name of the monitor attribute that provides the 99th percentile of the bind time, in microseconds. */
+  public static final String ATTR_BIND_P99 = "bindLatencyP99Micros";
+  /** The name of the monitor attribute that provides the 99.9th percentile of the bind time, in microseconds. */
+  public static final String ATTR_BIND_P999 = "bindLatencyP999Micros";
+  /** The name of the monitor attribute that provides the number of passwords found in the verified credential cache. */
+  public static final String ATTR_CACHE_HITS = "verifiedCredentialCacheHits";
+  /**
+   * The name of the monitor attribute that provides the number of passwords
+   * not found in the verified credential cache.
+   */
+  public static final String ATTR_CACHE_MISSES = "verifiedCredentialCacheMisses";
+  /** The name of the monitor attribute that provides the number of last login time updates submitted by binds. */
+  public static final String ATTR_LAST_LOGIN_SUBMITTED = "lastLoginTimeUpdatesSubmitted";
+  /** The name of the monitor attribute that provides the number of last login time updates coalesced. */
+  public static final String ATTR_LAST_LOGIN_COALESCED = "lastLoginTimeUpdatesCoalesced";
+  /** The name of the monitor attribute that provides the number of last login time updates written. */
+  public static final String ATTR_LAST_LOGIN_WRITTEN = "lastLoginTimeUpdatesWritten";
+  /** The name of the monitor attribute that provides the number of last login time updates not written yet. */
+  public static final String ATTR_LAST_LOGIN_PENDING = "lastLoginTimeUpdatesPending";
+
+  /** The monitor attributes holding the bind statistics, in the order of {@link BindStatistics#getLatencies}. */
+  private static final String[] LATENCY_ATTRS =
+      { ATTR_BIND_COUNT, ATTR_BIND_TIME, ATTR_BIND_P50, ATTR_BIND_P90, ATTR_BIND_P99, ATTR_BIND_P999 };
+
+  /** {@inheritDoc} */
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    // No initialization is required.
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "Bind Latency";
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<Attribute> getMonitorData()
+  {
+    final Map<String, long[]> latencies = BindStatistics.getInstance().getLatencies(0.5, 0.9, 0.99, 0.999);
+    final ArrayList<Attribute> monitorAttrs = new ArrayList<>();
+    for (int i = 0; i < LATENCY_ATTRS.length; i++)
+    {
+      final String attrName = LATENCY_ATTRS[i];
+      final AttributeType attrType = getAttributeTypeOrDefault(attrName, attrName, getDefaultStringSyntax());
+      final AttributeBuilder builder = new AttributeBuilder(attrType, attrName);
+      for (Map.Entry<String, long[]> mapEntry : latencies.entrySet())
+      {
+        builder.add(mapEntry.getKey() + ": " + mapEntry.getValue()[i]);
+      }
+      if (!builder.isEmpty())
+      {
+        monitorAttrs.add(builder.toAttribute());
+      }
+    }
+
+    final VerifiedCredentialCache cache = getVerifiedCredentialCache();
+    putAttribute(monitorAttrs, ATTR_CACHE_HITS, cache.getHits());
+    putAttribute(monitorAttrs, ATTR_CACHE_MISSES, cache.getMisses());
+
+    final LastLoginTimeUpdater updater = getLastLoginTimeUpdater();
+    if (updater != null)
+    {
+      putAttribute(monitorAttrs, ATTR_LAST_LOGIN_SUBMITTED, updater.getSubmittedUpdates());
+      putAttribute(monitorAttrs, ATTR_LAST_LOGIN_COALESCED, updater.getCoalescedUpdates());
+      putAttribute(monitorAttrs, ATTR_LAST_LOGIN_WRITTEN, updater.getWrittenUpdates());
+      putAttribute(monitorAttrs, ATTR_LAST_LOGIN_PENDING, updater.getPendingUpdates());
+    }
+    return monitorAttrs;
+  }
+
+  private void putAttribute(List<Attribute> monitorAttrs, String attrName, long value)
+  {
+    AttributeType attrType = getAttributeTypeOrDefault(attrName, attrName, getDefaultIntegerSyntax());
+    monitorAttrs.add(Attributes.create(attrType, String.valueOf(value)));
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.monitors;
+
+import static org.opends.server.core.DirectoryServer.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.opends.server.admin.std.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.AttributeBuilder;
+import org.opends.server.types.AttributeType;
+import org.opends.server.types.Attributes;
+import org.opends.server.types.DN;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.LockManager;
+
+/**
+ * This class defines a Directory Server monitor that provides information
+ * about the contention on the entry locks of a {@link LockManager}.
+ */
+public class LockManagerMonitor extends MonitorProvider<MonitorProviderCfg>
+{
+  /**
+   * The name of the monitor attribute that provides the number of lock
+   * acquisitions which had to wait.
+   */
+  public static final String ATTR_CONTENDED_LOCKS = "contendedLockAcquisitions";
+  /** The name of the monitor attribute that provides the number of lock timeouts. */
+  public static final String ATTR_LOCK_TIMEOUTS = "lockTimeouts";
+  /**
+   * The name of the monitor attribute that provides the total time spent
+   * waiting for contended locks, in microseconds.
+   */
+  public static final String ATTR_TOTAL_WAIT_TIME = "totalLockWaitTimeMicros";
+  /**
+   * The name of the monitor attribute that provides the histogram of the lock
+   * wait times, with one {@code "<min>-<max>: <count>"} value per non empty
+   * bucket, the bounds being in microseconds.
+   */
+  public static final String ATTR_WAIT_TIME_HISTOGRAM = "lockWaitTimeMicrosHistogram";
+  /**
+   * The name of the monitor attribute that provides the most contended DNs,
+   * with one {@code "<count>: <dn>"} value per DN.
+   */
+  public static final String ATTR_MOST_CONTENDED_DNS = "mostContendedDN";
+
+  /** The maximum number of contended DNs reported. */
+  private static final int MAX_CONTENDED_DNS = 10;
+
+  /** The lock manager with which this monitor is associated. */
+  private final LockManager lockManager;
+
+  /**
+   * Creates a new lock manager monitor.
+   *
+   * @param lockManager
+   *          The lock manager with which this monitor is associated.
+   */
+  public LockManagerMonitor(LockManager lockManager)
+  {
+    this.lockManager = lockManager;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    // No initialization is required.
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "Lock Manager";
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<Attribute> getMonitorData()
+  {
+    final ArrayList<Attribute> monitorAttrs = new ArrayList<>();
+    putAttribute(monitorAttrs, ATTR_CONTENDED_LOCKS, lockManager.getContendedLockCount());
+    putAttribute(monitorAttrs, ATTR_LOCK_TIMEOUTS, lockManager.getLockTimeoutCount());
+    putAttribute(monitorAttrs, ATTR_TOTAL_WAIT_TIME, lockManager.getTotalLockWaitTime());
+
+    final AttributeBuilder histogram = new AttributeBuilder(ATTR_WAIT_TIME_HISTOGRAM);
+    final long[] buckets = lockManager.getLockWaitTimeHistogram();
+    for (int bucket = 0; bucket < buckets.length; bucket++)
+    {
+      if (buckets[bucket] != 0)
+      {
+        final long min = bucket == 0 ? 0 : 1L << (bucket - 1);
+        final String max = bucket == 0 ? "0"
+            : bucket == buckets.length - 1 ? "" : String.valueOf((1L << bucket) - 1);
+        histogram.add(min + "-" + max + ": " + buckets[bucket]);
+      }
+    }
+    if (!histogram.isEmpty())
+    {
+      monitorAttrs.add(histogram.toAttribute());
+    }
+
+    final AttributeBuilder contendedDNs = new AttributeBuilder(ATTR_MOST_CONTENDED_DNS);
+    for (Map.Entry<DN, Long> entry : lockManager.getMostContendedDNs(MAX_CONTENDED_DNS).entrySet())
+    {
+      contendedDNs.add(entry.getValue() + ": " + entry.getKey());
+    }
+    if (!contendedDNs.isEmpty())
+    {
+      monitorAttrs.add(contendedDNs.toAttribute());
+    }
+    return monitorAttrs;
+  }
+
+  private void putAttribute(List<Attribute> monitorAttrs, String attrName, long value)
+  {
+    AttributeType attrType = getAttributeTypeOrDefault(attrName, attrName, getDefaultIntegerSyntax());
+    monitorAttrs.add(Attributes.create(attrType, String.valueOf(value)));
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.monitors;
+
+import static org.opends.server.core.DirectoryServer.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.opends.server.admin.std.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.core.GroupManager;
+import org.opends.server.core.NestedGroupClosure;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.AttributeType;
+import org.opends.server.types.Attributes;
+import org.opends.server.types.InitializationException;
+
+/**
+ * This class defines a Directory Server monitor that provides information
+ * about the transitive closure of the nested groups maintained by the
+ * {@link GroupManager}.
+ */
+public class NestedGroupMonitor extends MonitorProvider<MonitorProviderCfg>
+{
+  /**
+   * The name of the monitor attribute that provides the number of groups
+   * nested in other groups or nesting other groups.
+   */
+  public static final String ATTR_NESTING_GROUPS = "nestingGroups";
+  /**
+   * The name of the monitor attribute that provides the number of nesting
+   * relationships, i.e. of groups listed as members of other groups.
+   */
+  public static final String ATTR_NESTING_RELATIONSHIPS = "nestingRelationships";
+  /**
+   * The name of the monitor attribute that provides the size of the closure,
+   * i.e. the sum of the number of groups in which each group is nested.
+   */
+  public static final String ATTR_CLOSURE_SIZE = "nestedGroupClosureSize";
+  /**
+   * The name of the monitor attribute that provides the number of nesting
+   * relationships which created a cycle.
+   */
+  public static final String ATTR_NESTING_CYCLES = "nestingCycles";
+  /** The name of the monitor attribute that provides the number of updates of the closure. */
+  public static final String ATTR_CLOSURE_UPDATES = "nestedGroupClosureUpdates";
+  /**
+   * The name of the monitor attribute that provides the number of groups
+   * whose closure has been changed by the updates.
+   */
+  public static final String ATTR_CLOSURE_UPDATED_GROUPS = "nestedGroupClosureUpdatedGroups";
+  /**
+   * The name of the monitor attribute that provides the total time spent
+   * updating the closure, in microseconds.
+   */
+  public static final String ATTR_CLOSURE_UPDATE_TIME = "totalNestedGroupClosureUpdateTimeMicros";
+
+  /** The group manager with which this monitor is associated. */
+  private final GroupManager groupManager;
+
+  /**
+   * Creates a new nested group monitor.
+   *
+   * @param groupManager
+   *          The group manager with which this monitor is associated.
+   */
+  public NestedGroupMonitor(GroupManager groupManager)
+  {
+    this.groupManager = groupManager;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    // No initialization is required.
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "Nested Groups";
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<Attribute> getMonitorData()
+  {
+    final NestedGroupClosure closure = groupManager.getNestedGroupClosure();
+    final ArrayList<Attribute> monitorAttrs = new ArrayList<>();
+    putAttribute(monitorAttrs, ATTR_NESTING_GROUPS, closure.getGroupCount());
+    putAttribute(monitorAttrs, ATTR_NESTING_RELATIONSHIPS, closure.getRelationshipCount());
+    putAttribute(monitorAttrs, ATTR_CLOSURE_SIZE, closure.getClosureSize());
+    putAttribute(monitorAttrs, ATTR_NESTING_CYCLES, closure.getCycleCount());
+    putAttribute(monitorAttrs, ATTR_CLOSURE_UPDATES, closure.getUpdateCount());
+    putAttribute(monitorAttrs, ATTR_CLOSURE_UPDATED_GROUPS, closure.getUpdatedGroupCount());
+    putAttribute(monitorAttrs, ATTR_CLOSURE_UPDATE_TIME, closure.getTotalUpdateTime());
+    return monitorAttrs;
+  }
+
+  private void putAttribute(List<Attribute> monitorAttrs, String attrName, long value)
+  {
+    AttributeType attrType = getAttributeTypeOrDefault(attrName, attrName, getDefaultIntegerSyntax());
+    monitorAttrs.add(Attributes.create(attrType, String.valueOf(value)));
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.monitors;
+
+import static org.opends.server.core.DirectoryServer.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.opends.server.admin.std.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.core.PasswordHashingExecutor;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.AttributeType;
+import org.opends.server.types.Attributes;
+import org.opends.server.types.InitializationException;
+
+/**
+ * This class defines a Directory Server monitor that provides information
+ * about the threads hashing the passwords stored with computationally
+ * expensive password storage schemes, and their queue.
+ */
+public class PasswordHashingMonitor extends MonitorProvider<MonitorProviderCfg>
+{
+  /** The name of the monitor attribute that provides the number of password hashing threads. */
+  public static final String ATTR_THREADS = "passwordHashingThreads";
+  /** The name of the monitor attribute that provides the number of threads currently hashing a password. */
+  public static final String ATTR_ACTIVE_THREADS = "passwordHashingActiveThreads";
+  /** The name of the monitor attribute that provides the number of passwords waiting for a thread. */
+  public static final String ATTR_QUEUE_SIZE = "passwordHashingQueueSize";
+  /** The name of the monitor attribute that provides the number of passwords submitted to the threads. */
+  public static final String ATTR_TASKS = "passwordHashingTasks";
+  /** The name of the monitor attribute that provides the number of operations rejected because the queue was full. */
+  public static final String ATTR_QUEUE_FULL_REJECTIONS = "passwordHashingQueueFullRejections";
+  /**
+   * The name of the monitor attribute that provides the number of operations
+   * rejected because their client exceeded its rate limit.
+   */
+  public static final String ATTR_RATE_LIMIT_REJECTIONS = "passwordHashingRateLimitRejections";
+  /**
+   * The name of the monitor attribute that provides the total time spent by
+   * the passwords waiting for a thread, in microseconds.
+   */
+  public static final String ATTR_QUEUE_WAIT_TIME = "totalPasswordHashingQueueWaitTimeMicros";
+  /** The name of the monitor attribute that provides the total time spent hashing passwords, in microseconds. */
+  public static final String ATTR_HASHING_TIME = "totalPasswordHashingTimeMicros";
+
+  /** {@inheritDoc} */
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    // No initialization is required.
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "Password Hashing";
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<Attribute> getMonitorData()
+  {
+    final PasswordHashingExecutor executor = getPasswordHashingExecutor();
+    final ArrayList<Attribute> monitorAttrs = new ArrayList<>();
+    putAttribute(monitorAttrs, ATTR_THREADS, executor.getNumberOfThreads());
+    putAttribute(monitorAttrs, ATTR_ACTIVE_THREADS, executor.getActiveThreads());
+    putAttribute(monitorAttrs, ATTR_QUEUE_SIZE, executor.getQueueSize());
+    putAttribute(monitorAttrs, ATTR_TASKS, executor.getTasks());
+    putAttribute(monitorAttrs, ATTR_QUEUE_FULL_REJECTIONS, executor.getQueueFullRejections());
+    putAttribute(monitorAttrs, ATTR_RATE_LIMIT_REJECTIONS, executor.getRateLimitRejections());
+    putAttribute(monitorAttrs, ATTR_QUEUE_WAIT_TIME, executor.getTotalQueueWaitTime());
+    putAttribute(monitorAttrs, ATTR_HASHING_TIME, executor.getTotalHashingTime());
+    return monitorAttrs;
+  }
+
+  private void putAttribute(List<Attribute> monitorAttrs, String attrName, long value)
+  {
+    AttributeType attrType = getAttributeTypeOrDefault(attrName, attrName, getDefaultIntegerSyntax());
+    monitorAttrs.add(Attributes.create(attrType, String.valueOf(value)));
+  }
+}
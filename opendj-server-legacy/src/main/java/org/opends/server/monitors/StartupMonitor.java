@@ -0,0 +1,147 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.monitors;
+
+import static org.opends.server.core.DirectoryServer.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.opends.server.admin.std.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.AttributeBuilder;
+import org.opends.server.types.AttributeType;
+import org.opends.server.types.Attributes;
+import org.opends.server.types.InitializationException;
+
+/**
+ * This class defines a Directory Server monitor that provides the time spent
+ * in each phase of the server startup, e.g. loading the schema or opening the
+ * backends.
+ */
+public class StartupMonitor extends MonitorProvider<MonitorProviderCfg>
+{
+  /** The name of the monitor attribute that provides the total startup time, in milliseconds. */
+  public static final String ATTR_STARTUP_TIME = "startupTimeMillis";
+  /**
+   * The name of the monitor attribute that provides the time spent in each
+   * startup phase, with one {@code "<phase>: <millis>"} value per phase, in
+   * startup order.
+   */
+  public static final String ATTR_STARTUP_PHASE_TIMES = "startupPhaseTimeMillis";
+
+  /** The durations of the completed phases in nanoseconds, in startup order. */
+  private final Map<String, Long> phaseDurations = new LinkedHashMap<>();
+
+  /** {@inheritDoc} */
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    // No initialization is required.
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "Startup";
+  }
+
+  /**
+   * Records the completion of a startup phase.
+   *
+   * @param phase
+   *          The name of the completed phase.
+   * @param startTime
+   *          The time at which the phase started, as returned by
+   *          {@link System#nanoTime()}.
+   * @return The time at which the phase completed, which can be used as the
+   *         start time of the next phase.
+   */
+  public synchronized long phaseCompleted(String phase, long startTime)
+  {
+    final long endTime = System.nanoTime();
+    final Long previousDuration = phaseDurations.get(phase);
+    phaseDurations.put(phase, (previousDuration != null ? previousDuration : 0L) + endTime - startTime);
+    return endTime;
+  }
+
+  /**
+   * Returns the time spent in each completed startup phase, in startup order.
+   *
+   * @return The time spent in each completed startup phase, in milliseconds.
+   */
+  public synchronized Map<String, Long> getPhaseTimes()
+  {
+    final Map<String, Long> phaseTimes = new LinkedHashMap<>();
+    for (Map.Entry<String, Long> entry : phaseDurations.entrySet())
+    {
+      phaseTimes.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue()));
+    }
+    return phaseTimes;
+  }
+
+  /**
+   * Returns the total time spent in the completed startup phases.
+   *
+   * @return The total time spent in the completed startup phases, in
+   *         milliseconds.
+   */
+  public synchronized long getStartupTime()
+  {
+    long startupTime = 0;
+    for (long duration : phaseDurations.values())
+    {
+      startupTime += duration;
+    }
+    return TimeUnit.NANOSECONDS.toMillis(startupTime);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<Attribute> getMonitorData()
+  {
+    final AttributeBuilder phaseTimes = new AttributeBuilder(ATTR_STARTUP_PHASE_TIMES);
+    for (Map.Entry<String, Long> entry : getPhaseTimes().entrySet())
+    {
+      phaseTimes.add(entry.getKey() + ": " + entry.getValue());
+    }
+
+    final ArrayList<Attribute> monitorAttrs = new ArrayList<>();
+    AttributeType attrType = getAttributeTypeOrDefault(ATTR_STARTUP_TIME, ATTR_STARTUP_TIME, getDefaultIntegerSyntax());
+    monitorAttrs.add(Attributes.create(attrType, String.valueOf(getStartupTime())));
+    if (!phaseTimes.isEmpty())
+    {
+      monitorAttrs.add(phaseTimes.toAttribute());
+    }
+    return monitorAttrs;
+  }
+}
@@ -26,6 +26,8 @@
  */
 package org.opends.server.protocols.ldap;
 
+import static org.opends.messages.ProtocolMessages.*;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -38,6 +40,7 @@ import org.forgerock.opendj.ldap.ByteSequenceReader;
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.forgerock.opendj.ldap.DecodeException;
+import org.opends.server.util.ByteBufferPool;
 
 /**
  * This class is for reading ASN.1 elements from a readable byte
@@ -80,11 +83,23 @@ final class ASN1ByteChannelReader implements ASN1Reader
   /** The wrapped ASN.1 reader. */
   private final ASN1Reader reader;
 
+  /**
+   * Place holder for the channel buffer while no buffer is borrowed from the
+   * buffer pool. It has no capacity so its state can never change.
+   */
+  private static final ByteBuffer NO_BUFFER = ByteBuffer.allocate(0);
+
   /**
    * The NIO ByteStringBuilder that stores any immediate data read off the
    * channel.
    */
-  private final ByteBuffer byteBuffer;
+  private ByteBuffer byteBuffer;
+
+  /**
+   * The pool from which the channel buffer is borrowed, or {@code null} if
+   * this reader owns its channel buffer.
+   */
+  private ByteBufferPool bufferPool;
 
   /**
    * The save buffer used to store any unprocessed data waiting to be read as
@@ -288,9 +303,41 @@ final class ASN1ByteChannelReader implements ASN1Reader
   ASN1ByteChannelReader(ReadableByteChannel channel, int bufferSize,
       int maxElementSize)
   {
-    this.byteChannel = channel;
+    this(channel, maxElementSize);
     this.byteBuffer = ByteBuffer.allocate(bufferSize);
     this.byteBuffer.flip();
+  }
+
+  /**
+   * Creates a new ASN.1 byte channel reader whose source is the
+   * provided readable byte channel, borrowing its channel buffer from
+   * the provided pool, and having a user defined maximum BER element
+   * size.
+   * <p>
+   * The channel buffer is only held while it contains data which has
+   * not been read yet, so that idle connections do not retain any
+   * buffer.
+   *
+   * @param channel
+   *          The readable byte channel to use.
+   * @param bufferPool
+   *          The pool from which buffers used when reading from the
+   *          channel will be borrowed.
+   * @param maxElementSize
+   *          The max ASN.1 element size this reader will read.
+   */
+  ASN1ByteChannelReader(ReadableByteChannel channel,
+      ByteBufferPool bufferPool, int maxElementSize)
+  {
+    this(channel, maxElementSize);
+    this.bufferPool = bufferPool;
+    this.byteBuffer = NO_BUFFER;
+  }
+
+  private ASN1ByteChannelReader(ReadableByteChannel channel,
+      int maxElementSize)
+  {
+    this.byteChannel = channel;
     this.saveBuffer = new ByteStringBuilder();
     this.saveBufferReader = saveBuffer.asReader();
 
@@ -332,6 +379,11 @@ final class ASN1ByteChannelReader implements ASN1Reader
       saveBuffer.appendBytes(byteBuffer, byteBuffer.remaining());
     }
 
+    if (byteBuffer == NO_BUFFER)
+    {
+      byteBuffer = bufferPool.acquire();
+    }
+
     byteBuffer.clear();
     try
     {
@@ -343,7 +395,37 @@ final class ASN1ByteChannelReader implements ASN1Reader
       // ensure that subsequent calls which query the remaining data return
       // valid results.
       byteBuffer.flip();
+
+      if (bufferPool != null && byteBuffer.remaining() == 0)
+      {
+        // Nothing was read, do not hold on to the buffer while idle.
+        bufferPool.release(byteBuffer);
+        byteBuffer = NO_BUFFER;
+      }
+    }
+  }
+
+  /**
+   * Reads the next element, which must be a complete sequence, and returns an
+   * ASN.1 reader over the contents of that sequence.
+   * <p>
+   * The value of the sequence is copied off the channel buffers in one go, and
+   * all the octet strings subsequently read from the returned reader are views
+   * of that single copy rather than individual copies. The views are immutable
+   * so they can safely be retained by the operations.
+   *
+   * @return An ASN.1 reader over the contents of the next sequence.
+   * @throws IOException
+   *           If the next element is not a sequence or cannot be read.
+   */
+  ASN1Reader readSequenceContents() throws IOException
+  {
+    if (reader.peekType() != ASN1.UNIVERSAL_SEQUENCE_TYPE)
+    {
+      throw DecodeException.fatalError(
+          ERR_LDAP_MESSAGE_DECODE_NULL.get());
     }
+    return ASN1.getReader(reader.readOctetString());
   }
 
   /**
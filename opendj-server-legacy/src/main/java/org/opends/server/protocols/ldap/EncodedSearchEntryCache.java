@@ -0,0 +1,280 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.protocols.ldap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.opendj.io.ASN1;
+import org.forgerock.opendj.io.ASN1Writer;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.core.SearchOperation;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.AttributeType;
+import org.opends.server.types.DN;
+import org.opends.server.types.SearchResultEntry;
+
+/**
+ * A bounded cache of pre-encoded LDAPv3 search result entry protocol ops, used
+ * by the LDAP connection handler to avoid re-encoding the same entry again and
+ * again when it is returned thousands of times per second, e.g. for service
+ * account lookups.
+ * <p>
+ * Encodings are keyed by the entry DN, the attribute projection of the search
+ * and the authorization identity. Each encoding keeps the content it was
+ * encoded from, i.e. the DN string and the returned attributes once access
+ * control filtering and virtual attributes have been applied, and is only
+ * reused when the entry to return has exactly the same content. Whatever
+ * changed the entry (an update, an import, a virtual attribute or an access
+ * control decision), a stale encoding is thus never returned.
+ * <p>
+ * Since attributes are immutable, comparing the content is usually cheap: the
+ * entries returned from the entry cache share their attributes with the cached
+ * entry, so most attributes are compared by reference, without looking at
+ * their values.
+ */
+final class EncodedSearchEntryCache
+{
+  /** Key of a cached encoding. */
+  private static final class Key
+  {
+    private final DN entryDN;
+    private final DN authzDN;
+    private final Set<String> attributes;
+    private final boolean typesOnly;
+    private final int hashCode;
+
+    private Key(DN entryDN, DN authzDN, Set<String> attributes, boolean typesOnly)
+    {
+      this.entryDN = entryDN;
+      this.authzDN = authzDN;
+      this.attributes = attributes;
+      this.typesOnly = typesOnly;
+      this.hashCode = 31 * (31 * (31 * entryDN.hashCode() + (authzDN != null ? authzDN.hashCode() : 0))
+          + attributes.hashCode()) + (typesOnly ? 1 : 0);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if (this == obj)
+      {
+        return true;
+      }
+      if (!(obj instanceof Key))
+      {
+        return false;
+      }
+      final Key other = (Key) obj;
+      return hashCode == other.hashCode
+          && typesOnly == other.typesOnly
+          && entryDN.equals(other.entryDN)
+          && (authzDN != null ? authzDN.equals(other.authzDN) : other.authzDN == null)
+          && attributes.equals(other.attributes);
+    }
+  }
+
+  /** A cached encoding and the content it was encoded from. */
+  private static final class Encoding
+  {
+    private final String dnString;
+    /** The encoded user attributes followed by the encoded operational attributes. */
+    private final Attribute[] attributes;
+    private final ByteString protocolOp;
+
+    private Encoding(String dnString, Attribute[] attributes, ByteString protocolOp)
+    {
+      this.dnString = dnString;
+      this.attributes = attributes;
+      this.protocolOp = protocolOp;
+    }
+
+    /** Indicates whether the provided entry has exactly the content which was encoded. */
+    private boolean hasContentOf(String entryDNString, Attribute[] entryAttributes)
+    {
+      if (!dnString.equals(entryDNString) || attributes.length != entryAttributes.length)
+      {
+        return false;
+      }
+      for (int i = 0; i < attributes.length; i++)
+      {
+        if (!haveSameContent(attributes[i], entryAttributes[i]))
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private final ConcurrentHashMap<Key, Encoding> encodings = new ConcurrentHashMap<>();
+
+  /**
+   * Approximate number of keys in the cache, maintained separately since
+   * computing the size of a concurrent hash map is expensive.
+   */
+  private final AtomicInteger size = new AtomicInteger();
+
+  /** The maximum number of encodings held by this cache. */
+  private final int maxEntries;
+
+  /**
+   * Creates a new encoded search entry cache.
+   *
+   * @param maxEntries
+   *          The maximum number of encodings held by this cache.
+   */
+  EncodedSearchEntryCache(int maxEntries)
+  {
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * Returns the encoded LDAPv3 search result entry protocol op for the provided
+   * entry, reusing a cached encoding if possible.
+   *
+   * @param searchOperation
+   *          The search operation returning the entry.
+   * @param searchEntry
+   *          The entry to return, once access control filtering has been
+   *          applied.
+   * @param protocolOp
+   *          The protocol op to encode if no cached encoding can be used.
+   * @return The encoded search result entry protocol op.
+   * @throws IOException
+   *           If a problem occurs while encoding the protocol op.
+   */
+  ByteString getEncodedProtocolOp(SearchOperation searchOperation, SearchResultEntry searchEntry,
+      SearchResultEntryProtocolOp protocolOp) throws IOException
+  {
+    final String dnString = searchEntry.getName().toString();
+    final Attribute[] attributes = getAttributes(searchEntry);
+    final Key key = new Key(searchEntry.getName(), searchOperation.getAuthorizationDN(),
+        searchOperation.getAttributes(), searchOperation.getTypesOnly());
+
+    final Encoding cached = encodings.get(key);
+    if (cached != null && cached.hasContentOf(dnString, attributes))
+    {
+      return cached.protocolOp;
+    }
+
+    final ByteStringBuilder builder = new ByteStringBuilder();
+    final ASN1Writer writer = ASN1.getWriter(builder);
+    protocolOp.write(writer);
+    final ByteString encoded = builder.toByteString();
+
+    if (encodings.put(key, new Encoding(dnString, attributes, encoded)) == null
+        && size.incrementAndGet() > maxEntries)
+    {
+      // Full: start again rather than tracking usage on the read path.
+      encodings.clear();
+      size.set(0);
+    }
+    return encoded;
+  }
+
+  /**
+   * Appends a complete LDAP message made of the provided message ID and
+   * pre-encoded protocol op, without any controls.
+   *
+   * @param buffer
+   *          The buffer to which the message must be appended.
+   * @param messageID
+   *          The message ID of the message.
+   * @param protocolOp
+   *          The pre-encoded protocol op.
+   */
+  static void appendLDAPMessage(ByteStringBuilder buffer, int messageID, ByteSequence protocolOp)
+  {
+    int idLength = 1;
+    while (idLength < 4 && (messageID >> (idLength * 8 - 1)) != 0)
+    {
+      idLength++;
+    }
+
+    buffer.appendByte(ASN1.UNIVERSAL_SEQUENCE_TYPE);
+    buffer.appendBERLength(2 + idLength + protocolOp.length());
+    buffer.appendByte(ASN1.UNIVERSAL_INTEGER_TYPE);
+    buffer.appendByte(idLength);
+    for (int i = idLength - 1; i >= 0; i--)
+    {
+      buffer.appendByte(messageID >> (i * 8));
+    }
+    buffer.appendBytes(protocolOp);
+  }
+
+  /** Returns the attributes written when encoding the entry, in the order they are written. */
+  private static Attribute[] getAttributes(SearchResultEntry entry)
+  {
+    final List<Attribute> attributes = new ArrayList<>();
+    addAttributes(attributes, entry.getUserAttributes());
+    addAttributes(attributes, entry.getOperationalAttributes());
+    return attributes.toArray(new Attribute[attributes.size()]);
+  }
+
+  private static void addAttributes(List<Attribute> attributes, Map<AttributeType, List<Attribute>> attrMap)
+  {
+    for (List<Attribute> attrList : attrMap.values())
+    {
+      attributes.addAll(attrList);
+    }
+  }
+
+  /** Indicates whether the provided attributes are encoded to the same bytes. */
+  private static boolean haveSameContent(Attribute a1, Attribute a2)
+  {
+    if (a1 == a2)
+    {
+      return true;
+    }
+    if (a1.size() != a2.size() || !a1.getNameWithOptions().equals(a2.getNameWithOptions()))
+    {
+      return false;
+    }
+    final Iterator<ByteString> values2 = a2.iterator();
+    for (ByteString value1 : a1)
+    {
+      if (!values2.hasNext() || !value1.equals(values2.next()))
+      {
+        return false;
+      }
+    }
+    return !values2.hasNext();
+  }
+}
@@ -52,6 +52,7 @@ import org.forgerock.opendj.io.ASN1Writer;
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.ldap.SearchScope;
 import org.opends.server.api.ClientConnection;
 import org.opends.server.api.ConnectionHandler;
 import org.opends.server.core.*;
@@ -60,6 +61,7 @@ import org.opends.server.extensions.RedirectingByteChannel;
 import org.opends.server.extensions.TLSByteChannel;
 import org.opends.server.extensions.TLSCapableConnection;
 import org.opends.server.types.*;
+import org.opends.server.util.ByteBufferPool;
 import org.opends.server.util.StaticUtils;
 import org.opends.server.util.TimeThread;
 
@@ -379,6 +381,12 @@ public final class LDAPClientConnection extends ClientConnection implements
    */
   private final boolean keepStats;
 
+  /**
+   * Indicates whether simple, non-blocking requests should be processed
+   * directly on the request handler thread which read them.
+   */
+  private final boolean inlineSimpleOperations;
+
   /** The set of all operations currently in progress on this connection. */
   private final ConcurrentHashMap<Integer, Operation> operationsInProgress;
 
@@ -440,7 +448,6 @@ public final class LDAPClientConnection extends ClientConnection implements
 
 
   private ASN1ByteChannelReader asn1Reader;
-  private final int bufferSize;
   private final RedirectingByteChannel saslChannel;
   private final RedirectingByteChannel tlsChannel;
   private volatile ConnectionSecurityProvider saslActiveProvider;
@@ -458,10 +465,14 @@ public final class LDAPClientConnection extends ClientConnection implements
    *          The socket channel that may be used to communicate with
    *          the client.
    * @param  protocol String representing the protocol (LDAP or LDAP+SSL).
+   * @param readBufferPool
+   *          The pool from which buffers used for reading requests
+   *          from the client will be borrowed.
    * @throws DirectoryException If SSL initialisation fails.
    */
   LDAPClientConnection(LDAPConnectionHandler connectionHandler,
-      SocketChannel clientChannel, String protocol) throws DirectoryException
+      SocketChannel clientChannel, String protocol,
+      ByteBufferPool readBufferPool) throws DirectoryException
   {
     this.connectionHandler = connectionHandler;
     this.clientChannel = clientChannel;
@@ -475,6 +486,7 @@ public final class LDAPClientConnection extends ClientConnection implements
     operationsInProgress = new ConcurrentHashMap<>();
     operationsPerformed = new AtomicLong(0);
     keepStats = connectionHandler.keepStats();
+    inlineSimpleOperations = connectionHandler.inlineSimpleOperations();
     this.protocol = protocol;
     writeSelector = new AtomicReference<>();
 
@@ -492,14 +504,12 @@ public final class LDAPClientConnection extends ClientConnection implements
       this.useNanoTime=DirectoryServer.getUseNanoTime();
     }
 
-    bufferSize = connectionHandler.getBufferSize();
-
     tlsChannel =
         RedirectingByteChannel.getRedirectingByteChannel(
             timeoutClientChannel);
     saslChannel =
         RedirectingByteChannel.getRedirectingByteChannel(tlsChannel);
-    this.asn1Reader = new ASN1ByteChannelReader(saslChannel, bufferSize, connectionHandler.getMaxRequestSize());
+    this.asn1Reader = new ASN1ByteChannelReader(saslChannel, readBufferPool, connectionHandler.getMaxRequestSize());
 
     if (connectionHandler.useSSL())
     {
@@ -885,9 +895,68 @@ public final class LDAPClientConnection extends ClientConnection implements
   {
     SearchResultEntryProtocolOp protocolOp =
         new SearchResultEntryProtocolOp(searchEntry, ldapVersion);
+    LDAPMessage message = new LDAPMessage(searchOperation.getMessageID(),
+        protocolOp, searchEntry.getControls());
 
-    sendLDAPMessage(new LDAPMessage(searchOperation.getMessageID(),
-        protocolOp, searchEntry.getControls()));
+    EncodedSearchEntryCache cache =
+        connectionHandler.getEncodedSearchEntryCache();
+    if (cache != null && ldapVersion == 3
+        && searchEntry.getControls().isEmpty())
+    {
+      sendEncodedSearchEntry(cache, searchOperation, searchEntry, message);
+    }
+    else
+    {
+      sendLDAPMessage(message);
+    }
+  }
+
+
+
+  /**
+   * Sends the provided search result entry message using a pre-encoded
+   * protocol op from the provided cache.
+   */
+  private void sendEncodedSearchEntry(EncodedSearchEntryCache cache,
+      SearchOperation searchOperation, SearchResultEntry searchEntry,
+      LDAPMessage message)
+  {
+    // Use a thread local writer.
+    final ASN1WriterHolder holder = getASN1Writer();
+    try
+    {
+      ByteString encodedOp = cache.getEncodedProtocolOp(searchOperation,
+          searchEntry, (SearchResultEntryProtocolOp) message.getProtocolOp());
+      EncodedSearchEntryCache.appendLDAPMessage(holder.buffer,
+          message.getMessageID(), encodedOp);
+      holder.buffer.copyTo(saslChannel);
+
+      if (logger.isTraceEnabled())
+      {
+        logger.trace("LDAPMessage=%s", message);
+      }
+
+      if (keepStats)
+      {
+        statTracker.updateMessageWritten(message);
+      }
+    }
+    catch (ClosedChannelException e)
+    {
+      logger.traceException(e);
+      disconnect(DisconnectReason.IO_ERROR, false,
+          ERR_IO_ERROR_ON_CLIENT_CONNECTION.get(getExceptionMessage(e)));
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      disconnect(DisconnectReason.SERVER_ERROR, false,
+          ERR_UNEXPECTED_EXCEPTION_ON_CLIENT_CONNECTION.get(getExceptionMessage(e)));
+    }
+    finally
+    {
+      close(holder);
+    }
   }
 
 
@@ -1244,11 +1313,20 @@ public final class LDAPClientConnection extends ClientConnection implements
         }
       }
 
-      // Try to add the operation to the work queue,
-      // or run it synchronously (typically for the administration
-      // connector)
-      connectionHandler.getQueueingStrategy().enqueueRequest(
-          operation);
+      if (inlineSimpleOperations && canRunInline(operation))
+      {
+        // Save the hand-off to a worker thread: the operation is not
+        // expected to block the request handler thread.
+        runInline(operation);
+      }
+      else
+      {
+        // Try to add the operation to the work queue,
+        // or run it synchronously (typically for the administration
+        // connector)
+        connectionHandler.getQueueingStrategy().enqueueRequest(
+            operation);
+      }
     }
     catch (DirectoryException de)
     {
@@ -1272,6 +1350,103 @@ public final class LDAPClientConnection extends ClientConnection implements
 
 
 
+  /**
+   * Indicates whether the provided operation is simple enough to be
+   * processed directly on the request handler thread which decoded it.
+   * Only operations which are not expected to block are eligible:
+   * <ul>
+   * <li>abandon requests which do not target an operation in progress,</li>
+   * <li>Who Am I extended requests,</li>
+   * <li>compare and base object search requests targeting an entry which
+   * is present in the entry cache.</li>
+   * </ul>
+   * Requests with controls are never eligible since processing the
+   * controls may require access to the backends (e.g. proxied
+   * authorization).
+   *
+   * @param operation
+   *          The operation to check.
+   * @return <CODE>true</CODE> if the operation can be processed inline,
+   *         or <CODE>false</CODE> if it must go through the queueing
+   *         strategy.
+   */
+  private boolean canRunInline(Operation operation)
+  {
+    if (!operation.getRequestControls().isEmpty())
+    {
+      return false;
+    }
+
+    switch (operation.getOperationType())
+    {
+    case ABANDON:
+      // Cancelling an operation in progress waits for it to complete.
+      int idToAbandon = ((AbandonOperation) operation).getIDToAbandon();
+      return !operationsInProgress.containsKey(idToAbandon);
+    case EXTENDED:
+      return OID_WHO_AM_I_REQUEST.equals(
+          ((ExtendedOperation) operation).getRequestOID());
+    case COMPARE:
+      return isEntryCached(((CompareOperation) operation).getEntryDN());
+    case SEARCH:
+      SearchOperation searchOp = (SearchOperation) operation;
+      return searchOp.getScope() == SearchScope.BASE_OBJECT
+          && isEntryCached(searchOp.getBaseDN());
+    default:
+      return false;
+    }
+  }
+
+
+
+  private boolean isEntryCached(DN entryDN)
+  {
+    return entryDN != null
+        && DirectoryServer.getEntryCache().containsEntry(entryDN);
+  }
+
+
+
+  /**
+   * Processes the provided operation on the current thread, in the same
+   * way as a worker thread would have done.
+   *
+   * @param operation
+   *          The operation to process.
+   * @throws DirectoryException
+   *           If the operation cannot be processed, for example because
+   *           the client is not allowed to perform it.
+   */
+  private void runInline(Operation operation) throws DirectoryException
+  {
+    DirectoryServer.checkCanEnqueueRequest(operation, false);
+    try
+    {
+      operation.run();
+    }
+    catch (RuntimeException e)
+    {
+      logger.traceException(e);
+
+      LocalizableMessage message = ERR_UNCAUGHT_WORKER_THREAD_EXCEPTION.get(
+          Thread.currentThread().getName(), operation,
+          stackTraceToSingleLineString(e));
+      logger.error(message);
+
+      // Ensure that the client receives some kind of result so that it
+      // does not hang.
+      operation.setResultCode(DirectoryServer.getServerErrorResultCode());
+      operation.appendErrorMessage(message);
+      sendResponse(operation);
+    }
+    finally
+    {
+      operation.operationCompleted();
+    }
+  }
+
+
+
   /**
    * Removes the provided operation from the set of operations in
    * progress for this client connection. Note that this does not make
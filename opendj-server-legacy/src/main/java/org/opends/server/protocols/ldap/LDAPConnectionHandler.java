@@ -43,6 +43,7 @@ import java.util.concurrent.TimeUnit;
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
@@ -65,6 +66,7 @@ import org.opends.server.extensions.NullTrustManagerProvider;
 import org.opends.server.extensions.TLSByteChannel;
 import org.opends.server.monitors.ClientConnectionMonitorProvider;
 import org.opends.server.types.*;
+import org.opends.server.util.ByteBufferPool;
 import org.opends.server.util.SelectableCertificateKeyManager;
 import org.opends.server.util.StaticUtils;
 
@@ -183,6 +185,12 @@ public final class LDAPConnectionHandler extends
   /** The set of statistics collected for this connection handler. */
   private LDAPStatistics statTracker;
 
+  /**
+   * The cache of pre-encoded search result entries, or {@code null} if
+   * disabled.
+   */
+  private volatile EncodedSearchEntryCache encodedEntryCache;
+
   /**
    * The client connection monitor provider associated with this connection
    * handler.
@@ -224,6 +232,13 @@ public final class LDAPConnectionHandler extends
   /** The SSL engine is used for obtaining default SSL parameters. */
   private SSLEngine sslEngine;
 
+  /**
+   * The pools of buffers shared by the TLS byte channels, or {@code null} if
+   * each channel allocates its own buffers.
+   */
+  private volatile ByteBufferPool sslWrappedBufferPool;
+  private volatile ByteBufferPool sslUnwrappedBufferPool;
+
   /**
    * Connection finalizer thread.
    * <p>
@@ -325,6 +340,12 @@ public final class LDAPConnectionHandler extends
       statTracker.clearStatistics();
     }
 
+    if (currentConfig.getEncodedEntryCacheSize()
+        != config.getEncodedEntryCacheSize())
+    {
+      configureEncodedEntryCache(config);
+    }
+
     // Apply the changes.
     currentConfig = config;
     enabled = config.isEnabled();
@@ -356,6 +377,19 @@ public final class LDAPConnectionHandler extends
     return ccr;
   }
 
+  private void configureEncodedEntryCache(LDAPConnectionHandlerCfg config)
+  {
+    if (config.getEncodedEntryCacheSize() > 0)
+    {
+      encodedEntryCache = new EncodedSearchEntryCache(
+          config.getEncodedEntryCacheSize());
+    }
+    else
+    {
+      encodedEntryCache = null;
+    }
+  }
+
   private void configureSSL(LDAPConnectionHandlerCfg config)
       throws DirectoryException
   {
@@ -370,6 +404,23 @@ public final class LDAPConnectionHandler extends
       sslContext = null;
       sslEngine = null;
     }
+    configureSSLBufferPools(config);
+  }
+
+  private void configureSSLBufferPools(LDAPConnectionHandlerCfg config)
+  {
+    final int poolSize = config.getSSLBufferPoolSize();
+    if (sslEngine != null && poolSize > 0)
+    {
+      final SSLSession session = sslEngine.getSession();
+      sslWrappedBufferPool = new ByteBufferPool(session.getPacketBufferSize(), true, poolSize);
+      sslUnwrappedBufferPool = new ByteBufferPool(session.getApplicationBufferSize(), true, poolSize);
+    }
+    else
+    {
+      sslWrappedBufferPool = null;
+      sslUnwrappedBufferPool = null;
+    }
   }
 
 
@@ -393,6 +444,8 @@ public final class LDAPConnectionHandler extends
     DirectoryServer.deregisterSupportedLDAPVersion(2, this);
     DirectoryServer.deregisterSupportedLDAPVersion(3, this);
 
+    encodedEntryCache = null;
+
     try
     {
       selector.wakeup();
@@ -672,6 +725,8 @@ public final class LDAPConnectionHandler extends
     allowedClients = config.getAllowedClient();
     deniedClients = config.getDeniedClient();
 
+    configureEncodedEntryCache(config);
+
     // Configure SSL if needed.
     try
     {
@@ -870,6 +925,36 @@ public final class LDAPConnectionHandler extends
 
 
 
+  /**
+   * Indicates whether client connections accepted by this connection handler
+   * should process simple, non-blocking requests directly on the request
+   * handler thread rather than handing them off to the work queue.
+   *
+   * @return <CODE>true</CODE> if simple requests should be processed inline,
+   *         or <CODE>false</CODE> if all requests should go through the
+   *         queueing strategy.
+   */
+  public boolean inlineSimpleOperations()
+  {
+    return currentConfig.isInlineSimpleOperations();
+  }
+
+
+
+  /**
+   * Retrieves the cache of pre-encoded search result entries used by the
+   * client connections of this connection handler.
+   *
+   * @return The cache of pre-encoded search result entries, or {@code null}
+   *         if it is disabled.
+   */
+  EncodedSearchEntryCache getEncodedSearchEntryCache()
+  {
+    return encodedEntryCache;
+  }
+
+
+
   /** {@inheritDoc} */
   @Override
   public void processServerShutdown(LocalizableMessage reason)
@@ -1165,11 +1250,20 @@ public final class LDAPConnectionHandler extends
       close(clientChannel);
     }
 
+    // Select the request handler which will read the requests of this
+    // connection, so that the connection can borrow its read buffers.
+    LDAPRequestHandler requestHandler =
+        requestHandlers[requestHandlerIndex++];
+    if (requestHandlerIndex >= numRequestHandlers)
+    {
+      requestHandlerIndex = 0;
+    }
+
     // Check to see if the core server rejected the
     // connection (e.g., already too many connections
     // established).
     LDAPClientConnection clientConnection = new LDAPClientConnection(this,
-        clientChannel, getProtocol());
+        clientChannel, getProtocol(), requestHandler.getReadBufferPool());
     if (clientConnection.getConnectionID() < 0)
     {
       clientConnection.disconnect(DisconnectReason.ADMIN_LIMIT_EXCEEDED, true,
@@ -1220,12 +1314,6 @@ public final class LDAPConnectionHandler extends
         return;
       }
 
-      LDAPRequestHandler requestHandler =
-          requestHandlers[requestHandlerIndex++];
-      if (requestHandlerIndex >= numRequestHandlers)
-      {
-        requestHandlerIndex = 0;
-      }
       requestHandler.registerClient(clientConnection);
     }
     catch (Exception e)
@@ -1337,6 +1425,12 @@ public final class LDAPConnectionHandler extends
       throws DirectoryException
   {
     SSLEngine sslEngine = createSSLEngine(currentConfig, sslContext);
+    final ByteBufferPool wrappedBufferPool = sslWrappedBufferPool;
+    final ByteBufferPool unwrappedBufferPool = sslUnwrappedBufferPool;
+    if (wrappedBufferPool != null && unwrappedBufferPool != null)
+    {
+      return new TLSByteChannel(channel, sslEngine, wrappedBufferPool, unwrappedBufferPool);
+    }
     return new TLSByteChannel(channel, sslEngine);
   }
 
@@ -1456,7 +1550,10 @@ public final class LDAPConnectionHandler extends
         trustManagerProvider = new NullTrustManagerProvider();
       }
 
-      SSLContext sslContext = SSLContext.getInstance(SSL_CONTEXT_INSTANCE_NAME);
+      final String provider = config.getSSLProvider();
+      SSLContext sslContext = provider != null
+          ? SSLContext.getInstance(SSL_CONTEXT_INSTANCE_NAME, provider)
+          : SSLContext.getInstance(SSL_CONTEXT_INSTANCE_NAME);
       sslContext.init(keyManagers, trustManagerProvider.getTrustManagers(),
           null);
       return sslContext;
@@ -74,6 +74,36 @@ public class LDAPReader
       throw new LDAPException(PROTOCOL_ERROR, message);
     }
 
+    LDAPMessage message = readMessageContents(reader);
+
+    try
+    {
+      reader.readEndSequence();
+    }
+    catch(Exception e)
+    {
+      LocalizableMessage msg = ERR_LDAP_MESSAGE_DECODE_NULL.get();
+      throw new LDAPException(PROTOCOL_ERROR, msg);
+    }
+
+    return message;
+  }
+
+  /**
+   * Decodes the elements from the provided ASN.1 reader as the contents of an
+   * LDAP message, that is the message ID, protocol op and controls without the
+   * enclosing sequence.
+   *
+   * @param reader The ASN.1 reader.
+   *
+   * @return  The decoded LDAP message.
+   *
+   * @throws  LDAPException  If a problem occurs while attempting to decode the
+   *                         LDAP message.
+   */
+  public static LDAPMessage readMessageContents(ASN1Reader reader)
+      throws LDAPException
+  {
     int messageID;
     try
     {
@@ -116,16 +146,6 @@ public class LDAPReader
       throw new LDAPException(PROTOCOL_ERROR, message, e);
     }
 
-    try
-    {
-      reader.readEndSequence();
-    }
-    catch(Exception e)
-    {
-      LocalizableMessage message = ERR_LDAP_MESSAGE_DECODE_NULL.get();
-      throw new LDAPException(PROTOCOL_ERROR, message);
-    }
-
     return new LDAPMessage(messageID, protocolOp, controls);
   }
 
@@ -46,11 +46,11 @@ import org.opends.server.api.DirectoryThread;
 import org.opends.server.api.ServerShutdownListener;
 import org.opends.server.core.DirectoryServer;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
-import org.forgerock.opendj.io.ASN1Reader;
 import org.forgerock.opendj.ldap.DecodeException;
 import org.opends.server.types.DisconnectReason;
 import org.opends.server.types.InitializationException;
 import org.opends.server.types.LDAPException;
+import org.opends.server.util.ByteBufferPool;
 
 /**
  * This class defines an LDAP request handler, which is associated with an LDAP
@@ -90,6 +90,20 @@ public class LDAPRequestHandler
   /** The name to use for this request handler. */
   private final String handlerName;
 
+  /**
+   * The maximum number of idle buffers retained by the read buffer pool.
+   * Connections only hold a read buffer while it contains unread data, so a
+   * small number of buffers is usually enough to serve all the connections
+   * registered with this request handler.
+   */
+  private static final int MAX_POOLED_READ_BUFFERS = 64;
+
+  /**
+   * The pool of direct buffers used by the connections registered with this
+   * request handler for reading requests off their channel.
+   */
+  private final ByteBufferPool readBufferPool;
+
 
 
   /**
@@ -113,6 +127,8 @@ public class LDAPRequestHandler
 
 
     handlerName        = getName();
+    readBufferPool     = new ByteBufferPool(
+        connectionHandler.getBufferSize(), true, MAX_POOLED_READ_BUFFERS);
 
     try
     {
@@ -168,7 +184,7 @@ public class LDAPRequestHandler
       {
         try
         {
-          ASN1Reader asn1Reader = readyConnection.getASN1Reader();
+          ASN1ByteChannelReader asn1Reader = readyConnection.getASN1Reader();
           boolean ldapMessageProcessed = false;
           while (true)
           {
@@ -177,7 +193,8 @@ public class LDAPRequestHandler
               if (!ldapMessageProcessed)
               {
                 if (readyConnection.processLDAPMessage(
-                    LDAPReader.readMessage(asn1Reader)))
+                    LDAPReader.readMessageContents(
+                        asn1Reader.readSequenceContents())))
                 {
                   ldapMessageProcessed = true;
                 }
@@ -445,6 +462,19 @@ public class LDAPRequestHandler
 
 
 
+  /**
+   * Retrieves the pool of buffers which should be used by the client
+   * connections registered with this request handler for reading requests.
+   *
+   * @return The pool of buffers used for reading requests.
+   */
+  ByteBufferPool getReadBufferPool()
+  {
+    return readBufferPool;
+  }
+
+
+
   /**
    * Retrieves the set of all client connections that are currently registered
    * with this request handler.
@@ -31,8 +31,8 @@ import static org.opends.server.protocols.ldap.LDAPConstants.*;
 import static org.opends.server.util.ServerConstants.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.opendj.config.server.ConfigException;
@@ -40,11 +40,13 @@ import org.opends.server.admin.std.server.MonitorProviderCfg;
 import org.opends.server.api.MonitorProvider;
 import org.opends.server.core.DirectoryServer;
 import org.opends.server.types.Attribute;
+import org.opends.server.types.AttributeBuilder;
 import org.opends.server.types.AttributeType;
 import org.opends.server.types.Attributes;
 import org.opends.server.types.DirectoryConfig;
 import org.opends.server.types.ObjectClass;
 import org.opends.server.types.OperationType;
+import org.opends.server.util.StripedCounters;
 
 /**
  * This class defines a data structure that will be used to keep track
@@ -72,65 +74,88 @@ import org.opends.server.types.OperationType;
 public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
 {
 
-  // The statistics maintained by this class.
-  private AtomicLong abandonRequests = new AtomicLong(0);
-  private AtomicLong addRequests = new AtomicLong(0);
-  private AtomicLong bindRequests = new AtomicLong(0);
-  private AtomicLong addResponses = new AtomicLong(0);
-  private AtomicLong bindResponses = new AtomicLong(0);
-  private AtomicLong bytesRead = new AtomicLong(0);
-  private AtomicLong bytesWritten = new AtomicLong(0);
-  private AtomicLong compareRequests = new AtomicLong(0);
-  private AtomicLong compareResponses = new AtomicLong(0);
-  private AtomicLong connectionsClosed = new AtomicLong(0);
-  private AtomicLong connectionsEstablished = new AtomicLong(0);
-  private AtomicLong deleteRequests = new AtomicLong(0);
-  private AtomicLong deleteResponses = new AtomicLong(0);
-  private AtomicLong extendedRequests = new AtomicLong(0);
-  private AtomicLong extendedResponses = new AtomicLong(0);
-  private AtomicLong messagesRead = new AtomicLong(0);
-  private AtomicLong messagesWritten = new AtomicLong(0);
-  private AtomicLong modifyRequests = new AtomicLong(0);
-  private AtomicLong modifyResponses = new AtomicLong(0);
-  private AtomicLong modifyDNRequests = new AtomicLong(0);
-  private AtomicLong modifyDNResponses = new AtomicLong(0);
-  private AtomicLong operationsAbandoned = new AtomicLong(0);
-  private AtomicLong operationsCompleted = new AtomicLong(0);
-  private AtomicLong operationsInitiated = new AtomicLong(0);
-  private AtomicLong searchRequests = new AtomicLong(0);
-  private AtomicLong searchOneRequests = new AtomicLong(0);
-  private AtomicLong searchSubRequests = new AtomicLong(0);
-  private AtomicLong searchResultEntries = new AtomicLong(0);
-  private AtomicLong searchResultReferences = new AtomicLong(0);
-  private AtomicLong searchResultsDone = new AtomicLong(0);
-  private AtomicLong unbindRequests = new AtomicLong(0);
-
+  // The indexes of the statistics maintained by this class.
+  private static final int ABANDON_REQUESTS = 0;
+  private static final int ADD_REQUESTS = 1;
+  private static final int BIND_REQUESTS = 2;
+  private static final int ADD_RESPONSES = 3;
+  private static final int BIND_RESPONSES = 4;
+  private static final int BYTES_READ = 5;
+  private static final int BYTES_WRITTEN = 6;
+  private static final int COMPARE_REQUESTS = 7;
+  private static final int COMPARE_RESPONSES = 8;
+  private static final int CONNECTIONS_CLOSED = 9;
+  private static final int CONNECTIONS_ESTABLISHED = 10;
+  private static final int DELETE_REQUESTS = 11;
+  private static final int DELETE_RESPONSES = 12;
+  private static final int EXTENDED_REQUESTS = 13;
+  private static final int EXTENDED_RESPONSES = 14;
+  private static final int MESSAGES_READ = 15;
+  private static final int MESSAGES_WRITTEN = 16;
+  private static final int MODIFY_REQUESTS = 17;
+  private static final int MODIFY_RESPONSES = 18;
+  private static final int MODIFY_DN_REQUESTS = 19;
+  private static final int MODIFY_DN_RESPONSES = 20;
+  private static final int OPERATIONS_ABANDONED = 21;
+  private static final int OPERATIONS_COMPLETED = 22;
+  private static final int OPERATIONS_INITIATED = 23;
+  private static final int SEARCH_REQUESTS = 24;
+  private static final int SEARCH_ONE_REQUESTS = 25;
+  private static final int SEARCH_SUB_REQUESTS = 26;
+  private static final int SEARCH_RESULT_ENTRIES = 27;
+  private static final int SEARCH_RESULT_REFERENCES = 28;
+  private static final int SEARCH_RESULTS_DONE = 29;
+  private static final int UNBIND_REQUESTS = 30;
+  private static final int NB_MESSAGE_COUNTERS = 31;
+
+  /**
+   * The operation types for which the count, total time and time histogram of
+   * operations are maintained, and the names used for them in the monitor
+   * data.
+   */
+  private static final OperationType[] MONITORED_OPERATIONS = {
+    OperationType.ADD, OperationType.SEARCH, OperationType.BIND, OperationType.UNBIND,
+    OperationType.COMPARE, OperationType.DELETE, OperationType.MODIFY,
+    OperationType.MODIFY_DN, OperationType.ABANDON, OperationType.EXTENDED };
+  private static final String[] MONITORED_OPERATION_NAMES = {
+    "add", "search", "bind", "unbind", "compare", "delete", "mod", "moddn", "abandon", "extended" };
+
+  /**
+   * The number of buckets of the operation time histograms. Bucket {@code 0}
+   * counts operations which took no time, and bucket {@code i > 0} counts
+   * operations which took between {@code 2^(i-1)} and {@code 2^i - 1} time
+   * units, the last bucket counting all longer operations.
+   */
+  private static final int NB_HISTOGRAM_BUCKETS = 32;
+
+  // Relative indexes of the statistics maintained for each operation type.
+  private static final int OPERATION_COUNT = 0;
+  private static final int OPERATION_TIME = 1;
+  private static final int OPERATION_HISTOGRAM = 2;
+  private static final int NB_OPERATION_COUNTERS = OPERATION_HISTOGRAM + NB_HISTOGRAM_BUCKETS;
+
+  /** Maps operation type ordinals to the index of their statistics. */
+  private static final int[] OPERATION_OFFSETS = new int[OperationType.values().length];
+  static
+  {
+    Arrays.fill(OPERATION_OFFSETS, -1);
+    for (int i = 0; i < MONITORED_OPERATIONS.length; i++)
+    {
+      OPERATION_OFFSETS[MONITORED_OPERATIONS[i].ordinal()] = NB_MESSAGE_COUNTERS + i * NB_OPERATION_COUNTERS;
+    }
+  }
+
+  /**
+   * The statistics maintained by this class. They are updated for every
+   * message exchanged with every client, so they are striped to avoid
+   * contention between worker threads, and only aggregated when read.
+   */
+  private final StripedCounters counters =
+      new StripedCounters(NB_MESSAGE_COUNTERS + MONITORED_OPERATIONS.length * NB_OPERATION_COUNTERS);
 
   /** The instance name for this monitor provider instance. */
   private final String instanceName;
 
-  // Monitor Objects : for Operations (count and time)
-  private AtomicLong addOperationCount = new AtomicLong(0);
-  private AtomicLong addOperationTime = new AtomicLong(0);
-  private AtomicLong searchOperationCount = new AtomicLong(0);
-  private AtomicLong searchOperationTime = new AtomicLong(0);
-  private AtomicLong delOperationCount = new AtomicLong(0);
-  private AtomicLong delOperationTime = new AtomicLong(0);
-  private AtomicLong bindOperationCount = new AtomicLong(0);
-  private AtomicLong bindOperationTime = new AtomicLong(0);
-  private AtomicLong unbindOperationCount = new AtomicLong(0);
-  private AtomicLong unbindOperationTime = new AtomicLong(0);
-  private AtomicLong compOperationCount = new AtomicLong(0);
-  private AtomicLong compOperationTime = new AtomicLong(0);
-  private AtomicLong modOperationCount = new AtomicLong(0);
-  private AtomicLong modOperationTime = new AtomicLong(0);
-  private AtomicLong moddnOperationCount = new AtomicLong(0);
-  private AtomicLong moddnOperationTime = new AtomicLong(0);
-  private AtomicLong abandonOperationCount = new AtomicLong(0);
-  private AtomicLong abandonOperationTime = new AtomicLong(0);
-  private AtomicLong extOperationCount = new AtomicLong(0);
-  private AtomicLong extOperationTime = new AtomicLong(0);
-
 
   /**
    * Creates a new instance of this class with the specified parent.
@@ -195,199 +220,96 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
   @Override
   public List<Attribute> getMonitorData()
   {
-      List<Attribute> attrs = new ArrayList<>();
-
-      long tmpAbandonRequests = abandonRequests.get();
-      long tmpAddRequests = addRequests.get();
-      long tmpAddResponses = addResponses.get();
-      long tmpBindRequests = bindRequests.get();
-      long tmpBindResponses = bindResponses.get();
-      long tmpBytesRead = bytesRead.get();
-      long tmpBytesWritten = bytesWritten.get();
-      long tmpCompareRequests = compareRequests.get();
-      long tmpCompareResponses = compareResponses.get();
-      long tmpConnectionsClosed = connectionsClosed.get();
-      long tmpConnectionsEstablished = connectionsEstablished.get();
-      long tmpDeleteRequests = deleteRequests.get();
-      long tmpDeleteResponses = deleteResponses.get();
-      long tmpExtendedRequests = extendedRequests.get();
-      long tmpExtendedResponses = extendedResponses.get();
-      long tmpMessagesRead = messagesRead.get();
-      long tmpMessagesWritten = messagesWritten.get();
-      long tmpModifyRequests = modifyRequests.get();
-      long tmpModifyResponses = modifyResponses.get();
-      long tmpModifyDNRequests = modifyDNRequests.get();
-      long tmpModifyDNResponses = modifyDNResponses.get();
-      long tmpOperationsAbandoned = operationsAbandoned.get();
-      long tmpOperationsCompleted = operationsCompleted.get();
-      long tmpOperationsInitiated = operationsInitiated.get();
-      long tmpSearchRequests = searchRequests.get();
-      long tmpSearchOneRequests = searchOneRequests.get();
-      long tmpSearchSubRequests = searchSubRequests.get();
-      long tmpSearchEntries = searchResultEntries.get();
-      long tmpSearchReferences = searchResultReferences.get();
-      long tmpSearchResultsDone = searchResultsDone.get();
-      long tmpUnbindRequests = unbindRequests.get();
-      long tmpAddOperationCount = addOperationCount.get();
-      long tmpAddOperationTime = addOperationTime.get();
-      long tmpSearchOperationCount = searchOperationCount.get();
-      long tmpSearchOperationTime = searchOperationTime.get();
-      long tmpDelOperationCount = delOperationCount.get();
-      long tmpDelOperationTime = delOperationTime.get();
-      long tmpBindOperationCount = bindOperationCount.get();
-      long tmpBindOperationTime = bindOperationTime.get();
-      long tmpUnbindOperationCount = unbindOperationCount.get();
-      long tmpUnbindOperationTime = unbindOperationTime.get();
-      long tmpCompOperationCount = compOperationCount.get();
-      long tmpCompOperationTime = compOperationTime.get();
-      long tmpModOperationCount = modOperationCount.get();
-      long tmpModOperationTime = modOperationTime.get();
-      long tmpModdnOperationCount = moddnOperationCount.get();
-      long tmpModdnOperationTime = moddnOperationTime.get();
-      long tmpAbandonOperationCount = abandonOperationCount.get();
-      long tmpAbandonOperationTime = abandonOperationTime.get();
-      long tmpExtOperationCount = extOperationCount.get();
-      long tmpExtOperationTime = extOperationTime.get();
+    List<Attribute> attrs = new ArrayList<>();
 
+    // Take a snapshot of all the statistics in one pass.
+    final long[] values = counters.getAll();
 
     // Construct the list of attributes to return.
     /* TODO : the attribute names should be constant (in ServerConstants.java
      *        and associated with their objectclass
      *        OC_MONITOR_CONNHANDLERSTATS
      */
-    attrs.add(createAttribute("connectionsEstablished", tmpConnectionsEstablished));
-    attrs.add(createAttribute("connectionsClosed", tmpConnectionsClosed));
-    attrs.add(createAttribute("bytesRead", tmpBytesRead));
-    attrs.add(createAttribute("bytesWritten", tmpBytesWritten));
-    attrs.add(createAttribute("ldapMessagesRead", tmpMessagesRead));
-    attrs.add(createAttribute("ldapMessagesWritten", tmpMessagesWritten));
-    attrs.add(createAttribute("operationsAbandoned", tmpOperationsAbandoned));
-    attrs.add(createAttribute("operationsInitiated", tmpOperationsInitiated));
-    attrs.add(createAttribute("operationsCompleted", tmpOperationsCompleted));
-    attrs.add(createAttribute("abandonRequests", tmpAbandonRequests));
-    attrs.add(createAttribute("addRequests", tmpAddRequests));
-    attrs.add(createAttribute("addResponses", tmpAddResponses));
-    attrs.add(createAttribute("bindRequests", tmpBindRequests));
-    attrs.add(createAttribute("bindResponses", tmpBindResponses));
-    attrs.add(createAttribute("compareRequests", tmpCompareRequests));
-    attrs.add(createAttribute("compareResponses", tmpCompareResponses));
-    attrs.add(createAttribute("deleteRequests", tmpDeleteRequests));
-    attrs.add(createAttribute("deleteResponses", tmpDeleteResponses));
-    attrs.add(createAttribute("extendedRequests", tmpExtendedRequests));
-    attrs.add(createAttribute("extendedResponses", tmpExtendedResponses));
-    attrs.add(createAttribute("modifyRequests", tmpModifyRequests));
-    attrs.add(createAttribute("modifyResponses", tmpModifyResponses));
-    attrs.add(createAttribute("modifyDNRequests", tmpModifyDNRequests));
-    attrs.add(createAttribute("modifyDNResponses", tmpModifyDNResponses));
-    attrs.add(createAttribute("searchRequests", tmpSearchRequests));
-    attrs.add(createAttribute("searchOneRequests", tmpSearchOneRequests));
-    attrs.add(createAttribute("searchSubRequests", tmpSearchSubRequests));
-    attrs.add(createAttribute("searchResultEntries", tmpSearchEntries));
-    attrs.add(createAttribute("searchResultReferences", tmpSearchReferences));
-    attrs.add(createAttribute("searchResultsDone", tmpSearchResultsDone));
-    attrs.add(createAttribute("unbindRequests", tmpUnbindRequests));
-
-    // adds
-    attrs.add(createAttribute("ds-mon-add-operations-total-count", tmpAddOperationCount));
-    attrs.add(createAttribute("ds-mon-resident-time-add-operations-total-time", tmpAddOperationTime));
-
-    // search
-    attrs.add(createAttribute("ds-mon-search-operations-total-count", tmpSearchOperationCount));
-    attrs.add(createAttribute("ds-mon-resident-time-search-operations-total-time", tmpSearchOperationTime));
-
-    // bind
-    attrs.add(createAttribute("ds-mon-bind-operations-total-count", tmpBindOperationCount));
-    attrs.add(createAttribute("ds-mon-resident-time-bind-operations-total-time", tmpBindOperationTime));
-
-    // unbind
-    attrs.add(createAttribute("ds-mon-unbind-operations-total-count", tmpUnbindOperationCount));
-    attrs.add(createAttribute("ds-mon-resident-time-unbind-operations-total-time", tmpUnbindOperationTime));
-
-    // compare
-    attrs.add(createAttribute("ds-mon-compare-operations-total-count", tmpCompOperationCount));
-    attrs.add(createAttribute("ds-mon-resident-time-compare-operations-total-time", tmpCompOperationTime));
-
-    // del
-    attrs.add(createAttribute("ds-mon-delete-operations-total-count", tmpDelOperationCount));
-    attrs.add(createAttribute("ds-mon-resident-time-delete-operations-total-time", tmpDelOperationTime));
-
-    // mod
-    attrs.add(createAttribute("ds-mon-mod-operations-total-count", tmpModOperationCount));
-    attrs.add(createAttribute("ds-mon-resident-time-mod-operations-total-time", tmpModOperationTime));
-
-    // moddn
-    attrs.add(createAttribute("ds-mon-moddn-operations-total-count", tmpModdnOperationCount));
-    attrs.add(createAttribute("ds-mon-resident-time-moddn-operations-total-time", tmpModdnOperationTime));
-
-    // abandon
-    attrs.add(createAttribute("ds-mon-abandon-operations-total-count", tmpAbandonOperationCount));
-    attrs.add(createAttribute("ds-mon-resident-time-abandon-operations-total-time", tmpAbandonOperationTime));
-
-    // extended
-    attrs.add(createAttribute("ds-mon-extended-operations-total-count", tmpExtOperationCount));
-    attrs.add(createAttribute("ds-mon-resident-time-extended-operations-total-time", tmpExtOperationTime));
+    attrs.add(createAttribute("connectionsEstablished", values[CONNECTIONS_ESTABLISHED]));
+    attrs.add(createAttribute("connectionsClosed", values[CONNECTIONS_CLOSED]));
+    attrs.add(createAttribute("bytesRead", values[BYTES_READ]));
+    attrs.add(createAttribute("bytesWritten", values[BYTES_WRITTEN]));
+    attrs.add(createAttribute("ldapMessagesRead", values[MESSAGES_READ]));
+    attrs.add(createAttribute("ldapMessagesWritten", values[MESSAGES_WRITTEN]));
+    attrs.add(createAttribute("operationsAbandoned", values[OPERATIONS_ABANDONED]));
+    attrs.add(createAttribute("operationsInitiated", values[OPERATIONS_INITIATED]));
+    attrs.add(createAttribute("operationsCompleted", values[OPERATIONS_COMPLETED]));
+    attrs.add(createAttribute("abandonRequests", values[ABANDON_REQUESTS]));
+    attrs.add(createAttribute("addRequests", values[ADD_REQUESTS]));
+    attrs.add(createAttribute("addResponses", values[ADD_RESPONSES]));
+    attrs.add(createAttribute("bindRequests", values[BIND_REQUESTS]));
+    attrs.add(createAttribute("bindResponses", values[BIND_RESPONSES]));
+    attrs.add(createAttribute("compareRequests", values[COMPARE_REQUESTS]));
+    attrs.add(createAttribute("compareResponses", values[COMPARE_RESPONSES]));
+    attrs.add(createAttribute("deleteRequests", values[DELETE_REQUESTS]));
+    attrs.add(createAttribute("deleteResponses", values[DELETE_RESPONSES]));
+    attrs.add(createAttribute("extendedRequests", values[EXTENDED_REQUESTS]));
+    attrs.add(createAttribute("extendedResponses", values[EXTENDED_RESPONSES]));
+    attrs.add(createAttribute("modifyRequests", values[MODIFY_REQUESTS]));
+    attrs.add(createAttribute("modifyResponses", values[MODIFY_RESPONSES]));
+    attrs.add(createAttribute("modifyDNRequests", values[MODIFY_DN_REQUESTS]));
+    attrs.add(createAttribute("modifyDNResponses", values[MODIFY_DN_RESPONSES]));
+    attrs.add(createAttribute("searchRequests", values[SEARCH_REQUESTS]));
+    attrs.add(createAttribute("searchOneRequests", values[SEARCH_ONE_REQUESTS]));
+    attrs.add(createAttribute("searchSubRequests", values[SEARCH_SUB_REQUESTS]));
+    attrs.add(createAttribute("searchResultEntries", values[SEARCH_RESULT_ENTRIES]));
+    attrs.add(createAttribute("searchResultReferences", values[SEARCH_RESULT_REFERENCES]));
+    attrs.add(createAttribute("searchResultsDone", values[SEARCH_RESULTS_DONE]));
+    attrs.add(createAttribute("unbindRequests", values[UNBIND_REQUESTS]));
+
+    // operation counts, times and time histograms
+    for (int i = 0; i < MONITORED_OPERATIONS.length; i++)
+    {
+      final String name = MONITORED_OPERATION_NAMES[i];
+      final int offset = OPERATION_OFFSETS[MONITORED_OPERATIONS[i].ordinal()];
+      attrs.add(createAttribute("ds-mon-" + name + "-operations-total-count", values[offset + OPERATION_COUNT]));
+      attrs.add(createAttribute("ds-mon-resident-time-" + name + "-operations-total-time",
+          values[offset + OPERATION_TIME]));
+
+      final AttributeBuilder histogram =
+          new AttributeBuilder("ds-mon-resident-time-" + name + "-operations-histogram");
+      addHistogramValues(histogram, values, offset + OPERATION_HISTOGRAM);
+      if (!histogram.isEmpty())
+      {
+        attrs.add(histogram.toAttribute());
+      }
+    }
 
     return attrs;
   }
 
+  /**
+   * Adds one value per non empty histogram bucket, of the form
+   * {@code "<min>-<max>: <count>"}, where the bounds are inclusive and
+   * {@code <max>} is omitted for the last bucket.
+   */
+  private void addHistogramValues(AttributeBuilder builder, long[] values, int firstBucket)
+  {
+    for (int bucket = 0; bucket < NB_HISTOGRAM_BUCKETS; bucket++)
+    {
+      final long count = values[firstBucket + bucket];
+      if (count != 0)
+      {
+        final long min = bucket == 0 ? 0 : 1L << (bucket - 1);
+        final String max = bucket == 0 ? "0"
+            : bucket == NB_HISTOGRAM_BUCKETS - 1 ? "" : String.valueOf((1L << bucket) - 1);
+        builder.add(min + "-" + max + ": " + count);
+      }
+    }
+  }
+
 
   /**
    * Clears any statistical information collected to this point.
    */
   public void clearStatistics()
   {
-      abandonRequests.set(0);
-      addRequests.set(0);
-      addResponses.set(0);
-      bindRequests.set(0);
-      bindResponses.set(0);
-      bytesRead.set(0);
-      bytesWritten.set(0);
-      compareRequests.set(0);
-      compareResponses.set(0);
-      connectionsClosed.set(0);
-      connectionsEstablished.set(0);
-      deleteRequests.set(0);
-      deleteResponses.set(0);
-      extendedRequests.set(0);
-      extendedResponses.set(0);
-      messagesRead.set(0);
-      messagesWritten.set(0);
-      modifyRequests.set(0);
-      modifyResponses.set(0);
-      modifyDNRequests.set(0);
-      modifyDNResponses.set(0);
-      operationsAbandoned.set(0);
-      operationsCompleted.set(0);
-      operationsInitiated.set(0);
-      searchRequests.set(0);
-      searchOneRequests.set(0);
-      searchSubRequests.set(0);
-      searchResultEntries.set(0);
-      searchResultReferences.set(0);
-      searchResultsDone.set(0);
-      unbindRequests.set(0);
-
-      addOperationCount.set(0);
-      addOperationTime.set(0);
-      searchOperationCount.set(0);
-      searchOperationTime.set(0);
-      delOperationCount.set(0);
-      delOperationTime.set(0);
-      bindOperationCount.set(0);
-      bindOperationTime.set(0);
-      unbindOperationCount.set(0);
-      unbindOperationTime.set(0);
-      compOperationCount.set(0);
-      compOperationTime.set(0);
-      modOperationCount.set(0);
-      modOperationTime.set(0);
-      moddnOperationCount.set(0);
-      moddnOperationTime.set(0);
-      abandonOperationCount.set(0);
-      abandonOperationTime.set(0);
-      extOperationCount.set(0);
-      extOperationTime.set(0);
+    counters.reset();
   }
 
 
@@ -399,7 +321,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public void updateConnect()
   {
-    connectionsEstablished.getAndIncrement();
+    counters.increment(CONNECTIONS_ESTABLISHED);
   }
 
 
@@ -410,7 +332,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public void updateDisconnect()
   {
-      connectionsClosed.getAndIncrement();
+      counters.increment(CONNECTIONS_CLOSED);
   }
 
 
@@ -424,7 +346,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public void updateBytesRead(int bytesRead)
   {
-     this.bytesRead.getAndAdd(bytesRead);
+     counters.add(BYTES_READ, bytesRead);
   }
 
 
@@ -438,7 +360,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public void updateBytesWritten(int bytesWritten)
   {
-     this.bytesWritten.getAndAdd(bytesWritten);
+     counters.add(BYTES_WRITTEN, bytesWritten);
   }
 
 
@@ -452,37 +374,37 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public void updateMessageRead(LDAPMessage message)
   {
-      messagesRead.getAndIncrement();
-      operationsInitiated.getAndIncrement();
+      counters.increment(MESSAGES_READ);
+      counters.increment(OPERATIONS_INITIATED);
 
       switch (message.getProtocolOp().getType())
       {
       case OP_TYPE_ABANDON_REQUEST:
-        abandonRequests.getAndIncrement();
+        counters.increment(ABANDON_REQUESTS);
         break;
       case OP_TYPE_ADD_REQUEST:
-        addRequests.getAndIncrement();
+        counters.increment(ADD_REQUESTS);
         break;
       case OP_TYPE_BIND_REQUEST:
-        bindRequests.getAndIncrement();
+        counters.increment(BIND_REQUESTS);
         break;
       case OP_TYPE_COMPARE_REQUEST:
-        compareRequests.getAndIncrement();
+        counters.increment(COMPARE_REQUESTS);
         break;
       case OP_TYPE_DELETE_REQUEST:
-        deleteRequests.getAndIncrement();
+        counters.increment(DELETE_REQUESTS);
         break;
       case OP_TYPE_EXTENDED_REQUEST:
-        extendedRequests.getAndIncrement();
+        counters.increment(EXTENDED_REQUESTS);
         break;
       case OP_TYPE_MODIFY_REQUEST:
-        modifyRequests.getAndIncrement();
+        counters.increment(MODIFY_REQUESTS);
         break;
       case OP_TYPE_MODIFY_DN_REQUEST:
-        modifyDNRequests.getAndIncrement();
+        counters.increment(MODIFY_DN_REQUESTS);
         break;
       case OP_TYPE_SEARCH_REQUEST:
-        searchRequests.getAndIncrement();
+        counters.increment(SEARCH_REQUESTS);
         SearchRequestProtocolOp s = (SearchRequestProtocolOp)message
             .getProtocolOp();
         switch (s.getScope().asEnum())
@@ -492,17 +414,17 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
             // this value can be derived from the others
             break;
         case SINGLE_LEVEL:
-            searchOneRequests.getAndIncrement();
+            counters.increment(SEARCH_ONE_REQUESTS);
             break;
         case WHOLE_SUBTREE:
-            searchSubRequests.getAndIncrement();
+            counters.increment(SEARCH_SUB_REQUESTS);
             break;
         default:
             break;
         }
         break;
       case OP_TYPE_UNBIND_REQUEST:
-        unbindRequests.getAndIncrement();
+        counters.increment(UNBIND_REQUESTS);
         break;
       }
   }
@@ -518,53 +440,53 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public void updateMessageWritten(LDAPMessage message)
   {
-      messagesWritten.getAndIncrement();
+      counters.increment(MESSAGES_WRITTEN);
 
       switch (message.getProtocolOp().getType())
       {
       case OP_TYPE_ADD_RESPONSE:
-        addResponses.getAndIncrement();
-        operationsCompleted.getAndIncrement();
+        counters.increment(ADD_RESPONSES);
+        counters.increment(OPERATIONS_COMPLETED);
         break;
       case OP_TYPE_BIND_RESPONSE:
-        bindResponses.getAndIncrement();
-        operationsCompleted.getAndIncrement();
+        counters.increment(BIND_RESPONSES);
+        counters.increment(OPERATIONS_COMPLETED);
         break;
       case OP_TYPE_COMPARE_RESPONSE:
-        compareResponses.getAndIncrement();
-        operationsCompleted.getAndIncrement();
+        counters.increment(COMPARE_RESPONSES);
+        counters.increment(OPERATIONS_COMPLETED);
         break;
       case OP_TYPE_DELETE_RESPONSE:
-        deleteResponses.getAndIncrement();
-        operationsCompleted.getAndIncrement();
+        counters.increment(DELETE_RESPONSES);
+        counters.increment(OPERATIONS_COMPLETED);
         break;
       case OP_TYPE_EXTENDED_RESPONSE:
-        extendedResponses.getAndIncrement();
+        counters.increment(EXTENDED_RESPONSES);
 
         // We don't want to include unsolicited notifications as
         // "completed" operations.
         if (message.getMessageID() > 0)
         {
-          operationsCompleted.getAndIncrement();
+          counters.increment(OPERATIONS_COMPLETED);
         }
         break;
       case OP_TYPE_MODIFY_RESPONSE:
-        modifyResponses.getAndIncrement();
-        operationsCompleted.getAndIncrement();
+        counters.increment(MODIFY_RESPONSES);
+        counters.increment(OPERATIONS_COMPLETED);
         break;
       case OP_TYPE_MODIFY_DN_RESPONSE:
-        modifyDNResponses.getAndIncrement();
-        operationsCompleted.getAndIncrement();
+        counters.increment(MODIFY_DN_RESPONSES);
+        counters.increment(OPERATIONS_COMPLETED);
         break;
       case OP_TYPE_SEARCH_RESULT_ENTRY:
-        searchResultEntries.getAndIncrement();
+        counters.increment(SEARCH_RESULT_ENTRIES);
         break;
       case OP_TYPE_SEARCH_RESULT_REFERENCE:
-        searchResultReferences.getAndIncrement();
+        counters.increment(SEARCH_RESULT_REFERENCES);
         break;
       case OP_TYPE_SEARCH_RESULT_DONE:
-        searchResultsDone.getAndIncrement();
-        operationsCompleted.getAndIncrement();
+        counters.increment(SEARCH_RESULTS_DONE);
+        counters.increment(OPERATIONS_COMPLETED);
         break;
       }
   }
@@ -577,7 +499,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public void updateAbandonedOperation()
   {
-      operationsAbandoned.getAndIncrement();
+      counters.increment(OPERATIONS_ABANDONED);
   }
 
 
@@ -609,7 +531,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getConnectionsEstablished()
   {
-    return connectionsEstablished.get();
+    return counters.get(CONNECTIONS_ESTABLISHED);
   }
 
 
@@ -621,7 +543,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getConnectionsClosed()
   {
-    return connectionsClosed.get();
+    return counters.get(CONNECTIONS_CLOSED);
   }
 
 
@@ -633,7 +555,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getBytesRead()
   {
-      return bytesRead.get();
+      return counters.get(BYTES_READ);
   }
 
 
@@ -645,7 +567,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getBytesWritten()
   {
-      return bytesWritten.get();
+      return counters.get(BYTES_WRITTEN);
   }
 
 
@@ -659,7 +581,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getMessagesRead()
   {
-    return messagesRead.get();
+    return counters.get(MESSAGES_READ);
   }
 
 
@@ -673,7 +595,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getMessagesWritten()
   {
-   return messagesWritten.get();
+   return counters.get(MESSAGES_WRITTEN);
   }
 
 
@@ -687,7 +609,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getOperationsInitiated()
   {
-    return operationsInitiated.get();
+    return counters.get(OPERATIONS_INITIATED);
   }
 
 
@@ -701,7 +623,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getOperationsCompleted()
   {
-      return operationsCompleted.get();
+      return counters.get(OPERATIONS_COMPLETED);
   }
 
 
@@ -715,7 +637,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getOperationsAbandoned()
   {
-      return operationsAbandoned.get();
+      return counters.get(OPERATIONS_ABANDONED);
   }
 
 
@@ -727,7 +649,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getAbandonRequests()
   {
-      return abandonRequests.get();
+      return counters.get(ABANDON_REQUESTS);
   }
 
 
@@ -739,7 +661,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getAddRequests()
   {
-      return addRequests.get();
+      return counters.get(ADD_REQUESTS);
   }
 
 
@@ -751,7 +673,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getAddResponses()
   {
-      return addResponses.get();
+      return counters.get(ADD_RESPONSES);
   }
 
 
@@ -763,7 +685,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getBindRequests()
   {
-      return bindRequests.get();
+      return counters.get(BIND_REQUESTS);
   }
 
 
@@ -775,7 +697,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getBindResponses()
   {
-      return bindResponses.get();
+      return counters.get(BIND_RESPONSES);
   }
 
 
@@ -787,7 +709,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getCompareRequests()
   {
-      return compareRequests.get();
+      return counters.get(COMPARE_REQUESTS);
   }
 
 
@@ -799,7 +721,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getCompareResponses()
   {
-      return compareResponses.get();
+      return counters.get(COMPARE_RESPONSES);
   }
 
 
@@ -811,7 +733,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getDeleteRequests()
   {
-      return deleteRequests.get();
+      return counters.get(DELETE_REQUESTS);
   }
 
 
@@ -823,7 +745,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getDeleteResponses()
   {
-      return deleteResponses.get();
+      return counters.get(DELETE_RESPONSES);
   }
 
 
@@ -835,7 +757,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getExtendedRequests()
   {
-      return extendedRequests.get();
+      return counters.get(EXTENDED_REQUESTS);
   }
 
 
@@ -847,7 +769,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getExtendedResponses()
   {
-      return extendedResponses.get();
+      return counters.get(EXTENDED_RESPONSES);
   }
 
 
@@ -859,7 +781,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getModifyRequests()
   {
-      return modifyRequests.get();
+      return counters.get(MODIFY_REQUESTS);
   }
 
 
@@ -871,7 +793,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getModifyResponses()
   {
-      return modifyResponses.get();
+      return counters.get(MODIFY_RESPONSES);
   }
 
 
@@ -883,7 +805,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getModifyDNRequests()
   {
-      return modifyDNRequests.get();
+      return counters.get(MODIFY_DN_REQUESTS);
   }
 
 
@@ -895,7 +817,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getModifyDNResponses()
   {
-      return modifyDNResponses.get();
+      return counters.get(MODIFY_DN_RESPONSES);
   }
 
 
@@ -907,7 +829,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getSearchRequests()
   {
-      return searchRequests.get();
+      return counters.get(SEARCH_REQUESTS);
   }
 
 
@@ -919,7 +841,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getSearchOneRequests()
   {
-      return searchOneRequests.get();
+      return counters.get(SEARCH_ONE_REQUESTS);
   }
 
 
@@ -931,7 +853,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getSearchSubRequests()
   {
-      return searchSubRequests.get();
+      return counters.get(SEARCH_SUB_REQUESTS);
   }
 
 
@@ -943,7 +865,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getSearchResultEntries()
   {
-      return searchResultEntries.get();
+      return counters.get(SEARCH_RESULT_ENTRIES);
   }
 
 
@@ -956,7 +878,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getSearchResultReferences()
   {
-      return searchResultReferences.get();
+      return counters.get(SEARCH_RESULT_REFERENCES);
   }
 
 
@@ -970,7 +892,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getSearchResultsDone()
   {
-      return searchResultsDone.get();
+      return counters.get(SEARCH_RESULTS_DONE);
   }
 
 
@@ -982,56 +904,31 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    */
   public long getUnbindRequests()
   {
-      return unbindRequests.get();
+      return counters.get(UNBIND_REQUESTS);
   }
 
   /**
-   * Update the operation counters and times depending on the OperationType.
+   * Update the operation counters, times and time histograms depending on the
+   * OperationType.
+   *
    * @param type of the operation.
    * @param time of the operation execution.
    */
-
-  public void updateOperationMonitoringData(OperationType type, long time) {
-      if (type.equals(OperationType.ADD)) {
-          addOperationCount.getAndIncrement();
-          addOperationTime.getAndAdd(time);
-      }
-      else if (type.equals(OperationType.SEARCH)) {
-          searchOperationCount.getAndIncrement();
-          searchOperationTime.getAndAdd(time);
-      }
-      else if (type.equals(OperationType.ABANDON)) {
-          abandonOperationCount.getAndIncrement();
-          abandonOperationTime.getAndAdd(time);
-      }
-      else if (type.equals(OperationType.BIND)) {
-          bindOperationCount.getAndIncrement();
-          bindOperationTime.getAndAdd(time);
-      }
-      else if (type.equals(OperationType.UNBIND)) {
-          unbindOperationCount.getAndIncrement();
-          unbindOperationTime.getAndAdd(time);
-      }
-      else if (type.equals(OperationType.COMPARE)) {
-          compOperationCount.getAndIncrement();
-          compOperationTime.getAndAdd(time);
-      }
-      else if (type.equals(OperationType.DELETE)) {
-          delOperationCount.getAndIncrement();
-          delOperationTime.getAndAdd(time);
-      }
-      else if (type.equals(OperationType.EXTENDED)) {
-          extOperationCount.getAndIncrement();
-          extOperationTime.getAndAdd(time);
-      }
-      else if (type.equals(OperationType.MODIFY)) {
-          modOperationCount.getAndIncrement();
-          modOperationTime.getAndAdd(time);
-      }
-      else if (type.equals(OperationType.MODIFY_DN)) {
-          moddnOperationCount.getAndIncrement();
-          moddnOperationTime.getAndAdd(time);
-      }
+  public void updateOperationMonitoringData(OperationType type, long time)
+  {
+    final int offset = OPERATION_OFFSETS[type.ordinal()];
+    if (offset < 0)
+    {
+      return;
+    }
+    counters.increment(offset + OPERATION_COUNT);
+    counters.add(offset + OPERATION_TIME, time);
+    counters.increment(offset + OPERATION_HISTOGRAM + getHistogramBucket(time));
   }
 
+  private static int getHistogramBucket(long time)
+  {
+    final int bucket = time > 0 ? 64 - Long.numberOfLeadingZeros(time) : 0;
+    return Math.min(bucket, NB_HISTOGRAM_BUCKETS - 1);
+  }
 }
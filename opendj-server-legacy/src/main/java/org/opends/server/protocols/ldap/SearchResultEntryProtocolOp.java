@@ -559,7 +559,7 @@ public class SearchResultEntryProtocolOp
         {
           String ocName = os.toString();
           ObjectClass oc =
-               DirectoryServer.getObjectClass(toLowerCase(ocName));
+               DirectoryServer.getObjectClass(ocName);
           if (oc == null)
           {
             oc = DirectoryServer.getDefaultObjectClass(ocName);
@@ -29,7 +29,9 @@ package org.opends.server.types;
 import java.util.Collection;
 import java.util.Set;
 
+import org.forgerock.opendj.ldap.Assertion;
 import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ConditionResult;
 import org.forgerock.opendj.ldap.DecodeException;
 import org.forgerock.opendj.ldap.schema.MatchingRule;
 
@@ -102,6 +104,49 @@ public abstract class AbstractAttribute implements Attribute
     return true;
   }
 
+  /**
+   * Indicates whether this attribute has a value matching the provided
+   * assertion, which has already been built using the provided
+   * matching rule. This is used for evaluating compiled search filters
+   * against real attributes: virtual attributes must instead be
+   * evaluated through the assertion value based methods, so that
+   * their providers can process the assertion.
+   * <p>
+   * This implementation normalizes each attribute value using the
+   * provided matching rule.
+   *
+   * @param matchingRule
+   *          The matching rule used for building the assertion.
+   * @param assertion
+   *          The assertion to match against the attribute values.
+   * @return {@link ConditionResult#TRUE} if at least one attribute
+   *         value matches the assertion, {@link ConditionResult#FALSE}
+   *         if none do, or {@link ConditionResult#UNDEFINED} if none
+   *         do but some attribute values could not be normalized.
+   * @see CompiledSearchFilter
+   */
+  ConditionResult matchesAssertion(MatchingRule matchingRule, Assertion assertion)
+  {
+    ConditionResult result = ConditionResult.FALSE;
+    for (ByteString value : this)
+    {
+      try
+      {
+        if (assertion.matches(matchingRule.normalizeAttributeValue(value)).toBoolean())
+        {
+          return ConditionResult.TRUE;
+        }
+      }
+      catch (DecodeException e)
+      {
+        // The value couldn't be normalized. If we can't find a
+        // definite match, then we should return "undefined".
+        result = ConditionResult.UNDEFINED;
+      }
+    }
+    return result;
+  }
+
   /**
    * {@inheritDoc}
    * <p>
@@ -175,7 +175,7 @@ public final class AttributeBuilder implements Iterable<ByteString>
       {
         try
         {
-          result = assertion.matches(matchingRule.normalizeAttributeValue(v.getValue()));
+          result = assertion.matches(normalize(matchingRule, v.getValue()));
         }
         catch (Exception e)
         {
@@ -220,6 +220,41 @@ public final class AttributeBuilder implements Iterable<ByteString>
       }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation reuses the lazily normalized attribute values
+     * when the assertion has been built using the equality matching
+     * rule of the attribute type.
+     */
+    @Override
+    final ConditionResult matchesAssertion(MatchingRule matchingRule, Assertion assertion)
+    {
+      final boolean isEqualityRule = matchingRule == attributeType.getEqualityMatchingRule();
+      ConditionResult result = ConditionResult.FALSE;
+      for (AttributeValue v : values)
+      {
+        try
+        {
+          final ByteString nv = isEqualityRule
+              ? v.getNormalizedValue()
+              : normalize(matchingRule, v.getValue());
+          if (assertion.matches(nv).toBoolean())
+          {
+            return ConditionResult.TRUE;
+          }
+        }
+        catch (Exception e)
+        {
+          logger.traceException(e);
+          // The value couldn't be normalized. If we can't find a
+          // definite match, then we should return "undefined".
+          result = ConditionResult.UNDEFINED;
+        }
+      }
+      return result;
+    }
+
     @Override
     public final AttributeType getAttributeType()
     {
@@ -261,7 +296,7 @@ public final class AttributeBuilder implements Iterable<ByteString>
       {
         try
         {
-          if (assertion.matches(matchingRule.normalizeAttributeValue(v.getValue())).toBoolean())
+          if (assertion.matches(normalize(matchingRule, v.getValue())).toBoolean())
           {
             return ConditionResult.TRUE;
           }
@@ -318,7 +353,7 @@ public final class AttributeBuilder implements Iterable<ByteString>
       {
         try
         {
-          if (assertion.matches(matchingRule.normalizeAttributeValue(v.getValue())).toBoolean())
+          if (assertion.matches(normalize(matchingRule, v.getValue())).toBoolean())
           {
             return ConditionResult.TRUE;
           }
@@ -364,7 +399,7 @@ public final class AttributeBuilder implements Iterable<ByteString>
       {
         try
         {
-          if (assertion.matches(matchingRule.normalizeAttributeValue(value.getValue())).toBoolean())
+          if (assertion.matches(normalize(matchingRule, value.getValue())).toBoolean())
           {
             return ConditionResult.TRUE;
           }
@@ -972,7 +1007,7 @@ public final class AttributeBuilder implements Iterable<ByteString>
 
   private static AttributeType getAttributeTypeOrDefault(String attributeName)
   {
-    return DirectoryServer.getAttributeTypeOrDefault(toLowerCase(attributeName), attributeName);
+    return DirectoryServer.getAttributeTypeOrDefault(attributeName, attributeName);
   }
 
   /** The attribute type for this attribute. */
@@ -1143,6 +1178,12 @@ public final class AttributeBuilder implements Iterable<ByteString>
     return new AttributeValue(attributeType, attributeValue);
   }
 
+  /** Normalizes an attribute value, sharing the normalized value with other entries. */
+  private static ByteString normalize(MatchingRule matchingRule, ByteString attributeValue) throws DecodeException
+  {
+    return NormalizedValueCache.getInstance().normalize(matchingRule, attributeValue);
+  }
+
   private static ByteString normalize(AttributeType attributeType, ByteString attributeValue)
   {
     try
@@ -1150,7 +1191,7 @@ public final class AttributeBuilder implements Iterable<ByteString>
       if (attributeType != null)
       {
         final MatchingRule eqRule = attributeType.getEqualityMatchingRule();
-        return eqRule.normalizeAttributeValue(attributeValue);
+        return normalize(eqRule, attributeValue);
       }
     }
     catch (DecodeException e)
@@ -29,6 +29,7 @@ package org.opends.server.types;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.ldap.schema.AttributeUsage;
@@ -116,6 +117,15 @@ public final class AttributeType
   /** True once this attribute type has been removed from the schema. */
   private volatile boolean isDirty;
 
+  /** The next identifier to assign to an attribute type registered in a schema. */
+  private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+  /**
+   * The dense integer identifier of this attribute type, assigned when it is
+   * first registered in a schema, or -1 if it has never been registered.
+   */
+  private volatile int id = -1;
+
 
 
   /**
@@ -591,6 +601,39 @@ public final class AttributeType
 
 
 
+  /**
+   * Returns the dense integer identifier of this attribute type. Identifiers
+   * are assigned sequentially, starting from zero, to the attribute types
+   * registered in a schema, so they can be used as indexes in arrays or bit
+   * sets of attribute types. The attribute types which have never been
+   * registered, such as the default attribute types generated for unknown
+   * attribute names, have no identifier.
+   *
+   * @return The identifier of this attribute type, or -1 if it has never been
+   *         registered in a schema.
+   */
+  public int getId()
+  {
+    return id;
+  }
+
+
+
+  /**
+   * Assigns an identifier to this attribute type if it does not have one yet.
+   * This is only intended for use by the
+   * {@code org.opends.server.types.Schema} class.
+   */
+  synchronized void assignId()
+  {
+    if (id < 0)
+    {
+      id = NEXT_ID.getAndIncrement();
+    }
+  }
+
+
+
   /**
    * Marks this attribute type as dirty, indicating that it has been removed or
    * replaced in the schema.
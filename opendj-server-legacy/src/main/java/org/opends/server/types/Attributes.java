@@ -35,7 +35,6 @@ import org.forgerock.opendj.ldap.ByteString;
 import org.opends.server.core.DirectoryServer;
 
 import static org.opends.server.util.CollectionUtils.*;
-import static org.opends.server.util.StaticUtils.*;
 
 /**
  * This class contains various methods for manipulating
@@ -410,6 +409,6 @@ public final class Attributes
 
   private static AttributeType getAttributeTypeOrDefault(String attributeName)
   {
-    return DirectoryServer.getAttributeTypeOrDefault(toLowerCase(attributeName), attributeName);
+    return DirectoryServer.getAttributeTypeOrDefault(attributeName, attributeName);
   }
 }
@@ -0,0 +1,296 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.types;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A compact insertion ordered map, meant for the attribute and object class
+ * maps of entries. Keys, values and key hash codes are stored in parallel
+ * arrays, so each mapping costs a few array slots instead of a hash map entry
+ * object, and lookups are a linear scan of the hash codes, which is faster than
+ * hashing for the few tens of attributes of a typical entry. Like
+ * {@link java.util.LinkedHashMap}, this map iterates over its mappings in the
+ * order in which the keys were inserted.
+ * <p>
+ * Null keys are not supported by this map.
+ *
+ * @param <K>
+ *          the type of keys maintained by this map
+ * @param <V>
+ *          the type of mapped values
+ */
+final class CompactMap<K, V> extends AbstractMap<K, V>
+{
+  /**
+   * The maximum number of mappings for which a compact map should be used:
+   * since lookups are linear, bigger maps should rather use a hash map.
+   */
+  static final int MAX_COMPACT_SIZE = 64;
+
+  private static final Object[] EMPTY_ARRAY = new Object[0];
+  private static final int[] EMPTY_HASH_CODES = new int[0];
+
+  private Object[] keys;
+  private Object[] values;
+  private int[] hashCodes;
+  private int size;
+  /** The number of structural modifications, for detecting concurrent modifications while iterating. */
+  private int modCount;
+
+  /** Creates a new compact map which is initially empty. */
+  CompactMap()
+  {
+    this(0);
+  }
+
+  /**
+   * Creates a new compact map which is initially empty.
+   *
+   * @param initialCapacity
+   *          The number of mappings which can be added before the map grows.
+   */
+  CompactMap(int initialCapacity)
+  {
+    if (initialCapacity > 0)
+    {
+      keys = new Object[initialCapacity];
+      values = new Object[initialCapacity];
+      hashCodes = new int[initialCapacity];
+    }
+    else
+    {
+      keys = EMPTY_ARRAY;
+      values = EMPTY_ARRAY;
+      hashCodes = EMPTY_HASH_CODES;
+    }
+  }
+
+  private int indexOf(Object key)
+  {
+    if (key == null)
+    {
+      throw new NullPointerException("null keys are not allowed");
+    }
+    final int hashCode = key.hashCode();
+    for (int i = 0; i < size; i++)
+    {
+      if (hashCodes[i] == hashCode)
+      {
+        final Object k = keys[i];
+        if (k == key || k.equals(key))
+        {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /** {@inheritDoc} */
+  @SuppressWarnings("unchecked")
+  @Override
+  public V get(Object key)
+  {
+    final int index = indexOf(key);
+    return index >= 0 ? (V) values[index] : null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean containsKey(Object key)
+  {
+    return indexOf(key) >= 0;
+  }
+
+  /** {@inheritDoc} */
+  @SuppressWarnings("unchecked")
+  @Override
+  public V put(K key, V value)
+  {
+    final int index = indexOf(key);
+    if (index >= 0)
+    {
+      final V oldValue = (V) values[index];
+      values[index] = value;
+      return oldValue;
+    }
+
+    if (size == keys.length)
+    {
+      final int newCapacity = Math.max(4, size + (size >> 1));
+      keys = Arrays.copyOf(keys, newCapacity);
+      values = Arrays.copyOf(values, newCapacity);
+      hashCodes = Arrays.copyOf(hashCodes, newCapacity);
+    }
+    keys[size] = key;
+    values[size] = value;
+    hashCodes[size] = key.hashCode();
+    size++;
+    modCount++;
+    return null;
+  }
+
+  /** {@inheritDoc} */
+  @SuppressWarnings("unchecked")
+  @Override
+  public V remove(Object key)
+  {
+    final int index = indexOf(key);
+    if (index < 0)
+    {
+      return null;
+    }
+    final V oldValue = (V) values[index];
+    removeAt(index);
+    return oldValue;
+  }
+
+  private void removeAt(int index)
+  {
+    final int nbMoved = size - index - 1;
+    if (nbMoved > 0)
+    {
+      System.arraycopy(keys, index + 1, keys, index, nbMoved);
+      System.arraycopy(values, index + 1, values, index, nbMoved);
+      System.arraycopy(hashCodes, index + 1, hashCodes, index, nbMoved);
+    }
+    size--;
+    keys[size] = null;
+    values[size] = null;
+    modCount++;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void clear()
+  {
+    Arrays.fill(keys, 0, size, null);
+    Arrays.fill(values, 0, size, null);
+    size = 0;
+    modCount++;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Set<Entry<K, V>> entrySet()
+  {
+    return new AbstractSet<Entry<K, V>>()
+    {
+      @Override
+      public Iterator<Entry<K, V>> iterator()
+      {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size()
+      {
+        return size;
+      }
+    };
+  }
+
+  /** A map entry, which reads and writes through the map until the next structural modification. */
+  private final class MapEntry extends SimpleEntry<K, V>
+  {
+    private static final long serialVersionUID = 1L;
+    private final int index;
+
+    @SuppressWarnings("unchecked")
+    private MapEntry(int index)
+    {
+      super((K) keys[index], (V) values[index]);
+      this.index = index;
+    }
+
+    @Override
+    public V setValue(V value)
+    {
+      values[index] = value;
+      return super.setValue(value);
+    }
+  }
+
+  private final class EntryIterator implements Iterator<Entry<K, V>>
+  {
+    private int nextIndex;
+    private int lastIndex = -1;
+    private int expectedModCount = modCount;
+
+    @Override
+    public boolean hasNext()
+    {
+      return nextIndex < size;
+    }
+
+    @Override
+    public Entry<K, V> next()
+    {
+      checkForComodification();
+      if (nextIndex >= size)
+      {
+        throw new NoSuchElementException();
+      }
+      lastIndex = nextIndex++;
+      return new MapEntry(lastIndex);
+    }
+
+    @Override
+    public void remove()
+    {
+      if (lastIndex < 0)
+      {
+        throw new IllegalStateException();
+      }
+      checkForComodification();
+      removeAt(lastIndex);
+      nextIndex = lastIndex;
+      lastIndex = -1;
+      expectedModCount = modCount;
+    }
+
+    private void checkForComodification()
+    {
+      if (modCount != expectedModCount)
+      {
+        throw new ConcurrentModificationException();
+      }
+    }
+  }
+}
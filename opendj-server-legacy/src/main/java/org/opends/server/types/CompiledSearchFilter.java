@@ -0,0 +1,618 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.types;
+
+import static org.opends.server.util.ServerConstants.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.Assertion;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ConditionResult;
+import org.forgerock.opendj.ldap.DecodeException;
+import org.forgerock.opendj.ldap.schema.MatchingRule;
+
+/**
+ * A search filter compiled for being evaluated against many entries, such as
+ * all the candidate entries of a search operation.
+ * <p>
+ * {@link SearchFilter#matchesEntry(Entry)} resolves the matching rules and
+ * builds the assertions of the filter for every evaluated entry. A compiled
+ * filter does this only once, and then evaluates the pre-built assertions
+ * against the normalized values of the attributes. In addition, the components
+ * of AND and OR filters are reordered so that the cheapest ones, such as
+ * presence and equality assertions, are evaluated first and can short-circuit
+ * the evaluation of the more expensive ones.
+ * <p>
+ * Because the components of AND and OR filters may be evaluated in a different
+ * order, they are evaluated using the three-valued logic of RFC 4511: an AND
+ * filter is {@code FALSE} if any of its components is {@code FALSE}, whatever
+ * the order in which they are evaluated.
+ * <p>
+ * Filters which cannot be evaluated without error, e.g. nested too deep, are
+ * evaluated by the original search filter, so that the same errors are
+ * reported.
+ */
+public final class CompiledSearchFilter
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The relative cost of evaluating a presence filter. */
+  private static final int PRESENT_COST = 1;
+  /** The relative cost of evaluating an equality filter. */
+  private static final int EQUALITY_COST = 2;
+  /** The relative cost of evaluating an ordering or approximate filter. */
+  private static final int ORDERING_COST = 4;
+  /** The relative cost of evaluating a substring filter. */
+  private static final int SUBSTRING_COST = 6;
+  /** The relative cost of evaluating an extensible match filter. */
+  private static final int EXTENSIBLE_MATCH_COST = 8;
+
+  /** Orders the filter components by increasing cost. */
+  private static final Comparator<Node> COST_COMPARATOR = new Comparator<Node>()
+  {
+    @Override
+    public int compare(Node n1, Node n2)
+    {
+      return n1.cost < n2.cost ? -1 : (n1.cost == n2.cost ? 0 : 1);
+    }
+  };
+
+  /** A compiled filter component. */
+  private static abstract class Node
+  {
+    /** The relative cost of evaluating this component. */
+    private final int cost;
+
+    Node(int cost)
+    {
+      this.cost = cost;
+    }
+
+    abstract ConditionResult matches(Entry entry) throws DirectoryException;
+  }
+
+  /** An AND filter. */
+  private static final class AndNode extends Node
+  {
+    private final Node[] components;
+
+    AndNode(List<Node> components, int cost)
+    {
+      super(cost);
+      this.components = components.toArray(new Node[components.size()]);
+    }
+
+    @Override
+    ConditionResult matches(Entry entry) throws DirectoryException
+    {
+      ConditionResult result = ConditionResult.TRUE;
+      for (Node component : components)
+      {
+        switch (component.matches(entry))
+        {
+        case FALSE:
+          return ConditionResult.FALSE;
+        case UNDEFINED:
+          result = ConditionResult.UNDEFINED;
+          break;
+        default:
+          break;
+        }
+      }
+      return result;
+    }
+  }
+
+  /** An OR filter. */
+  private static final class OrNode extends Node
+  {
+    private final Node[] components;
+
+    OrNode(List<Node> components, int cost)
+    {
+      super(cost);
+      this.components = components.toArray(new Node[components.size()]);
+    }
+
+    @Override
+    ConditionResult matches(Entry entry) throws DirectoryException
+    {
+      ConditionResult result = ConditionResult.FALSE;
+      for (Node component : components)
+      {
+        switch (component.matches(entry))
+        {
+        case TRUE:
+          return ConditionResult.TRUE;
+        case UNDEFINED:
+          result = ConditionResult.UNDEFINED;
+          break;
+        default:
+          break;
+        }
+      }
+      return result;
+    }
+  }
+
+  /** A NOT filter. */
+  private static final class NotNode extends Node
+  {
+    private final Node component;
+
+    NotNode(Node component)
+    {
+      super(component.cost);
+      this.component = component;
+    }
+
+    @Override
+    ConditionResult matches(Entry entry) throws DirectoryException
+    {
+      switch (component.matches(entry))
+      {
+      case TRUE:
+        return ConditionResult.FALSE;
+      case FALSE:
+        return ConditionResult.TRUE;
+      default:
+        return ConditionResult.UNDEFINED;
+      }
+    }
+  }
+
+  /** A filter whose result does not depend on the entry. */
+  private static final class ConstantNode extends Node
+  {
+    private final ConditionResult result;
+
+    ConstantNode(ConditionResult result)
+    {
+      super(0);
+      this.result = result;
+    }
+
+    @Override
+    ConditionResult matches(Entry entry)
+    {
+      return result;
+    }
+  }
+
+  /** A presence filter. */
+  private static final class PresentNode extends Node
+  {
+    private final AttributeType attributeType;
+    private final Set<String> options;
+
+    PresentNode(SearchFilter filter)
+    {
+      super(PRESENT_COST);
+      this.attributeType = filter.getAttributeType();
+      this.options = filter.getAttributeOptions();
+    }
+
+    @Override
+    ConditionResult matches(Entry entry)
+    {
+      return ConditionResult.valueOf(entry.hasAttribute(attributeType, options));
+    }
+  }
+
+  /**
+   * An equality, substring, ordering or approximate filter, with its
+   * pre-built assertion.
+   */
+  private static final class AssertionNode extends Node
+  {
+    private final SearchFilter filter;
+    private final AttributeType attributeType;
+    private final Set<String> options;
+    /** The matching rule, or {@code null} if the attribute type has none. */
+    private final MatchingRule matchingRule;
+    /** The assertion, or {@code null} if it could not be built. */
+    private final Assertion assertion;
+
+    AssertionNode(SearchFilter filter, int cost, MatchingRule matchingRule, Assertion assertion)
+    {
+      super(cost);
+      this.filter = filter;
+      this.attributeType = filter.getAttributeType();
+      this.options = filter.getAttributeOptions();
+      this.matchingRule = matchingRule;
+      this.assertion = assertion;
+    }
+
+    @Override
+    ConditionResult matches(Entry entry)
+    {
+      final List<Attribute> attrs = entry.getAttribute(attributeType, options);
+      if (attrs == null || attrs.isEmpty())
+      {
+        return ConditionResult.FALSE;
+      }
+
+      ConditionResult result = ConditionResult.FALSE;
+      for (Attribute a : attrs)
+      {
+        final ConditionResult r;
+        if (a.isVirtual() || !(a instanceof AbstractAttribute))
+        {
+          r = matchesAssertionValue(a);
+        }
+        else if (assertion == null)
+        {
+          r = ConditionResult.UNDEFINED;
+        }
+        else
+        {
+          r = ((AbstractAttribute) a).matchesAssertion(matchingRule, assertion);
+        }
+
+        if (r == ConditionResult.TRUE)
+        {
+          return r;
+        }
+        else if (r == ConditionResult.UNDEFINED)
+        {
+          result = r;
+        }
+      }
+      return result;
+    }
+
+    /** Evaluates the assertion value, letting the attribute process it. */
+    private ConditionResult matchesAssertionValue(Attribute a)
+    {
+      switch (filter.getFilterType())
+      {
+      case EQUALITY:
+        return a.matchesEqualityAssertion(filter.getAssertionValue());
+      case SUBSTRING:
+        return a.matchesSubstring(
+            filter.getSubInitialElement(), filter.getSubAnyElements(), filter.getSubFinalElement());
+      case GREATER_OR_EQUAL:
+        return a.greaterThanOrEqualTo(filter.getAssertionValue());
+      case LESS_OR_EQUAL:
+        return a.lessThanOrEqualTo(filter.getAssertionValue());
+      case APPROXIMATE_MATCH:
+        return a.approximatelyEqualTo(filter.getAssertionValue());
+      default:
+        return ConditionResult.UNDEFINED;
+      }
+    }
+  }
+
+  /** An equality filter on an attribute type without equality matching rule. */
+  private static final class UndefinedEqualityNode extends Node
+  {
+    private final AttributeType attributeType;
+    private final Set<String> options;
+
+    UndefinedEqualityNode(SearchFilter filter)
+    {
+      super(PRESENT_COST);
+      this.attributeType = filter.getAttributeType();
+      this.options = filter.getAttributeOptions();
+    }
+
+    @Override
+    ConditionResult matches(Entry entry)
+    {
+      return entry.hasAttribute(attributeType, options) ? ConditionResult.UNDEFINED : ConditionResult.FALSE;
+    }
+  }
+
+  /** An extensible match filter, with its resolved matching rule and assertion. */
+  private static final class ExtensibleMatchNode extends Node
+  {
+    private final SearchFilter completeFilter;
+    private final SearchFilter filter;
+    private final MatchingRule matchingRule;
+    private final Assertion assertion;
+
+    ExtensibleMatchNode(SearchFilter completeFilter, SearchFilter filter, MatchingRule matchingRule,
+        Assertion assertion)
+    {
+      super(EXTENSIBLE_MATCH_COST);
+      this.completeFilter = completeFilter;
+      this.filter = filter;
+      this.matchingRule = matchingRule;
+      this.assertion = assertion;
+    }
+
+    @Override
+    ConditionResult matches(Entry entry) throws DirectoryException
+    {
+      return filter.processExtensibleMatch(completeFilter, entry, matchingRule, assertion);
+    }
+  }
+
+  /** The search filter which has been compiled. */
+  private final SearchFilter filter;
+  /**
+   * The compiled filter, or {@code null} if the filter must be evaluated by
+   * {@link SearchFilter#matchesEntry(Entry)}.
+   */
+  private final Node root;
+
+  /**
+   * Compiles the provided search filter.
+   *
+   * @param filter
+   *          The search filter to compile.
+   */
+  CompiledSearchFilter(SearchFilter filter)
+  {
+    this.filter = filter;
+    this.root = compile(filter, filter, 0);
+  }
+
+  /**
+   * Returns the search filter which has been compiled.
+   *
+   * @return The search filter which has been compiled.
+   */
+  public SearchFilter getFilter()
+  {
+    return filter;
+  }
+
+  /**
+   * Indicates whether the compiled search filter matches the provided entry.
+   *
+   * @param entry
+   *          The entry for which to make the determination.
+   * @return {@code true} if the compiled search filter matches the provided
+   *         entry, or {@code false} if it does not.
+   * @throws DirectoryException
+   *           If a problem is encountered during processing.
+   * @see SearchFilter#matchesEntry(Entry)
+   */
+  public boolean matchesEntry(Entry entry) throws DirectoryException
+  {
+    if (root == null)
+    {
+      return filter.matchesEntry(entry);
+    }
+    return root.matches(entry) == ConditionResult.TRUE;
+  }
+
+  /**
+   * Compiles the provided filter component.
+   *
+   * @return The compiled filter component, or {@code null} if the filter
+   *         cannot be evaluated without error.
+   */
+  private static Node compile(SearchFilter completeFilter, SearchFilter f, int depth)
+  {
+    switch (f.getFilterType())
+    {
+    case AND:
+    case OR:
+      return compileComposite(completeFilter, f, depth);
+
+    case NOT:
+      if (f.getNotComponent() == null || depth >= MAX_NESTED_FILTER_DEPTH)
+      {
+        return null;
+      }
+      final Node component = compile(completeFilter, f.getNotComponent(), depth + 1);
+      return component != null ? new NotNode(component) : null;
+
+    case PRESENT:
+      return f.getAttributeType() != null ? new PresentNode(f) : null;
+
+    case EQUALITY:
+      return compileEquality(f);
+
+    case SUBSTRING:
+      return compileSubstring(f);
+
+    case GREATER_OR_EQUAL:
+    case LESS_OR_EQUAL:
+      return compileOrdering(f);
+
+    case APPROXIMATE_MATCH:
+      return compileApproximate(f);
+
+    case EXTENSIBLE_MATCH:
+      return compileExtensibleMatch(completeFilter, f);
+
+    default:
+      return null;
+    }
+  }
+
+  private static Node compileComposite(SearchFilter completeFilter, SearchFilter f, int depth)
+  {
+    final boolean isAnd = f.getFilterType() == FilterType.AND;
+    final Set<SearchFilter> filterComponents = f.getFilterComponents();
+    if (filterComponents == null)
+    {
+      return null;
+    }
+    else if (filterComponents.isEmpty())
+    {
+      // The absolute true and false filters of RFC 4526.
+      return new ConstantNode(isAnd ? ConditionResult.TRUE : ConditionResult.FALSE);
+    }
+    else if (depth >= MAX_NESTED_FILTER_DEPTH)
+    {
+      return null;
+    }
+
+    final List<Node> components = new ArrayList<>(filterComponents.size());
+    int cost = 0;
+    for (SearchFilter filterComponent : filterComponents)
+    {
+      final Node component = compile(completeFilter, filterComponent, depth + 1);
+      if (component == null)
+      {
+        return null;
+      }
+      components.add(component);
+      cost += component.cost;
+    }
+    // The sort is stable: components of the same cost keep the order of the filter.
+    Collections.sort(components, COST_COMPARATOR);
+    return isAnd ? new AndNode(components, cost) : new OrNode(components, cost);
+  }
+
+  private static Node compileEquality(SearchFilter f)
+  {
+    final AttributeType attributeType = f.getAttributeType();
+    if (attributeType == null || f.getAssertionValue() == null)
+    {
+      return null;
+    }
+
+    final MatchingRule matchingRule = attributeType.getEqualityMatchingRule();
+    if (matchingRule == null)
+    {
+      return new UndefinedEqualityNode(f);
+    }
+
+    Assertion assertion = null;
+    try
+    {
+      assertion = matchingRule.getAssertion(f.getAssertionValue());
+    }
+    catch (DecodeException e)
+    {
+      logger.traceException(e);
+    }
+    return new AssertionNode(f, EQUALITY_COST, matchingRule, assertion);
+  }
+
+  private static Node compileSubstring(SearchFilter f)
+  {
+    final AttributeType attributeType = f.getAttributeType();
+    final List<ByteString> subAny = f.getSubAnyElements();
+    if (attributeType == null
+        || (f.getSubInitialElement() == null && f.getSubFinalElement() == null
+            && (subAny == null || subAny.isEmpty())))
+    {
+      return null;
+    }
+
+    final MatchingRule matchingRule = attributeType.getSubstringMatchingRule();
+    Assertion assertion = null;
+    if (matchingRule != null)
+    {
+      try
+      {
+        assertion = matchingRule.getSubstringAssertion(f.getSubInitialElement(), subAny, f.getSubFinalElement());
+      }
+      catch (DecodeException e)
+      {
+        logger.traceException(e);
+      }
+    }
+    return new AssertionNode(f, SUBSTRING_COST, matchingRule, assertion);
+  }
+
+  private static Node compileOrdering(SearchFilter f)
+  {
+    final AttributeType attributeType = f.getAttributeType();
+    if (attributeType == null || f.getAssertionValue() == null)
+    {
+      return null;
+    }
+
+    final MatchingRule matchingRule = attributeType.getOrderingMatchingRule();
+    Assertion assertion = null;
+    if (matchingRule != null)
+    {
+      try
+      {
+        assertion = f.getFilterType() == FilterType.GREATER_OR_EQUAL
+            ? matchingRule.getGreaterOrEqualAssertion(f.getAssertionValue())
+            : matchingRule.getLessOrEqualAssertion(f.getAssertionValue());
+      }
+      catch (DecodeException e)
+      {
+        logger.traceException(e);
+      }
+    }
+    return new AssertionNode(f, ORDERING_COST, matchingRule, assertion);
+  }
+
+  private static Node compileApproximate(SearchFilter f)
+  {
+    final AttributeType attributeType = f.getAttributeType();
+    if (attributeType == null || f.getAssertionValue() == null)
+    {
+      return null;
+    }
+
+    final MatchingRule matchingRule = attributeType.getApproximateMatchingRule();
+    Assertion assertion = null;
+    if (matchingRule != null)
+    {
+      try
+      {
+        assertion = matchingRule.getAssertion(f.getAssertionValue());
+      }
+      catch (DecodeException e)
+      {
+        logger.traceException(e);
+      }
+    }
+    return new AssertionNode(f, ORDERING_COST, matchingRule, assertion);
+  }
+
+  private static Node compileExtensibleMatch(SearchFilter completeFilter, SearchFilter f)
+  {
+    if (f.getAssertionValue() == null
+        || (f.getMatchingRuleID() == null && f.getAttributeType() == null))
+    {
+      return null;
+    }
+
+    final MatchingRule matchingRule = f.getExtensibleMatchingRule();
+    if (matchingRule == null)
+    {
+      return new ConstantNode(ConditionResult.UNDEFINED);
+    }
+
+    try
+    {
+      final Assertion assertion = matchingRule.getAssertion(f.getAssertionValue());
+      return new ExtensibleMatchNode(completeFilter, f, matchingRule, assertion);
+    }
+    catch (DecodeException e)
+    {
+      logger.traceException(e);
+      return new ConstantNode(ConditionResult.UNDEFINED);
+    }
+  }
+}
@@ -543,6 +543,28 @@ public final class DN implements Comparable<DN>, Serializable
    */
   public static DN decode(ByteSequence dnString)
          throws DirectoryException
+  {
+    if (dnString == null || dnString.length() == 0)
+    {
+      return NULL_DN;
+    }
+
+    final DNCache cache = DNCache.getInstance();
+    if (!cache.isEnabled())
+    {
+      return decode0(dnString);
+    }
+
+    final String s = dnString.toString();
+    final DN dn = cache.get(s);
+    return dn != null ? dn : cache.intern(s, decode0(dnString));
+  }
+
+
+
+  /** Decodes the provided ASN.1 octet string as a DN, bypassing the DN cache. */
+  private static DN decode0(ByteSequence dnString)
+         throws DirectoryException
   {
     // A null or empty DN is acceptable.
     if (dnString == null)
@@ -567,7 +589,7 @@ public final class DN implements Comparable<DN>, Serializable
       b = dnString.byteAt(i);
       if ((b & 0x7F) != b || b == '\\')
       {
-        return valueOf(dnString.toString());
+        return valueOf0(dnString.toString());
       }
     }
 
@@ -838,6 +860,10 @@ public final class DN implements Comparable<DN>, Serializable
 
   /**
    * Decodes the provided string as a DN.
+   * <p>
+   * Frequently decoded DNs are kept in a cache, so the returned DN may
+   * be shared with other callers: since DNs are immutable, this is
+   * transparent to callers.
    *
    * @param  dnString  The string to decode as a DN.
    *
@@ -848,6 +874,39 @@ public final class DN implements Comparable<DN>, Serializable
    */
   public static DN valueOf(String dnString)
          throws DirectoryException
+  {
+    if (dnString == null || dnString.length() == 0)
+    {
+      return NULL_DN;
+    }
+
+    final DNCache cache = DNCache.getInstance();
+    if (!cache.isEnabled())
+    {
+      return valueOf0(dnString);
+    }
+
+    final DN dn = cache.get(dnString);
+    return dn != null ? dn : cache.intern(dnString, valueOf0(dnString));
+  }
+
+
+
+  /**
+   * Removes all the DNs from the cache of decoded DNs. This must be
+   * called whenever the schema changes, because decoded DNs reference
+   * the attribute types of their RDNs.
+   */
+  public static void clearCache()
+  {
+    DNCache.getInstance().clear();
+  }
+
+
+
+  /** Decodes the provided string as a DN, bypassing the DN cache. */
+  private static DN valueOf0(String dnString)
+         throws DirectoryException
   {
     // A null or empty DN is acceptable.
     if (dnString == null)
@@ -0,0 +1,267 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.types;
+
+import static org.opends.server.util.ServerConstants.*;
+
+/**
+ * A bounded cache of decoded DNs, keyed by their string representation.
+ * <p>
+ * The same DNs, such as bind DNs, search bases, group or ACI target DNs, are
+ * decoded over and over from the requests and the configuration. Since DNs are
+ * immutable, decoding them once and sharing the decoded DN saves both the
+ * decoding and the normalization, which is lazily computed and then kept by
+ * the DN and its RDNs.
+ * <p>
+ * In addition, when a DN is added to the cache, its parent DN is interned: the
+ * new DN shares the RDNs of the cached parent DN, whose normalized form has
+ * usually already been computed. Entries below the same parent thus share the
+ * RDNs, and normalization, of this parent.
+ * <p>
+ * Like the {@link NormalizedValueCache}, the cache is a direct mapped table,
+ * which never locks. Its size can be specified using the
+ * {@value org.opends.server.util.ServerConstants#PROPERTY_DN_CACHE_SIZE}
+ * system property.
+ */
+final class DNCache
+{
+  /** The default number of DNs kept by the server wide cache. */
+  private static final int DEFAULT_SIZE = 4096;
+
+  /** The maximum length of the DN strings which are cached. */
+  static final int MAX_DN_LENGTH = 1024;
+
+  /** The server wide DN cache. */
+  private static final DNCache INSTANCE = new DNCache(Integer.getInteger(PROPERTY_DN_CACHE_SIZE, DEFAULT_SIZE));
+
+  /** A cached DN. Instances are immutable, so they can be safely shared without locking. */
+  private static final class CachedDN
+  {
+    private final String dnString;
+    private final DN dn;
+    private final int generation;
+
+    private CachedDN(String dnString, DN dn, int generation)
+    {
+      this.dnString = dnString;
+      this.dn = dn;
+      this.generation = generation;
+    }
+  }
+
+  /** The cache slots, or {@code null} if the cache is disabled. */
+  private final CachedDN[] slots;
+  private final int mask;
+  /**
+   * The current generation of the cache, incremented for clearing the cache in
+   * constant time, since it is cleared for each schema element registered at
+   * startup.
+   */
+  private volatile int generation;
+
+  /**
+   * Creates a new DN cache.
+   *
+   * @param size
+   *          The number of DNs kept by the cache, which is rounded up to the
+   *          next power of two. A value of zero or less disables the cache.
+   */
+  DNCache(int size)
+  {
+    if (size <= 0)
+    {
+      slots = null;
+      mask = 0;
+    }
+    else
+    {
+      int nbSlots = 1;
+      while (nbSlots < size && nbSlots < (1 << 30))
+      {
+        nbSlots <<= 1;
+      }
+      slots = new CachedDN[nbSlots];
+      mask = nbSlots - 1;
+    }
+  }
+
+  /**
+   * Returns the server wide DN cache.
+   *
+   * @return The server wide DN cache.
+   */
+  static DNCache getInstance()
+  {
+    return INSTANCE;
+  }
+
+  /**
+   * Indicates whether this cache is enabled.
+   *
+   * @return {@code true} if this cache is enabled.
+   */
+  boolean isEnabled()
+  {
+    return slots != null;
+  }
+
+  /**
+   * Returns the cached DN decoded from the provided string.
+   *
+   * @param dnString
+   *          The string representation of the DN.
+   * @return The cached DN, or {@code null} if it is not cached.
+   */
+  DN get(String dnString)
+  {
+    if (slots == null)
+    {
+      return null;
+    }
+    // Racy read: a concurrent update may replace the slot at any time,
+    // but the final fields of CachedDN ensure it is fully initialized.
+    final CachedDN cached = slots[indexOf(dnString)];
+    return cached != null && cached.generation == generation && cached.dnString.equals(dnString)
+        ? cached.dn : null;
+  }
+
+  /**
+   * Adds the provided DN to this cache, sharing the RDNs of its parent DN
+   * when the parent DN is cached too.
+   *
+   * @param dnString
+   *          The string representation of the DN.
+   * @param dn
+   *          The DN decoded from the string.
+   * @return The DN to use, which is either the provided DN or an equal DN
+   *         sharing the RDNs of its cached parent DN.
+   */
+  DN intern(String dnString, DN dn)
+  {
+    if (slots == null || dnString.length() > MAX_DN_LENGTH)
+    {
+      return dn;
+    }
+
+    DN result = dn;
+    final int parentStart = dn.size() > 1 ? indexOfParent(dnString) : -1;
+    if (parentStart > 0)
+    {
+      final String parentString = dnString.substring(parentStart);
+      final DN parent = get(parentString);
+      if (parent == null)
+      {
+        put(parentString, dn.parent());
+      }
+      else if (isParent(parent, dn))
+      {
+        result = new DN(dn.rdn(), parent);
+      }
+    }
+    put(dnString, result);
+    return result;
+  }
+
+  /** Removes all the DNs from this cache, e.g. after a schema change. */
+  synchronized void clear()
+  {
+    generation++;
+  }
+
+  private void put(String dnString, DN dn)
+  {
+    slots[indexOf(dnString)] = new CachedDN(dnString, dn, generation);
+  }
+
+  private int indexOf(String dnString)
+  {
+    final int h = dnString.hashCode();
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  /**
+   * Returns the position where the parent DN starts in the provided DN string,
+   * or -1 if it cannot be safely determined. DN strings containing quotes are
+   * not handled, because quoted values may contain unescaped separators.
+   */
+  static int indexOfParent(String dnString)
+  {
+    final int length = dnString.length();
+    for (int i = 0; i < length; i++)
+    {
+      switch (dnString.charAt(i))
+      {
+      case '\\':
+        // Skip the escaped character, or the first hex digit of an escaped byte.
+        i++;
+        break;
+      case '"':
+        return -1;
+      case ',':
+      case ';':
+        return i + 1;
+      default:
+        break;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Indicates whether the provided parent DN has the same RDNs as the parent of
+   * the provided DN, guarding against any discrepancy between the DN decoder
+   * and {@link #indexOfParent(String)}.
+   */
+  private static boolean isParent(DN parent, DN dn)
+  {
+    if (parent.size() != dn.size() - 1)
+    {
+      return false;
+    }
+    for (int i = 0; i < parent.size(); i++)
+    {
+      final RDN parentRDN = parent.getRDN(i);
+      final RDN rdn = dn.getRDN(i + 1);
+      if (parentRDN == rdn)
+      {
+        continue;
+      }
+      if (parentRDN.getNumValues() != rdn.getNumValues())
+      {
+        return false;
+      }
+      for (int j = 0; j < rdn.getNumValues(); j++)
+      {
+        if (parentRDN.getAttributeType(j) != rdn.getAttributeType(j)
+            || !parentRDN.getAttributeName(j).equals(rdn.getAttributeName(j))
+            || !parentRDN.getAttributeValue(j).equals(rdn.getAttributeValue(j)))
+        {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
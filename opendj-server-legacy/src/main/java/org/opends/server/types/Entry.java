@@ -79,6 +79,14 @@ import static org.opends.server.util.StaticUtils.*;
  * volatile in that it is not always guaranteed to be present, it may
  * be removed or overwritten at any time, and it will be invalidated
  * and removed if the entry is altered in any way.
+ * <BR><BR>
+ * Entries created with {@link #duplicateCopyOnWrite(boolean)} share
+ * their objectclasses and attributes with the entry they were
+ * duplicated from until either entry is modified, at which point the
+ * modified entry copies the structures it needs to alter. As a
+ * consequence, the attribute lists returned by the
+ * <CODE>getAttribute</CODE> family of methods must never be modified
+ * directly.
  */
 @org.opends.server.types.PublicAPI(
      stability=org.opends.server.types.StabilityLevel.UNCOMMITTED,
@@ -105,6 +113,22 @@ public class Entry
   /** The set of objectclasses for this entry. */
   private Map<ObjectClass,String> objectClasses;
 
+  /**
+   * Indicates whether the objectclass and attribute maps of this entry
+   * are shared with another entry, in which case they must be copied
+   * before being modified.
+   */
+  private boolean sharedMaps;
+
+  /**
+   * The attribute lists of this entry which are shared with another
+   * entry and must be copied before being modified, or
+   * <CODE>null</CODE> if there are none. Only meaningful when the
+   * maps themselves are not shared: all the lists of shared maps are
+   * shared.
+   */
+  private Set<List<Attribute>> sharedLists;
+
   private Attribute objectClassAttribute;
 
   /** The DN for this entry. */
@@ -216,6 +240,7 @@ public class Entry
    */
   public Map<ObjectClass,String> getObjectClasses()
   {
+    ensureMapsWritable();
     return objectClasses;
   }
 
@@ -282,6 +307,7 @@ public class Entry
          throws DirectoryException
   {
     attachment = null;
+    ensureMapsWritable();
 
     if (objectClasses.containsKey(oc))
     {
@@ -332,6 +358,7 @@ public class Entry
    */
   public Map<AttributeType,List<Attribute>> getUserAttributes()
   {
+    ensureWritable();
     return userAttributes;
   }
 
@@ -347,6 +374,7 @@ public class Entry
    */
   public Map<AttributeType,List<Attribute>> getOperationalAttributes()
   {
+    ensureWritable();
     return operationalAttributes;
   }
 
@@ -1105,6 +1133,7 @@ public class Entry
                            List<Attribute> attributeList)
   {
     attachment = null;
+    ensureMapsWritable();
 
 
     // See if there is already a set of attributes with the specified
@@ -1277,6 +1306,7 @@ public class Entry
   public boolean removeAttribute(AttributeType attributeType)
   {
     attachment = null;
+    ensureMapsWritable();
 
     if (attributeType.isObjectClass())
     {
@@ -1317,6 +1347,7 @@ public class Entry
       List<ByteString> missingValues)
   {
     attachment = null;
+    ensureMapsWritable();
 
     if (attribute.getAttributeType().isObjectClass())
     {
@@ -1356,7 +1387,7 @@ public class Entry
     }
 
     AttributeType attributeType = attribute.getAttributeType();
-    List<Attribute> attributes = getAttributes(attributeType);
+    List<Attribute> attributes = getWritableAttributes(attributeType);
     if (attributes == null)
     {
       // There are no attributes with the same attribute type.
@@ -1496,6 +1527,7 @@ public class Entry
 
   private void applyModificationToObjectclass(Modification mod, boolean relaxConstraints) throws DirectoryException
   {
+    ensureMapsWritable();
     Attribute a = mod.getAttribute();
 
     Map<ObjectClass, String> ocs = new LinkedHashMap<>();
@@ -2509,6 +2541,152 @@ public class Entry
 
 
 
+  /**
+   * Creates a duplicate of this entry that may be altered without
+   * impacting the information in this entry, like
+   * {@link #duplicate(boolean)}, but which initially shares the
+   * objectclasses and attributes of this entry rather than copying
+   * them. Each entry then only copies the structures it modifies, so
+   * duplicating an entry which is mostly read, e.g. an entry returned
+   * by an entry cache, is much cheaper.
+   * <p>
+   * This entry must not be modified by another thread while it is
+   * being duplicated.
+   *
+   * @param  processVirtual  Indicates whether virtual attribute
+   *                         processing should be performed for the
+   *                         entry.
+   *
+   * @return  A duplicate of this entry that may be altered without
+   *          impacting the information in this entry.
+   */
+  public Entry duplicateCopyOnWrite(boolean processVirtual)
+  {
+    if (!suppressedAttributes.isEmpty()
+        || hasVirtualAttribute(userAttributes)
+        || hasVirtualAttribute(operationalAttributes))
+    {
+      // The duplicate would not have the same content.
+      return duplicate(processVirtual);
+    }
+
+    // All the lists of shared maps are shared.
+    sharedMaps = true;
+    sharedLists = null;
+
+    Entry e = new Entry(dn, objectClasses, userAttributes,
+                        operationalAttributes);
+    e.sharedMaps = true;
+    if (processVirtual)
+    {
+      e.processVirtualAttributes();
+    }
+    return e;
+  }
+
+  private static boolean hasVirtualAttribute(
+      Map<AttributeType, List<Attribute>> attributes)
+  {
+    for (List<Attribute> attrList : attributes.values())
+    {
+      for (Attribute a : attrList)
+      {
+        if (a.isVirtual())
+        {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+
+
+  /**
+   * Ensures that the objectclass and attribute maps of this entry are
+   * not shared with another entry, so that they can be modified. The
+   * attribute lists may still be shared, see
+   * {@link #getWritableAttributes(AttributeType)}.
+   */
+  private void ensureMapsWritable()
+  {
+    if (sharedMaps)
+    {
+      sharedLists = Collections.newSetFromMap(
+          new IdentityHashMap<List<Attribute>, Boolean>());
+      sharedLists.addAll(userAttributes.values());
+      sharedLists.addAll(operationalAttributes.values());
+
+      objectClasses = new LinkedHashMap<>(objectClasses);
+      userAttributes = new LinkedHashMap<>(userAttributes);
+      operationalAttributes = new LinkedHashMap<>(operationalAttributes);
+      sharedMaps = false;
+    }
+  }
+
+
+
+  /**
+   * Ensures that none of the objectclass and attribute maps and
+   * attribute lists of this entry are shared with another entry, so
+   * that they can be handed out to callers which may modify them.
+   */
+  private void ensureWritable()
+  {
+    ensureMapsWritable();
+    if (sharedLists != null)
+    {
+      copySharedLists(userAttributes);
+      copySharedLists(operationalAttributes);
+      sharedLists = null;
+    }
+  }
+
+  private void copySharedLists(Map<AttributeType, List<Attribute>> attributes)
+  {
+    for (Map.Entry<AttributeType, List<Attribute>> mapEntry : attributes.entrySet())
+    {
+      if (sharedLists.contains(mapEntry.getValue()))
+      {
+        mapEntry.setValue(new ArrayList<>(mapEntry.getValue()));
+      }
+    }
+  }
+
+
+
+  /**
+   * Returns the list of attributes for the provided attribute type,
+   * copying it first if it is shared with another entry so that it
+   * can be modified. The attribute maps must already be writable.
+   *
+   * @param attrType
+   *          the attribute type
+   * @return the List of user or operational attributes, or
+   *         <CODE>null</CODE> if there are none
+   */
+  private List<Attribute> getWritableAttributes(AttributeType attrType)
+  {
+    Map<AttributeType, List<Attribute>> attributes = getUserOrOperationalAttributes(attrType);
+    List<Attribute> attrList = attributes.get(attrType);
+    return attrList != null ? getWritableAttributes(attributes, attrType, attrList) : null;
+  }
+
+  private List<Attribute> getWritableAttributes(
+      Map<AttributeType, List<Attribute>> attributes, AttributeType attrType,
+      List<Attribute> attrList)
+  {
+    if (sharedLists != null && sharedLists.remove(attrList))
+    {
+      final List<Attribute> copy = new ArrayList<>(attrList);
+      attributes.put(attrType, copy);
+      return copy;
+    }
+    return attrList;
+  }
+
+
+
   /**
    * Performs a deep copy from the source map to the target map.
    * In this case, the attributes in the list will be duplicates
@@ -3182,7 +3360,7 @@ public class Entry
     case MERGE_REAL_AND_VIRTUAL:
       // We need to add the virtual attribute to the
       // list and keep the existing real attribute(s).
-      attrList.add(collectiveAttr);
+      getWritableAttributes(attributes, attributeType, attrList).add(collectiveAttr);
       break;
     }
   }
@@ -3196,6 +3374,7 @@ public class Entry
    */
   public void processVirtualAttributes()
   {
+    ensureMapsWritable();
     for (VirtualAttributeRule rule : DirectoryServer.getVirtualAttributes(this))
     {
       AttributeType attributeType = rule.getAttributeType();
@@ -3270,7 +3449,8 @@ public class Entry
     case MERGE_REAL_AND_VIRTUAL:
       // We need to add the virtual attribute to the list and
       // keep the existing real attribute(s).
-      attrList.add(new VirtualAttribute(attributeType, this, rule));
+      getWritableAttributes(attributes, attributeType, attrList)
+          .add(new VirtualAttribute(attributeType, this, rule));
       break;
     }
   }
@@ -3593,7 +3773,7 @@ public class Entry
 
         // The set of object classes will be encoded as a single
         // string with the object class names separated by zeros.
-        objectClasses = new LinkedHashMap<>();
+        objectClasses = new CompactMap<>();
         int startPos = entryBuffer.position();
         for (int i=0; i < ocLength; i++)
         {
@@ -3613,7 +3793,7 @@ public class Entry
       {
         // Next is the number of zero terminated object classes.
         int numOC = entryBuffer.readBERLength();
-        objectClasses = new LinkedHashMap<>(numOC);
+        objectClasses = newDecodedMap(numOC);
         for(int i = 0; i < numOC; i++)
         {
           int startPos = entryBuffer.position();
@@ -3629,6 +3809,21 @@ public class Entry
     return objectClasses;
   }
 
+  /**
+   * Creates a map for holding the decoded object classes or attributes of an
+   * entry. Decoded entries are mostly read, and often kept in the entry cache,
+   * so a compact map is used unless the entry has an unusually large number of
+   * attributes.
+   */
+  private static <K, V> Map<K, V> newDecodedMap(int size)
+  {
+    if (size <= CompactMap.MAX_COMPACT_SIZE)
+    {
+      return new CompactMap<>(size);
+    }
+    return new LinkedHashMap<>(size);
+  }
+
   /**
    * Adds the objectClass contained in the buffer to the map of object class.
    *
@@ -3674,7 +3869,7 @@ public class Entry
 
 
     // Now, we should iterate through the attributes and decode each one.
-    Map<AttributeType, List<Attribute>> attributes = new LinkedHashMap<>(attrs);
+    Map<AttributeType, List<Attribute>> attributes = newDecodedMap(attrs);
     if (config.compressAttributeDescriptions())
     {
       for (int i=0; i < attrs; i++)
@@ -4421,6 +4616,7 @@ public class Entry
       List<ByteString> duplicateValues, boolean replace)
   {
     attachment = null;
+    ensureMapsWritable();
 
     AttributeType attributeType = attribute.getAttributeType();
 
@@ -4464,7 +4660,7 @@ public class Entry
       return;
     }
 
-    List<Attribute> attributes = getAttributes(attributeType);
+    List<Attribute> attributes = getWritableAttributes(attributeType);
     if (attributes == null)
     {
       // Do nothing if we are deleting a non-existing attribute.
@@ -25,14 +25,27 @@
  */
 package org.opends.server.types;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.forgerock.util.Reject;
+import org.opends.server.util.StripedCounters;
 
 /**
  * A lock manager coordinates directory update operations so that the DIT structure remains in a
@@ -107,6 +120,20 @@ import org.forgerock.util.Reject;
  * Locks are dereferenced when they are unlocked, when they are evicted from a thread local cache,
  * and when a child lock's reference count reaches zero. A lock is completely removed from the lock
  * table once its reference count reaches zero.
+ * <p>
+ * Readers which would rather retry than block writers may use optimistic reads instead of read
+ * locks: {@link #tryOptimisticReadEntry(DN)} returns a stamp without acquiring any lock, and
+ * {@link #validate(DN, long)} then checks that no write lock on the entry, nor any subtree write
+ * lock on the entry or its parents, has been acquired since. Write locks are tracked by striped
+ * version counters, indexed by DN hash code like the lock table buckets, so that optimistic reads
+ * neither lock nor allocate lock table entries. Collisions between stripes only cause spurious
+ * validation failures. Optimistic reads are only valid for data which is exclusively modified
+ * under the write locks of this lock manager.
+ * <p>
+ * Lock acquisitions first try to acquire each lock without waiting. Only the acquisitions which
+ * have to wait are measured: the lock manager maintains the number of contended acquisitions, a
+ * histogram of their wait times, the number of timeouts, and the DNs whose locks are the most
+ * contended, which are exposed in the monitor backend.
  */
 @org.opends.server.types.PublicAPI(stability = org.opends.server.types.StabilityLevel.UNCOMMITTED,
     mayInstantiate = false, mayExtend = false, mayInvoke = true)
@@ -120,13 +147,17 @@ public final class LockManager
     private final DNLockHolder lock;
     private final Lock subtreeLock;
     private final Lock entryLock;
+    /** The version stripes updated by this write lock, or {@code null} for read locks. */
+    private final VersionStripes versions;
     private boolean isLocked = true;
 
-    private DNLock(final DNLockHolder lock, final Lock subtreeLock, final Lock entryLock)
+    private DNLock(final DNLockHolder lock, final Lock subtreeLock, final Lock entryLock,
+        final VersionStripes versions)
     {
       this.lock = lock;
       this.subtreeLock = subtreeLock;
       this.entryLock = entryLock;
+      this.versions = versions;
     }
 
     @Override
@@ -147,6 +178,10 @@ public final class LockManager
       {
         throw new IllegalStateException("Already unlocked");
       }
+      if (versions != null)
+      {
+        versions.endWrite(lock.dnHashCode);
+      }
       lock.releaseParentSubtreeReadLock();
       subtreeLock.unlock();
       entryLock.unlock();
@@ -199,17 +234,17 @@ public final class LockManager
 
     DNLock tryReadLockEntry()
     {
-      return tryLock(subtreeLock.readLock(), entryLock.readLock());
+      return tryLock(subtreeLock.readLock(), entryLock.readLock(), null);
     }
 
     DNLock tryWriteLockEntry()
     {
-      return tryLock(subtreeLock.readLock(), entryLock.writeLock());
+      return tryLock(subtreeLock.readLock(), entryLock.writeLock(), entryVersions);
     }
 
     DNLock tryWriteLockSubtree()
     {
-      return tryLock(subtreeLock.writeLock(), entryLock.writeLock());
+      return tryLock(subtreeLock.writeLock(), entryLock.writeLock(), subtreeVersions);
     }
 
     /**
@@ -229,7 +264,7 @@ public final class LockManager
       }
 
       // Then lock the parent of this lock
-      if (tryLockWithTimeout(parent.subtreeLock.readLock()))
+      if (parent.tryLockWithTimeout(parent.subtreeLock.readLock()))
       {
         return true;
       }
@@ -239,7 +274,7 @@ public final class LockManager
       return false;
     }
 
-    private DNLock tryLock(final Lock subtreeLock, final Lock entryLock)
+    private DNLock tryLock(final Lock subtreeLock, final Lock entryLock, final VersionStripes versions)
     {
       if (tryAcquireParentSubtreeReadLock())
       {
@@ -247,7 +282,11 @@ public final class LockManager
         {
           if (tryLockWithTimeout(entryLock))
           {
-            return new DNLock(this, subtreeLock, entryLock);
+            if (versions != null)
+            {
+              versions.beginWrite(dnHashCode);
+            }
+            return new DNLock(this, subtreeLock, entryLock, versions);
           }
           subtreeLock.unlock();
         }
@@ -262,7 +301,19 @@ public final class LockManager
     {
       try
       {
-        return lock.tryLock(lockTimeout, lockTimeoutUnits);
+        /*
+         * Fast path: uncontended locks are acquired without measuring anything. Unlike tryLock(),
+         * a zero timeout does not let readers barge ahead of queued writers.
+         */
+        if (lock.tryLock(0, TimeUnit.NANOSECONDS))
+        {
+          return true;
+        }
+
+        final long startTime = System.nanoTime();
+        final boolean isLocked = lock.tryLock(lockTimeout, lockTimeoutUnits);
+        recordContention(dn, System.nanoTime() - startTime, isLocked);
+        return isLocked;
       }
       catch (final InterruptedException e)
       {
@@ -278,11 +329,85 @@ public final class LockManager
   private static final int MINIMUM_NUMBER_OF_BUCKETS = 64;
   private static final int THREAD_LOCAL_CACHE_SIZE = 8;
 
+  /**
+   * The number of buckets of the lock wait time histogram. Bucket {@code 0} counts waits shorter
+   * than a microsecond, and bucket {@code i > 0} counts waits between {@code 2^(i-1)} and
+   * {@code 2^i - 1} microseconds, the last bucket counting all longer waits.
+   */
+  public static final int NB_WAIT_TIME_HISTOGRAM_BUCKETS = 32;
+  /** The maximum number of distinct DNs whose lock contentions are counted. */
+  private static final int MAX_CONTENDED_DNS = 1024;
+
+  // Indexes of the lock contention statistics.
+  private static final int CONTENDED_ACQUISITIONS = 0;
+  private static final int TIMEOUTS = 1;
+  private static final int TOTAL_WAIT_TIME = 2;
+  private static final int WAIT_TIME_HISTOGRAM = 3;
+  private static final int NB_STATISTICS = WAIT_TIME_HISTOGRAM + NB_WAIT_TIME_HISTOGRAM_BUCKETS;
+
+  /**
+   * Striped version counters, tracking the write locks for optimistic reads. Each stripe counts the
+   * write locks currently held on the DNs mapped to it, and has a version incremented each time
+   * such a write lock is acquired or released.
+   */
+  private static final class VersionStripes
+  {
+    private final AtomicIntegerArray writers;
+    private final AtomicLongArray versions;
+    private final int mask;
+
+    private VersionStripes(final int numberOfStripes)
+    {
+      this.writers = new AtomicIntegerArray(numberOfStripes);
+      this.versions = new AtomicLongArray(numberOfStripes);
+      this.mask = numberOfStripes - 1;
+    }
+
+    private void beginWrite(final int dnHashCode)
+    {
+      final int stripe = spread(dnHashCode) & mask;
+      writers.incrementAndGet(stripe);
+      versions.incrementAndGet(stripe);
+    }
+
+    private void endWrite(final int dnHashCode)
+    {
+      final int stripe = spread(dnHashCode) & mask;
+      versions.incrementAndGet(stripe);
+      writers.decrementAndGet(stripe);
+    }
+
+    /** Returns the version of the stripe, or -1 if it is write locked. */
+    private long getVersionIfNotWriteLocked(final int dnHashCode)
+    {
+      final int stripe = spread(dnHashCode) & mask;
+      // Read the version first: a write lock acquired concurrently either is seen here,
+      // or changes the version before validation.
+      final long version = versions.get(stripe);
+      return writers.get(stripe) == 0 ? version : -1;
+    }
+
+    private long getVersion(final int dnHashCode)
+    {
+      return versions.get(spread(dnHashCode) & mask);
+    }
+  }
+
   private final int numberOfBuckets;
   private final LinkedList<DNLockHolder>[] lockTable;
   private final long lockTimeout;
   private final TimeUnit lockTimeoutUnits;
 
+  /** Tracks the entry write locks for optimistic reads. */
+  private final VersionStripes entryVersions;
+  /** Tracks the subtree write locks for optimistic reads. */
+  private final VersionStripes subtreeVersions;
+
+  /** The lock contention statistics. */
+  private final StripedCounters statistics = new StripedCounters(NB_STATISTICS);
+  /** The number of contended lock acquisitions for each DN, bounded by {@link #MAX_CONTENDED_DNS}. */
+  private final ConcurrentMap<DN, AtomicLong> contentionsPerDN = new ConcurrentHashMap<>();
+
   // Avoid sub-classing in order to workaround class leaks in app servers.
   private final ThreadLocal<LinkedList<DNLockHolder>> threadLocalCache = new ThreadLocal<>();
 
@@ -334,6 +459,8 @@ public final class LockManager
     {
       this.lockTable[i] = new LinkedList<>();
     }
+    this.entryVersions = new VersionStripes(this.numberOfBuckets);
+    this.subtreeVersions = new VersionStripes(this.numberOfBuckets);
   }
 
   @Override
@@ -395,6 +522,185 @@ public final class LockManager
     return acquireLockFromCache(subtree).tryWriteLockSubtree();
   }
 
+  /**
+   * Returns a stamp for an optimistic read of the specified entry, without acquiring any lock. The
+   * entry can then be read, and the read must be validated using {@link #validate(DN, long)}: the
+   * read is valid only if no write lock on the entry, nor any subtree write lock on the entry or its
+   * parents, has been acquired since the stamp was returned. This method never blocks.
+   *
+   * @param entry
+   *          The entry to be read.
+   * @return A non-zero stamp, or {@code 0} if the entry is currently write locked, in which case
+   *         the caller should acquire a read lock using {@link #tryReadLockEntry(DN)} instead.
+   */
+  public long tryOptimisticReadEntry(final DN entry)
+  {
+    long stamp = entryVersions.getVersionIfNotWriteLocked(entry.hashCode());
+    if (stamp < 0)
+    {
+      return 0;
+    }
+    for (DN dn = entry; dn != null; dn = dn.parent())
+    {
+      final long version = subtreeVersions.getVersionIfNotWriteLocked(dn.hashCode());
+      if (version < 0)
+      {
+        return 0;
+      }
+      // Versions never decrease, so their sum only stays the same if none of them changed.
+      stamp += version;
+    }
+    return stamp + 1;
+  }
+
+  /**
+   * Indicates whether the specified entry has not been write locked since the provided stamp was
+   * returned by {@link #tryOptimisticReadEntry(DN)}.
+   *
+   * @param entry
+   *          The entry which has been read.
+   * @param stamp
+   *          The stamp returned by {@link #tryOptimisticReadEntry(DN)} for the entry.
+   * @return {@code true} if the entry has not been write locked since the stamp was returned, in
+   *         which case the read is valid, or {@code false} if the read must be done again.
+   */
+  public boolean validate(final DN entry, final long stamp)
+  {
+    if (stamp == 0)
+    {
+      return false;
+    }
+    long currentStamp = entryVersions.getVersion(entry.hashCode());
+    for (DN dn = entry; dn != null; dn = dn.parent())
+    {
+      currentStamp += subtreeVersions.getVersion(dn.hashCode());
+    }
+    return currentStamp + 1 == stamp;
+  }
+
+  /**
+   * Returns the number of lock acquisitions which had to wait for another thread to release a lock,
+   * including the acquisitions which timed out.
+   *
+   * @return The number of contended lock acquisitions.
+   */
+  public long getContendedLockCount()
+  {
+    return statistics.get(CONTENDED_ACQUISITIONS);
+  }
+
+  /**
+   * Returns the number of lock acquisitions which timed out.
+   *
+   * @return The number of lock acquisitions which timed out.
+   */
+  public long getLockTimeoutCount()
+  {
+    return statistics.get(TIMEOUTS);
+  }
+
+  /**
+   * Returns the total time spent waiting for contended locks, in microseconds.
+   *
+   * @return The total time spent waiting for contended locks, in microseconds.
+   */
+  public long getTotalLockWaitTime()
+  {
+    return statistics.get(TOTAL_WAIT_TIME);
+  }
+
+  /**
+   * Returns the histogram of the time spent waiting for contended locks. Bucket {@code 0} counts
+   * waits shorter than a microsecond, and bucket {@code i > 0} counts waits between
+   * {@code 2^(i-1)} and {@code 2^i - 1} microseconds, the last bucket counting all longer waits.
+   *
+   * @return The number of contended lock acquisitions in each histogram bucket.
+   */
+  public long[] getLockWaitTimeHistogram()
+  {
+    final long[] values = statistics.getAll();
+    final long[] histogram = new long[NB_WAIT_TIME_HISTOGRAM_BUCKETS];
+    System.arraycopy(values, WAIT_TIME_HISTOGRAM, histogram, 0, NB_WAIT_TIME_HISTOGRAM_BUCKETS);
+    return histogram;
+  }
+
+  /**
+   * Returns the DNs whose locks have been the most contended, with their number of contended lock
+   * acquisitions.
+   *
+   * @param maxDNs
+   *          The maximum number of DNs to return.
+   * @return The most contended DNs, sorted by decreasing number of contended lock acquisitions.
+   */
+  public Map<DN, Long> getMostContendedDNs(final int maxDNs)
+  {
+    final List<Map.Entry<DN, Long>> contentions = new ArrayList<>(contentionsPerDN.size());
+    for (final Map.Entry<DN, AtomicLong> entry : contentionsPerDN.entrySet())
+    {
+      contentions.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().get()));
+    }
+    Collections.sort(contentions, new Comparator<Map.Entry<DN, Long>>()
+    {
+      @Override
+      public int compare(final Map.Entry<DN, Long> e1, final Map.Entry<DN, Long> e2)
+      {
+        return e2.getValue().compareTo(e1.getValue());
+      }
+    });
+
+    final Map<DN, Long> results = new LinkedHashMap<>();
+    for (final Map.Entry<DN, Long> entry : contentions)
+    {
+      if (results.size() >= maxDNs)
+      {
+        break;
+      }
+      results.put(entry.getKey(), entry.getValue());
+    }
+    return results;
+  }
+
+  /** Resets the lock contention statistics. */
+  public void resetStatistics()
+  {
+    statistics.reset();
+    contentionsPerDN.clear();
+  }
+
+  private void recordContention(final DN dn, final long waitTimeNanos, final boolean isLocked)
+  {
+    final long waitTime = TimeUnit.NANOSECONDS.toMicros(waitTimeNanos);
+    statistics.increment(CONTENDED_ACQUISITIONS);
+    statistics.add(TOTAL_WAIT_TIME, waitTime);
+    statistics.increment(WAIT_TIME_HISTOGRAM + getHistogramBucket(waitTime));
+    if (!isLocked)
+    {
+      statistics.increment(TIMEOUTS);
+    }
+
+    AtomicLong contentions = contentionsPerDN.get(dn);
+    if (contentions == null)
+    {
+      if (contentionsPerDN.size() >= MAX_CONTENDED_DNS)
+      {
+        return;
+      }
+      final AtomicLong newContentions = new AtomicLong();
+      contentions = contentionsPerDN.putIfAbsent(dn, newContentions);
+      if (contentions == null)
+      {
+        contentions = newContentions;
+      }
+    }
+    contentions.incrementAndGet();
+  }
+
+  private static int getHistogramBucket(final long waitTime)
+  {
+    final int bucket = waitTime > 0 ? 64 - Long.numberOfLeadingZeros(waitTime) : 0;
+    return Math.min(bucket, NB_WAIT_TIME_HISTOGRAM_BUCKETS - 1);
+  }
+
   // For unit testing.
   int getLockTableRefCountFor(final DN dn)
   {
@@ -528,7 +834,13 @@ public final class LockManager
 
   private LinkedList<DNLockHolder> getBucket(final int dnHashCode)
   {
-    return lockTable[dnHashCode & numberOfBuckets - 1];
+    return lockTable[spread(dnHashCode) & numberOfBuckets - 1];
+  }
+
+  /** Mixes the high bits of hash codes into the low bits used for selecting buckets and stripes. */
+  private static int spread(final int hashCode)
+  {
+    return hashCode ^ (hashCode >>> 16);
   }
 
   /*
@@ -537,7 +849,7 @@ public final class LockManager
    */
   private int getNumberOfBuckets(final int buckets)
   {
-    final int roundedNumberOfBuckets = Math.min(buckets, MINIMUM_NUMBER_OF_BUCKETS);
+    final int roundedNumberOfBuckets = Math.max(buckets, MINIMUM_NUMBER_OF_BUCKETS);
     int powerOf2 = 1;
     while (powerOf2 < roundedNumberOfBuckets)
     {
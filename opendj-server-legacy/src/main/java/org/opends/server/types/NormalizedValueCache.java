@@ -0,0 +1,183 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.types;
+
+import static org.opends.server.util.ServerConstants.*;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DecodeException;
+import org.forgerock.opendj.ldap.schema.MatchingRule;
+
+/**
+ * A bounded cache of normalized attribute values, shared by all the entries.
+ * <p>
+ * Attribute values are lazily normalized by the attributes holding them, but
+ * this normalized form is lost each time an entry is decoded again from a
+ * backend, so the values of frequently read entries are normalized over and
+ * over for evaluating filters or access controls. This cache keeps the most
+ * recently normalized values, keyed by matching rule and value.
+ * <p>
+ * The cache is a direct mapped table: a value is stored in the slot selected
+ * by its hash code, replacing any value previously stored there. Lookups and
+ * updates therefore never lock and have a fixed cost. Only short values are
+ * cached, which bounds the memory used by the cache. The size of the server
+ * wide cache returned by {@link #getInstance()} can be specified using the
+ * {@value org.opends.server.util.ServerConstants#PROPERTY_NORMALIZED_VALUE_CACHE_SIZE}
+ * system property.
+ */
+@org.opends.server.types.PublicAPI(
+    stability = org.opends.server.types.StabilityLevel.VOLATILE,
+    mayInstantiate = true,
+    mayExtend = false,
+    mayInvoke = true)
+public final class NormalizedValueCache
+{
+  /** The default number of values kept by the server wide cache. */
+  private static final int DEFAULT_SIZE = 8192;
+
+  /** The maximum length of the values which are cached. */
+  static final int MAX_VALUE_LENGTH = 256;
+
+  /** The server wide normalized value cache. */
+  private static final NormalizedValueCache INSTANCE =
+      new NormalizedValueCache(Integer.getInteger(PROPERTY_NORMALIZED_VALUE_CACHE_SIZE, DEFAULT_SIZE));
+
+  /** A cached normalized value. Instances are immutable, so they can be safely shared without locking. */
+  private static final class CachedValue
+  {
+    private final MatchingRule matchingRule;
+    private final ByteString value;
+    private final ByteString normalizedValue;
+
+    private CachedValue(MatchingRule matchingRule, ByteString value, ByteString normalizedValue)
+    {
+      this.matchingRule = matchingRule;
+      this.value = value;
+      this.normalizedValue = normalizedValue;
+    }
+  }
+
+  /** The cache slots, or {@code null} if the cache is disabled. */
+  private final CachedValue[] slots;
+  private final int mask;
+
+  /**
+   * Creates a new normalized value cache.
+   *
+   * @param size
+   *          The number of values kept by the cache, which is rounded up to
+   *          the next power of two. A value of zero or less disables the cache.
+   */
+  public NormalizedValueCache(int size)
+  {
+    if (size <= 0)
+    {
+      slots = null;
+      mask = 0;
+    }
+    else
+    {
+      int nbSlots = 1;
+      while (nbSlots < size && nbSlots < (1 << 30))
+      {
+        nbSlots <<= 1;
+      }
+      slots = new CachedValue[nbSlots];
+      mask = nbSlots - 1;
+    }
+  }
+
+  /**
+   * Returns the server wide normalized value cache.
+   *
+   * @return The server wide normalized value cache.
+   */
+  public static NormalizedValueCache getInstance()
+  {
+    return INSTANCE;
+  }
+
+  /**
+   * Normalizes the provided attribute value using the provided matching rule,
+   * returning the cached normalized value when available.
+   *
+   * @param matchingRule
+   *          The matching rule to use for normalizing the value.
+   * @param value
+   *          The attribute value to normalize.
+   * @return The normalized attribute value.
+   * @throws DecodeException
+   *           If the attribute value cannot be normalized by the matching
+   *           rule.
+   */
+  public ByteString normalize(MatchingRule matchingRule, ByteString value) throws DecodeException
+  {
+    if (slots == null || value.length() > MAX_VALUE_LENGTH)
+    {
+      return matchingRule.normalizeAttributeValue(value);
+    }
+
+    final int index = spread(value.hashCode()) & mask;
+    // Racy read: a concurrent update may replace the slot at any time,
+    // but the final fields of CachedValue ensure it is fully initialized.
+    final CachedValue cached = slots[index];
+    if (cached != null && cached.matchingRule == matchingRule && cached.value.equals(value))
+    {
+      return cached.normalizedValue;
+    }
+
+    // Attribute values are views into the buffer holding the whole decoded
+    // entry or request, so the cached key is a copy not retaining this buffer.
+    // The normalized value only needs copying when the matching rule returned
+    // the value itself, in which case the copy of the key is shared.
+    final ByteString normalizedValue = matchingRule.normalizeAttributeValue(value);
+    final ByteString key = ByteString.wrap(value.toByteArray());
+    if (normalizedValue == value)
+    {
+      slots[index] = new CachedValue(matchingRule, key, key);
+      return key;
+    }
+    slots[index] = new CachedValue(matchingRule, key, normalizedValue);
+    return normalizedValue;
+  }
+
+  /** Removes all the values from this cache, e.g. after a schema change. */
+  public void clear()
+  {
+    if (slots != null)
+    {
+      for (int i = 0; i < slots.length; i++)
+      {
+        slots[i] = null;
+      }
+    }
+  }
+
+  private static int spread(int h)
+  {
+    // Mix the high bits into the low bits selecting the slot.
+    return h ^ (h >>> 16);
+  }
+}
@@ -33,6 +33,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.ldap.schema.ObjectClassType;
@@ -107,6 +108,15 @@ public final class ObjectClass
   /** True once this object class has been removed from the schema. */
   private volatile boolean isDirty;
 
+  /** The next identifier to assign to an object class registered in a schema. */
+  private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+  /**
+   * The dense integer identifier of this object class, assigned when it is
+   * first registered in a schema, or -1 if it has never been registered.
+   */
+  private volatile int id = -1;
+
 
 
   /**
@@ -455,6 +465,37 @@ public final class ObjectClass
 
 
 
+  /**
+   * Returns the dense integer identifier of this object class. Identifiers
+   * are assigned sequentially, starting from zero, to the object classes
+   * registered in a schema, so they can be used as indexes in arrays or bit
+   * sets of object classes.
+   *
+   * @return The identifier of this object class, or -1 if it has never been
+   *         registered in a schema.
+   */
+  public int getId()
+  {
+    return id;
+  }
+
+
+
+  /**
+   * Assigns an identifier to this object class if it does not have one yet.
+   * This is only intended for use by the
+   * {@code org.opends.server.types.Schema} class.
+   */
+  synchronized void assignId()
+  {
+    if (id < 0)
+    {
+      id = NEXT_ID.getAndIncrement();
+    }
+  }
+
+
+
   /**
    * Marks this object class as dirty, indicating that it has been removed or
    * replaced in the schema.
@@ -100,12 +100,18 @@ public final class Schema
    */
   private ConcurrentHashMap<String,AttributeType> attributeTypes;
 
+  /** The case insensitive index of the attribute types. */
+  private final SchemaNameIndex<AttributeType> attributeTypeIndex;
+
   /**
    * The set of objectclass definitions for this schema, mapped between the
    * lowercase names and OID for the definition and the objectclass itself.
    */
   private ConcurrentHashMap<String,ObjectClass> objectClasses;
 
+  /** The case insensitive index of the objectclasses. */
+  private final SchemaNameIndex<ObjectClass> objectClassIndex;
+
   /**
    * The set of attribute syntaxes for this schema, mapped between the OID for
    * the syntax and the syntax itself.
@@ -203,6 +209,8 @@ public final class Schema
     nameFormsByName = new ConcurrentHashMap<>();
     ldapSyntaxDescriptions = new ConcurrentHashMap<>();
     subordinateTypes = new ConcurrentHashMap<>();
+    attributeTypeIndex = new SchemaNameIndex<>(attributeTypes);
+    objectClassIndex = new SchemaNameIndex<>(objectClasses);
 
     oldestModificationTime    = System.currentTimeMillis();
     youngestModificationTime  = oldestModificationTime;
@@ -233,32 +241,34 @@ public final class Schema
    *
    * @param  lowerName  The name or OID for which to make the
    *                    determination, formatted in all lowercase
-   *                    characters.
+   *                    characters.  Names in other cases are also
+   *                    accepted.
    *
    * @return  {@code true} if this schema contains an attribute type
    *          with the provided name or OID, or {@code false} if not.
    */
   public boolean hasAttributeType(String lowerName)
   {
-    return attributeTypes.containsKey(lowerName);
+    return attributeTypeIndex.get(lowerName) != null;
   }
 
 
 
   /**
    * Retrieves the attribute type definition with the specified name
-   * or OID.
+   * or OID.  The lookup does not allocate any objects.
    *
    * @param  lowerName  The name or OID of the attribute type to
    *                    retrieve, formatted in all lowercase
-   *                    characters.
+   *                    characters.  Names in other cases are also
+   *                    accepted.
    *
    * @return  The requested attribute type, or <CODE>null</CODE> if no
    *          type is registered with the provided name or OID.
    */
   public AttributeType getAttributeType(String lowerName)
   {
-    return attributeTypes.get(lowerName);
+    return attributeTypeIndex.get(lowerName);
   }
 
 
@@ -326,12 +336,17 @@ public final class Schema
       {
         attributeTypes.put(name, attributeType);
       }
+      attributeTypeIndex.invalidate();
+      attributeType.assignId();
 
       AttributeType superiorType = attributeType.getSuperiorType();
       if (superiorType != null)
       {
         registerSubordinateType(attributeType, superiorType);
       }
+
+      // Cached DNs may reference the previous or default attribute type.
+      DNCache.getInstance().clear();
     }
   }
 
@@ -358,12 +373,15 @@ public final class Schema
       {
         attributeTypes.remove(name, attributeType);
       }
+      attributeTypeIndex.invalidate();
 
       AttributeType superiorType = attributeType.getSuperiorType();
       if (superiorType != null)
       {
         deregisterSubordinateType(attributeType, superiorType);
       }
+
+      DNCache.getInstance().clear();
     }
   }
 
@@ -476,32 +494,34 @@ public final class Schema
    *
    * @param  lowerName  The name or OID for which to make the
    *                    determination, formatted in all lowercase
-   *                    characters.
+   *                    characters.  Names in other cases are also
+   *                    accepted.
    *
    * @return  {@code true} if this schema contains an objectclass with
    *          the provided name or OID, or {@code false} if not.
    */
   public boolean hasObjectClass(String lowerName)
   {
-    return objectClasses.containsKey(lowerName);
+    return objectClassIndex.get(lowerName) != null;
   }
 
 
 
   /**
    * Retrieves the objectclass definition with the specified name or
-   * OID.
+   * OID.  The lookup does not allocate any objects.
    *
    * @param  lowerName  The name or OID of the objectclass to
    *                    retrieve, formatted in all lowercase
-   *                    characters.
+   *                    characters.  Names in other cases are also
+   *                    accepted.
    *
    * @return  The requested objectclass, or <CODE>null</CODE> if no
    *          class is registered with the provided name or OID.
    */
   public ObjectClass getObjectClass(String lowerName)
   {
-    return objectClasses.get(lowerName);
+    return objectClassIndex.get(lowerName);
   }
 
 
@@ -568,6 +588,8 @@ public final class Schema
       {
         objectClasses.put(name, objectClass);
       }
+      objectClassIndex.invalidate();
+      objectClass.assignId();
     }
   }
 
@@ -594,6 +616,7 @@ public final class Schema
       {
         objectClasses.remove(name, objectClass);
       }
+      objectClassIndex.invalidate();
     }
   }
 
@@ -2027,6 +2050,8 @@ public final class Schema
     dupSchema.attributeTypes.putAll(attributeTypes);
     dupSchema.subordinateTypes.putAll(subordinateTypes);
     dupSchema.objectClasses.putAll(objectClasses);
+    dupSchema.attributeTypeIndex.invalidate();
+    dupSchema.objectClassIndex.invalidate();
     dupSchema.syntaxes.putAll(syntaxes);
     dupSchema.matchingRules.putAll(matchingRules);
     dupSchema.matchingRuleUses.putAll(matchingRuleUses);
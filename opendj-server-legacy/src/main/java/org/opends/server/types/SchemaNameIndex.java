@@ -0,0 +1,223 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.types;
+
+import static org.opends.server.util.StaticUtils.*;
+
+import java.util.Map;
+
+/**
+ * A case insensitive index of the schema elements of a schema, keyed by their
+ * names and OIDs.
+ * <p>
+ * Schema elements are registered in maps keyed by their lower case names and
+ * OIDs, so that looking them up requires first converting the requested name
+ * to lower case, which allocates a new string for names such as
+ * "objectClass" or "userPassword". This index is an immutable open addressing
+ * hash table built from such a map, where names are hashed and compared
+ * ignoring ASCII case, so that lookups never allocate. The table is rebuilt
+ * and swapped after the map has been modified, which only happens when the
+ * schema is loaded or modified. In the meantime, lookups fall back to the map.
+ *
+ * @param <T>
+ *          The type of schema elements.
+ */
+final class SchemaNameIndex<T>
+{
+  /**
+   * The number of lookups falling back to the map after a modification before
+   * the table is rebuilt, so that loading the schema, which interleaves many
+   * modifications and lookups, does not rebuild the table after each
+   * modification.
+   */
+  private static final int REBUILD_THRESHOLD = 128;
+
+  /** An immutable snapshot of the map. */
+  private static final class Table
+  {
+    private final String[] names;
+    private final Object[] elements;
+    private final int mask;
+    private final int version;
+
+    private Table(Map<String, ?> map, int version)
+    {
+      int capacity = 16;
+      while (capacity < map.size() * 2)
+      {
+        capacity <<= 1;
+      }
+      this.names = new String[capacity];
+      this.elements = new Object[capacity];
+      this.mask = capacity - 1;
+      this.version = version;
+
+      for (Map.Entry<String, ?> entry : map.entrySet())
+      {
+        final String name = entry.getKey();
+        int i = hashIgnoreCase(name) & mask;
+        while (names[i] != null)
+        {
+          i = (i + 1) & mask;
+        }
+        names[i] = name;
+        elements[i] = entry.getValue();
+      }
+    }
+
+    /** Returns the element with the provided name, which must only contain ASCII characters. */
+    private Object get(String name)
+    {
+      for (int i = hashIgnoreCase(name) & mask; names[i] != null; i = (i + 1) & mask)
+      {
+        if (equalsIgnoreCase(names[i], name))
+        {
+          return elements[i];
+        }
+      }
+      return null;
+    }
+  }
+
+  /** The indexed map, keyed by lower case names and OIDs. */
+  private final Map<String, T> map;
+  /** Incremented each time the map is modified. */
+  private volatile int version;
+  private volatile Table table;
+  /** Approximate number of lookups performed on the map since it was modified. */
+  private int staleLookups;
+
+  /**
+   * Creates a new index for the provided map.
+   *
+   * @param map
+   *          The map to index, keyed by lower case names and OIDs.
+   */
+  SchemaNameIndex(Map<String, T> map)
+  {
+    this.map = map;
+  }
+
+  /**
+   * Returns the schema element with the provided name or OID, ignoring case.
+   *
+   * @param name
+   *          The name or OID of the schema element, in any case.
+   * @return The schema element, or {@code null} if there is none with the
+   *         provided name or OID.
+   */
+  @SuppressWarnings("unchecked")
+  T get(String name)
+  {
+    if (!isAscii(name))
+    {
+      // The table cannot look up such names, so they are not stale lookups.
+      return map.get(toLowerCase(name));
+    }
+    final Table t = table;
+    if (t != null && t.version == version)
+    {
+      return (T) t.get(name);
+    }
+    return getFromMap(name);
+  }
+
+  private T getFromMap(String name)
+  {
+    // Read the version before the map, so that a concurrent modification is
+    // detected by the next lookup.
+    final int currentVersion = version;
+    if (++staleLookups >= REBUILD_THRESHOLD)
+    {
+      staleLookups = 0;
+      table = new Table(map, currentVersion);
+    }
+    return map.get(toLowerCase(name));
+  }
+
+  /**
+   * Returns the approximate number of lookups which fell back to the map since
+   * the table was last rebuilt.
+   *
+   * @return The number of lookups which fell back to the map.
+   */
+  int getStaleLookups()
+  {
+    return staleLookups;
+  }
+
+  /**
+   * Indicates that the indexed map has been modified. This must be called
+   * after each modification of the map.
+   */
+  void invalidate()
+  {
+    version++;
+  }
+
+  private static boolean isAscii(String name)
+  {
+    for (int i = 0; i < name.length(); i++)
+    {
+      if (name.charAt(i) >= 0x80)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static char toLowerCaseAscii(char c)
+  {
+    return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+  }
+
+  private static int hashIgnoreCase(String name)
+  {
+    int h = 0;
+    for (int i = 0; i < name.length(); i++)
+    {
+      h = 31 * h + toLowerCaseAscii(name.charAt(i));
+    }
+    return h ^ (h >>> 16);
+  }
+
+  /** Compares a lower case name with a name in any case. */
+  private static boolean equalsIgnoreCase(String lowerName, String name)
+  {
+    if (lowerName.length() != name.length())
+    {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++)
+    {
+      if (lowerName.charAt(i) != toLowerCaseAscii(name.charAt(i)))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -2115,6 +2115,19 @@ public final class SearchFilter
 
 
 
+  /**
+   * Retrieves the set of attribute options for this filter.
+   *
+   * @return  The set of attribute options for this filter, which may
+   *          be empty.
+   */
+  Set<String> getAttributeOptions()
+  {
+    return attributeOptions;
+  }
+
+
+
   /**
    * Retrieves the assertion value for this filter.
    *
@@ -2222,6 +2235,21 @@ public final class SearchFilter
 
 
 
+  /**
+   * Compiles this search filter for repeated evaluation, for example
+   * against all the candidate entries of a search operation.  The
+   * compiled filter depends on the current schema, so it should not
+   * be kept beyond the operation for which it has been compiled.
+   *
+   * @return  A compiled form of this search filter.
+   */
+  public CompiledSearchFilter compile()
+  {
+    return new CompiledSearchFilter(this);
+  }
+
+
+
   /**
    * Indicates whether the this filter matches the provided entry.
    *
@@ -2346,6 +2374,9 @@ public final class SearchFilter
         throw new DirectoryException(DirectoryServer.getServerErrorResultCode(), message);
       }
 
+      // As per RFC 4511, an AND filter is FALSE if any of its
+      // components is FALSE, even if another one is undefined.
+      ConditionResult andResult = ConditionResult.TRUE;
       for (SearchFilter f : filterComponents)
       {
         ConditionResult result =
@@ -2370,7 +2401,8 @@ public final class SearchFilter
              "Undefined result for AND component %s in filter " +
              "%s for entry %s", f, completeFilter, entry.getName());
             }
-            return result;
+            andResult = ConditionResult.UNDEFINED;
+            break;
           default:
             LocalizableMessage message =
                 ERR_SEARCH_FILTER_INVALID_RESULT_TYPE.
@@ -2379,15 +2411,15 @@ public final class SearchFilter
         }
       }
 
-      // If we have gotten here, then all the components must have
-      // matched.
+      // If we have gotten here, then none of the components was
+      // FALSE, and the filter matches unless one was undefined.
       if (logger.isTraceEnabled())
       {
         logger.trace(
-            "Returning TRUE for AND component %s in filter %s " +
-            "for entry %s", this, completeFilter, entry.getName());
+            "Returning %s for AND component %s in filter %s " +
+            "for entry %s", andResult, this, completeFilter, entry.getName());
       }
-      return ConditionResult.TRUE;
+      return andResult;
     }
   }
 
@@ -3182,6 +3214,57 @@ public final class SearchFilter
     }
 
 
+    if (matchingRuleID == null && attributeType == null)
+    {
+      LocalizableMessage message =
+          ERR_SEARCH_FILTER_EXTENSIBLE_MATCH_NO_RULE_OR_TYPE.
+            get(entry.getName(), completeFilter);
+      throw new DirectoryException(ResultCode.PROTOCOL_ERROR,
+                                   message);
+    }
+
+    MatchingRule matchingRule = getExtensibleMatchingRule();
+    if (matchingRule == null)
+    {
+      return ConditionResult.UNDEFINED;
+    }
+
+
+    // Normalize the assertion value using the matching rule.
+    Assertion assertion;
+    try
+    {
+      assertion = matchingRule.getAssertion(assertionValue);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+
+      // We can't normalize the assertion value, so the result must be
+      // undefined.
+      return ConditionResult.UNDEFINED;
+    }
+
+    return processExtensibleMatch(completeFilter, entry, matchingRule,
+                                  assertion);
+  }
+
+
+
+  /**
+   * Retrieves the matching rule to use for evaluating this
+   * extensibleMatch filter, which is either the matching rule
+   * explicitly specified in the filter, or the equality matching rule
+   * of its attribute type.
+   *
+   * @return  The matching rule to use for evaluating this
+   *          extensibleMatch filter, or <CODE>null</CODE> if it cannot
+   *          be determined or does not apply to the attribute type of
+   *          the filter, in which case the filter evaluates to
+   *          <CODE>UNDEFINED</CODE>.
+   */
+  MatchingRule getExtensibleMatchingRule()
+  {
     MatchingRule matchingRule = null;
 
     if (matchingRuleID != null)
@@ -3198,35 +3281,28 @@ public final class SearchFilter
               "component of filter %s -- returning undefined.",
                     matchingRuleID, this);
         }
-        return ConditionResult.UNDEFINED;
+        return null;
       }
     }
-    else
+    else if (attributeType != null)
     {
-      if (attributeType == null)
-      {
-        LocalizableMessage message =
-            ERR_SEARCH_FILTER_EXTENSIBLE_MATCH_NO_RULE_OR_TYPE.
-              get(entry.getName(), completeFilter);
-        throw new DirectoryException(ResultCode.PROTOCOL_ERROR,
-                                     message);
-      }
-      else
+      matchingRule = attributeType.getEqualityMatchingRule();
+      if (matchingRule == null)
       {
-        matchingRule = attributeType.getEqualityMatchingRule();
-        if (matchingRule == null)
+        if (logger.isTraceEnabled())
         {
-          if (logger.isTraceEnabled())
-          {
-            logger.trace(
-             "Attribute type %s does not have an equality matching " +
-             "rule -- returning undefined.",
-             attributeType.getNameOrOID());
-          }
-          return ConditionResult.UNDEFINED;
+          logger.trace(
+           "Attribute type %s does not have an equality matching " +
+           "rule -- returning undefined.",
+           attributeType.getNameOrOID());
         }
+        return null;
       }
     }
+    else
+    {
+      return null;
+    }
 
 
     // If there is an attribute type, then check to see if there is a
@@ -3246,111 +3322,87 @@ public final class SearchFilter
               "definition %s", attributeType.getNameOrOID(),
               matchingRule.getNameOrOID(), mru.getNameOrOID());
         }
-        return ConditionResult.UNDEFINED;
+        return null;
       }
     }
 
+    return matchingRule;
+  }
 
-    // Normalize the assertion value using the matching rule.
-    Assertion assertion;
-    try
-    {
-      assertion = matchingRule.getAssertion(assertionValue);
-    }
-    catch (Exception e)
-    {
-      logger.traceException(e);
-
-      // We can't normalize the assertion value, so the result must be
-      // undefined.
-      return ConditionResult.UNDEFINED;
-    }
 
 
+  /**
+   * Indicates whether this extensibleMatch filter matches the
+   * provided entry, using a matching rule and an assertion which
+   * have already been resolved for this filter.
+   *
+   * @param  completeFilter  The complete filter in which this
+   *                         extensibleMatch filter may be a
+   *                         subcomponent.
+   * @param  entry           The entry for which to make the
+   *                         determination.
+   * @param  matchingRule    The matching rule returned by
+   *                         {@link #getExtensibleMatchingRule()}.
+   * @param  assertion       The assertion built from the assertion
+   *                         value of this filter using the matching
+   *                         rule.
+   *
+   * @return <CODE>TRUE</CODE> if this extensibleMatch filter matches
+   *         the provided entry, <CODE>FALSE</CODE> if it does not, or
+   *         <CODE>UNDEFINED</CODE> if the result cannot be
+   *         determined.
+   *
+   * @throws  DirectoryException  If a problem occurs while evaluating
+   *                              this filter against the provided
+   *                              entry.
+   */
+  ConditionResult processExtensibleMatch(SearchFilter completeFilter,
+                                         Entry entry,
+                                         MatchingRule matchingRule,
+                                         Assertion assertion)
+          throws DirectoryException
+  {
     // If there is an attribute type, then we should only check for
     // that attribute.  Otherwise, we should check against all
     // attributes in the entry.
     ConditionResult result = ConditionResult.FALSE;
     if (attributeType == null)
     {
-      for (List<Attribute> attrList :
-           entry.getUserAttributes().values())
+      // Check the user and operational attributes first, then the
+      // objectclass attribute which is not part of them.
+      for (Attribute a : entry.getAttributes())
       {
-        for (Attribute a : attrList)
+        for (ByteString v : a)
         {
-          for (ByteString v : a)
+          try
           {
-            try
-            {
-              ByteString nv = matchingRule.normalizeAttributeValue(v);
-              ConditionResult r = assertion.matches(nv);
-              switch (r)
-              {
-                case TRUE:
-                  return ConditionResult.TRUE;
-                case FALSE:
-                  break;
-                case UNDEFINED:
-                  result = ConditionResult.UNDEFINED;
-                  break;
-                default:
-                  LocalizableMessage message =
-                      ERR_SEARCH_FILTER_INVALID_RESULT_TYPE.
-                        get(entry.getName(), completeFilter, r);
-                  throw new DirectoryException(
-                                 ResultCode.PROTOCOL_ERROR, message);
-              }
-            }
-            catch (Exception e)
+            ByteString nv = matchingRule.normalizeAttributeValue(v);
+            ConditionResult r = assertion.matches(nv);
+            switch (r)
             {
-              logger.traceException(e);
-
-              // We couldn't normalize one of the values.  If we don't
-              // find a definite match, then we should return
-              // undefined.
-              result = ConditionResult.UNDEFINED;
+              case TRUE:
+                return ConditionResult.TRUE;
+              case FALSE:
+                break;
+              case UNDEFINED:
+                result = ConditionResult.UNDEFINED;
+                break;
+              default:
+                LocalizableMessage message =
+                    ERR_SEARCH_FILTER_INVALID_RESULT_TYPE.
+                      get(entry.getName(), completeFilter, r);
+                throw new DirectoryException(
+                               ResultCode.PROTOCOL_ERROR, message);
             }
           }
-        }
-      }
-
-      for (List<Attribute> attrList :
-           entry.getOperationalAttributes().values())
-      {
-        for (Attribute a : attrList)
-        {
-          for (ByteString v : a)
+          catch (Exception e)
           {
-            try
-            {
-              ByteString nv = matchingRule.normalizeAttributeValue(v);
-              ConditionResult r = assertion.matches(nv);
-              switch (r)
-              {
-                case TRUE:
-                  return ConditionResult.TRUE;
-                case FALSE:
-                  break;
-                case UNDEFINED:
-                  result = ConditionResult.UNDEFINED;
-                  break;
-                default:
-                  LocalizableMessage message =
-                      ERR_SEARCH_FILTER_INVALID_RESULT_TYPE.
-                        get(entry.getName(), completeFilter, r);
-                  throw new DirectoryException(
-                                 ResultCode.PROTOCOL_ERROR, message);
-              }
-            }
-            catch (Exception e)
-            {
-              logger.traceException(e);
+            logger.traceException(e);
 
-              // We couldn't normalize one of the values.  If we don't
-              // find a definite match, then we should return
-              // undefined.
-              result = ConditionResult.UNDEFINED;
-            }
+            // We couldn't normalize one of the values.  If we don't
+            // find a definite match, then we should return
+            // undefined.
+            result = ConditionResult.UNDEFINED;
           }
         }
       }
@@ -87,6 +87,18 @@ public final class SubtreeSpecification
 
 
 
+    /**
+     * Get the set of refinements which must all be true.
+     *
+     * @return Returns the set of refinements which must all be true.
+     */
+    public Collection<Refinement> getRefinementSet()
+    {
+      return Collections.unmodifiableCollection(refinementSet);
+    }
+
+
+
     /** {@inheritDoc} */
     @Override
     public boolean equals(final Object obj)
@@ -278,6 +290,18 @@ public final class SubtreeSpecification
 
 
 
+    /**
+     * Get the normalized name or OID of the item's object class.
+     *
+     * @return Returns the normalized object class.
+     */
+    public String getNormalizedObjectClass()
+    {
+      return normalizedObjectClass;
+    }
+
+
+
     /** {@inheritDoc} */
     @Override
     public boolean equals(final Object obj)
@@ -0,0 +1,136 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.util;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe pool of fixed capacity {@link ByteBuffer}s.
+ * <p>
+ * Buffers are borrowed with {@link #acquire()} and must be given back with
+ * {@link #release(ByteBuffer)} once the data they contain has been consumed.
+ * The pool never blocks: when no idle buffer is available a new one is
+ * allocated, and buffers released while the pool already retains
+ * {@code maxPooledBuffers} idle buffers are left to the garbage collector.
+ * This allows a large number of mostly idle connections to share a small
+ * number of buffers, each connection only holding one while it has data in
+ * flight.
+ */
+public final class ByteBufferPool
+{
+  /** The idle buffers ready to be borrowed. */
+  private final Queue<ByteBuffer> idleBuffers = new ConcurrentLinkedQueue<>();
+
+  /** The number of idle buffers, maintained separately for efficiency. */
+  private final AtomicInteger idleBufferCount = new AtomicInteger();
+
+  private final int bufferSize;
+  private final boolean direct;
+  private final int maxPooledBuffers;
+
+  /**
+   * Creates a new byte buffer pool.
+   *
+   * @param bufferSize
+   *          The capacity of the buffers handed out by this pool.
+   * @param direct
+   *          Indicates whether direct buffers should be allocated rather than
+   *          heap buffers. Direct buffers avoid a copy when reading from and
+   *          writing to socket channels, but are more expensive to allocate.
+   * @param maxPooledBuffers
+   *          The maximum number of idle buffers retained by this pool.
+   */
+  public ByteBufferPool(int bufferSize, boolean direct, int maxPooledBuffers)
+  {
+    this.bufferSize = bufferSize;
+    this.direct = direct;
+    this.maxPooledBuffers = maxPooledBuffers;
+  }
+
+  /**
+   * Borrows a cleared buffer from this pool, allocating a new one if none is
+   * idle.
+   *
+   * @return A cleared buffer having the capacity of this pool.
+   */
+  public ByteBuffer acquire()
+  {
+    final ByteBuffer buffer = idleBuffers.poll();
+    if (buffer != null)
+    {
+      idleBufferCount.decrementAndGet();
+      buffer.clear();
+      return buffer;
+    }
+    return direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+  }
+
+  /**
+   * Gives back a buffer previously borrowed from this pool. The caller must
+   * not use the buffer once it has been released.
+   *
+   * @param buffer
+   *          The buffer to release, which may be {@code null}.
+   */
+  public void release(ByteBuffer buffer)
+  {
+    if (buffer == null || buffer.capacity() != bufferSize || buffer.isDirect() != direct)
+    {
+      // Not one of ours (e.g. a buffer which had to be grown).
+      return;
+    }
+    if (idleBufferCount.incrementAndGet() <= maxPooledBuffers)
+    {
+      idleBuffers.offer(buffer);
+    }
+    else
+    {
+      idleBufferCount.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns the capacity of the buffers handed out by this pool.
+   *
+   * @return The capacity of the buffers handed out by this pool.
+   */
+  public int getBufferSize()
+  {
+    return bufferSize;
+  }
+
+  /**
+   * Returns the number of idle buffers currently retained by this pool.
+   *
+   * @return The number of idle buffers currently retained by this pool.
+   */
+  public int getIdleBufferCount()
+  {
+    return idleBufferCount.get();
+  }
+}
@@ -2907,6 +2907,36 @@ public final class ServerConstants
 
 
 
+  /**
+   * The name of the system property that can be used to specify the number of
+   * decoded DNs kept in the server wide DN cache. A value of zero disables the
+   * cache.
+   */
+  public static final String PROPERTY_DN_CACHE_SIZE =
+       "org.opends.server.DNCacheSize";
+
+
+
+  /**
+   * The name of the system property that can be used to specify the number of
+   * threads used for reading the schema files and opening the backends in
+   * parallel at startup. A value of one performs these tasks sequentially.
+   */
+  public static final String PROPERTY_STARTUP_THREADS =
+       "org.opends.server.StartupThreads";
+
+
+
+  /**
+   * The name of the system property that can be used to specify the number of
+   * normalized attribute values kept in the server wide normalized value cache.
+   * A value of zero disables the cache.
+   */
+  public static final String PROPERTY_NORMALIZED_VALUE_CACHE_SIZE =
+       "org.opends.server.NormalizedValueCacheSize";
+
+
+
   /**
    * The name of the system property that can be used to determine whether the
    * server should maintain an archive of previous configurations.  If this is
@@ -0,0 +1,179 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size set of thread-safe counters optimized for frequent updates from
+ * many threads and infrequent reads.
+ * <p>
+ * Each counter is split into several stripes, and each thread updates the
+ * stripe selected by its thread ID, so that threads running concurrently
+ * rarely update the same memory location. The stripes are laid out so that
+ * the counters of different stripes do not share cache lines. Reading a
+ * counter sums all its stripes: reads are therefore more expensive than
+ * updates, and are not atomic with respect to concurrent updates.
+ */
+public final class StripedCounters
+{
+  /** The number of longs in a cache line. */
+  private static final int CACHE_LINE_LONGS = 8;
+
+  /** The maximum number of stripes, bounding the memory footprint. */
+  private static final int MAX_STRIPES = 64;
+
+  private final int nbCounters;
+  private final int stripeLength;
+  private final int stripeMask;
+  private final AtomicLongArray cells;
+
+  /**
+   * Creates a new set of counters, all initialized to zero.
+   *
+   * @param nbCounters
+   *          The number of counters, which are then identified by their index
+   *          between {@code 0} and {@code nbCounters - 1}.
+   */
+  public StripedCounters(int nbCounters)
+  {
+    this(nbCounters, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a new set of counters, all initialized to zero.
+   *
+   * @param nbCounters
+   *          The number of counters, which are then identified by their index
+   *          between {@code 0} and {@code nbCounters - 1}.
+   * @param concurrencyLevel
+   *          The expected number of threads concurrently updating the
+   *          counters.
+   */
+  public StripedCounters(int nbCounters, int concurrencyLevel)
+  {
+    int nbStripes = 1;
+    while (nbStripes < concurrencyLevel && nbStripes < MAX_STRIPES)
+    {
+      nbStripes <<= 1;
+    }
+    this.nbCounters = nbCounters;
+    // Round up to a whole number of cache lines, plus one line of padding
+    // so that the last counters of a stripe and the first counters of the
+    // next one never share a cache line.
+    this.stripeLength = ((nbCounters + CACHE_LINE_LONGS - 1) / CACHE_LINE_LONGS + 1) * CACHE_LINE_LONGS;
+    this.stripeMask = nbStripes - 1;
+    this.cells = new AtomicLongArray(nbStripes * stripeLength);
+  }
+
+  /**
+   * Returns the number of counters.
+   *
+   * @return The number of counters.
+   */
+  public int size()
+  {
+    return nbCounters;
+  }
+
+  /**
+   * Increments the specified counter by one.
+   *
+   * @param counter
+   *          The index of the counter to increment.
+   */
+  public void increment(int counter)
+  {
+    cells.getAndIncrement(stripeOffset() + counter);
+  }
+
+  /**
+   * Adds the provided value to the specified counter.
+   *
+   * @param counter
+   *          The index of the counter to update.
+   * @param delta
+   *          The value to add.
+   */
+  public void add(int counter, long delta)
+  {
+    cells.getAndAdd(stripeOffset() + counter, delta);
+  }
+
+  /**
+   * Returns the current value of the specified counter.
+   *
+   * @param counter
+   *          The index of the counter to read.
+   * @return The current value of the counter.
+   */
+  public long get(int counter)
+  {
+    long sum = 0;
+    for (int i = counter; i < cells.length(); i += stripeLength)
+    {
+      sum += cells.get(i);
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the current value of all the counters, read in a single pass.
+   *
+   * @return The current value of all the counters, indexed by counter.
+   */
+  public long[] getAll()
+  {
+    final long[] values = new long[nbCounters];
+    for (int offset = 0; offset < cells.length(); offset += stripeLength)
+    {
+      for (int counter = 0; counter < nbCounters; counter++)
+      {
+        values[counter] += cells.get(offset + counter);
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Resets all the counters to zero. Updates performed concurrently may or may
+   * not be lost.
+   */
+  public void reset()
+  {
+    for (int i = 0; i < cells.length(); i++)
+    {
+      cells.set(i, 0);
+    }
+  }
+
+  private int stripeOffset()
+  {
+    // Worker threads are usually created together and get consecutive IDs,
+    // which are then spread over distinct stripes.
+    final long id = Thread.currentThread().getId();
+    return ((int) (id ^ (id >>> 32)) & stripeMask) * stripeLength;
+  }
+}
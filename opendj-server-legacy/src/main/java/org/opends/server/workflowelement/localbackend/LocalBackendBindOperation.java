@@ -133,6 +133,22 @@ public class LocalBackendBindOperation
     LocalBackendWorkflowElement.attachLocalOperation (bind, this);
   }
 
+  /**
+   * Records the processing time of this bind, per storage scheme of the
+   * password which has been verified.
+   */
+  private void updateBindTime(long startTime)
+  {
+    if (authPolicyState != null && authPolicyState.isPasswordPolicy())
+    {
+      String schemeName = ((PasswordPolicyState) authPolicyState).getPasswordStorageSchemeName();
+      if (schemeName != null)
+      {
+        BindStatistics.getInstance().updateBindTime(schemeName, (System.nanoTime() - startTime) / 1000);
+      }
+    }
+  }
+
   /**
    * Process this bind operation in a local backend.
    *
@@ -141,6 +157,7 @@ public class LocalBackendBindOperation
    */
   public void processLocalBind(LocalBackendWorkflowElement wfe)
   {
+    final long startTime = System.nanoTime();
     this.backend = wfe.getBackend();
 
     // Initialize a number of variables for use during the bind processing.
@@ -180,6 +197,7 @@ public class LocalBackendBindOperation
 
       setResponseData(de);
     }
+    updateBindTime(startTime);
 
     // Invoke the post-operation bind plugins.
     if (executePostOpPlugins)
@@ -438,8 +456,10 @@ public class LocalBackendBindOperation
       }
 
       // Determine whether the provided password matches any of the stored
-      // passwords for the user.
-      if (pwPolicyState.passwordMatches(simplePassword))
+      // passwords for the user. Expensive verifications may be rejected when
+      // the server is too busy, without counting as an authentication failure.
+      if (pwPolicyState.passwordMatches(simplePassword,
+          clientConnection.isInnerConnection() ? null : clientConnection.getClientAddress()))
       {
         setResultCode(ResultCode.SUCCESS);
 
@@ -0,0 +1,252 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.authorization.dseecompat;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.types.DN;
+import org.opends.server.types.Entry;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Tests for the {@link AciList} class and its ACI trie. */
+@SuppressWarnings("javadoc")
+public class AciListTestCase extends DirectoryServerTestCase
+{
+  private static final String EXAMPLE_DN = "dc=example,dc=com";
+  private static final String PEOPLE_DN = "ou=people,dc=example,dc=com";
+  private static final String STAFF_DN = "ou=staff,dc=example,dc=com";
+  private static final String USER_IN_PEOPLE_DN = "uid=user.0,ou=people,dc=example,dc=com";
+  private static final String USER_IN_STAFF_DN = "uid=user.0,ou=staff,dc=example,dc=com";
+
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  @Test
+  public void testEmptyList() throws Exception
+  {
+    final AciList aciList = newAciList();
+    assertEquals(aciList.getCandidateAcis(DN.valueOf(USER_IN_PEOPLE_DN)), new ArrayList<Aci>());
+    assertEquals(aciList.getCandidateAcis(DN.rootDN()), new ArrayList<Aci>());
+    assertEquals(aciList.getCandidateAcis(null), new ArrayList<Aci>());
+  }
+
+  @Test
+  public void testInheritedAcis() throws Exception
+  {
+    final AciList aciList = newAciList();
+    assertEquals(addAcis(aciList,
+        entry(EXAMPLE_DN, "example 1", "example 2"),
+        entry(PEOPLE_DN, "people")), 3);
+
+    // Closest ACIs first, then the ACIs of the ancestors
+    assertCandidates(aciList, USER_IN_PEOPLE_DN, "people", "example 1", "example 2");
+    assertCandidates(aciList, PEOPLE_DN, "people", "example 1", "example 2");
+    assertCandidates(aciList, "ou=groups,dc=example,dc=com", "example 1", "example 2");
+    assertCandidates(aciList, EXAMPLE_DN, "example 1", "example 2");
+    // Ancestors and unrelated DNs do not inherit any ACIs
+    assertCandidates(aciList, "dc=com");
+    assertCandidates(aciList, "dc=example,dc=org");
+    assertCandidates(aciList, "ou=people,dc=example,dc=org");
+  }
+
+  @Test
+  public void testAddAcisToExistingDN() throws Exception
+  {
+    final AciList aciList = newAciList();
+    addAcis(aciList, entry(PEOPLE_DN, "people 1"));
+    addAcis(aciList, entry(EXAMPLE_DN, "example"), entry(PEOPLE_DN, "people 2"));
+
+    assertCandidates(aciList, USER_IN_PEOPLE_DN, "people 1", "people 2", "example");
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void testCandidatesAreUnmodifiable() throws Exception
+  {
+    final AciList aciList = newAciList();
+    addAcis(aciList, entry(EXAMPLE_DN, "example"));
+
+    aciList.getCandidateAcis(DN.valueOf(PEOPLE_DN)).clear();
+  }
+
+  @Test
+  public void testRemoveAcis() throws Exception
+  {
+    final AciList aciList = newAciList();
+    final Entry peopleEntry = entry(PEOPLE_DN, "people");
+    addAcis(aciList, entry(EXAMPLE_DN, "example"), peopleEntry, entry(USER_IN_PEOPLE_DN, "user"));
+    assertCandidates(aciList, USER_IN_PEOPLE_DN, "user", "people", "example");
+
+    // Removing an entry removes the ACIs of the whole subtree
+    assertTrue(aciList.removeAci(peopleEntry, true, false));
+    assertCandidates(aciList, USER_IN_PEOPLE_DN, "example");
+    assertCandidates(aciList, PEOPLE_DN, "example");
+    assertCandidates(aciList, EXAMPLE_DN, "example");
+  }
+
+  @Test
+  public void testModifyAcis() throws Exception
+  {
+    final AciList aciList = newAciList();
+    final Entry oldEntry = entry(PEOPLE_DN, "people 1", "people 2");
+    addAcis(aciList, entry(EXAMPLE_DN, "example"), oldEntry);
+
+    aciList.modAciOldNewEntry(oldEntry, entry(PEOPLE_DN, "people 3"), true, false);
+    assertCandidates(aciList, USER_IN_PEOPLE_DN, "people 3", "example");
+  }
+
+  @Test
+  public void testRenameAcis() throws Exception
+  {
+    final AciList aciList = newAciList();
+    addAcis(aciList, entry(EXAMPLE_DN, "example"), entry(PEOPLE_DN, "people"), entry(USER_IN_PEOPLE_DN, "user"));
+
+    aciList.renameAci(DN.valueOf(PEOPLE_DN), DN.valueOf(STAFF_DN));
+    assertCandidates(aciList, USER_IN_STAFF_DN, "user", "people", "example");
+    assertCandidates(aciList, STAFF_DN, "people", "example");
+    assertCandidates(aciList, USER_IN_PEOPLE_DN, "example");
+    assertCandidates(aciList, PEOPLE_DN, "example");
+
+    // The renamed ACIs are scoped to their new DN
+    for (Aci aci : aciList.getCandidateAcis(DN.valueOf(USER_IN_STAFF_DN)))
+    {
+      assertTrue(DN.valueOf(USER_IN_STAFF_DN).isDescendantOf(aci.getDN()), aci.getDN().toString());
+    }
+  }
+
+  @Test
+  public void testGlobalAcis() throws Exception
+  {
+    final AciList aciList = newAciList();
+    addAcis(aciList, entry(EXAMPLE_DN, "example"));
+    final TreeSet<Aci> globalAcis = new TreeSet<>();
+    globalAcis.add(Aci.decode(ByteString.valueOfUtf8(aci("global")), DN.rootDN()));
+    globalAcis.add(Aci.decode(ByteString.valueOfUtf8(
+        "(target=\"ldap:///" + PEOPLE_DN + "\")" + aci("global people")), DN.rootDN()));
+    aciList.addAci(DN.rootDN(), globalAcis);
+
+    // Global ACIs come last, in ACI string order, and only the ones whose target applies
+    assertCandidates(aciList, USER_IN_PEOPLE_DN, "example", "global people", "global");
+    assertCandidates(aciList, "ou=groups,dc=example,dc=com", "example", "global");
+    assertCandidates(aciList, "dc=example,dc=org", "global");
+  }
+
+  @Test
+  public void testGenerationChangesWithAcis() throws Exception
+  {
+    final AciList aciList = newAciList();
+    final long initialGeneration = aciList.getGeneration();
+    final Entry peopleEntry = entry(PEOPLE_DN, "people");
+
+    addAcis(aciList, peopleEntry);
+    final long generationAfterAdd = aciList.getGeneration();
+    assertNotEquals(generationAfterAdd, initialGeneration);
+
+    // Reading does not change the generation
+    aciList.getCandidateAcis(DN.valueOf(USER_IN_PEOPLE_DN));
+    assertEquals(aciList.getGeneration(), generationAfterAdd);
+
+    aciList.renameAci(DN.valueOf(PEOPLE_DN), DN.valueOf(STAFF_DN));
+    final long generationAfterRename = aciList.getGeneration();
+    assertNotEquals(generationAfterRename, generationAfterAdd);
+
+    aciList.removeAci(entry(STAFF_DN, "people"), true, false);
+    assertNotEquals(aciList.getGeneration(), generationAfterRename);
+  }
+
+  @Test
+  public void testSnapshotIsNotAffectedByChanges() throws Exception
+  {
+    final AciList aciList = newAciList();
+    final Entry peopleEntry = entry(PEOPLE_DN, "people");
+    addAcis(aciList, entry(EXAMPLE_DN, "example"), peopleEntry);
+
+    final List<Aci> candidates = aciList.getCandidateAcis(DN.valueOf(USER_IN_PEOPLE_DN));
+    aciList.removeAci(peopleEntry, true, false);
+    addAcis(aciList, entry(PEOPLE_DN, "other people"));
+
+    assertEquals(getNames(candidates), Arrays.asList("people", "example"));
+    assertCandidates(aciList, USER_IN_PEOPLE_DN, "other people", "example");
+  }
+
+  private AciList newAciList() throws Exception
+  {
+    return new AciList(DN.valueOf("cn=Access Control Handler,cn=config"));
+  }
+
+  private int addAcis(AciList aciList, Entry... entries)
+  {
+    final LinkedList<LocalizableMessage> failedACIMsgs = new LinkedList<>();
+    final int validAcis = aciList.addAci(Arrays.asList(entries), failedACIMsgs);
+    assertEquals(failedACIMsgs, new LinkedList<LocalizableMessage>());
+    return validAcis;
+  }
+
+  private Entry entry(String dn, String... aciNames) throws Exception
+  {
+    final List<String> lines = new ArrayList<>();
+    lines.add("dn: " + dn);
+    lines.add("objectClass: top");
+    lines.add("objectClass: extensibleObject");
+    for (String aciName : aciNames)
+    {
+      lines.add("aci: " + aci(aciName));
+    }
+    return TestCaseUtils.makeEntry(lines.toArray(new String[lines.size()]));
+  }
+
+  private String aci(String name)
+  {
+    return "(targetattr=\"*\")(version 3.0; acl \"" + name + "\"; allow(read) userdn=\"ldap:///anyone\";)";
+  }
+
+  private void assertCandidates(AciList aciList, String dn, String... expectedAciNames) throws Exception
+  {
+    assertEquals(getNames(aciList.getCandidateAcis(DN.valueOf(dn))), Arrays.asList(expectedAciNames), dn);
+  }
+
+  private List<String> getNames(List<Aci> acis)
+  {
+    final List<String> names = new ArrayList<>();
+    for (Aci aci : acis)
+    {
+      names.add(aci.getName());
+    }
+    return names;
+  }
+}
@@ -26,12 +26,17 @@
  */
 package org.opends.server.authorization.dseecompat;
 
+import org.forgerock.opendj.ldap.SearchScope;
+import org.opends.server.protocols.internal.InternalClientConnection;
+import org.opends.server.protocols.internal.InternalSearchOperation;
+import org.opends.server.types.DN;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import org.testng.Assert;
 
 import static org.opends.server.TestCaseUtils.*;
+import static org.opends.server.protocols.internal.Requests.*;
 import static org.opends.server.config.ConfigConstants.ATTR_AUTHZ_GLOBAL_ACI;
 
 /**
@@ -130,6 +135,32 @@ public class NestedGroupDNTestCase extends AciTestCase {
   }
 
 
+  /**
+   * Test that the group membership cached for a client connection is
+   * invalidated when the groups change, by reusing the same connection
+   * before and after adding and removing the user from a group.
+   *
+   * @throws Exception If an unexpected result is returned.
+   */
+  @Test
+  public void testGroupChangesOnSameConnection() throws Exception {
+    String aciLdif=makeAddLDIF("aci", peopleBase, groupAci);
+    LDIFModify(aciLdif, DIR_MGR_DN, PWD);
+    InternalClientConnection conn = new InternalClientConnection(DN.valueOf(user5));
+    Assert.assertEquals(searchUser5(conn), 0);
+    String member5Ldif=makeAddLDIF("member", group1DN, user5);
+    LDIFModify(member5Ldif, DIR_MGR_DN, PWD);
+    Assert.assertEquals(searchUser5(conn), 1);
+    deleteAttrFromEntry(group1DN, "member");
+    Assert.assertEquals(searchUser5(conn), 0);
+  }
+
+  private int searchUser5(InternalClientConnection conn) throws Exception {
+    InternalSearchOperation op = conn.processSearch(newSearchRequest(user5, SearchScope.BASE_OBJECT, filter));
+    return op.getSearchEntries().size();
+  }
+
+
   /**
    * Test group access using a circular group definition. Group3 points back
    * to group1.
@@ -0,0 +1,251 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.authorization.dseecompat;
+
+import static org.opends.server.config.ConfigConstants.*;
+import static org.opends.server.protocols.internal.Requests.*;
+import static org.opends.server.util.CollectionUtils.*;
+import static org.testng.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.protocols.internal.InternalClientConnection;
+import org.opends.server.protocols.internal.InternalSearchOperation;
+import org.opends.server.types.AttributeType;
+import org.opends.server.types.DN;
+import org.opends.server.types.SearchResultEntry;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that the read access decisions made by the ACI handler for an entry
+ * returned by a search are only reused for the other entries to which the
+ * same ACIs apply, and never for ACIs whose bind rules depend on the entry.
+ */
+@SuppressWarnings("javadoc")
+public class ReadableAttributesTestCase extends AciTestCase
+{
+  private static final String READER_DN = "uid=reader,ou=D,o=test";
+
+  private AttributeType snType;
+  private AttributeType descriptionType;
+
+  @BeforeClass
+  public void setupClass() throws Exception
+  {
+    deleteAttrFromAdminEntry(ACCESS_HANDLER_DN, ATTR_AUTHZ_GLOBAL_ACI);
+    snType = DirectoryServer.getAttributeTypeOrDefault("sn");
+    descriptionType = DirectoryServer.getAttributeTypeOrDefault("description");
+
+    assertEquals(TestCaseUtils.applyModifications(false,
+        "dn: o=test",
+        "changetype: modify",
+        "add: aci",
+        "aci: (targetattr=\"objectClass||cn\")(version 3.0; acl \"read names\"; "
+            + "allow (read,search) userdn=\"ldap:///anyone\";)"), 0);
+    TestCaseUtils.addEntries(
+        // Different targetattr for the entries of ou=A and ou=B
+        "dn: ou=A,o=test",
+        "objectClass: top",
+        "objectClass: organizationalUnit",
+        "ou: A",
+        "aci: (targetattr=\"sn\")(version 3.0; acl \"read sn\"; "
+            + "allow (read,search) userdn=\"ldap:///anyone\";)",
+        "",
+        "dn: ou=B,o=test",
+        "objectClass: top",
+        "objectClass: organizationalUnit",
+        "ou: B",
+        "aci: (targetattr=\"description\")(version 3.0; acl \"read description\"; "
+            + "allow (read,search) userdn=\"ldap:///anyone\";)",
+        "",
+        // userattr depends on the entry
+        "dn: ou=C,o=test",
+        "objectClass: top",
+        "objectClass: organizationalUnit",
+        "ou: C",
+        "aci: (targetattr=\"description\")(version 3.0; acl \"managers read description\"; "
+            + "allow (read,search) userattr=\"manager#USERDN\";)",
+        "",
+        // userdn self and parent depend on the entry
+        "dn: ou=D,o=test",
+        "objectClass: top",
+        "objectClass: organizationalUnit",
+        "ou: D",
+        "aci: (targetattr=\"description\")(version 3.0; acl \"self read description\"; "
+            + "allow (read,search) userdn=\"ldap:///self\";)",
+        "aci: (targetattr=\"description\")(version 3.0; acl \"parent read description\"; "
+            + "allow (read,search) userdn=\"ldap:///parent\";)",
+        "",
+        // targetfilter selects the entries to which the ACI applies
+        "dn: ou=F,o=test",
+        "objectClass: top",
+        "objectClass: organizationalUnit",
+        "ou: F",
+        "aci: (targetattr=\"description\")(targetfilter=\"(employeeType=visible)\")"
+            + "(version 3.0; acl \"read visible description\"; allow (read,search) userdn=\"ldap:///anyone\";)",
+        "",
+        "dn: " + READER_DN,
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "uid: reader",
+        "cn: reader",
+        "sn: reader",
+        "description: reader",
+        "",
+        "dn: uid=other,ou=D,o=test",
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "uid: other",
+        "cn: other",
+        "sn: other",
+        "description: other",
+        "",
+        "dn: cn=child,uid=reader,ou=D,o=test",
+        "objectClass: top",
+        "objectClass: person",
+        "cn: child",
+        "sn: child",
+        "description: child of reader",
+        "",
+        "dn: cn=child,uid=other,ou=D,o=test",
+        "objectClass: top",
+        "objectClass: person",
+        "cn: child",
+        "sn: child",
+        "description: child of other");
+
+    for (int i = 0; i < 3; i++)
+    {
+      addUser("uid=a" + i + ",ou=A,o=test", null, null);
+      addUser("uid=b" + i + ",ou=B,o=test", null, null);
+      addUser("uid=managed" + i + ",ou=C,o=test", READER_DN, null);
+      addUser("uid=unmanaged" + i + ",ou=C,o=test", "uid=other,ou=D,o=test", null);
+      addUser("uid=visible" + i + ",ou=F,o=test", null, "visible");
+      addUser("uid=hidden" + i + ",ou=F,o=test", null, "hidden");
+    }
+  }
+
+  @Test
+  public void testDecisionsAreNotSharedAcrossDifferentAcis() throws Exception
+  {
+    final Map<String, SearchResultEntry> entries = search();
+    for (int i = 0; i < 3; i++)
+    {
+      assertReadable(entries, "uid=a" + i + ",ou=A,o=test", true, false);
+      assertReadable(entries, "uid=b" + i + ",ou=B,o=test", false, true);
+    }
+  }
+
+  @Test
+  public void testTargetFilterIsEvaluatedForEachEntry() throws Exception
+  {
+    final Map<String, SearchResultEntry> entries = search();
+    for (int i = 0; i < 3; i++)
+    {
+      assertReadable(entries, "uid=visible" + i + ",ou=F,o=test", false, true);
+      assertReadable(entries, "uid=hidden" + i + ",ou=F,o=test", false, false);
+    }
+  }
+
+  @Test
+  public void testUserAttrIsEvaluatedForEachEntry() throws Exception
+  {
+    final Map<String, SearchResultEntry> entries = search();
+    for (int i = 0; i < 3; i++)
+    {
+      assertReadable(entries, "uid=managed" + i + ",ou=C,o=test", false, true);
+      assertReadable(entries, "uid=unmanaged" + i + ",ou=C,o=test", false, false);
+    }
+  }
+
+  @Test
+  public void testSelfAndParentAreEvaluatedForEachEntry() throws Exception
+  {
+    final Map<String, SearchResultEntry> entries = search();
+    assertReadable(entries, READER_DN, false, true);
+    assertReadable(entries, "uid=other,ou=D,o=test", false, false);
+    assertReadable(entries, "cn=child,uid=reader,ou=D,o=test", false, true);
+    assertReadable(entries, "cn=child,uid=other,ou=D,o=test", false, false);
+  }
+
+  private void addUser(String dn, String manager, String employeeType) throws Exception
+  {
+    final List<String> lines = newArrayList(
+        "dn: " + dn,
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "cn: user",
+        "sn: user",
+        "description: user");
+    if (manager != null)
+    {
+      lines.add("manager: " + manager);
+    }
+    if (employeeType != null)
+    {
+      lines.add("employeeType: " + employeeType);
+    }
+    TestCaseUtils.addEntry(lines.toArray(new String[lines.size()]));
+  }
+
+  /** Returns the entries of o=test read by the reader in a single search operation. */
+  private Map<String, SearchResultEntry> search() throws Exception
+  {
+    final InternalClientConnection conn = new InternalClientConnection(DN.valueOf(READER_DN));
+    final InternalSearchOperation searchOp =
+        conn.processSearch(newSearchRequest("o=test", SearchScope.WHOLE_SUBTREE, "(objectClass=*)"));
+    assertEquals(searchOp.getResultCode(), ResultCode.SUCCESS);
+
+    final Map<String, SearchResultEntry> entries = new HashMap<>();
+    for (SearchResultEntry entry : searchOp.getSearchEntries())
+    {
+      entries.put(entry.getName().toString(), entry);
+    }
+    return entries;
+  }
+
+  private void assertReadable(Map<String, SearchResultEntry> entries, String dn,
+      boolean snReadable, boolean descriptionReadable)
+  {
+    final SearchResultEntry entry = entries.get(dn);
+    assertNotNull(entry, dn);
+    assertTrue(entry.hasAttribute(DirectoryServer.getAttributeTypeOrDefault("cn")), dn);
+    assertEquals(entry.hasAttribute(snType), snReadable, dn + " sn");
+    assertEquals(entry.hasAttribute(descriptionType), descriptionReadable, dn + " description");
+  }
+}
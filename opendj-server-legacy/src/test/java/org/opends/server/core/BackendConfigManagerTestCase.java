@@ -27,6 +27,8 @@
 package org.opends.server.core;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SearchScope;
@@ -509,6 +511,109 @@ public class BackendConfigManagerTestCase
     assertEquals(grandchildBackend.getParentBackend(), childBackend);
   }
 
+  /**
+   * Tests that backends which finish opening out of order at startup still
+   * register their base DNs in the configuration order.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test
+  public void testBaseDNsRegisteredInConfigurationOrder() throws Exception
+  {
+    BackendConfigManager.BaseDNRegistrationOrder registrationOrder =
+        new BackendConfigManager.BaseDNRegistrationOrder(3);
+    List<Integer> registered = Collections.synchronizedList(new ArrayList<Integer>());
+
+    RegistrationThread third = new RegistrationThread(registrationOrder, 2, registered);
+    third.start();
+    third.awaitWaiting();
+    RegistrationThread second = new RegistrationThread(registrationOrder, 1, registered);
+    second.start();
+    second.awaitWaiting();
+    assertTrue(registered.isEmpty());
+
+    registrationOrder.beginOpening(0);
+    BackendConfigManager.awaitBaseDNRegistrationTurn();
+    registered.add(0);
+    registrationOrder.endOpening();
+
+    second.awaitEnd();
+    third.awaitEnd();
+    assertEquals(registered, newArrayList(0, 1, 2));
+  }
+
+  /**
+   * Tests that a backend which fails to open at startup does not prevent the
+   * backends which follow it in the configuration from registering their base
+   * DNs.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test
+  public void testFailedBackendDoesNotBlockBaseDNRegistration() throws Exception
+  {
+    BackendConfigManager.BaseDNRegistrationOrder registrationOrder =
+        new BackendConfigManager.BaseDNRegistrationOrder(2);
+    List<Integer> registered = Collections.synchronizedList(new ArrayList<Integer>());
+
+    RegistrationThread second = new RegistrationThread(registrationOrder, 1, registered);
+    second.start();
+    second.awaitWaiting();
+
+    // The first backend fails to open and never registers its base DNs
+    registrationOrder.beginOpening(0);
+    registrationOrder.endOpening();
+
+    second.awaitEnd();
+    assertEquals(registered, newArrayList(1));
+  }
+
+  /** Opens a backend at startup and records when it registers its base DNs. */
+  private static final class RegistrationThread extends Thread
+  {
+    private static final long TIMEOUT_MS = 10000;
+
+    private final BackendConfigManager.BaseDNRegistrationOrder registrationOrder;
+    private final int turn;
+    private final List<Integer> registered;
+
+    private RegistrationThread(BackendConfigManager.BaseDNRegistrationOrder registrationOrder, int turn,
+        List<Integer> registered)
+    {
+      super("Base DN registration " + turn);
+      this.registrationOrder = registrationOrder;
+      this.turn = turn;
+      this.registered = registered;
+    }
+
+    @Override
+    public void run()
+    {
+      registrationOrder.beginOpening(turn);
+      BackendConfigManager.awaitBaseDNRegistrationTurn();
+      registered.add(turn);
+      registrationOrder.endOpening();
+    }
+
+    /** Waits until this thread is blocked waiting for its registration turn. */
+    private void awaitWaiting() throws InterruptedException
+    {
+      final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+      while (getState() != State.WAITING)
+      {
+        assertTrue(isAlive(), getName() + " should be waiting for its turn");
+        assertTrue(System.currentTimeMillis() < deadline, getName() + " did not wait for its turn");
+        Thread.sleep(10);
+      }
+    }
+
+    private void awaitEnd() throws InterruptedException
+    {
+      join(TIMEOUT_MS);
+      assertFalse(isAlive(), getName() + " did not register its base DNs");
+    }
+  }
+
   private void createEntry(DN baseDN, Backend<?> backend) throws DirectoryException
   {
     Entry e = StaticUtils.createEntry(baseDN);
@@ -26,6 +26,8 @@
  */
 package org.opends.server.core;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -50,6 +52,7 @@ import org.opends.server.types.Attributes;
 import org.opends.server.types.DN;
 import org.opends.server.types.DirectoryException;
 import org.opends.server.types.Entry;
+import org.opends.server.types.LDAPURL;
 import org.opends.server.types.MemberList;
 import org.opends.server.types.MembershipException;
 import org.opends.server.types.Modification;
@@ -61,6 +64,7 @@ import org.testng.annotations.Test;
 
 import static org.opends.server.protocols.internal.InternalClientConnection.*;
 import static org.opends.server.protocols.internal.Requests.*;
+import static org.opends.server.util.CollectionUtils.*;
 import static org.opends.server.util.ServerConstants.*;
 import static org.testng.Assert.*;
 
@@ -211,6 +215,190 @@ public class GroupManagerTestCase
     assertTrue(group1Instance.isMember(user5DN));
   }
 
+  /**
+   * Tests that the reverse membership index of the group manager returns the
+   * direct and nested groups of an entry, and follows the group changes.
+   *
+   * @throws Exception If an unexpected problem occurs.
+   */
+  @Test
+  public void testGetMemberGroups() throws Exception {
+    TestCaseUtils.initializeTestBackend(true);
+    GroupManager groupManager = DirectoryServer.getGroupManager();
+    groupManager.deregisterAllGroups();
+    addNestedGroupTestEntries();
+    DN group1DN = DN.valueOf("cn=group 1,ou=Groups,o=test");
+    DN group2DN = DN.valueOf("cn=group 2,ou=Groups,o=test");
+    DN group3DN = DN.valueOf("cn=group 3,ou=Groups,o=test");
+    DN group4DN = DN.valueOf("cn=group 4,ou=Groups,o=test");
+    Entry user1Entry = DirectoryServer.getEntry(DN.valueOf("uid=user.1,ou=People,o=test"));
+    Entry user3Entry = DirectoryServer.getEntry(DN.valueOf("uid=user.3,ou=People,o=test"));
+    Entry user5Entry = DirectoryServer.getEntry(DN.valueOf("uid=user.5,ou=People,o=test"));
+    Group<?> group1Instance = groupManager.getGroupInstance(group1DN);
+    Group<?> group2Instance = groupManager.getGroupInstance(group2DN);
+    Group<?> group3Instance = groupManager.getGroupInstance(group3DN);
+    Group<?> group4Instance = groupManager.getGroupInstance(group4DN);
+    assertTrue(groupManager.getMemberGroups(user1Entry).isEmpty());
+    group1Instance.addNestedGroup(group2DN);
+    group2Instance.addNestedGroup(group3DN);
+    //Dynamic group 4 is added to nested list of group 3.
+    group3Instance.addNestedGroup(group4DN);
+    group1Instance.addMember(user1Entry);
+    group3Instance.addMember(user3Entry);
+
+    assertEquals(groupManager.getMemberGroups(user1Entry), newGroupSet(group1Instance));
+    assertEquals(groupManager.getMemberGroups(user3Entry),
+        newGroupSet(group3Instance, group2Instance, group1Instance));
+    //User 5 is only a member of the dynamic group 4.
+    assertEquals(groupManager.getMemberGroups(user5Entry),
+        newGroupSet(group4Instance, group3Instance, group2Instance, group1Instance));
+
+    group2Instance.removeNestedGroup(group3DN);
+    assertEquals(groupManager.getMemberGroups(user3Entry), newGroupSet(group3Instance));
+    group3Instance.removeMember(user3Entry.getName());
+    assertTrue(groupManager.getMemberGroups(user3Entry).isEmpty());
+
+    //Replace group 1 through an LDAP modify: the new instance is indexed.
+    LinkedList<Modification> mods = newLinkedList(new Modification(ModificationType.REPLACE,
+        Attributes.create("member", "uid=user.3,ou=People,o=test")));
+    ModifyOperation modifyOperation = getRootConnection().processModify(group1DN, mods);
+    assertEquals(modifyOperation.getResultCode(), ResultCode.SUCCESS);
+    Group<?> newGroup1Instance = groupManager.getGroupInstance(group1DN);
+    assertNotSame(newGroup1Instance, group1Instance);
+    assertTrue(groupManager.getMemberGroups(user1Entry).isEmpty());
+    assertEquals(groupManager.getMemberGroups(user3Entry), newGroupSet(newGroup1Instance));
+
+    DeleteOperation deleteOperation = getRootConnection().processDelete(group1DN);
+    assertEquals(deleteOperation.getResultCode(), ResultCode.SUCCESS);
+    assertTrue(groupManager.getMemberGroups(user3Entry).isEmpty());
+  }
+
+  /**
+   * Tests that the nested group closure is updated incrementally when nesting
+   * relationships are added and removed, including cycles.
+   *
+   * @throws Exception If an unexpected problem occurs.
+   */
+  @Test
+  public void testNestedGroupClosure() throws Exception {
+    TestCaseUtils.initializeTestBackend(true);
+    GroupManager groupManager = DirectoryServer.getGroupManager();
+    groupManager.deregisterAllGroups();
+    addNestedGroupTestEntries();
+    NestedGroupClosure closure = groupManager.getNestedGroupClosure();
+    DN group1DN = DN.valueOf("cn=group 1,ou=Groups,o=test");
+    DN group2DN = DN.valueOf("cn=group 2,ou=Groups,o=test");
+    DN group3DN = DN.valueOf("cn=group 3,ou=Groups,o=test");
+    DN user3DN = DN.valueOf("uid=user.3,ou=People,o=test");
+    Group<?> group1Instance = groupManager.getGroupInstance(group1DN);
+    Group<?> group2Instance = groupManager.getGroupInstance(group2DN);
+    Group<?> group3Instance = groupManager.getGroupInstance(group3DN);
+    assertEquals(closure.getClosureSize(), 0);
+
+    group1Instance.addNestedGroup(group2DN);
+    group2Instance.addNestedGroup(group3DN);
+    group3Instance.addMember(DirectoryServer.getEntry(user3DN));
+    assertEquals(closure.getRelationshipCount(), 2);
+    //Group 2 is nested in group 1, group 3 in groups 2 and 1.
+    assertEquals(closure.getClosureSize(), 3);
+    assertEquals(closure.getAncestors(group3Instance), newGroupSet(group2Instance, group1Instance));
+    assertTrue(group1Instance.isMember(user3DN));
+
+    long nbCycles = closure.getCycleCount();
+    group3Instance.addNestedGroup(group1DN);
+    assertEquals(closure.getCycleCount(), nbCycles + 1);
+    //Each group is now nested in the three groups.
+    assertEquals(closure.getClosureSize(), 9);
+    assertEquals(closure.getAncestors(group2Instance),
+        newGroupSet(group1Instance, group2Instance, group3Instance));
+    assertTrue(group2Instance.isMember(user3DN));
+
+    group3Instance.removeNestedGroup(group1DN);
+    assertEquals(closure.getClosureSize(), 3);
+    group1Instance.removeNestedGroup(group2DN);
+    assertEquals(closure.getClosureSize(), 1);
+    assertFalse(group1Instance.isMember(user3DN));
+    assertTrue(group2Instance.isMember(user3DN));
+
+    //Deleting group 3 removes its nesting relationships.
+    DeleteOperation deleteOperation = getRootConnection().processDelete(group3DN);
+    assertEquals(deleteOperation.getResultCode(), ResultCode.SUCCESS);
+    assertEquals(closure.getRelationshipCount(), 0);
+    assertEquals(closure.getClosureSize(), 0);
+    assertTrue(group2Instance.getNestedGroupDNs().isEmpty());
+  }
+
+  /**
+   * Tests that replacing a group instance through an LDAP modify moves its
+   * members and nesting relationships to the new instance, and only updates
+   * the closure for the nesting relationships which have changed.
+   *
+   * @throws Exception If an unexpected problem occurs.
+   */
+  @Test
+  public void testReplacedGroupKeepsNestings() throws Exception {
+    TestCaseUtils.initializeTestBackend(true);
+    GroupManager groupManager = DirectoryServer.getGroupManager();
+    groupManager.deregisterAllGroups();
+    addNestedGroupTestEntries();
+    NestedGroupClosure closure = groupManager.getNestedGroupClosure();
+    DN group1DN = DN.valueOf("cn=group 1,ou=Groups,o=test");
+    DN group2DN = DN.valueOf("cn=group 2,ou=Groups,o=test");
+    DN group3DN = DN.valueOf("cn=group 3,ou=Groups,o=test");
+    addMember(group1DN, "cn=group 2,ou=Groups,o=test");
+    addMember(group2DN, "cn=group 3,ou=Groups,o=test");
+    addMember(group3DN, "uid=user.3,ou=People,o=test");
+    Entry user2Entry = DirectoryServer.getEntry(DN.valueOf("uid=user.2,ou=People,o=test"));
+    Entry user3Entry = DirectoryServer.getEntry(DN.valueOf("uid=user.3,ou=People,o=test"));
+    Group<?> group1Instance = groupManager.getGroupInstance(group1DN);
+    Group<?> group2Instance = groupManager.getGroupInstance(group2DN);
+    Group<?> group3Instance = groupManager.getGroupInstance(group3DN);
+    assertEquals(closure.getRelationshipCount(), 2);
+    assertEquals(closure.getClosureSize(), 3);
+
+    //Adding a user to group 2 does not change its nesting relationships.
+    long nbUpdates = closure.getUpdateCount();
+    addMember(group2DN, "uid=user.2,ou=People,o=test");
+    Group<?> newGroup2Instance = groupManager.getGroupInstance(group2DN);
+    assertNotSame(newGroup2Instance, group2Instance);
+    //Only the replacement of the instance has updated the closure.
+    assertEquals(closure.getUpdateCount(), nbUpdates + 2);
+    assertEquals(closure.getRelationshipCount(), 2);
+    assertEquals(closure.getClosureSize(), 3);
+    assertEquals(closure.getAncestors(newGroup2Instance), newGroupSet(group1Instance));
+    assertEquals(closure.getAncestors(group3Instance), newGroupSet(newGroup2Instance, group1Instance));
+    assertTrue(closure.getAncestors(group2Instance).isEmpty());
+    assertEquals(groupManager.getMemberGroups(user2Entry), newGroupSet(newGroup2Instance, group1Instance));
+    assertEquals(groupManager.getMemberGroups(user3Entry),
+        newGroupSet(group3Instance, newGroup2Instance, group1Instance));
+
+    //Removing group 3 from group 2 only removes this nesting relationship.
+    LinkedList<Modification> mods = newLinkedList(new Modification(ModificationType.DELETE,
+        Attributes.create("member", "cn=group 3,ou=Groups,o=test")));
+    ModifyOperation modifyOperation = getRootConnection().processModify(group2DN, mods);
+    assertEquals(modifyOperation.getResultCode(), ResultCode.SUCCESS);
+    Group<?> lastGroup2Instance = groupManager.getGroupInstance(group2DN);
+    assertEquals(closure.getRelationshipCount(), 1);
+    assertEquals(closure.getClosureSize(), 1);
+    assertEquals(closure.getAncestors(lastGroup2Instance), newGroupSet(group1Instance));
+    assertTrue(closure.getAncestors(group3Instance).isEmpty());
+    assertEquals(groupManager.getMemberGroups(user2Entry), newGroupSet(lastGroup2Instance, group1Instance));
+    assertEquals(groupManager.getMemberGroups(user3Entry), newGroupSet(group3Instance));
+  }
+
+  private void addMember(DN groupDN, String memberDN)
+  {
+    LinkedList<Modification> mods = newLinkedList(new Modification(ModificationType.ADD,
+        Attributes.create("member", memberDN)));
+    ModifyOperation modifyOperation = getRootConnection().processModify(groupDN, mods);
+    assertEquals(modifyOperation.getResultCode(), ResultCode.SUCCESS);
+  }
+
+  private Set<Group<?>> newGroupSet(Group<?>... groups)
+  {
+    return new HashSet<Group<?>>(Arrays.asList(groups));
+  }
+
   /**
    * Invokes membership and nested group APIs using a group instance that has
    * been changed by the group manager via ldap modify.
@@ -1771,6 +1959,116 @@ public class GroupManagerTestCase
 
 
 
+  /**
+   * Tests that a dynamic group keeping its members in memory evaluates its
+   * member URLs once, then applies the entry changes to its members.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test
+  public void testMaterializedDynamicGroup()
+         throws Exception
+  {
+    TestCaseUtils.initializeTestBackend(true);
+
+    GroupManager groupManager = DirectoryServer.getGroupManager();
+    groupManager.deregisterAllGroups();
+
+    TestCaseUtils.addEntries(
+      "dn: ou=People,o=test",
+      "objectClass: top",
+      "objectClass: organizationalUnit",
+      "ou: People",
+      "",
+      "dn: uid=user.1,ou=People,o=test",
+      "objectClass: top",
+      "objectClass: person",
+      "objectClass: organizationalPerson",
+      "objectClass: inetOrgPerson",
+      "uid: user.1",
+      "givenName: User",
+      "sn: 1",
+      "cn: User 1",
+      "",
+      "dn: uid=user.2,ou=People,o=test",
+      "objectClass: top",
+      "objectClass: person",
+      "objectClass: organizationalPerson",
+      "objectClass: inetOrgPerson",
+      "uid: user.2",
+      "givenName: User",
+      "sn: 2",
+      "cn: User 2");
+
+    DN user1DN = DN.valueOf("uid=user.1,ou=People,o=test");
+    DN user2DN = DN.valueOf("uid=user.2,ou=People,o=test");
+    DN user3DN = DN.valueOf("uid=user.3,ou=People,o=test");
+    DynamicGroup groupInstance = new DynamicGroup(
+        DN.valueOf("cn=Test Group of URLs,ou=Groups,o=test"),
+        newLinkedHashSet(LDAPURL.decode("ldap:///o=test??sub?(sn<=2)", true)), true);
+    assertTrue(groupInstance.requiresEntryChanges());
+    assertTrue(groupInstance.isMember(user1DN));
+    assertTrue(groupInstance.isMember(user2DN));
+
+    // Only the changes within the member URLs are notified.
+    assertTrue(groupInstance.isImpactedByEntryChange(user2DN, false));
+    assertFalse(groupInstance.isImpactedByEntryChange(DN.valueOf("o=other"), false));
+    assertFalse(groupInstance.isImpactedByEntryChange(DN.rootDN(), false));
+    assertTrue(groupInstance.isImpactedByEntryChange(DN.rootDN(), true));
+
+    // The entry changes are applied to the members kept in memory.
+    replaceSn(user2DN, "4");
+    groupInstance.entryChanged(user2DN, DirectoryServer.getEntry(user2DN), false);
+    assertFalse(groupInstance.isMember(user2DN));
+
+    Entry user3Entry = TestCaseUtils.addEntry(
+      "dn: uid=user.3,ou=People,o=test",
+      "objectClass: top",
+      "objectClass: person",
+      "objectClass: organizationalPerson",
+      "objectClass: inetOrgPerson",
+      "uid: user.3",
+      "givenName: User",
+      "sn: 0",
+      "cn: User 3");
+    groupInstance.entryChanged(user3DN, user3Entry, false);
+    assertTrue(groupInstance.isMember(user3DN));
+    assertTrue(groupInstance.isMember(user3Entry));
+
+    assertEquals(getRootConnection().processDelete(user1DN).getResultCode(), ResultCode.SUCCESS);
+    groupInstance.entryChanged(user1DN, null, false);
+    assertFalse(groupInstance.isMember(user1DN));
+
+    // A subtree change makes the group evaluate its member URLs again.
+    replaceSn(user2DN, "2");
+    TestCaseUtils.addEntry(
+      "dn: uid=user.1,ou=People,o=test",
+      "objectClass: top",
+      "objectClass: person",
+      "objectClass: organizationalPerson",
+      "objectClass: inetOrgPerson",
+      "uid: user.1",
+      "givenName: User",
+      "sn: 1",
+      "cn: User 1");
+    replaceSn(user3DN, "3");
+    groupInstance.entryChanged(DN.valueOf("ou=People,o=test"), null, true);
+    assertTrue(groupInstance.isMember(user1DN));
+    assertTrue(groupInstance.isMember(user2DN));
+    assertFalse(groupInstance.isMember(user3DN));
+  }
+
+
+
+  private void replaceSn(DN entryDN, String sn)
+  {
+    List<Modification> mods = newArrayList(
+        new Modification(ModificationType.REPLACE, Attributes.create("sn", sn)));
+    assertEquals(getRootConnection().processModify(entryDN, mods).getResultCode(), ResultCode.SUCCESS);
+  }
+
+
+
   /**
    * Tests to ensure that an attempt to add a dynamic group with a malformed URL
    * will cause it to be decoded as a group but any operations attempted with it
@@ -0,0 +1,229 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.core;
+
+import static org.opends.server.protocols.internal.InternalClientConnection.*;
+import static org.opends.server.util.CollectionUtils.*;
+import static org.testng.Assert.*;
+
+import java.util.List;
+
+import org.forgerock.opendj.ldap.ModificationType;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.types.Attributes;
+import org.opends.server.types.DN;
+import org.opends.server.types.Entry;
+import org.opends.server.types.Modification;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Tests for the {@link LastLoginTimeUpdater} class and the deferred last login time updates of binds. */
+@SuppressWarnings("javadoc")
+public class LastLoginTimeUpdaterTestCase extends CoreTestCase
+{
+  private static final String USER_DN = "uid=test.user,o=test";
+
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  @BeforeMethod
+  public void addUser() throws Exception
+  {
+    TestCaseUtils.initializeTestBackend(true);
+    TestCaseUtils.addEntry(
+        "dn: " + USER_DN,
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "uid: test.user",
+        "givenName: Test",
+        "sn: User",
+        "cn: Test User",
+        "userPassword: password");
+  }
+
+  @AfterMethod
+  public void resetConfiguration() throws Exception
+  {
+    TestCaseUtils.applyModifications(true,
+        "dn: cn=config",
+        "changetype: modify",
+        "replace: ds-cfg-last-login-time-update-interval",
+        "ds-cfg-last-login-time-update-interval: 0 seconds",
+        "",
+        "dn: cn=Default Password Policy,cn=Password Policies,cn=config",
+        "changetype: modify",
+        "replace: ds-cfg-last-login-time-attribute",
+        "-",
+        "replace: ds-cfg-last-login-time-format",
+        "-",
+        "replace: ds-cfg-lockout-failure-count",
+        "ds-cfg-lockout-failure-count: 0",
+        "-",
+        "replace: ds-cfg-state-update-failure-policy",
+        "ds-cfg-state-update-failure-policy: reactive");
+  }
+
+  @Test
+  public void testUpdatesAreCoalesced() throws Exception
+  {
+    final LastLoginTimeUpdater updater = new LastLoginTimeUpdater();
+    try
+    {
+      updater.submit(USER_DN, replaceDescription("1"));
+      updater.submit(USER_DN, replaceDescription("2"));
+      assertEquals(updater.getSubmittedUpdates(), 2);
+      assertEquals(updater.getCoalescedUpdates(), 1);
+      assertEquals(updater.getPendingUpdates(), 1);
+
+      updater.flush();
+      assertEquals(updater.getWrittenUpdates(), 1);
+      assertEquals(updater.getPendingUpdates(), 0);
+      assertEquals(getDescription(USER_DN), "2");
+    }
+    finally
+    {
+      DirectoryServer.deregisterShutdownListener(updater);
+    }
+  }
+
+  @Test
+  public void testRemovedUpdateIsNotWritten() throws Exception
+  {
+    final LastLoginTimeUpdater updater = new LastLoginTimeUpdater();
+    try
+    {
+      final List<Modification> mods = replaceDescription("1");
+      updater.submit(USER_DN, mods);
+      assertSame(updater.remove(USER_DN), mods);
+      assertNull(updater.remove(USER_DN));
+
+      updater.flush();
+      assertEquals(updater.getWrittenUpdates(), 0);
+      assertNull(getDescription(USER_DN));
+    }
+    finally
+    {
+      DirectoryServer.deregisterShutdownListener(updater);
+    }
+  }
+
+  /** Failures are logged, and do not prevent writing the other updates. */
+  @Test
+  public void testFlushWithFailures() throws Exception
+  {
+    final LastLoginTimeUpdater updater = new LastLoginTimeUpdater();
+    try
+    {
+      // The entry has been deleted meanwhile
+      updater.submit("uid=missing.user,o=test", replaceDescription("1"));
+      // The modification is rejected by the backend
+      updater.submit("o=test", newArrayList(new Modification(ModificationType.REPLACE, Attributes.create("uid", "1"))));
+      updater.submit(USER_DN, replaceDescription("1"));
+
+      updater.flush();
+      assertEquals(updater.getWrittenUpdates(), 1);
+      assertEquals(updater.getPendingUpdates(), 0);
+      assertEquals(getDescription(USER_DN), "1");
+    }
+    finally
+    {
+      DirectoryServer.deregisterShutdownListener(updater);
+    }
+  }
+
+  /** A pending last login time is written along with the state updates of a failed bind. */
+  @Test
+  public void testPendingUpdateIsWrittenByFailedBind() throws Exception
+  {
+    configureLastLoginTime("ignore");
+    final LastLoginTimeUpdater updater = DirectoryServer.getLastLoginTimeUpdater();
+    final long submittedUpdates = updater.getSubmittedUpdates();
+
+    assertEquals(getRootConnection().processSimpleBind(USER_DN, "password").getResultCode(), ResultCode.SUCCESS);
+    assertEquals(updater.getSubmittedUpdates(), submittedUpdates + 1);
+
+    assertEquals(getRootConnection().processSimpleBind(USER_DN, "wrong").getResultCode(),
+        ResultCode.INVALID_CREDENTIALS);
+    final Entry userEntry = DirectoryServer.getEntry(DN.valueOf(USER_DN));
+    assertTrue(userEntry.hasAttribute(DirectoryServer.getAttributeTypeOrDefault("ds-pwp-last-login-time")));
+    assertTrue(userEntry.hasAttribute(DirectoryServer.getAttributeTypeOrDefault("pwdfailuretime")));
+    assertNull(updater.remove(USER_DN));
+  }
+
+  /** The last login time is written by the bind when its failure must not be ignored. */
+  @Test
+  public void testUpdateIsNotDeferredWithReactivePolicy() throws Exception
+  {
+    configureLastLoginTime("reactive");
+    final LastLoginTimeUpdater updater = DirectoryServer.getLastLoginTimeUpdater();
+    final long submittedUpdates = updater.getSubmittedUpdates();
+
+    assertEquals(getRootConnection().processSimpleBind(USER_DN, "password").getResultCode(), ResultCode.SUCCESS);
+    assertEquals(updater.getSubmittedUpdates(), submittedUpdates);
+    final Entry userEntry = DirectoryServer.getEntry(DN.valueOf(USER_DN));
+    assertTrue(userEntry.hasAttribute(DirectoryServer.getAttributeTypeOrDefault("ds-pwp-last-login-time")));
+  }
+
+  private void configureLastLoginTime(String stateUpdateFailurePolicy) throws Exception
+  {
+    TestCaseUtils.applyModifications(true,
+        "dn: cn=config",
+        "changetype: modify",
+        "replace: ds-cfg-last-login-time-update-interval",
+        "ds-cfg-last-login-time-update-interval: 1 hours",
+        "",
+        "dn: cn=Default Password Policy,cn=Password Policies,cn=config",
+        "changetype: modify",
+        "replace: ds-cfg-last-login-time-attribute",
+        "ds-cfg-last-login-time-attribute: ds-pwp-last-login-time",
+        "-",
+        "replace: ds-cfg-last-login-time-format",
+        "ds-cfg-last-login-time-format: yyyyMMddHHmmss'Z'",
+        "-",
+        "replace: ds-cfg-lockout-failure-count",
+        "ds-cfg-lockout-failure-count: 3",
+        "-",
+        "replace: ds-cfg-state-update-failure-policy",
+        "ds-cfg-state-update-failure-policy: " + stateUpdateFailurePolicy);
+  }
+
+  private List<Modification> replaceDescription(String description)
+  {
+    return newArrayList(new Modification(ModificationType.REPLACE, Attributes.create("description", description)));
+  }
+
+  private String getDescription(String dn) throws Exception
+  {
+    return DirectoryServer.getEntry(DN.valueOf(dn)).parseAttribute("description").asString();
+  }
+}
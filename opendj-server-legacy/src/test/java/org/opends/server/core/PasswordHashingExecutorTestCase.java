@@ -0,0 +1,280 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.core;
+
+import static org.testng.Assert.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.api.AuthenticationPolicy;
+import org.opends.server.api.PasswordStorageScheme;
+import org.opends.server.extensions.PBKDF2PasswordStorageScheme;
+import org.opends.server.extensions.SaltedSHA1PasswordStorageScheme;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+import org.testng.annotations.Test;
+
+/** Tests for the {@link PasswordHashingExecutor} class. */
+@SuppressWarnings("javadoc")
+public class PasswordHashingExecutorTestCase extends CoreTestCase
+{
+  private final PasswordStorageScheme<?> expensiveScheme = new PBKDF2PasswordStorageScheme();
+  private final PasswordStorageScheme<?> cheapScheme = new SaltedSHA1PasswordStorageScheme();
+
+  private static final Callable<String> THREAD_NAME = new Callable<String>()
+  {
+    @Override
+    public String call()
+    {
+      return Thread.currentThread().getName();
+    }
+  };
+
+  @Test
+  public void testExpensiveSchemesRunOnHashingThreads() throws Exception
+  {
+    final PasswordHashingExecutor executor = new PasswordHashingExecutor(2, 10, 0);
+    try
+    {
+      assertTrue(executor.execute(expensiveScheme, THREAD_NAME).startsWith("Password Hashing Thread"));
+      assertEquals(executor.execute(cheapScheme, THREAD_NAME), Thread.currentThread().getName());
+      assertEquals(executor.getTasks(), 1);
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testDisabledExecutorRunsOnCallingThread() throws Exception
+  {
+    assertEquals(PasswordHashingExecutor.DISABLED.execute(expensiveScheme, THREAD_NAME),
+        Thread.currentThread().getName());
+    PasswordHashingExecutor.DISABLED.checkAdmission("127.0.0.1");
+  }
+
+  @Test
+  public void testTaskExceptionIsPropagated() throws Exception
+  {
+    final PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 10, 0);
+    try
+    {
+      executor.execute(expensiveScheme, new Callable<Void>()
+      {
+        @Override
+        public Void call() throws DirectoryException
+        {
+          throw new DirectoryException(ResultCode.CONSTRAINT_VIOLATION, LocalizableMessage.raw("test"));
+        }
+      });
+      fail("Expected a DirectoryException");
+    }
+    catch (DirectoryException e)
+    {
+      assertEquals(e.getResultCode(), ResultCode.CONSTRAINT_VIOLATION);
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testFullQueueRejectsTasks() throws Exception
+  {
+    final PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1, 0);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Callable<String> blockingTask = new Callable<String>()
+    {
+      @Override
+      public String call() throws InterruptedException
+      {
+        started.countDown();
+        release.await();
+        return Thread.currentThread().getName();
+      }
+    };
+    final Thread[] clients = new Thread[2];
+    try
+    {
+      // Occupy the hashing thread, then the only slot of the queue.
+      for (int i = 0; i < clients.length; i++)
+      {
+        clients[i] = new Thread()
+        {
+          @Override
+          public void run()
+          {
+            try
+            {
+              executor.execute(expensiveScheme, blockingTask);
+            }
+            catch (DirectoryException e)
+            {
+              // The test fails below.
+            }
+          }
+        };
+        clients[i].start();
+        if (i == 0)
+        {
+          started.await();
+        }
+      }
+      while (executor.getQueueSize() == 0)
+      {
+        Thread.sleep(10);
+      }
+
+      try
+      {
+        executor.execute(expensiveScheme, THREAD_NAME);
+        fail("Expected the password hashing queue to be full");
+      }
+      catch (DirectoryException e)
+      {
+        assertEquals(e.getResultCode(), ResultCode.BUSY);
+        assertEquals(executor.getQueueFullRejections(), 1);
+      }
+    }
+    finally
+    {
+      release.countDown();
+      for (Thread client : clients)
+      {
+        if (client != null)
+        {
+          client.join();
+        }
+      }
+      executor.shutdown();
+    }
+    assertEquals(executor.getTasks(), 3);
+  }
+
+  @Test
+  public void testReplacedExecutorHandsOverTasks() throws Exception
+  {
+    final PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 10, 0);
+    executor.shutdown();
+    // The stopped executor is not the server's executor, which runs the task instead.
+    assertNotNull(executor.execute(expensiveScheme, THREAD_NAME));
+    assertEquals(executor.getQueueFullRejections(), 0);
+  }
+
+  @Test
+  public void testRateLimit() throws Exception
+  {
+    final PasswordHashingExecutor executor = new PasswordHashingExecutor(0, 1, 2);
+    executor.checkAdmission("192.0.2.1");
+    executor.checkAdmission("192.0.2.1");
+    executor.checkAdmission("192.0.2.2");
+    executor.checkAdmission(null);
+    executor.checkAdmission(null);
+    executor.checkAdmission(null);
+    try
+    {
+      // The two previous admissions may have happened during the previous second.
+      executor.checkAdmission("192.0.2.1");
+      executor.checkAdmission("192.0.2.1");
+      executor.checkAdmission("192.0.2.1");
+      fail("Expected the rate limit to be exceeded");
+    }
+    catch (DirectoryException e)
+    {
+      assertEquals(e.getResultCode(), ResultCode.BUSY);
+      assertTrue(executor.getRateLimitRejections() >= 1);
+    }
+  }
+
+  @Test
+  public void testRecentlyVerifiedPasswordIsNotRateLimited() throws Exception
+  {
+    TestCaseUtils.startServer();
+    TestCaseUtils.dsconfig(
+        "set-global-configuration-prop",
+        "--set", "password-hashing-rate-limit:1",
+        "--set", "verified-credential-cache-duration:1 minutes");
+    try
+    {
+      final ByteString password = ByteString.valueOfUtf8("password");
+      final ByteString encodedPassword =
+          DirectoryServer.getPasswordStorageScheme("pbkdf2").encodePasswordWithScheme(password);
+      final Entry entry = TestCaseUtils.makeEntry(
+          "dn: uid=hashing.test,o=test",
+          "objectClass: top",
+          "objectClass: person",
+          "objectClass: organizationalPerson",
+          "objectClass: inetOrgPerson",
+          "uid: hashing.test",
+          "cn: Hashing Test",
+          "sn: Test",
+          "userPassword: " + encodedPassword);
+      final PasswordPolicyState state =
+          (PasswordPolicyState) AuthenticationPolicy.forUser(entry, false).createAuthenticationPolicyState(entry);
+
+      assertTrue(state.passwordMatches(password, "192.0.2.10"));
+      try
+      {
+        // The rate limit rejects the verification rather than reporting a wrong password.
+        for (int i = 0; i < 3; i++)
+        {
+          state.passwordMatches(ByteString.valueOfUtf8("wrong"), "192.0.2.10");
+        }
+        fail("Expected the rate limit to be exceeded");
+      }
+      catch (DirectoryException e)
+      {
+        assertEquals(e.getResultCode(), ResultCode.BUSY);
+      }
+      // The verified password is matched without asking for admission.
+      assertTrue(state.passwordMatches(password, "192.0.2.10"));
+    }
+    finally
+    {
+      TestCaseUtils.dsconfig(
+          "set-global-configuration-prop",
+          "--reset", "password-hashing-rate-limit",
+          "--reset", "verified-credential-cache-duration");
+    }
+  }
+
+  @Test
+  public void testHasSettings()
+  {
+    final PasswordHashingExecutor executor = new PasswordHashingExecutor(0, 100, 5);
+    assertTrue(executor.hasSettings(0, 100, 5));
+    assertFalse(executor.hasSettings(1, 100, 5));
+    assertFalse(executor.hasSettings(0, 10, 5));
+    assertFalse(executor.hasSettings(0, 100, 0));
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.core;
+
+import static org.opends.server.ServerContextBuilder.*;
+import static org.opends.server.TestCaseUtils.*;
+import static org.opends.server.util.ServerConstants.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.forgerock.opendj.ldap.schema.MatchingRule;
+import org.forgerock.opendj.ldap.schema.Syntax;
+import org.opends.server.ServerContextBuilder.MockSchemaUpdater;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.AttributeType;
+import org.opends.server.types.ObjectClass;
+import org.opends.server.types.Schema;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the loading of the schema files by the schema config manager, whose
+ * files are read in parallel but registered in file order.
+ */
+@SuppressWarnings("javadoc")
+public class SchemaConfigManagerTestCase extends CoreTestCase
+{
+  private static final String ATTR_NAME = "testSchemaLoadAttr";
+
+  /**
+   * Schema files where each file depends on the definitions of the previous
+   * ones. The last file also has an extra attribute whose type is only defined
+   * by the previous files, so it must be read again once they are loaded.
+   */
+  private final List<File> schemaFiles = new ArrayList<>();
+
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+
+    final String schemaDirectory = SchemaConfigManager.getSchemaDirectoryPath();
+    schemaFiles.add(writeSchemaFile(schemaDirectory, "98-test-schema-load-1.ldif",
+        "attributeTypes: ( 1.3.6.1.4.1.26027.1.999.180 NAME '" + ATTR_NAME + "'"
+            + " DESC 'v1' SYNTAX 1.3.6.1.4.1.1466.115.121.1.15 X-ORIGIN 'SchemaConfigManagerTestCase' )",
+        "objectClasses: ( 1.3.6.1.4.1.26027.1.999.181 NAME 'testSchemaLoadOC1' SUP top STRUCTURAL"
+            + " MUST " + ATTR_NAME + " X-ORIGIN 'SchemaConfigManagerTestCase' )"));
+    schemaFiles.add(writeSchemaFile(schemaDirectory, "98-test-schema-load-2.ldif",
+        "attributeTypes: ( 1.3.6.1.4.1.26027.1.999.180 NAME '" + ATTR_NAME + "'"
+            + " DESC 'v2' SYNTAX 1.3.6.1.4.1.1466.115.121.1.15 X-ORIGIN 'SchemaConfigManagerTestCase' )",
+        "objectClasses: ( 1.3.6.1.4.1.26027.1.999.182 NAME 'testSchemaLoadOC2' SUP testSchemaLoadOC1"
+            + " STRUCTURAL X-ORIGIN 'SchemaConfigManagerTestCase' )"));
+    schemaFiles.add(writeSchemaFile(schemaDirectory, "98-test-schema-load-3.ldif",
+        "objectClasses: ( 1.3.6.1.4.1.26027.1.999.183 NAME 'testSchemaLoadOC3' SUP testSchemaLoadOC2"
+            + " STRUCTURAL MAY " + ATTR_NAME + " X-ORIGIN 'SchemaConfigManagerTestCase' )",
+        ATTR_NAME + ": extra"));
+  }
+
+  @AfterClass
+  public void deleteSchemaFiles()
+  {
+    for (File schemaFile : schemaFiles)
+    {
+      schemaFile.delete();
+    }
+  }
+
+  private File writeSchemaFile(String schemaDirectory, String fileName, String... schemaLines) throws Exception
+  {
+    final List<String> lines = new ArrayList<>();
+    lines.add("dn: cn=schema");
+    lines.add("objectClass: top");
+    lines.add("objectClass: ldapSubentry");
+    lines.add("objectClass: subschema");
+    for (String line : schemaLines)
+    {
+      lines.add(line);
+    }
+    final File file = new File(schemaDirectory, fileName);
+    writeFile(file, makeLdif(lines.toArray(new String[lines.size()])));
+    return file;
+  }
+
+  @DataProvider
+  public Object[][] startupThreads()
+  {
+    return new Object[][] { { 1 }, { 4 } };
+  }
+
+  @Test(dataProvider = "startupThreads")
+  public void testSchemaFilesLoadedInFileOrder(int nbThreads) throws Exception
+  {
+    final Schema schema = loadSchema(nbThreads);
+
+    final AttributeType attrType = schema.getAttributeType(ATTR_NAME.toLowerCase());
+    assertNotNull(attrType);
+    assertEquals(attrType.getDescription(), "v2");
+    assertFalse(attrType.isDirty());
+
+    final ObjectClass oc1 = schema.getObjectClass("testschemaloadoc1");
+    final ObjectClass oc2 = schema.getObjectClass("testschemaloadoc2");
+    final ObjectClass oc3 = schema.getObjectClass("testschemaloadoc3");
+    assertNotNull(oc1);
+    assertNotNull(oc2);
+    assertNotNull(oc3);
+    assertTrue(oc2.getSuperiorClasses().contains(oc1));
+    assertTrue(oc3.getSuperiorClasses().contains(oc2));
+    assertTrue(oc3.getOptionalAttributes().contains(attrType));
+  }
+
+  /**
+   * The last file is read before the previous files define the type of its
+   * extra attribute: reading it again must resolve the registered type
+   * instead of the temporary one.
+   */
+  @Test(dataProvider = "startupThreads")
+  public void testSchemaFileWithDirtyAttributeTypeIsReadAgain(int nbThreads) throws Exception
+  {
+    final Schema schema = loadSchema(nbThreads);
+
+    final Attribute extraAttribute = schema.getExtraAttributes().get(ATTR_NAME);
+    assertNotNull(extraAttribute);
+    assertSame(extraAttribute.getAttributeType(), schema.getAttributeType(ATTR_NAME.toLowerCase()));
+    assertFalse(extraAttribute.getAttributeType().isDirty());
+  }
+
+  @Test
+  public void testParallelLoadingMatchesSequentialLoading() throws Exception
+  {
+    final Schema sequential = loadSchema(1);
+    final Schema parallel = loadSchema(4);
+
+    assertEquals(parallel.getAttributeTypes().keySet(), sequential.getAttributeTypes().keySet());
+    assertEquals(parallel.getObjectClasses().keySet(), sequential.getObjectClasses().keySet());
+    assertEquals(parallel.getLdapSyntaxDescriptions().keySet(), sequential.getLdapSyntaxDescriptions().keySet());
+    assertEquals(parallel.getExtraAttributes().keySet(), sequential.getExtraAttributes().keySet());
+  }
+
+  /**
+   * Loads the schema files like at startup, i.e. with the schema being loaded
+   * as the server schema, since the schema files are read using the server
+   * schema.
+   */
+  private Schema loadSchema(int nbThreads) throws Exception
+  {
+    final Schema serverSchema = DirectoryServer.getSchema();
+    final ServerContext serverContext = aServerContext()
+        .schemaUpdater(new MockSchemaUpdater(DirectoryServer.getInstance().getServerContext().getSchemaNG()))
+        .build();
+    final SchemaConfigManager schemaConfigManager = new SchemaConfigManager(serverContext);
+    final Schema schema = schemaConfigManager.getSchema();
+    schema.registerDefaultSyntax(serverSchema.getDefaultSyntax());
+    for (Syntax syntax : serverSchema.getSyntaxes().values())
+    {
+      schema.registerSyntax(syntax, true);
+    }
+    for (MatchingRule matchingRule : serverSchema.getMatchingRules().values())
+    {
+      schema.registerMatchingRule(matchingRule, true);
+    }
+
+    final String previousStartupThreads = System.getProperty(PROPERTY_STARTUP_THREADS);
+    System.setProperty(PROPERTY_STARTUP_THREADS, String.valueOf(nbThreads));
+    DirectoryServer.setSchema(schema);
+    try
+    {
+      schemaConfigManager.initializeSchemaFromFiles();
+      return schema;
+    }
+    finally
+    {
+      DirectoryServer.setSchema(serverSchema);
+      if (previousStartupThreads != null)
+      {
+        System.setProperty(PROPERTY_STARTUP_THREADS, previousStartupThreads);
+      }
+      else
+      {
+        System.clearProperty(PROPERTY_STARTUP_THREADS);
+      }
+    }
+  }
+}
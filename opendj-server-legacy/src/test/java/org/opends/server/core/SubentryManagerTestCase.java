@@ -138,6 +138,42 @@ public class SubentryManagerTestCase extends CoreTestCase
     assertThat(subentryList).isEmpty();
   }
 
+  @Test
+  public void testObjectClassRefinement() throws Exception
+  {
+    SubentryManager manager = DirectoryServer.getSubentryManager();
+    Entry itemSubentry = addEntry(
+         "dn: cn=Item Subentry," + SUFFIX,
+         "objectClass: top",
+         "objectclass: subentry",
+         "subtreeSpecification: {base \"ou=Test SubEntry Manager\", specificationFilter item:inetOrgPerson}",
+         "cn: Item Subentry");
+    try
+    {
+      assertThat(getDns(manager.getSubentries(testEntry))).containsOnly(
+          ldapSubentry.getName(), itemSubentry.getName(), legacyLdapSubentry.getName());
+      Entry roleEntry = DirectoryServer.getEntry(DN.valueOf("cn=Sales," + BASE));
+      assertThat(getDns(manager.getSubentries(roleEntry))).containsExactly(
+          ldapSubentry.getName(), legacyLdapSubentry.getName());
+
+      // The same DN with other object classes must not reuse the memoized subentries.
+      Entry personEntry = TestCaseUtils.makeEntry(
+           "dn: uid=rogasawara," + BASE,
+           "objectclass: top",
+           "objectclass: person",
+           "sn: Ogasawara",
+           "cn: Rodney Ogasawara");
+      assertThat(getDns(manager.getSubentries(personEntry))).containsExactly(
+          ldapSubentry.getName(), legacyLdapSubentry.getName());
+    }
+    finally
+    {
+      TestCaseUtils.deleteEntry(itemSubentry.getName());
+    }
+    assertThat(getDns(manager.getSubentries(testEntry))).containsExactly(
+        ldapSubentry.getName(), legacyLdapSubentry.getName());
+  }
+
   private List<Entry> getEntries(List<SubEntry> subentries)
   {
     final List<Entry> results = new ArrayList<>();
@@ -0,0 +1,109 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.core;
+
+import static org.testng.Assert.*;
+
+import java.util.Map;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.testng.annotations.Test;
+
+/** Tests for the {@link VerifiedCredentialCache} and {@link BindStatistics} classes. */
+@SuppressWarnings("javadoc")
+public class VerifiedCredentialCacheTestCase extends CoreTestCase
+{
+  private static final ByteString STORED = ByteString.valueOfUtf8("{SSHA}AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+  private static final ByteString PASSWORD = ByteString.valueOfUtf8("password");
+
+  @Test
+  public void testVerifiedPassword()
+  {
+    final VerifiedCredentialCache cache = new VerifiedCredentialCache(60000, 100);
+    assertTrue(cache.isEnabled());
+    assertEquals(cache.getSize(), 128);
+    assertFalse(cache.isVerified(STORED, PASSWORD));
+
+    cache.putVerified(STORED, PASSWORD);
+    assertTrue(cache.isVerified(STORED, PASSWORD));
+    assertFalse(cache.isVerified(STORED, ByteString.valueOfUtf8("wrong")));
+    assertFalse(cache.isVerified(ByteString.valueOfUtf8("{SSHA}BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB"), PASSWORD));
+    assertEquals(cache.getHits(), 1);
+    assertEquals(cache.getMisses(), 3);
+  }
+
+  @Test
+  public void testExpiredVerification() throws Exception
+  {
+    final VerifiedCredentialCache cache = new VerifiedCredentialCache(1, 100);
+    cache.putVerified(STORED, PASSWORD);
+    Thread.sleep(10);
+    assertFalse(cache.isVerified(STORED, PASSWORD));
+  }
+
+  @Test
+  public void testDisabledCache()
+  {
+    for (VerifiedCredentialCache cache : new VerifiedCredentialCache[] {
+      VerifiedCredentialCache.DISABLED, new VerifiedCredentialCache(0, 100), new VerifiedCredentialCache(60000, 0) })
+    {
+      assertFalse(cache.isEnabled());
+      cache.putVerified(STORED, PASSWORD);
+      assertFalse(cache.isVerified(STORED, PASSWORD));
+    }
+  }
+
+  @Test
+  public void testBindTimeBuckets()
+  {
+    for (long time = 0; time < 100000; time++)
+    {
+      final int bucket = BindStatistics.getBucket(time);
+      assertTrue(time <= BindStatistics.getBucketUpperBound(bucket), "time " + time);
+      assertTrue(bucket == 0 || time > BindStatistics.getBucketUpperBound(bucket - 1), "time " + time);
+    }
+  }
+
+  @Test
+  public void testBindLatencyPercentiles()
+  {
+    final BindStatistics statistics = new BindStatistics();
+    for (int i = 1; i <= 1000; i++)
+    {
+      statistics.updateBindTime("SSHA", i);
+    }
+    statistics.updateBindTime("PBKDF2", 50000);
+
+    final Map<String, long[]> latencies = statistics.getLatencies(0.5, 0.99);
+    assertEquals(latencies.keySet().toString(), "[PBKDF2, SSHA]");
+    final long[] ssha = latencies.get("SSHA");
+    assertEquals(ssha[0], 1000);
+    assertEquals(ssha[1], 500500);
+    assertTrue(ssha[2] >= 500 && ssha[2] < 500 * 1.25, "p50 " + ssha[2]);
+    assertTrue(ssha[3] >= 990 && ssha[3] < 990 * 1.25, "p99 " + ssha[3]);
+    final long[] pbkdf2 = latencies.get("PBKDF2");
+    assertTrue(pbkdf2[2] >= 50000 && pbkdf2[2] < 50000 * 1.25, "p50 " + pbkdf2[2]);
+  }
+}
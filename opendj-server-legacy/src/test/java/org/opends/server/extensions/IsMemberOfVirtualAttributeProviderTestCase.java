@@ -928,6 +928,88 @@ public class IsMemberOfVirtualAttributeProviderTestCase
     assertTrue(entries.size()>4000);
   }
 
+  /**
+   * Tests that the isMemberOf virtual attribute is properly generated for
+   * every entry returned by a search, with static, nested and dynamic groups.
+   */
+  @Test
+  public void testIsMemberOfInSearch() throws Exception
+  {
+    TestCaseUtils.initializeTestBackend(true);
+
+    StringBuilder builder = new StringBuilder();
+    builder.append("dn: ou=People,o=test");
+    builder.append("\nobjectClass: organizationalUnit");
+    builder.append("\nou: People");
+    for (int i = 0; i < 50; i++)
+    {
+      builder.append("\n\ndn: uid=user.").append(i).append(",ou=People,o=test");
+      builder.append("\nobjectClass: person");
+      builder.append("\nobjectClass: inetOrgPerson");
+      builder.append("\nuid: user.").append(i);
+      builder.append("\ncn: user.").append(i);
+      builder.append("\nsn: ").append(i % 2 == 0 ? "even" : "odd");
+    }
+    builder.append("\n\ndn: ou=Groups,o=test");
+    builder.append("\nobjectClass: organizationalUnit");
+    builder.append("\nou: Groups");
+    // Static group of the users whose number is a multiple of 3
+    builder.append("\n\ndn: cn=Static,ou=Groups,o=test");
+    builder.append("\nobjectClass: groupOfNames");
+    builder.append("\ncn: Static");
+    for (int i = 0; i < 50; i += 3)
+    {
+      builder.append("\nmember: uid=user.").append(i).append(",ou=People,o=test");
+    }
+    // Parent group of the static and dynamic groups
+    builder.append("\n\ndn: cn=Parent,ou=Groups,o=test");
+    builder.append("\nobjectClass: groupOfNames");
+    builder.append("\ncn: Parent");
+    builder.append("\nmember: cn=Static,ou=Groups,o=test");
+    builder.append("\nmember: cn=Dynamic,ou=Groups,o=test");
+    builder.append("\n\ndn: cn=Dynamic,ou=Groups,o=test");
+    builder.append("\nobjectClass: groupOfURLs");
+    builder.append("\ncn: Dynamic");
+    builder.append("\nmemberURL: ldap:///ou=People,o=test??sub?(sn=even)");
+    TestCaseUtils.addEntries(builder.toString());
+
+    try
+    {
+      SearchRequest request = newSearchRequest("ou=People,o=test", SearchScope.SINGLE_LEVEL, "(objectClass=person)")
+          .addAttribute("isMemberOf");
+      InternalSearchOperation searchOperation = getRootConnection().processSearch(request);
+      assertEquals(searchOperation.getResultCode(), ResultCode.SUCCESS);
+      List<SearchResultEntry> entries = searchOperation.getSearchEntries();
+      assertEquals(entries.size(), 50);
+
+      for (SearchResultEntry e : entries)
+      {
+        int i = Integer.parseInt(e.parseAttribute("cn").asString().substring("user.".length()));
+        boolean isStaticMember = i % 3 == 0;
+        boolean isDynamicMember = i % 2 == 0;
+        List<Attribute> attrs = e.getAttribute(isMemberOfType);
+        int nbGroups = (isStaticMember ? 1 : 0) + (isDynamicMember ? 1 : 0);
+        if (nbGroups == 0)
+        {
+          assertNull(attrs, e.getName().toString());
+          continue;
+        }
+        assertEquals(attrs.size(), 1);
+        Attribute a = attrs.get(0);
+        assertEquals(a.size(), nbGroups + 1, e.getName().toString());
+        assertEquals(a.contains(ByteString.valueOfUtf8("cn=static,ou=groups,o=test")), isStaticMember);
+        assertEquals(a.contains(ByteString.valueOfUtf8("cn=dynamic,ou=groups,o=test")), isDynamicMember);
+        assertTrue(a.contains(ByteString.valueOfUtf8("cn=parent,ou=groups,o=test")));
+      }
+    }
+    finally
+    {
+      delete("cn=parent,ou=groups,o=test",
+          "cn=static,ou=groups,o=test",
+          "cn=dynamic,ou=groups,o=test");
+    }
+  }
+
   private VirtualAttributeRule buildRule(IsMemberOfVirtualAttributeProvider provider)
   {
     return new VirtualAttributeRule(isMemberOfType, provider,
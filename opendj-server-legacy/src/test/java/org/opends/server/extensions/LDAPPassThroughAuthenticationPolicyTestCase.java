@@ -311,6 +311,7 @@ public class LDAPPassThroughAuthenticationPolicyTestCase extends
           username.toString(), password.toString());
       final DirectoryException e = mockProvider
           .assertExpectedEventWasReceived(event);
+      mockProvider.awaitBlockedBind();
       if (e != null)
       {
         throw e;
@@ -385,6 +386,8 @@ public class LDAPPassThroughAuthenticationPolicyTestCase extends
     private String mappedSearchBindPasswordFile;
     private String mappedSearchBindPasswordProperty;
     private boolean usePasswordCaching;
+    private long bindOutcomeCacheDuration;
+    private Integer connectionPoolSize;
 
 
 
@@ -678,6 +681,22 @@ public class LDAPPassThroughAuthenticationPolicyTestCase extends
 
 
 
+    MockPolicyCfg withBindOutcomeCacheDuration(final long durationMS)
+    {
+      this.bindOutcomeCacheDuration = durationMS;
+      return this;
+    }
+
+
+
+    MockPolicyCfg withConnectionPoolSize(final int poolSize)
+    {
+      this.connectionPoolSize = poolSize;
+      return this;
+    }
+
+
+
     /** {@inheritDoc} */
     @Override
     public String getMappedSearchBindPasswordEnvironmentVariable()
@@ -745,6 +764,33 @@ public class LDAPPassThroughAuthenticationPolicyTestCase extends
     {
       return usePasswordCaching;
     }
+
+
+
+    /** {@inheritDoc} */
+    @Override
+    public Integer getConnectionPoolSize()
+    {
+      return connectionPoolSize;
+    }
+
+
+
+    /** {@inheritDoc} */
+    @Override
+    public long getBindOutcomeCacheDuration()
+    {
+      return bindOutcomeCacheDuration;
+    }
+
+
+
+    /** {@inheritDoc} */
+    @Override
+    public int getBindOutcomeCacheSize()
+    {
+      return 10000;
+    }
   }
 
 
@@ -835,6 +881,10 @@ public class LDAPPassThroughAuthenticationPolicyTestCase extends
     private final Queue<Event<?>> expectedEvents = new LinkedList<>();
     private final List<MockScheduledFuture> monitorRunnables = new LinkedList<>();
     private String currentTime = TimeThread.getGMTTime();
+    /** Counted down when the next bind is blocked. */
+    private CountDownLatch bindBlocked;
+    /** Releases the next bind once it has been blocked. */
+    private CountDownLatch bindReleased;
 
     /** All methods unused excepted scheduleWithFixedDelay. */
     private final ScheduledExecutorService mockScheduler = new ScheduledExecutorService()
@@ -1039,7 +1089,7 @@ public class LDAPPassThroughAuthenticationPolicyTestCase extends
 
 
 
-    void assertAllExpectedEventsReceived()
+    synchronized void assertAllExpectedEventsReceived()
     {
       assertTrue(expectedEvents.isEmpty());
     }
@@ -1047,7 +1097,7 @@ public class LDAPPassThroughAuthenticationPolicyTestCase extends
 
 
     @SuppressWarnings("unchecked")
-    <T> T assertExpectedEventWasReceived(final Event<T> actualEvent)
+    synchronized <T> T assertExpectedEventWasReceived(final Event<T> actualEvent)
     {
       final Event<?> expectedEvent = expectedEvents.poll();
       if (expectedEvent == null)
@@ -1063,7 +1113,7 @@ public class LDAPPassThroughAuthenticationPolicyTestCase extends
 
 
 
-    MockProvider expectEvent(final Event<?> expectedEvent)
+    synchronized MockProvider expectEvent(final Event<?> expectedEvent)
     {
       expectedEvents.add(expectedEvent);
       return this;
@@ -1079,6 +1129,47 @@ public class LDAPPassThroughAuthenticationPolicyTestCase extends
 
 
 
+    /**
+     * Blocks the next remote bind, once its expected event has been received,
+     * until the provided latch is released.
+     */
+    synchronized MockProvider withBlockedBind(final CountDownLatch blocked,
+        final CountDownLatch released)
+    {
+      this.bindBlocked = blocked;
+      this.bindReleased = released;
+      return this;
+    }
+
+
+
+    void awaitBlockedBind()
+    {
+      final CountDownLatch blocked;
+      final CountDownLatch released;
+      synchronized (this)
+      {
+        blocked = bindBlocked;
+        released = bindReleased;
+        bindBlocked = null;
+        bindReleased = null;
+      }
+      if (blocked != null)
+      {
+        blocked.countDown();
+        try
+        {
+          assertTrue(released.await(10, TimeUnit.SECONDS));
+        }
+        catch (final InterruptedException e)
+        {
+          throw new RuntimeException(e);
+        }
+      }
+    }
+
+
+
     void runMonitorTasks()
     {
       for (final MockScheduledFuture task : monitorRunnables)
@@ -3347,6 +3438,404 @@ public class LDAPPassThroughAuthenticationPolicyTestCase extends
 
 
 
+  /**
+   * Tests that successful remote binds are kept in memory when the bind
+   * outcome cache is enabled: further binds with the same password are not
+   * delegated to the remote server, whereas binds with another password are.
+   *
+   * @throws Exception
+   *           If an unexpected exception occurred.
+   */
+  @Test(enabled = true)
+  public void testBindOutcomeCache() throws Exception
+  {
+    // Mock configuration.
+    final LDAPPassThroughAuthenticationPolicyCfg cfg = mockCfg()
+        .withPrimaryServer(phost1)
+        .withMappingPolicy(MappingPolicy.UNMAPPED)
+        .withBindOutcomeCacheDuration(60000);
+
+    // Create the provider and its list of expected events: the first bind
+    // succeeds, the second is served from the cache and the third one, with a
+    // wrong password, is delegated to the remote server.
+    final GetLDAPConnectionFactoryEvent fe = new GetLDAPConnectionFactoryEvent(
+        phost1, cfg);
+    final GetConnectionEvent ceBind = new GetConnectionEvent(fe);
+    final MockProvider provider = new MockProvider()
+        .expectEvent(fe)
+        .expectEvent(ceBind)
+        .expectEvent(
+            new SimpleBindEvent(ceBind, opendjDNString, userPassword,
+                ResultCode.SUCCESS))
+        .expectEvent(
+            new SimpleBindEvent(ceBind, opendjDNString, "wrongPassword",
+                ResultCode.INVALID_CREDENTIALS));
+
+    // Obtain policy and state.
+    final LDAPPassThroughAuthenticationPolicyFactory factory = new LDAPPassThroughAuthenticationPolicyFactory(
+        provider);
+    assertTrue(factory.isConfigurationAcceptable(cfg, null));
+    final AuthenticationPolicy policy = factory.createAuthenticationPolicy(cfg);
+
+    // Perform authentication.
+    for (int i = 0; i < 2; i++)
+    {
+      final AuthenticationPolicyState state = policy
+          .createAuthenticationPolicyState(userEntry);
+      assertTrue(state.passwordMatches(ByteString.valueOfUtf8(userPassword)));
+      state.finalizeStateAfterBind();
+    }
+    final AuthenticationPolicyState state = policy
+        .createAuthenticationPolicyState(userEntry);
+    assertFalse(state.passwordMatches(ByteString.valueOfUtf8("wrongPassword")));
+
+    // There should be no more pending events.
+    provider.assertAllExpectedEventsReceived();
+
+    // Tear down and check final state.
+    provider.expectEvent(new CloseEvent(ceBind));
+    policy.finalizeAuthenticationPolicy();
+    provider.assertAllExpectedEventsReceived();
+  }
+
+
+
+  /**
+   * Tests that the bind outcome cache is keyed on the remote bind DN as well
+   * as on the user entry: once the mapped attribute of the user's entry has
+   * changed, the successful bind of the previous remote bind DN is not reused.
+   *
+   * @throws Exception
+   *           If an unexpected exception occurred.
+   */
+  @Test(enabled = true)
+  public void testBindOutcomeCacheWithChangedMapping() throws Exception
+  {
+    // Mock configuration.
+    final LDAPPassThroughAuthenticationPolicyCfg cfg = mockCfg()
+        .withPrimaryServer(phost1)
+        .withMappingPolicy(MappingPolicy.MAPPED_BIND)
+        .withMappedAttribute("aduser")
+        .withBindOutcomeCacheDuration(60000);
+
+    // Create the provider and its list of expected events: the first bind
+    // succeeds, the second one is served from the cache and the third one,
+    // with another remote bind DN, is delegated to the remote server.
+    final String otherDNString = "uid=otheruser,o=ad";
+    final GetLDAPConnectionFactoryEvent fe = new GetLDAPConnectionFactoryEvent(
+        phost1, cfg);
+    final GetConnectionEvent ceBind = new GetConnectionEvent(fe);
+    final MockProvider provider = new MockProvider()
+        .expectEvent(fe)
+        .expectEvent(ceBind)
+        .expectEvent(
+            new SimpleBindEvent(ceBind, adDNString, userPassword,
+                ResultCode.SUCCESS))
+        .expectEvent(
+            new SimpleBindEvent(ceBind, otherDNString, userPassword,
+                ResultCode.INVALID_CREDENTIALS));
+
+    // Obtain policy and state.
+    final LDAPPassThroughAuthenticationPolicyFactory factory = new LDAPPassThroughAuthenticationPolicyFactory(
+        provider);
+    assertTrue(factory.isConfigurationAcceptable(cfg, null));
+    final AuthenticationPolicy policy = factory.createAuthenticationPolicy(cfg);
+    final Entry remappedUser = TestCaseUtils.makeEntry(
+        /* @formatter:off */
+        "dn: " + opendjDNString,
+        "objectClass: top",
+        "objectClass: person",
+        "sn: user",
+        "cn: test user",
+        "aduser: " + otherDNString
+        /* @formatter:on */
+    );
+
+    // Perform authentication.
+    for (int i = 0; i < 2; i++)
+    {
+      final AuthenticationPolicyState state = policy
+          .createAuthenticationPolicyState(userEntry);
+      assertTrue(state.passwordMatches(ByteString.valueOfUtf8(userPassword)));
+      state.finalizeStateAfterBind();
+    }
+    final AuthenticationPolicyState state = policy
+        .createAuthenticationPolicyState(remappedUser);
+    assertFalse(state.passwordMatches(ByteString.valueOfUtf8(userPassword)));
+
+    // There should be no more pending events.
+    provider.assertAllExpectedEventsReceived();
+
+    // Tear down and check final state.
+    provider.expectEvent(new CloseEvent(ceBind));
+    policy.finalizeAuthenticationPolicy();
+    provider.assertAllExpectedEventsReceived();
+  }
+
+
+
+  /**
+   * Tests that concurrent binds of the same user with the same password are
+   * coalesced into a single remote bind, whereas a concurrent bind with
+   * another password performs its own remote bind.
+   *
+   * @throws Exception
+   *           If an unexpected exception occurred.
+   */
+  @Test(enabled = true)
+  public void testConcurrentBindsAreCoalesced() throws Exception
+  {
+    // Mock configuration.
+    final LDAPPassThroughAuthenticationPolicyCfg cfg = mockCfg()
+        .withPrimaryServer(phost1)
+        .withMappingPolicy(MappingPolicy.UNMAPPED);
+
+    // Create the provider and its list of expected events: the first bind is
+    // blocked until the other binds have been attempted, the second bind
+    // waits for its outcome and the third one, with another password, is
+    // delegated to the remote server on another connection.
+    final CountDownLatch bindBlocked = new CountDownLatch(1);
+    final CountDownLatch bindReleased = new CountDownLatch(1);
+    final GetLDAPConnectionFactoryEvent fe = new GetLDAPConnectionFactoryEvent(
+        phost1, cfg);
+    final GetConnectionEvent ceBind = new GetConnectionEvent(fe);
+    final MockProvider provider = new MockProvider()
+        .withBlockedBind(bindBlocked, bindReleased)
+        .expectEvent(fe)
+        .expectEvent(ceBind)
+        .expectEvent(
+            new SimpleBindEvent(ceBind, opendjDNString, userPassword,
+                ResultCode.SUCCESS))
+        .expectEvent(ceBind)
+        .expectEvent(
+            new SimpleBindEvent(ceBind, opendjDNString, "wrongPassword",
+                ResultCode.INVALID_CREDENTIALS));
+
+    // Obtain policy.
+    final LDAPPassThroughAuthenticationPolicyFactory factory = new LDAPPassThroughAuthenticationPolicyFactory(
+        provider);
+    assertTrue(factory.isConfigurationAcceptable(cfg, null));
+    final AuthenticationPolicy policy = factory.createAuthenticationPolicy(cfg);
+
+    // Perform authentication.
+    final BindThread ownerBind = new BindThread(policy, userPassword);
+    ownerBind.start();
+    assertTrue(bindBlocked.await(10, TimeUnit.SECONDS));
+    final BindThread waitingBind = new BindThread(policy, userPassword);
+    waitingBind.start();
+    waitingBind.awaitBlocked();
+    final AuthenticationPolicyState state = policy
+        .createAuthenticationPolicyState(userEntry);
+    assertFalse(state.passwordMatches(ByteString.valueOfUtf8("wrongPassword")));
+    bindReleased.countDown();
+    assertTrue(ownerBind.getOutcome());
+    assertTrue(waitingBind.getOutcome());
+
+    // There should be no more pending events.
+    provider.assertAllExpectedEventsReceived();
+
+    // Tear down and check final state.
+    provider.expectEvent(new CloseEvent(ceBind));
+    provider.expectEvent(new CloseEvent(ceBind));
+    policy.finalizeAuthenticationPolicy();
+    provider.assertAllExpectedEventsReceived();
+  }
+
+
+
+  /**
+   * Tests that the binds waiting for the outcome of a concurrent bind of the
+   * same user with the same password get its failure.
+   *
+   * @throws Exception
+   *           If an unexpected exception occurred.
+   */
+  @Test(enabled = true)
+  public void testConcurrentBindFailureIsShared() throws Exception
+  {
+    // Mock configuration.
+    final LDAPPassThroughAuthenticationPolicyCfg cfg = mockCfg()
+        .withPrimaryServer(phost1)
+        .withMappingPolicy(MappingPolicy.UNMAPPED);
+
+    // Create the provider and its list of expected events: a single bind,
+    // which fails once the second bind is waiting for its outcome.
+    final CountDownLatch bindBlocked = new CountDownLatch(1);
+    final CountDownLatch bindReleased = new CountDownLatch(1);
+    final GetLDAPConnectionFactoryEvent fe = new GetLDAPConnectionFactoryEvent(
+        phost1, cfg);
+    final GetConnectionEvent ceBind = new GetConnectionEvent(fe);
+    final MockProvider provider = new MockProvider()
+        .withBlockedBind(bindBlocked, bindReleased)
+        .expectEvent(fe)
+        .expectEvent(ceBind)
+        .expectEvent(
+            new SimpleBindEvent(ceBind, opendjDNString, userPassword,
+                ResultCode.CONSTRAINT_VIOLATION));
+
+    // Obtain policy.
+    final LDAPPassThroughAuthenticationPolicyFactory factory = new LDAPPassThroughAuthenticationPolicyFactory(
+        provider);
+    assertTrue(factory.isConfigurationAcceptable(cfg, null));
+    final AuthenticationPolicy policy = factory.createAuthenticationPolicy(cfg);
+
+    // Perform authentication.
+    final BindThread ownerBind = new BindThread(policy, userPassword);
+    ownerBind.start();
+    assertTrue(bindBlocked.await(10, TimeUnit.SECONDS));
+    final BindThread waitingBind = new BindThread(policy, userPassword);
+    waitingBind.start();
+    waitingBind.awaitBlocked();
+    bindReleased.countDown();
+    final DirectoryException failure = ownerBind.getFailure();
+    assertEquals(failure.getResultCode(), ResultCode.INVALID_CREDENTIALS);
+    assertSame(waitingBind.getFailure(), failure);
+
+    // There should be no more pending events.
+    provider.assertAllExpectedEventsReceived();
+
+    // Tear down and check final state.
+    provider.expectEvent(new CloseEvent(ceBind));
+    policy.finalizeAuthenticationPolicy();
+    provider.assertAllExpectedEventsReceived();
+  }
+
+
+
+  /**
+   * Tests that the configured connection pool size limits the number of
+   * connections opened for concurrent binds: a bind waits for a connection
+   * to be released rather than opening another one.
+   *
+   * @throws Exception
+   *           If an unexpected exception occurred.
+   */
+  @Test(enabled = true)
+  public void testConnectionPoolSize() throws Exception
+  {
+    // Mock configuration.
+    final LDAPPassThroughAuthenticationPolicyCfg cfg = mockCfg()
+        .withPrimaryServer(phost1)
+        .withMappingPolicy(MappingPolicy.UNMAPPED)
+        .withConnectionPoolSize(1);
+
+    // Create the provider and its list of expected events: both binds use
+    // the single connection of the pool, one after the other.
+    final CountDownLatch bindBlocked = new CountDownLatch(1);
+    final CountDownLatch bindReleased = new CountDownLatch(1);
+    final GetLDAPConnectionFactoryEvent fe = new GetLDAPConnectionFactoryEvent(
+        phost1, cfg);
+    final GetConnectionEvent ceBind = new GetConnectionEvent(fe);
+    final MockProvider provider = new MockProvider()
+        .withBlockedBind(bindBlocked, bindReleased)
+        .expectEvent(fe)
+        .expectEvent(ceBind)
+        .expectEvent(
+            new SimpleBindEvent(ceBind, opendjDNString, userPassword,
+                ResultCode.SUCCESS))
+        .expectEvent(
+            new SimpleBindEvent(ceBind, opendjDNString, "wrongPassword",
+                ResultCode.INVALID_CREDENTIALS));
+
+    // Obtain policy.
+    final LDAPPassThroughAuthenticationPolicyFactory factory = new LDAPPassThroughAuthenticationPolicyFactory(
+        provider);
+    assertTrue(factory.isConfigurationAcceptable(cfg, null));
+    final AuthenticationPolicy policy = factory.createAuthenticationPolicy(cfg);
+
+    // Perform authentication.
+    final BindThread firstBind = new BindThread(policy, userPassword);
+    firstBind.start();
+    assertTrue(bindBlocked.await(10, TimeUnit.SECONDS));
+    final BindThread secondBind = new BindThread(policy, "wrongPassword");
+    secondBind.start();
+    secondBind.awaitBlocked();
+    bindReleased.countDown();
+    assertTrue(firstBind.getOutcome());
+    assertFalse(secondBind.getOutcome());
+
+    // There should be no more pending events.
+    provider.assertAllExpectedEventsReceived();
+
+    // Tear down and check final state.
+    provider.expectEvent(new CloseEvent(ceBind));
+    policy.finalizeAuthenticationPolicy();
+    provider.assertAllExpectedEventsReceived();
+  }
+
+
+
+  /** Checks a password of the test user in the background. */
+  private final class BindThread extends Thread
+  {
+    private final AuthenticationPolicyState state;
+    private final String password;
+    private volatile boolean outcome;
+    private volatile Throwable failure;
+
+
+
+    BindThread(final AuthenticationPolicy policy, final String password)
+        throws DirectoryException
+    {
+      this.state = policy.createAuthenticationPolicyState(userEntry);
+      this.password = password;
+    }
+
+
+
+    @Override
+    public void run()
+    {
+      try
+      {
+        outcome = state.passwordMatches(ByteString.valueOfUtf8(password));
+      }
+      catch (final Throwable t)
+      {
+        failure = t;
+      }
+    }
+
+
+
+    /** Waits until this bind is blocked, waiting for another bind or for a connection. */
+    void awaitBlocked() throws InterruptedException
+    {
+      final long deadline = System.currentTimeMillis() + 10000;
+      while (getState() != State.WAITING)
+      {
+        assertTrue(System.currentTimeMillis() < deadline, "The bind is not blocked");
+        Thread.sleep(10);
+      }
+    }
+
+
+
+    boolean getOutcome() throws Exception
+    {
+      join(10000);
+      assertFalse(isAlive());
+      if (failure != null)
+      {
+        throw new AssertionError(failure);
+      }
+      return outcome;
+    }
+
+
+
+    DirectoryException getFailure() throws Exception
+    {
+      join(10000);
+      assertFalse(isAlive());
+      assertTrue(failure instanceof DirectoryException, String.valueOf(failure));
+      return (DirectoryException) failure;
+    }
+  }
+
+
+
   /**
    * Returns test data for {@link #testMappingPolicyAuthentication}.
    *
@@ -0,0 +1,334 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.extensions;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.opends.server.TestCaseUtils;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.util.ByteBufferPool;
+import org.opends.server.util.StaticUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link TLSByteChannel} borrowing its buffers from pools shared by
+ * several connections. Each test connects TLS byte channels to a server side
+ * TLS byte channel echoing back everything it reads, and checks that exactly
+ * the data sent on each connection is received back.
+ */
+@SuppressWarnings("javadoc")
+public class TLSByteChannelBufferPoolTestCase extends ExtensionsTestCase
+{
+  private static final long TIMEOUT_SECONDS = 60;
+
+  private SSLContext serverContext;
+  private SSLContext clientContext;
+  private ByteBufferPool wrappedBufferPool;
+  private ByteBufferPool unwrappedBufferPool;
+  private int applicationBufferSize;
+  private ExecutorService executor;
+
+  @BeforeClass
+  public void setUp() throws Exception
+  {
+    TestCaseUtils.startServer();
+    String configDir = DirectoryServer.getInstanceRoot() + File.separator + "config" + File.separator;
+
+    KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    keyManagerFactory.init(loadKeyStore(configDir + "server.keystore", "password"), "password".toCharArray());
+    serverContext = SSLContext.getInstance("TLS");
+    serverContext.init(keyManagerFactory.getKeyManagers(), null, null);
+
+    TrustManagerFactory trustManagerFactory =
+        TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    trustManagerFactory.init(loadKeyStore(configDir + "client.truststore", null));
+    clientContext = SSLContext.getInstance("TLS");
+    clientContext.init(null, trustManagerFactory.getTrustManagers(), null);
+
+    SSLEngine engine = serverContext.createSSLEngine();
+    applicationBufferSize = engine.getSession().getApplicationBufferSize();
+    // Both the client and the server sides use the pools.
+    wrappedBufferPool = new ByteBufferPool(engine.getSession().getPacketBufferSize(), true, 4);
+    unwrappedBufferPool = new ByteBufferPool(applicationBufferSize, true, 4);
+  }
+
+  @BeforeMethod
+  public void createExecutor()
+  {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @AfterMethod
+  public void shutdownExecutor()
+  {
+    executor.shutdownNow();
+  }
+
+  /** Sends messages smaller and larger than the buffers, one at a time. */
+  @Test
+  public void testEcho() throws Exception
+  {
+    final int[] sizes = { 1, 100, applicationBufferSize - 1, applicationBufferSize, applicationBufferSize + 1,
+      3 * applicationBufferSize };
+    final EchoConnection connection = new EchoConnection(0);
+    try
+    {
+      long offset = 0;
+      for (int size : sizes)
+      {
+        connection.send(offset, size);
+        connection.receive(offset, size);
+        offset += size;
+      }
+    }
+    finally
+    {
+      connection.close();
+    }
+
+    // The buffers have been given back to the pools.
+    assertTrue(wrappedBufferPool.getIdleBufferCount() > 0);
+    assertTrue(unwrappedBufferPool.getIdleBufferCount() > 0);
+  }
+
+  /**
+   * Several connections concurrently read and write data sharing the same
+   * buffer pools: the data received on each connection must be exactly the
+   * data sent on this connection.
+   */
+  @Test
+  public void testConcurrentConnections() throws Exception
+  {
+    final List<Future<Void>> results = new ArrayList<>();
+    for (int i = 1; i <= 4; i++)
+    {
+      final int connectionID = i;
+      results.add(executor.submit(new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception
+        {
+          runConcurrentReadsAndWrites(connectionID);
+          return null;
+        }
+      }));
+    }
+    for (Future<Void> result : results)
+    {
+      result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
+  /** Writes and reads concurrently on the same connection. */
+  private void runConcurrentReadsAndWrites(int connectionID) throws Exception
+  {
+    final EchoConnection connection = new EchoConnection(connectionID);
+    try
+    {
+      // Complete the handshake before reading and writing concurrently.
+      connection.send(0, 1);
+      connection.receive(0, 1);
+
+      final Random random = new Random(connectionID);
+      final int[] sizes = new int[50];
+      long total = 0;
+      for (int i = 0; i < sizes.length; i++)
+      {
+        sizes[i] = 1 + random.nextInt(3 * applicationBufferSize);
+        total += sizes[i];
+      }
+      final long totalSize = total;
+
+      final Future<Void> reader = executor.submit(new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception
+        {
+          connection.receive(1, totalSize);
+          return null;
+        }
+      });
+
+      long offset = 1;
+      for (int size : sizes)
+      {
+        connection.send(offset, size);
+        offset += size;
+      }
+      reader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+    finally
+    {
+      connection.close();
+    }
+  }
+
+  /** A client TLS byte channel connected to a server TLS byte channel echoing the data it reads. */
+  private final class EchoConnection
+  {
+    private final int connectionID;
+    private final SocketChannel clientSocket;
+    private final SocketChannel serverSocket;
+    private final TLSByteChannel client;
+    private final Future<Void> echo;
+
+    private EchoConnection(int connectionID) throws IOException
+    {
+      this.connectionID = connectionID;
+      try (ServerSocketChannel listener = ServerSocketChannel.open())
+      {
+        listener.bind(new InetSocketAddress("127.0.0.1", 0));
+        clientSocket = SocketChannel.open(listener.getLocalAddress());
+        serverSocket = listener.accept();
+      }
+
+      SSLEngine serverEngine = serverContext.createSSLEngine();
+      serverEngine.setUseClientMode(false);
+      final TLSByteChannel server =
+          new TLSByteChannel(serverSocket, serverEngine, wrappedBufferPool, unwrappedBufferPool);
+      SSLEngine clientEngine = clientContext.createSSLEngine();
+      clientEngine.setUseClientMode(true);
+      client = new TLSByteChannel(clientSocket, clientEngine, wrappedBufferPool, unwrappedBufferPool);
+
+      echo = executor.submit(new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception
+        {
+          final ByteChannel channel = server.getChannel();
+          final ByteBuffer buffer = ByteBuffer.allocate(4096);
+          try
+          {
+            while (channel.read(buffer) >= 0)
+            {
+              buffer.flip();
+              channel.write(buffer);
+              buffer.clear();
+            }
+          }
+          finally
+          {
+            closeQuietly(channel);
+          }
+          return null;
+        }
+      });
+    }
+
+    /** Sends the data of this connection between the provided offsets. */
+    private void send(long offset, int length) throws IOException
+    {
+      final ByteBuffer buffer = ByteBuffer.allocate(length);
+      for (int i = 0; i < length; i++)
+      {
+        buffer.put(dataAt(offset + i));
+      }
+      buffer.flip();
+      client.getChannel().write(buffer);
+    }
+
+    /** Receives the data of this connection between the provided offsets. */
+    private void receive(long offset, long length) throws IOException
+    {
+      final ByteBuffer buffer = ByteBuffer.allocate(1000);
+      long received = 0;
+      while (received < length)
+      {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), length - received));
+        final int read = client.getChannel().read(buffer);
+        assertTrue(read >= 0, "Unexpected end of stream");
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+          assertEquals(buffer.get(), dataAt(offset + received), "Unexpected data at offset " + (offset + received));
+          received++;
+        }
+      }
+    }
+
+    /** Returns the byte sent by this connection at the provided offset, which differs between connections. */
+    private byte dataAt(long offset)
+    {
+      return (byte) (offset * 31 + connectionID * 131 + (offset >> 8));
+    }
+
+    private void close() throws Exception
+    {
+      closeQuietly(client.getChannel());
+      echo.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      StaticUtils.close(clientSocket, serverSocket);
+    }
+  }
+
+  private static void closeQuietly(ByteChannel channel)
+  {
+    try
+    {
+      channel.close();
+    }
+    catch (IOException e)
+    {
+      // The peer may have closed the connection first.
+    }
+  }
+
+  private static KeyStore loadKeyStore(String path, String password) throws Exception
+  {
+    final KeyStore keyStore = KeyStore.getInstance("JKS");
+    try (InputStream in = new FileInputStream(path))
+    {
+      keyStore.load(in, password != null ? password.toCharArray() : null);
+    }
+    return keyStore;
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.monitors;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.types.Attribute;
+import org.testng.annotations.Test;
+
+/** This class defines a set of tests for the {@link StartupMonitor} class. */
+@SuppressWarnings("javadoc")
+public class StartupMonitorTestCase extends GenericMonitorTestCase
+{
+  public StartupMonitorTestCase() throws Exception
+  {
+    super(null);
+  }
+
+  @Override
+  protected MonitorProvider getMonitorInstance() throws Exception
+  {
+    StartupMonitor monitorProvider = new StartupMonitor();
+    monitorProvider.initializeMonitorProvider(null);
+    return monitorProvider;
+  }
+
+  @Test
+  public void testStartupMonitorIsRegistered()
+  {
+    final MonitorProvider<?> monitorProvider = DirectoryServer.getMonitorProviders().get("startup");
+    assertTrue(monitorProvider instanceof StartupMonitor);
+    final Map<String, Long> phaseTimes = ((StartupMonitor) monitorProvider).getPhaseTimes();
+    assertTrue(phaseTimes.containsKey("schema"));
+    assertTrue(phaseTimes.containsKey("backends"));
+  }
+
+  @Test
+  public void testPhaseTimes() throws Exception
+  {
+    final StartupMonitor monitor = new StartupMonitor();
+    long phaseStart = System.nanoTime() - 3000000;
+    phaseStart = monitor.phaseCompleted("first", phaseStart);
+    monitor.phaseCompleted("second", phaseStart - 5000000);
+    monitor.phaseCompleted("first", System.nanoTime() - 1000000);
+
+    final Map<String, Long> phaseTimes = monitor.getPhaseTimes();
+    assertEquals(new ArrayList<>(phaseTimes.keySet()), Arrays.asList("first", "second"));
+    assertTrue(phaseTimes.get("first") >= 4);
+    assertTrue(phaseTimes.get("second") >= 5);
+    assertTrue(monitor.getStartupTime() >= 9);
+
+    final List<Attribute> monitorData = monitor.getMonitorData();
+    assertEquals(monitorData.size(), 2);
+    assertEquals(monitorData.get(1).size(), 2);
+  }
+}
@@ -26,8 +26,12 @@
  */
 package org.opends.server.protocols.ldap;
 
+import org.forgerock.opendj.io.ASN1;
 import org.forgerock.opendj.io.ASN1Reader;
+import org.forgerock.opendj.io.ASN1Writer;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.opends.server.protocols.ldap.ASN1ByteChannelReader;
+import org.opends.server.util.ByteBufferPool;
 import org.testng.annotations.Test;
 
 import java.io.ByteArrayInputStream;
@@ -35,6 +39,8 @@ import java.io.IOException;
 import java.nio.channels.Channels;
 import java.nio.channels.IllegalBlockingModeException;
 
+import static org.testng.Assert.*;
+
 /**
  * Test class for ASN1ByteChannelReader.
  */
@@ -301,4 +307,41 @@ public class ASN1ByteChannelReaderTestCase extends ASN1ReaderTestCase
   {
     super.testSkipElementIncompleteRead();
   }
+
+  /**
+   * Tests that a reader borrowing its channel buffer from a pool decodes
+   * sequences correctly and gives the buffer back once it has been consumed.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test
+  public void testReadSequenceContentsWithPooledBuffer() throws Exception
+  {
+    ByteStringBuilder builder = new ByteStringBuilder();
+    ASN1Writer writer = ASN1.getWriter(builder);
+    writer.writeStartSequence();
+    writer.writeInteger(42);
+    writer.writeOctetString("cn=test");
+    writer.writeEndSequence();
+
+    ByteBufferPool pool = new ByteBufferPool(4, true, 1);
+    ASN1ByteChannelReader reader = new ASN1ByteChannelReader(
+        Channels.newChannel(new ByteArrayInputStream(builder.toByteArray())),
+        pool, 0);
+
+    // The buffer is smaller than the element which must be read in chunks.
+    while (!reader.elementAvailable())
+    {
+      assertTrue(reader.processChannelData() > 0);
+    }
+
+    ASN1Reader contents = reader.readSequenceContents();
+    assertEquals(contents.readInteger(), 42);
+    assertEquals(contents.readOctetStringAsString(), "cn=test");
+    assertFalse(contents.hasNextElement());
+    assertFalse(reader.hasRemainingData());
+
+    assertEquals(reader.processChannelData(), -1);
+    assertEquals(pool.getIdleBufferCount(), 1);
+  }
 }
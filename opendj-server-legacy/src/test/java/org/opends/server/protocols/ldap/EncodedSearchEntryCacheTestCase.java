@@ -0,0 +1,186 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.protocols.ldap;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.forgerock.opendj.io.ASN1;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.core.SearchOperation;
+import org.opends.server.types.DN;
+import org.opends.server.types.Entry;
+import org.opends.server.types.SearchResultEntry;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class EncodedSearchEntryCacheTestCase extends LdapTestCase
+{
+  private SearchResultEntry searchEntry;
+
+  @BeforeClass
+  public void setUp() throws Exception
+  {
+    TestCaseUtils.startServer();
+    Entry entry = TestCaseUtils.makeEntry(
+        "dn: uid=service,o=test",
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "uid: service",
+        "cn: Service Account",
+        "sn: Account");
+    searchEntry = new SearchResultEntry(entry);
+  }
+
+  @DataProvider(name = "messageIDs")
+  public Object[][] createMessageIDs()
+  {
+    return new Object[][] {
+      { 0 }, { 1 }, { 127 }, { 128 }, { 255 }, { 256 }, { 32767 }, { 32768 },
+      { 8388607 }, { 8388608 }, { Integer.MAX_VALUE },
+    };
+  }
+
+  @Test(dataProvider = "messageIDs")
+  public void testAppendLDAPMessage(int messageID) throws Exception
+  {
+    SearchResultEntryProtocolOp protocolOp = new SearchResultEntryProtocolOp(searchEntry);
+
+    ByteStringBuilder expected = new ByteStringBuilder();
+    new LDAPMessage(messageID, protocolOp).write(ASN1.getWriter(expected));
+
+    ByteStringBuilder encodedOp = new ByteStringBuilder();
+    protocolOp.write(ASN1.getWriter(encodedOp));
+    ByteStringBuilder actual = new ByteStringBuilder();
+    EncodedSearchEntryCache.appendLDAPMessage(actual, messageID, encodedOp);
+
+    assertEquals(actual.toByteString(), expected.toByteString());
+  }
+
+  @Test
+  public void testEncodingIsReusedForSameContent() throws Exception
+  {
+    SearchOperation searchOperation = mockSearchOperation();
+    EncodedSearchEntryCache cache = new EncodedSearchEntryCache(10);
+    ByteString first = getEncodedProtocolOp(cache, searchOperation, searchEntry);
+    assertSame(getEncodedProtocolOp(cache, searchOperation, searchEntry), first);
+
+    // Same content, but distinct attribute instances.
+    SearchResultEntry sameContent = new SearchResultEntry(TestCaseUtils.makeEntry(
+        "dn: uid=service,o=test",
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "uid: service",
+        "cn: Service Account",
+        "sn: Account"));
+    assertSame(getEncodedProtocolOp(cache, searchOperation, sameContent), first);
+  }
+
+  @Test
+  public void testEncodingIsNotReusedForDifferentContent() throws Exception
+  {
+    // "Aa" and "BB" have the same hash code.
+    SearchResultEntry entry1 = new SearchResultEntry(TestCaseUtils.makeEntry(
+        "dn: uid=collision,o=test",
+        "objectClass: top",
+        "objectClass: person",
+        "uid: collision",
+        "cn: Aa",
+        "sn: Aa"));
+    SearchResultEntry entry2 = new SearchResultEntry(TestCaseUtils.makeEntry(
+        "dn: uid=collision,o=test",
+        "objectClass: top",
+        "objectClass: person",
+        "uid: collision",
+        "cn: BB",
+        "sn: Aa"));
+    SearchResultEntry entry3 = new SearchResultEntry(TestCaseUtils.makeEntry(
+        "dn: uid=COLLISION,o=test",
+        "objectClass: top",
+        "objectClass: person",
+        "uid: collision",
+        "cn: BB",
+        "sn: Aa"));
+
+    SearchOperation searchOperation = mockSearchOperation();
+    EncodedSearchEntryCache cache = new EncodedSearchEntryCache(10);
+    ByteString encoded1 = getEncodedProtocolOp(cache, searchOperation, entry1);
+    ByteString encoded2 = getEncodedProtocolOp(cache, searchOperation, entry2);
+    ByteString encoded3 = getEncodedProtocolOp(cache, searchOperation, entry3);
+    assertEquals(encoded1, encode(entry1));
+    assertEquals(encoded2, encode(entry2));
+    assertEquals(encoded3, encode(entry3));
+    assertFalse(encoded1.equals(encoded2));
+    assertFalse(encoded2.equals(encoded3));
+  }
+
+  private SearchOperation mockSearchOperation()
+  {
+    SearchOperation searchOperation = mock(SearchOperation.class);
+    when(searchOperation.getAuthorizationDN()).thenReturn(DN.rootDN());
+    when(searchOperation.getAttributes()).thenReturn(Collections.<String> emptySet());
+    when(searchOperation.getTypesOnly()).thenReturn(false);
+    return searchOperation;
+  }
+
+  private ByteString getEncodedProtocolOp(EncodedSearchEntryCache cache, SearchOperation searchOperation,
+      SearchResultEntry entry) throws Exception
+  {
+    return cache.getEncodedProtocolOp(searchOperation, entry, new SearchResultEntryProtocolOp(entry));
+  }
+
+  private ByteString encode(SearchResultEntry entry) throws Exception
+  {
+    ByteStringBuilder builder = new ByteStringBuilder();
+    new SearchResultEntryProtocolOp(entry).write(ASN1.getWriter(builder));
+    return builder.toByteString();
+  }
+
+  @Test
+  public void testEncodingIsNotSharedBetweenProjections() throws Exception
+  {
+    Set<String> attributes = Collections.singleton("cn");
+    SearchOperation allAttributes = mock(SearchOperation.class);
+    when(allAttributes.getAttributes()).thenReturn(Collections.<String> emptySet());
+    SearchOperation cnOnly = mock(SearchOperation.class);
+    when(cnOnly.getAttributes()).thenReturn(attributes);
+    SearchResultEntryProtocolOp protocolOp = new SearchResultEntryProtocolOp(searchEntry);
+
+    EncodedSearchEntryCache cache = new EncodedSearchEntryCache(10);
+    ByteString first = cache.getEncodedProtocolOp(allAttributes, searchEntry, protocolOp);
+    assertNotSame(cache.getEncodedProtocolOp(cnOnly, searchEntry, protocolOp), first);
+  }
+}
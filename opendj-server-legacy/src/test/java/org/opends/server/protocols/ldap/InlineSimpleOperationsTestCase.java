@@ -0,0 +1,287 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.protocols.ldap;
+
+import static org.opends.server.protocols.ldap.LDAPConstants.*;
+import static org.opends.server.util.ServerConstants.*;
+import static org.testng.Assert.*;
+
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.forgerock.opendj.io.ASN1;
+import org.forgerock.opendj.io.ASN1Writer;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.api.ConnectionHandler;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.plugins.DelayPreOpPlugin;
+import org.opends.server.tools.LDAPReader;
+import org.opends.server.tools.LDAPWriter;
+import org.opends.server.util.StaticUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the processing of simple requests on the request handler thread, when
+ * the inline-simple-operations property of the LDAP connection handler is
+ * enabled.
+ */
+@SuppressWarnings("javadoc")
+public class InlineSimpleOperationsTestCase extends LdapTestCase
+{
+  private static final String LDAP_CONNECTION_HANDLER_DN =
+      "cn=LDAP Connection Handler,cn=Connection Handlers,cn=config";
+
+  private Socket socket;
+  private LDAPReader reader;
+  private LDAPWriter writer;
+
+  @BeforeClass
+  public void setUp() throws Exception
+  {
+    TestCaseUtils.startServer();
+    TestCaseUtils.initializeTestBackend(true);
+    setInlineSimpleOperations(true);
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception
+  {
+    setInlineSimpleOperations(false);
+  }
+
+  /**
+   * Consecutive inline requests are processed by the request handler thread
+   * in the order they are read, so their responses are returned in order.
+   */
+  @Test
+  public void testInlineResponsesAreOrdered() throws Exception
+  {
+    connectAndBind();
+    try
+    {
+      for (int messageID = 2; messageID <= 11; messageID++)
+      {
+        writer.writeMessage(new LDAPMessage(messageID, new ExtendedRequestProtocolOp(OID_WHO_AM_I_REQUEST)));
+      }
+
+      for (int messageID = 2; messageID <= 11; messageID++)
+      {
+        LDAPMessage message = reader.readMessage();
+        assertEquals(message.getMessageID(), messageID);
+        assertEquals(message.getExtendedResponseProtocolOp().getResultCode(), LDAPResultCode.SUCCESS);
+      }
+    }
+    finally
+    {
+      disconnect();
+    }
+  }
+
+  /**
+   * Inline requests do not wait for the queued requests which were read
+   * before them, but every request still receives its own response.
+   */
+  @Test
+  public void testInlineAndQueuedRequests() throws Exception
+  {
+    connectAndBind();
+    try
+    {
+      // The delay control prevents the compare from being processed inline.
+      CompareRequestProtocolOp compareRequest = new CompareRequestProtocolOp(
+          ByteString.valueOfUtf8("o=test"), "o", ByteString.valueOfUtf8("test"));
+      writer.writeMessage(new LDAPMessage(2, compareRequest, DelayPreOpPlugin.createDelayControlList(1000)));
+      writer.writeMessage(new LDAPMessage(3, new ExtendedRequestProtocolOp(OID_WHO_AM_I_REQUEST)));
+      writer.writeMessage(new LDAPMessage(4, new ExtendedRequestProtocolOp(OID_WHO_AM_I_REQUEST)));
+
+      LDAPMessage message = reader.readMessage();
+      assertEquals(message.getMessageID(), 3);
+      assertEquals(message.getExtendedResponseProtocolOp().getResultCode(), LDAPResultCode.SUCCESS);
+      message = reader.readMessage();
+      assertEquals(message.getMessageID(), 4);
+      assertEquals(message.getExtendedResponseProtocolOp().getResultCode(), LDAPResultCode.SUCCESS);
+      message = reader.readMessage();
+      assertEquals(message.getMessageID(), 2);
+      assertEquals(message.getCompareResponseProtocolOp().getResultCode(), LDAPResultCode.COMPARE_TRUE);
+    }
+    finally
+    {
+      disconnect();
+    }
+  }
+
+  /**
+   * An abandon request which does not target an operation in progress is
+   * processed inline, never receives a response, and does not prevent the
+   * following requests from being processed.
+   */
+  @Test
+  public void testAbandonUnknownOperation() throws Exception
+  {
+    LDAPStatistics statistics = getStatistics();
+    connectAndBind();
+    try
+    {
+      long abandonRequests = statistics.getAbandonRequests();
+      writer.writeMessage(new LDAPMessage(2, new AbandonRequestProtocolOp(1)));
+      writer.writeMessage(new LDAPMessage(3, new ExtendedRequestProtocolOp(OID_WHO_AM_I_REQUEST)));
+
+      LDAPMessage message = reader.readMessage();
+      assertEquals(message.getMessageID(), 3);
+      assertEquals(message.getExtendedResponseProtocolOp().getResultCode(), LDAPResultCode.SUCCESS);
+      assertEquals(statistics.getAbandonRequests(), abandonRequests + 1);
+    }
+    finally
+    {
+      disconnect();
+    }
+  }
+
+  /**
+   * An abandon request targeting an operation in progress goes through the
+   * work queue and still abandons the operation.
+   */
+  @Test
+  public void testAbandonOperationInProgress() throws Exception
+  {
+    connectAndBind();
+    try
+    {
+      CompareRequestProtocolOp compareRequest = new CompareRequestProtocolOp(
+          ByteString.valueOfUtf8("o=test"), "o", ByteString.valueOfUtf8("test"));
+      writer.writeMessage(new LDAPMessage(2, compareRequest, DelayPreOpPlugin.createDelayControlList(5000)));
+      writer.writeMessage(new LDAPMessage(3, new AbandonRequestProtocolOp(2)));
+
+      // The test configuration returns a response for abandoned operations.
+      LDAPMessage message = reader.readMessage();
+      assertEquals(message.getMessageID(), 2);
+      assertEquals(message.getCompareResponseProtocolOp().getResultCode(), LDAPResultCode.CANCELED);
+
+      // The connection is still usable.
+      writer.writeMessage(new LDAPMessage(4, new ExtendedRequestProtocolOp(OID_WHO_AM_I_REQUEST)));
+      message = reader.readMessage();
+      assertEquals(message.getMessageID(), 4);
+      assertEquals(message.getExtendedResponseProtocolOp().getResultCode(), LDAPResultCode.SUCCESS);
+    }
+    finally
+    {
+      disconnect();
+    }
+  }
+
+  /**
+   * A cancel extended request is never processed inline, and cancels the
+   * targeted operation.
+   */
+  @Test
+  public void testCancelOperationInProgress() throws Exception
+  {
+    connectAndBind();
+    try
+    {
+      CompareRequestProtocolOp compareRequest = new CompareRequestProtocolOp(
+          ByteString.valueOfUtf8("o=test"), "o", ByteString.valueOfUtf8("test"));
+      writer.writeMessage(new LDAPMessage(2, compareRequest, DelayPreOpPlugin.createDelayControlList(5000)));
+
+      ByteStringBuilder builder = new ByteStringBuilder();
+      ASN1Writer asn1Writer = ASN1.getWriter(builder);
+      asn1Writer.writeStartSequence();
+      asn1Writer.writeInteger(2);
+      asn1Writer.writeEndSequence();
+      ExtendedRequestProtocolOp cancelRequest =
+          new ExtendedRequestProtocolOp(OID_CANCEL_REQUEST, builder.toByteString());
+      writer.writeMessage(new LDAPMessage(3, cancelRequest));
+
+      Map<Integer, Integer> resultCodes = new HashMap<>();
+      for (int i = 0; i < 2; i++)
+      {
+        LDAPMessage message = reader.readMessage();
+        switch (message.getProtocolOpType())
+        {
+        case OP_TYPE_COMPARE_RESPONSE:
+          resultCodes.put(message.getMessageID(), message.getCompareResponseProtocolOp().getResultCode());
+          break;
+        case OP_TYPE_EXTENDED_RESPONSE:
+          resultCodes.put(message.getMessageID(), message.getExtendedResponseProtocolOp().getResultCode());
+          break;
+        default:
+          fail("Unexpected response " + message);
+        }
+      }
+      assertEquals(resultCodes.get(2), Integer.valueOf(LDAPResultCode.CANCELED));
+      assertEquals(resultCodes.get(3), Integer.valueOf(LDAPResultCode.SUCCESS));
+    }
+    finally
+    {
+      disconnect();
+    }
+  }
+
+  private void setInlineSimpleOperations(boolean enabled) throws Exception
+  {
+    TestCaseUtils.applyModifications(true,
+        "dn: " + LDAP_CONNECTION_HANDLER_DN,
+        "changetype: modify",
+        "replace: ds-cfg-inline-simple-operations",
+        "ds-cfg-inline-simple-operations: " + enabled);
+  }
+
+  private LDAPStatistics getStatistics()
+  {
+    for (ConnectionHandler<?> ch : DirectoryServer.getConnectionHandlers())
+    {
+      if (ch instanceof LDAPConnectionHandler && !((LDAPConnectionHandler) ch).useSSL())
+      {
+        return ((LDAPConnectionHandler) ch).getStatTracker();
+      }
+    }
+    throw new AssertionError("No LDAP connection handler");
+  }
+
+  private void connectAndBind() throws Exception
+  {
+    socket = new Socket("127.0.0.1", TestCaseUtils.getServerLdapPort());
+    TestCaseUtils.configureSocket(socket);
+    reader = new LDAPReader(socket);
+    writer = new LDAPWriter(socket);
+
+    BindRequestProtocolOp bindRequest = new BindRequestProtocolOp(
+        ByteString.valueOfUtf8("cn=Directory Manager"), 3, ByteString.valueOfUtf8("password"));
+    writer.writeMessage(new LDAPMessage(1, bindRequest));
+    LDAPMessage message = reader.readMessage();
+    assertEquals(message.getBindResponseProtocolOp().getResultCode(), LDAPResultCode.SUCCESS);
+  }
+
+  private void disconnect()
+  {
+    StaticUtils.close(reader, writer);
+    StaticUtils.close(socket);
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.types;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import org.opends.server.DirectoryServerTestCase;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.testng.Assert.*;
+
+@SuppressWarnings("javadoc")
+public class CompactMapTest extends DirectoryServerTestCase
+{
+  @Test
+  public void testPutGetAndSize() throws Exception
+  {
+    CompactMap<Integer, String> map = new CompactMap<>();
+    assertEquals(map.size(), 0);
+    assertEquals(map.get(1), null);
+    assertEquals(map.put(1, "one"), null);
+    assertEquals(map.put(1, "ONE"), "one");
+    assertEquals(map.size(), 1);
+    for (int i = 2; i <= 10; i++)
+    {
+      assertEquals(map.put(i, String.valueOf(i)), null);
+    }
+    assertEquals(map.size(), 10);
+    assertEquals(map.get(1), "ONE");
+    assertEquals(map.get(10), "10");
+    assertEquals(map.get(11), null);
+    assertTrue(map.containsKey(5));
+    assertFalse(map.containsKey(11));
+  }
+
+  @Test
+  public void testKeysWithSameHashCode() throws Exception
+  {
+    // "Aa" and "BB" have the same hash code
+    CompactMap<String, Integer> map = new CompactMap<>(1);
+    map.put("Aa", 1);
+    map.put("BB", 2);
+    assertEquals(map.get("Aa"), Integer.valueOf(1));
+    assertEquals(map.get("BB"), Integer.valueOf(2));
+    assertEquals(map.remove("Aa"), Integer.valueOf(1));
+    assertEquals(map.get("BB"), Integer.valueOf(2));
+    assertFalse(map.containsKey("Aa"));
+  }
+
+  @Test
+  public void testIterationOrderIsInsertionOrder() throws Exception
+  {
+    CompactMap<Integer, String> map = new CompactMap<>();
+    Map<Integer, String> expected = new LinkedHashMap<>();
+    for (int i : new int[] { 5, 3, 9, 1, 7 })
+    {
+      map.put(i, String.valueOf(i));
+      expected.put(i, String.valueOf(i));
+    }
+    map.remove(9);
+    expected.remove(9);
+    map.put(9, "nine");
+    expected.put(9, "nine");
+
+    assertThat(map.keySet()).containsExactly(expected.keySet().toArray(new Integer[0]));
+    assertEquals(map, expected);
+    assertEquals(map.hashCode(), expected.hashCode());
+  }
+
+  @Test
+  public void testEntrySetIteratorRemoveAndSetValue() throws Exception
+  {
+    CompactMap<Integer, String> map = new CompactMap<>();
+    for (int i = 1; i <= 4; i++)
+    {
+      map.put(i, String.valueOf(i));
+    }
+
+    Iterator<Entry<Integer, String>> iter = map.entrySet().iterator();
+    while (iter.hasNext())
+    {
+      Entry<Integer, String> entry = iter.next();
+      if (entry.getKey() % 2 == 0)
+      {
+        iter.remove();
+      }
+      else
+      {
+        assertEquals(entry.setValue("odd"), String.valueOf(entry.getKey()));
+      }
+    }
+    assertEquals(map.size(), 2);
+    assertEquals(map.get(1), "odd");
+    assertEquals(map.get(3), "odd");
+    assertFalse(map.containsKey(2));
+  }
+
+  @Test(expectedExceptions = NoSuchElementException.class)
+  public void testEntrySetIteratorNextThrowsNoSuchElementException() throws Exception
+  {
+    CompactMap<Integer, String> map = new CompactMap<>();
+    map.put(1, "one");
+    Iterator<Entry<Integer, String>> iter = map.entrySet().iterator();
+    iter.next();
+    iter.next();
+  }
+
+  @Test(expectedExceptions = ConcurrentModificationException.class)
+  public void testEntrySetIteratorDetectsConcurrentModification() throws Exception
+  {
+    CompactMap<Integer, String> map = new CompactMap<>();
+    map.put(1, "one");
+    map.put(2, "two");
+    Iterator<Entry<Integer, String>> iter = map.entrySet().iterator();
+    iter.next();
+    map.put(3, "three");
+    iter.next();
+  }
+
+  @Test
+  public void testClear() throws Exception
+  {
+    CompactMap<Integer, String> map = new CompactMap<>();
+    map.put(1, "one");
+    map.put(2, "two");
+    map.clear();
+    assertEquals(map.size(), 0);
+    assertEquals(map.get(1), null);
+    map.put(3, "three");
+    assertEquals(map.size(), 1);
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testNullKeysAreRejected() throws Exception
+  {
+    new CompactMap<Integer, String>().put(null, "null");
+  }
+}
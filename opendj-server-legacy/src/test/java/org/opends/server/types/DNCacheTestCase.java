@@ -0,0 +1,192 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.types;
+
+import static org.testng.Assert.*;
+
+import org.opends.server.TestCaseUtils;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/** Tests for the {@link DNCache} class. */
+@SuppressWarnings("javadoc")
+public class DNCacheTestCase extends TypesTestCase
+{
+  private int perfRep = 1000000;
+
+  @BeforeClass
+  public void setUp() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  @DataProvider
+  public Object[][] parentPositions()
+  {
+    return new Object[][] {
+      { "dc=com", -1 },
+      { "dc=example,dc=com", 11 },
+      { "dc=example;dc=com", 11 },
+      { "cn=a+sn=b,dc=com", 10 },
+      { "cn=a\\,b,dc=com", 8 },
+      { "cn=a\\\\,dc=com", 7 },
+      { "cn=a\\2Cb,dc=com", 9 },
+      { "cn=\"a,b\",dc=com", -1 },
+    };
+  }
+
+  @Test(dataProvider = "parentPositions")
+  public void testIndexOfParent(String dnString, int expectedPosition)
+  {
+    assertEquals(DNCache.indexOfParent(dnString), expectedPosition);
+  }
+
+  @Test
+  public void testValueOfReturnsCachedDN() throws Exception
+  {
+    final DN dn = DN.valueOf("uid=user.0,ou=people,dc=example,dc=com");
+    assertSame(DN.valueOf("uid=user.0,ou=people,dc=example,dc=com"), dn);
+    assertEquals(DN.valueOf("uid=USER.0, ou=people,dc=example,dc=com"), dn);
+
+    DN.clearCache();
+    final DN dnAfterClear = DN.valueOf("uid=user.0,ou=people,dc=example,dc=com");
+    assertNotSame(dnAfterClear, dn);
+    assertEquals(dnAfterClear, dn);
+  }
+
+  @Test
+  public void testInternSharesParentRDNs() throws Exception
+  {
+    final DNCache cache = new DNCache(100);
+    final DN parent = cache.intern("ou=people,dc=example,dc=com", DN.valueOf("ou=people,dc=example,dc=com"));
+    assertSame(cache.get("ou=people,dc=example,dc=com"), parent);
+
+    final DN dn = DN.valueOf("uid=user.1,ou=people,dc=example,dc=com");
+    final DN interned = cache.intern("uid=user.1,ou=people,dc=example,dc=com", dn);
+    assertEquals(interned, dn);
+    assertEquals(interned.toString(), dn.toString());
+    assertSame(cache.get("uid=user.1,ou=people,dc=example,dc=com"), interned);
+    for (int i = 0; i < parent.size(); i++)
+    {
+      assertSame(interned.getRDN(i + 1), parent.getRDN(i));
+    }
+  }
+
+  @Test
+  public void testInternCachesParent() throws Exception
+  {
+    final DNCache cache = new DNCache(100);
+    final DN dn = DN.valueOf("uid=user.2,ou=people,dc=example,dc=com");
+    cache.intern("uid=user.2,ou=people,dc=example,dc=com", dn);
+
+    final DN parent = cache.get("ou=people,dc=example,dc=com");
+    assertEquals(parent, dn.parent());
+    assertSame(parent.getRDN(0), dn.getRDN(1));
+  }
+
+  @Test
+  public void testDisabledCache() throws Exception
+  {
+    final DNCache cache = new DNCache(0);
+    assertFalse(cache.isEnabled());
+    final DN dn = DN.valueOf("uid=user.3,ou=people,dc=example,dc=com");
+    assertSame(cache.intern("uid=user.3,ou=people,dc=example,dc=com", dn), dn);
+    assertNull(cache.get("uid=user.3,ou=people,dc=example,dc=com"));
+  }
+
+  @Test
+  public void testClear() throws Exception
+  {
+    final DNCache cache = new DNCache(100);
+    cache.intern("dc=example,dc=com", DN.valueOf("dc=example,dc=com"));
+    cache.clear();
+    assertNull(cache.get("dc=example,dc=com"));
+    assertNull(cache.get("dc=com"));
+  }
+
+  /** Compares the performance of DN operations with and without the DN cache. */
+  @Test(enabled = false)
+  public void dnPerfs() throws Exception
+  {
+    final DN baseDN = DN.valueOf("dc=example,dc=com");
+    final String[] dnStrings = new String[100];
+    for (int i = 0; i < dnStrings.length; i++)
+    {
+      dnStrings[i] = "uid=user." + i + ",ou=people,dc=example,dc=com";
+    }
+
+    long valueOf = 0;
+    long normalize = 0;
+    long isAncestorOf = 0;
+    for (int i = 0; i < perfRep; i++)
+    {
+      final String dnString = dnStrings[i % dnStrings.length];
+
+      long t1 = System.nanoTime();
+      DN dn = DN.valueOf(dnString);
+      long t2 = System.nanoTime();
+      dn.toNormalizedByteString();
+      long t3 = System.nanoTime();
+      baseDN.isAncestorOf(dn);
+      long t4 = System.nanoTime();
+
+      valueOf += t2 - t1;
+      normalize += t3 - t2;
+      isAncestorOf += t4 - t3;
+    }
+
+    long valueOfNoCache = 0;
+    long normalizeNoCache = 0;
+    for (int i = 0; i < perfRep; i++)
+    {
+      final String dnString = dnStrings[i % dnStrings.length];
+      DN.clearCache();
+
+      long t1 = System.nanoTime();
+      DN dn = DN.valueOf(dnString);
+      long t2 = System.nanoTime();
+      dn.toNormalizedByteString();
+      long t3 = System.nanoTime();
+
+      valueOfNoCache += t2 - t1;
+      normalizeNoCache += t3 - t2;
+    }
+
+    System.out.println(
+        "dnPerfs "
+        + "valueOf\t"
+        + "toNormalizedByteString\t"
+        + "isAncestorOf\t"
+        + "valueOf (no cache)\t"
+        + "toNormalizedByteString (no cache)\t"
+        + "\n"
+        + valueOf / perfRep / 1000.0 + " micros \t"
+        + normalize / perfRep / 1000.0 + " micros \t"
+        + isAncestorOf / perfRep / 1000.0 + " micros \t"
+        + valueOfNoCache / perfRep / 1000.0 + " micros \t"
+        + normalizeNoCache / perfRep / 1000.0 + " micros \t");
+  }
+}
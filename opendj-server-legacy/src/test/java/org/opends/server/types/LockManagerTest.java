@@ -104,6 +104,70 @@ public class LockManagerTest extends TypesTestCase
     unlockUsingThread(thread1, lock1);
   }
 
+  @Test
+  public void testLockContentionStatistics() throws Exception
+  {
+    final LockManager lockManager = new LockManager(100, TimeUnit.MILLISECONDS);
+    DNLock lock1 = lockUsingThread(thread1, lockManager, LockType.WRITE_ENTRY, dnABD).get();
+    assertThat(lockManager.getContendedLockCount()).isEqualTo(0);
+
+    DNLock lock2 = lockUsingThread(thread2, lockManager, LockType.WRITE_ENTRY, dnABD).get();
+    assertThat(lock2).isNull(); // Timed out.
+    assertThat(lockManager.getContendedLockCount()).isEqualTo(1);
+    assertThat(lockManager.getLockTimeoutCount()).isEqualTo(1);
+    assertThat(lockManager.getTotalLockWaitTime()).isGreaterThan(0);
+    long histogramCount = 0;
+    for (long count : lockManager.getLockWaitTimeHistogram())
+    {
+      histogramCount += count;
+    }
+    assertThat(histogramCount).isEqualTo(1);
+    assertThat(lockManager.getMostContendedDNs(10)).containsEntry(dnABD, 1L).hasSize(1);
+    unlockUsingThread(thread1, lock1);
+
+    lockManager.resetStatistics();
+    assertThat(lockManager.getContendedLockCount()).isEqualTo(0);
+    assertThat(lockManager.getMostContendedDNs(10)).isEmpty();
+  }
+
+  @DataProvider
+  private Object[][] optimisticReads()
+  {
+    // @formatter:off
+    return new Object[][] {
+      { LockType.READ_ENTRY,    dnAB,  dnAB,  true },
+      { LockType.WRITE_ENTRY,   dnAB,  dnAB,  false },
+      { LockType.WRITE_ENTRY,   dnA,   dnAB,  true },
+      { LockType.WRITE_ENTRY,   dnABC, dnAB,  true },
+      { LockType.WRITE_SUBTREE, dnAB,  dnAB,  false },
+      { LockType.WRITE_SUBTREE, dnA,   dnABC, false },
+      { LockType.WRITE_SUBTREE, dnABC, dnAB,  true },
+      { LockType.WRITE_SUBTREE, dnABC, dnABD, true },
+    };
+    // @formatter:on
+  }
+
+  @Test(dataProvider = "optimisticReads")
+  public void testOptimisticReads(final LockType lockType, final DN lockedDN, final DN readDN,
+      final boolean isReadValid) throws Exception
+  {
+    // Use many stripes so that the DNs of the test do not share stripes.
+    final LockManager lockManager = new LockManager(9, TimeUnit.SECONDS, 1 << 16);
+    final long stamp = lockManager.tryOptimisticReadEntry(readDN);
+    assertThat(stamp).isNotEqualTo(0);
+    assertThat(lockManager.validate(readDN, stamp)).isTrue();
+
+    final DNLock lock = lockType.lock(lockManager, lockedDN);
+    assertThat(lockManager.tryOptimisticReadEntry(readDN) != 0).isEqualTo(isReadValid);
+    assertThat(lockManager.validate(readDN, stamp)).isEqualTo(isReadValid);
+    lock.unlock();
+    assertThat(lockManager.validate(readDN, stamp)).isEqualTo(isReadValid);
+
+    final long newStamp = lockManager.tryOptimisticReadEntry(readDN);
+    assertThat(newStamp).isNotEqualTo(0);
+    assertThat(lockManager.validate(readDN, newStamp)).isTrue();
+  }
+
   @DataProvider
   private Object[][] multiThreadedLockCombinationsWhichShouldBlock()
   {
@@ -0,0 +1,109 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.types;
+
+import static org.testng.Assert.*;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.schema.CoreSchema;
+import org.forgerock.opendj.ldap.schema.MatchingRule;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/** Tests for the {@link NormalizedValueCache} class. */
+@SuppressWarnings("javadoc")
+public class NormalizedValueCacheTestCase extends TypesTestCase
+{
+  @DataProvider
+  public Object[][] cacheSizes()
+  {
+    return new Object[][] { { 0 }, { 1 }, { 100 } };
+  }
+
+  @Test(dataProvider = "cacheSizes")
+  public void testNormalize(int size) throws Exception
+  {
+    final NormalizedValueCache cache = new NormalizedValueCache(size);
+    final MatchingRule caseIgnore = CoreSchema.getCaseIgnoreMatchingRule();
+    final MatchingRule caseExact = CoreSchema.getCaseExactMatchingRule();
+    final ByteString value = ByteString.valueOfUtf8("  John   SMITH ");
+
+    for (int i = 0; i < 2; i++)
+    {
+      assertEquals(cache.normalize(caseIgnore, value), caseIgnore.normalizeAttributeValue(value));
+      // Same value, different matching rule
+      assertEquals(cache.normalize(caseExact, value), caseExact.normalizeAttributeValue(value));
+    }
+  }
+
+  @Test
+  public void testNormalizedValueIsCached() throws Exception
+  {
+    final NormalizedValueCache cache = new NormalizedValueCache(100);
+    final MatchingRule caseIgnore = CoreSchema.getCaseIgnoreMatchingRule();
+
+    final ByteString normalized = cache.normalize(caseIgnore, ByteString.valueOfUtf8("John Smith"));
+    assertSame(cache.normalize(caseIgnore, ByteString.valueOfUtf8("John Smith")), normalized);
+
+    cache.clear();
+    final ByteString normalizedAgain = cache.normalize(caseIgnore, ByteString.valueOfUtf8("John Smith"));
+    assertNotSame(normalizedAgain, normalized);
+    assertEquals(normalizedAgain, normalized);
+  }
+
+  @Test
+  public void testCachedValuesDoNotShareCallerBuffers() throws Exception
+  {
+    final NormalizedValueCache cache = new NormalizedValueCache(100);
+    final MatchingRule octetString = CoreSchema.getOctetStringMatchingRule();
+    final byte[] buffer = "dn: cn=John Smith".getBytes("UTF-8");
+    final ByteString value = ByteString.wrap(buffer, 7, 10);
+
+    final ByteString normalized = cache.normalize(octetString, value);
+    assertEquals(normalized, ByteString.valueOfUtf8("John Smith"));
+
+    // Reusing the buffer, e.g. for decoding another entry, does not alter the cached values
+    buffer[7] = 'X';
+    assertEquals(normalized, ByteString.valueOfUtf8("John Smith"));
+    assertSame(cache.normalize(octetString, ByteString.valueOfUtf8("John Smith")), normalized);
+  }
+
+  @Test
+  public void testLongValuesAreNotCached() throws Exception
+  {
+    final NormalizedValueCache cache = new NormalizedValueCache(100);
+    final MatchingRule caseIgnore = CoreSchema.getCaseIgnoreMatchingRule();
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i <= NormalizedValueCache.MAX_VALUE_LENGTH; i++)
+    {
+      builder.append('A');
+    }
+    final ByteString value = ByteString.valueOfUtf8(builder.toString());
+
+    final ByteString normalized = cache.normalize(caseIgnore, value);
+    assertEquals(normalized, caseIgnore.normalizeAttributeValue(value));
+    assertNotSame(cache.normalize(caseIgnore, value), normalized);
+  }
+}
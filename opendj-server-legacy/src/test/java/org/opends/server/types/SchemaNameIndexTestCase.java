@@ -0,0 +1,157 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.types;
+
+import static org.testng.Assert.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.opends.server.TestCaseUtils;
+import org.opends.server.core.DirectoryServer;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Tests for the {@link SchemaNameIndex} class. */
+@SuppressWarnings("javadoc")
+public class SchemaNameIndexTestCase extends TypesTestCase
+{
+  @BeforeClass
+  public void setUp() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  @Test
+  public void testGetIgnoresCase() throws Exception
+  {
+    final ConcurrentHashMap<String, String> map = new ConcurrentHashMap<>();
+    map.put("objectclass", "oc");
+    map.put("2.5.4.0", "oc");
+    map.put("cn", "cn");
+    final SchemaNameIndex<String> index = new SchemaNameIndex<>(map);
+
+    // Perform enough lookups for the table to be built
+    for (int i = 0; i < 1000; i++)
+    {
+      assertEquals(index.get("objectClass"), "oc");
+      assertEquals(index.get("OBJECTCLASS"), "oc");
+      assertEquals(index.get("2.5.4.0"), "oc");
+      assertEquals(index.get("CN"), "cn");
+      assertNull(index.get("sn"));
+      assertNull(index.get("c"));
+      assertNull(index.get("objectclassx"));
+    }
+  }
+
+  @Test
+  public void testGetNonAsciiName() throws Exception
+  {
+    final ConcurrentHashMap<String, String> map = new ConcurrentHashMap<>();
+    map.put("\u00e9t\u00e9", "summer");
+    final SchemaNameIndex<String> index = new SchemaNameIndex<>(map);
+    for (int i = 0; i < 1000; i++)
+    {
+      assertEquals(index.get("\u00c9T\u00c9"), "summer");
+    }
+  }
+
+  @Test
+  public void testNonAsciiLookupsDoNotRebuildTable() throws Exception
+  {
+    final ConcurrentHashMap<String, String> map = new ConcurrentHashMap<>();
+    map.put("cn", "cn");
+    map.put("\u00e9t\u00e9", "summer");
+    final SchemaNameIndex<String> index = new SchemaNameIndex<>(map);
+    for (int i = 0; i < 1000; i++)
+    {
+      assertEquals(index.get("CN"), "cn");
+    }
+    assertEquals(index.getStaleLookups(), 0);
+
+    for (int i = 0; i < 1000; i++)
+    {
+      assertEquals(index.get("\u00c9T\u00c9"), "summer");
+    }
+    assertEquals(index.getStaleLookups(), 0);
+  }
+
+  @Test
+  public void testInvalidate() throws Exception
+  {
+    final ConcurrentHashMap<String, String> map = new ConcurrentHashMap<>();
+    map.put("cn", "cn");
+    final SchemaNameIndex<String> index = new SchemaNameIndex<>(map);
+    for (int i = 0; i < 1000; i++)
+    {
+      assertNull(index.get("sn"));
+    }
+
+    map.put("sn", "sn");
+    index.invalidate();
+    for (int i = 0; i < 1000; i++)
+    {
+      assertEquals(index.get("SN"), "sn");
+    }
+
+    map.remove("cn");
+    index.invalidate();
+    for (int i = 0; i < 1000; i++)
+    {
+      assertNull(index.get("CN"));
+    }
+  }
+
+  @Test
+  public void testSchemaLookupsIgnoreCase() throws Exception
+  {
+    final AttributeType cn = DirectoryServer.getAttributeTypeOrNull("cn");
+    assertNotNull(cn);
+    assertSame(DirectoryServer.getAttributeTypeOrNull("CN"), cn);
+    assertSame(DirectoryServer.getAttributeTypeOrNull("commonName"), cn);
+    assertSame(DirectoryServer.getObjectClass("inetOrgPerson"), DirectoryServer.getObjectClass("inetorgperson"));
+  }
+
+  @Test
+  public void testRegisteredAttributeTypesHaveDistinctIds() throws Exception
+  {
+    final AttributeType cn = DirectoryServer.getAttributeTypeOrNull("cn");
+    final AttributeType sn = DirectoryServer.getAttributeTypeOrNull("sn");
+    assertTrue(cn.getId() >= 0);
+    assertTrue(sn.getId() >= 0);
+    assertNotEquals(cn.getId(), sn.getId());
+    assertEquals(DirectoryServer.getAttributeTypeOrDefault("undefinedattr").getId(), -1);
+  }
+
+  @Test
+  public void testRegisteredObjectClassesHaveDistinctIds() throws Exception
+  {
+    final ObjectClass person = DirectoryServer.getObjectClass("person");
+    final ObjectClass top = DirectoryServer.getObjectClass("top");
+    assertTrue(person.getId() >= 0);
+    assertTrue(top.getId() >= 0);
+    assertNotEquals(person.getId(), top.getId());
+    assertEquals(DirectoryServer.getDefaultObjectClass("undefinedoc").getId(), -1);
+  }
+}
@@ -441,6 +441,36 @@ public class SearchFilterTests extends DirectoryServerTestCase {
     final SearchFilter filter = SearchFilter.createFilterFromString(filterStr);
     boolean matches = filter.matchesEntry(entry);
     Assert.assertEquals(matches, expectMatch, "Filter=" + filter + "\nEntry=" + entry);
+    boolean compiledMatches = filter.compile().matchesEntry(entry);
+    Assert.assertEquals(compiledMatches, expectMatch, "Compiled filter=" + filter + "\nEntry=" + entry);
+  }
+
+  @DataProvider(name = "compiledMatchesParams")
+  public Object[][] compiledMatchesParams() {
+    return new Object[][]{
+            // The cheapest components are evaluated first
+            {JOHN_SMITH_LDIF, "(&(cn=*Jo*ith*)(sn:caseExactMatch:=Smith)(objectclass=inetorgperson))", true},
+            {JOHN_SMITH_LDIF, "(&(cn=*Jo*ith*)(sn:caseExactMatch:=Smith)(objectclass=person))", false},
+            {JOHN_SMITH_LDIF, "(|(cn=*Jane*)(sn:caseExactMatch:=smith)(cn=John Smith))", true},
+            {JOHN_SMITH_LDIF, "(|(cn=*Jane*)(sn:caseExactMatch:=smith)(cn=Jane Smith))", false},
+            // An undefined component does not hide a false one, whatever their order
+            {JOHN_SMITH_LDIF, "(!(&(sn:unknownMatch:=Smith)(cn=Jane Smith)))", true},
+            {JOHN_SMITH_LDIF, "(!(&(cn=Jane Smith)(sn:unknownMatch:=Smith)))", true},
+            {JOHN_SMITH_LDIF, "(!(&(sn:unknownMatch:=Smith)(cn=John Smith)))", false},
+            {JOHN_SMITH_LDIF, "(!(|(sn:unknownMatch:=Smith)(cn=Jane Smith)))", false},
+            {JOHN_SMITH_LDIF, "(!(|(sn:unknownMatch:=Smith)(cn=John Smith)))", false},
+            {JOHN_SMITH_LDIF, "(|(sn:unknownMatch:=Smith)(cn=John Smith))", true},
+            // Absolute true and false filters
+            {JOHN_SMITH_LDIF, "(&)", true},
+            {JOHN_SMITH_LDIF, "(|)", false},
+    };
+  }
+
+  /** Both the search filter and the compiled search filter must give the same results. */
+  @Test(dataProvider = "compiledMatchesParams")
+  public void testCompiledMatches(String ldifEntry, String filterStr, boolean expectMatch) throws Exception {
+    Entry entry = TestCaseUtils.entryFromLdifString(ldifEntry);
+    runSingleMatchTest(entry, filterStr, expectMatch);
   }
 
   ////////////////////////////////////////////////////////////////////////////
@@ -26,6 +26,7 @@
  */
 package org.opends.server.types;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -982,5 +983,44 @@ public final class TestEntry extends TypesTestCase {
     attrs = e.getOperationalAttribute(mnType, options);
     assertNull(attrs);
   }
-}
 
+  /**
+   * Tests that entries duplicated with copy on write semantics do not see
+   * each other's modifications.
+   *
+   * @throws Exception
+   *           If the test failed unexpectedly.
+   */
+  @Test
+  public void testDuplicateCopyOnWrite() throws Exception
+  {
+    Entry e = TestCaseUtils.makeEntry(
+        "dn: cn=John Smith,dc=example,dc=com",
+        "objectclass: top",
+        "objectclass: person",
+        "cn: John Smith",
+        "sn: Smith",
+        "description: original");
+    AttributeType descriptionType = DirectoryServer.getAttributeTypeOrNull("description");
+    AttributeType snType = DirectoryServer.getAttributeTypeOrNull("sn");
+    Entry original = e.duplicate(false);
+
+    Entry dup = e.duplicateCopyOnWrite(false);
+    assertEquals(dup, e);
+
+    dup.replaceAttribute(Attributes.create(descriptionType, "changed"));
+    dup.removeAttribute(snType);
+    dup.addObjectClass(DirectoryServer.getObjectClass("extensibleobject"));
+    assertEquals(e, original);
+    assertTrue(dup.hasValue(descriptionType, null, ByteString.valueOf("changed")));
+    assertFalse(dup.hasAttribute(snType));
+
+    Entry dup2 = e.duplicateCopyOnWrite(false);
+    e.addAttribute(Attributes.create(descriptionType, "added"), new ArrayList<ByteString>());
+    assertEquals(dup2, original);
+    assertTrue(e.hasValue(descriptionType, null, ByteString.valueOf("added")));
+
+    dup2.getUserAttributes().clear();
+    assertTrue(e.hasAttribute(snType));
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2015 ForgeRock AS
+ */
+package org.opends.server.util;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.Test;
+
+/**
+ * Test cases for the striped counters.
+ */
+@SuppressWarnings("javadoc")
+public class StripedCountersTestCase extends UtilTestCase
+{
+  @Test
+  public void testSingleThread()
+  {
+    StripedCounters counters = new StripedCounters(3, 4);
+    counters.increment(0);
+    counters.increment(0);
+    counters.add(2, 40);
+
+    assertEquals(counters.size(), 3);
+    assertEquals(counters.get(0), 2);
+    assertEquals(counters.get(1), 0);
+    assertEquals(counters.get(2), 40);
+    assertEquals(counters.getAll(), new long[] { 2, 0, 40 });
+
+    counters.reset();
+    assertEquals(counters.getAll(), new long[] { 0, 0, 0 });
+  }
+
+  @Test
+  public void testConcurrentUpdates() throws Exception
+  {
+    final StripedCounters counters = new StripedCounters(9, 4);
+    final int nbThreads = 8;
+    final int nbIncrements = 10000;
+    Thread[] threads = new Thread[nbThreads];
+    for (int i = 0; i < nbThreads; i++)
+    {
+      threads[i] = new Thread()
+      {
+        @Override
+        public void run()
+        {
+          for (int j = 0; j < nbIncrements; j++)
+          {
+            counters.increment(0);
+            counters.add(8, 2);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads)
+    {
+      thread.join();
+    }
+
+    assertEquals(counters.get(0), nbThreads * nbIncrements);
+    assertEquals(counters.get(8), 2L * nbThreads * nbIncrements);
+    for (int i = 1; i < 8; i++)
+    {
+      assertEquals(counters.get(i), 0);
+    }
+  }
+}